@@ -1,6 +1,7 @@
 package com.aliyun.player.livestream;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 import android.widget.Button;
@@ -12,11 +13,18 @@ import com.aliyun.player.AliPlayerFactory;
 import com.aliyun.player.IPlayer;
 import com.aliyun.player.bean.ErrorInfo;
 import com.aliyun.player.common.Constants;
+import com.aliyun.player.common.abr.AbrController;
+import com.aliyun.player.common.abr.AbrRendition;
+import com.aliyun.player.common.abr.AliPlayerAbrBinder;
+import com.aliyun.player.common.abr.LiveBufferRule;
 import com.aliyun.player.common.utils.ToastUtils;
 import com.aliyun.player.nativeclass.PlayerScene;
 import com.aliyun.player.source.UrlSource;
 import com.aliyun.player.videoview.AliDisplayView;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author 叶俊辉
  * @date 2025/9/11
@@ -42,7 +50,8 @@ import com.aliyun.player.videoview.AliDisplayView;
  * - 调用 start() 方法开始播放
  * <p>
  * Step 4: 设置直播流切换功能
- * - 设置清晰度切换按钮监听
+ * - 由 AbrController 根据缓冲和卡顿自动调用 switchStream 切换
+ * - 设置清晰度切换按钮监听：点击手动切换（关闭自动切换），长按恢复自动切换
  * - 设置流切换回调监听
  * <p>
  * Step 5: 资源清理
@@ -59,6 +68,8 @@ public class BasicLiveStreamActivity extends AppCompatActivity {
     private AliDisplayView mAliDisplayView;
     // 清晰度切换按钮
     private Button mSwitchResolutionBtn;
+    // 自动切换清晰度
+    private AbrController mAbrController;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -175,9 +186,32 @@ public class BasicLiveStreamActivity extends AppCompatActivity {
      * 设置清晰度切换按钮监听和流切换回调监听
      */
     private void setupStreamSwitching() {
-        // 设置清晰度切换按钮点击监听
+        // 两路直播流作为可选码率。直播的下载速度受限于当前码率，无法据此升级，因此按缓冲和卡顿逐级升降
+        List<AbrRendition> renditions = new ArrayList<>();
+        renditions.add(new AbrRendition(0, Constants.DataSource.SAMPLE_LIVESTREAM_VIDEO_BITRATE,
+                Constants.DataSource.SAMPLE_LIVESTREAM_VIDEO_URL, "main"));
+        renditions.add(new AbrRendition(1, Constants.DataSource.SAMPLE_SWITCH_LIVESTREAM_VIDEO_BITRATE,
+                Constants.DataSource.SAMPLE_SWITCH_LIVESTREAM_VIDEO_URL, "switch"));
+        mAbrController = new AbrController(new LiveBufferRule(), (rendition, manual) -> {
+            mAliPlayer.switchStream(rendition.url);
+            Log.d(TAG, "[ABR] switchTo " + rendition + " manual=" + manual);
+        });
+        mAbrController.setRenditions(renditions, 0);
+        // 未配置切换地址时不启用自动切换
+        mAbrController.setAutoEnabled(!TextUtils.isEmpty(Constants.DataSource.SAMPLE_SWITCH_LIVESTREAM_VIDEO_URL));
+        new AliPlayerAbrBinder(mAliPlayer, mAbrController).bind();
+
+        // 设置清晰度切换按钮点击监听：手动切换到另一路流，关闭自动切换
         mSwitchResolutionBtn.setOnClickListener(view -> {
-            mAliPlayer.switchStream(Constants.DataSource.SAMPLE_SWITCH_LIVESTREAM_VIDEO_URL);
+            AbrRendition current = mAbrController.getCurrentRendition();
+            int targetId = current != null && current.id == 1 ? 0 : 1;
+            mAbrController.setManualRendition(targetId, SystemClock.elapsedRealtime());
+        });
+        // 长按恢复自动切换
+        mSwitchResolutionBtn.setOnLongClickListener(view -> {
+            mAbrController.setAutoEnabled(true);
+            ToastUtils.showToast("恢复自动切换清晰度");
+            return true;
         });
 
         // 设置流切换回调监听
@@ -190,6 +224,7 @@ public class BasicLiveStreamActivity extends AppCompatActivity {
             @Override
             public void onSwitchedFail(String url, ErrorInfo errorInfo) {
                 Log.i(TAG, String.format(getString(R.string.app_common_onSwitchedFail), url, errorInfo.getMsg()));
+                mAbrController.onSwitchFailed();
             }
         });
 
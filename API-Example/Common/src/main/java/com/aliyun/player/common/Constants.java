@@ -115,10 +115,19 @@ public final class Constants {
         // FIXME 请填写直播流切换地址，否则会影响相关功能
         public static final String SAMPLE_SWITCH_LIVESTREAM_VIDEO_URL = "";
 
+        // Bitrates (bps) of the two livestreams above, used by the ABR to choose between them
+        // FIXME 请填写两路直播流的实际码率（bps），自动切换依据该值选择
+        public static final long SAMPLE_LIVESTREAM_VIDEO_BITRATE = 2_500_000;
+        public static final long SAMPLE_SWITCH_LIVESTREAM_VIDEO_BITRATE = 1_000_000;
+
         // URL of the RTS LiveStream
         // FIXME 请填写 ARTC 流地址，否则会影响相关功能
         public static final String SAMPLE_RTS_URL = "";
 
+        // Fallback URL of the RTS LiveStream, e.g. the FLV or HLS stream of the same channel
+        // 可选：RTS 降级时使用的普通直播流地址（如同一路流的 FLV/HLS 地址），为空时只调整缓冲参数
+        public static final String SAMPLE_RTS_FALLBACK_URL = "";
+
         // URL of the subtitle file
         public static final String EXT_SUBTITLE = "https://alivc-player.oss-cn-shanghai.aliyuncs.com/API-Example-File/long-video.srt";
 
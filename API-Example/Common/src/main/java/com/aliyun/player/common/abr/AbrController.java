@@ -0,0 +1,175 @@
+package com.aliyun.player.common.abr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @brief 客户端 ABR 控制器
+ * <p>
+ * 接收缓冲和吞吐量采样，由 {@link AbrRule} 选出目标码率，再经过迟滞判断后通过 {@link Switcher} 切换：
+ * <ul>
+ *   <li>两次自动切换至少间隔 {@link #MIN_SWITCH_INTERVAL_MS}</li>
+ *   <li>升码率需要连续 {@link #UP_SWITCH_CONFIRMATIONS} 次判断都要求升高</li>
+ *   <li>缓冲低于 {@link #PANIC_BUFFER_MS} 时降码率不受间隔限制，尽快避免卡顿</li>
+ * </ul>
+ * 手动选择码率后自动切换暂停，直到调用 {@link #setAutoEnabled(boolean)} 恢复。
+ * 当前码率未知（不在可选码率中，或码率 <= 0）时不做自动切换，直到选中一路码率已知的码率。
+ * <p>
+ * 不依赖播放器和系统时钟，时间由调用方传入，可直接用于离线模拟（见单元测试中的 AbrSimulator）。
+ */
+public class AbrController {
+
+    public static final long MIN_SWITCH_INTERVAL_MS = 8_000;
+    public static final int UP_SWITCH_CONFIRMATIONS = 3;
+    public static final long PANIC_BUFFER_MS = 2_000;
+
+    /**
+     * 执行码率切换，点播调用 selectTrack，直播调用 switchStream
+     */
+    public interface Switcher {
+        void switchTo(AbrRendition rendition, boolean manual);
+    }
+
+    private final AbrRule mRule;
+    private final Switcher mSwitcher;
+    private final ThroughputEstimator mThroughputEstimator = new ThroughputEstimator();
+
+    private final List<AbrRendition> mRenditions = new ArrayList<>();
+    private int mCurrentIndex = -1;
+    private int mPreviousIndex = -1;
+    private boolean mAutoEnabled = true;
+    private long mLastSwitchMs = -1;
+    private int mUpSwitchVotes = 0;
+    private int mSwitchCount = 0;
+
+    public AbrController(AbrRule rule, Switcher switcher) {
+        mRule = rule;
+        mSwitcher = switcher;
+    }
+
+    /**
+     * 设置可选码率和当前码率，码率未知（<= 0）的会被忽略
+     *
+     * @param currentId 当前正在播放的码率 id，不在列表中（包括码率未知被忽略）时当前码率未知，暂不自动切换
+     */
+    public void setRenditions(List<AbrRendition> renditions, int currentId) {
+        mRenditions.clear();
+        for (AbrRendition rendition : renditions) {
+            if (rendition.bitrateBps > 0) {
+                mRenditions.add(rendition);
+            }
+        }
+        Collections.sort(mRenditions, (a, b) -> Long.compare(a.bitrateBps, b.bitrateBps));
+        mCurrentIndex = indexOf(currentId);
+        mPreviousIndex = -1;
+        mUpSwitchVotes = 0;
+    }
+
+    public List<AbrRendition> getRenditions() {
+        return Collections.unmodifiableList(mRenditions);
+    }
+
+    public AbrRendition getCurrentRendition() {
+        return mCurrentIndex >= 0 ? mRenditions.get(mCurrentIndex) : null;
+    }
+
+    public long getThroughputBps() {
+        return mThroughputEstimator.getEstimateBps();
+    }
+
+    public int getSwitchCount() {
+        return mSwitchCount;
+    }
+
+    public boolean isAutoEnabled() {
+        return mAutoEnabled;
+    }
+
+    /**
+     * 开启或关闭自动切换，关闭后保持当前码率
+     */
+    public void setAutoEnabled(boolean enabled) {
+        mAutoEnabled = enabled;
+        mUpSwitchVotes = 0;
+    }
+
+    /**
+     * 手动选择码率，立即切换并关闭自动切换
+     *
+     * @return id 不在可选码率中时返回 false，此时不会调用 {@link Switcher}，由调用方自行切换，当前码率记为未知
+     */
+    public boolean setManualRendition(int id, long nowMs) {
+        mAutoEnabled = false;
+        mUpSwitchVotes = 0;
+        int index = indexOf(id);
+        if (index < 0) {
+            mCurrentIndex = -1;
+            mPreviousIndex = -1;
+            return false;
+        }
+        if (index != mCurrentIndex) {
+            switchTo(index, nowMs, true);
+        }
+        return true;
+    }
+
+    /**
+     * 切换失败时回退到切换前的码率记录，避免和播放器实际码率不一致
+     */
+    public void onSwitchFailed() {
+        if (mPreviousIndex >= 0) {
+            mCurrentIndex = mPreviousIndex;
+            mPreviousIndex = -1;
+        }
+    }
+
+    public void onThroughputSample(long nowMs, double bps) {
+        mThroughputEstimator.addSample(nowMs, bps);
+    }
+
+    /**
+     * 缓冲采样，同时触发一次码率判断
+     */
+    public void onBufferSample(long nowMs, long bufferMs) {
+        if (!mAutoEnabled || mCurrentIndex < 0 || mRenditions.size() < 2) {
+            return;
+        }
+        int target = mRule.choose(mRenditions, mCurrentIndex, bufferMs, mThroughputEstimator.getEstimateBps());
+        target = Math.max(0, Math.min(target, mRenditions.size() - 1));
+        if (target == mCurrentIndex) {
+            mUpSwitchVotes = 0;
+            return;
+        }
+        boolean intervalPassed = mLastSwitchMs < 0 || nowMs - mLastSwitchMs >= MIN_SWITCH_INTERVAL_MS;
+        if (target < mCurrentIndex) {
+            mUpSwitchVotes = 0;
+            if (intervalPassed || bufferMs < PANIC_BUFFER_MS) {
+                switchTo(target, nowMs, false);
+            }
+            return;
+        }
+        mUpSwitchVotes++;
+        if (mUpSwitchVotes >= UP_SWITCH_CONFIRMATIONS && intervalPassed) {
+            switchTo(target, nowMs, false);
+        }
+    }
+
+    private void switchTo(int index, long nowMs, boolean manual) {
+        mPreviousIndex = mCurrentIndex;
+        mCurrentIndex = index;
+        mLastSwitchMs = nowMs;
+        mUpSwitchVotes = 0;
+        mSwitchCount++;
+        mSwitcher.switchTo(mRenditions.get(index), manual);
+    }
+
+    private int indexOf(int id) {
+        for (int i = 0; i < mRenditions.size(); i++) {
+            if (mRenditions.get(i).id == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,30 @@
+package com.aliyun.player.common.abr;
+
+/**
+ * @brief ABR 可选的一路码率
+ * <p>
+ * 点播时 id 为 TrackInfo 的 index，通过 selectTrack 切换；直播时 url 为该路流地址，通过 switchStream 切换。
+ */
+public class AbrRendition {
+
+    // 点播为 TrackInfo.getIndex()，直播由业务自行编号
+    public final int id;
+    // 码率（bps）
+    public final long bitrateBps;
+    // 直播流地址，点播为 null
+    public final String url;
+    // 展示用名称，如 "720P"
+    public final String label;
+
+    public AbrRendition(int id, long bitrateBps, String url, String label) {
+        this.id = id;
+        this.bitrateBps = bitrateBps;
+        this.url = url;
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return "AbrRendition{id=" + id + ", bitrate=" + bitrateBps + ", label=" + label + "}";
+    }
+}
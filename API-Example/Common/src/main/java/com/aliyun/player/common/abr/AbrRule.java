@@ -0,0 +1,22 @@
+package com.aliyun.player.common.abr;
+
+import java.util.List;
+
+/**
+ * @brief ABR 码率选择规则，可替换
+ * <p>
+ * 规则只给出"理想"码率，是否真正切换（迟滞、手动锁定）由 {@link AbrController} 决定。
+ */
+public interface AbrRule {
+
+    /**
+     * 选择码率
+     *
+     * @param renditions    按码率从低到高排列的可选码率，至少有一个
+     * @param currentIndex  当前码率在 renditions 中的下标
+     * @param bufferMs      当前缓冲时长（毫秒）
+     * @param throughputBps 吞吐量估计（bps），还没有采样时为 -1
+     * @return 目标码率在 renditions 中的下标
+     */
+    int choose(List<AbrRendition> renditions, int currentIndex, long bufferMs, long throughputBps);
+}
@@ -0,0 +1,70 @@
+package com.aliyun.player.common.abr;
+
+import android.os.SystemClock;
+
+import com.aliyun.player.AliPlayer;
+import com.aliyun.player.IPlayer;
+import com.aliyun.player.bean.InfoBean;
+import com.aliyun.player.bean.InfoCode;
+
+/**
+ * @brief 把播放器事件转换为 ABR 采样
+ * <p>
+ * <ul>
+ *   <li>缓冲时长：Info 事件 BufferedPosition - CurrentPosition</li>
+ *   <li>吞吐量：每次收到 BufferedPosition 时读取 getOption(DownloadBitrate)（bps）</li>
+ *   <li>卡顿：onLoadingBegin 时按缓冲为 0 上报，直播据此降级</li>
+ * </ul>
+ * {@link #bind()} 会占用播放器的 OnInfoListener 和 OnLoadingStatusListener；业务已有这两个监听时不要调用 bind，
+ * 在自己的监听里转发给 {@link #onInfo(InfoBean)}、{@link #onLoadingBegin()} 即可。
+ */
+public class AliPlayerAbrBinder {
+
+    private final AliPlayer mAliPlayer;
+    private final AbrController mController;
+
+    private long mCurrentPositionMs = -1;
+
+    public AliPlayerAbrBinder(AliPlayer aliPlayer, AbrController controller) {
+        mAliPlayer = aliPlayer;
+        mController = controller;
+    }
+
+    public void bind() {
+        mAliPlayer.setOnInfoListener(this::onInfo);
+        mAliPlayer.setOnLoadingStatusListener(new IPlayer.OnLoadingStatusListener() {
+            @Override
+            public void onLoadingBegin() {
+                AliPlayerAbrBinder.this.onLoadingBegin();
+            }
+
+            @Override
+            public void onLoadingProgress(int percent, float netSpeed) {
+            }
+
+            @Override
+            public void onLoadingEnd() {
+            }
+        });
+    }
+
+    /**
+     * 播放卡顿，缓冲已耗尽
+     */
+    public void onLoadingBegin() {
+        mController.onBufferSample(SystemClock.elapsedRealtime(), 0);
+    }
+
+    public void onInfo(InfoBean infoBean) {
+        if (infoBean.getCode() == InfoCode.CurrentPosition) {
+            mCurrentPositionMs = infoBean.getExtraValue();
+        } else if (infoBean.getCode() == InfoCode.BufferedPosition && mCurrentPositionMs >= 0) {
+            long nowMs = SystemClock.elapsedRealtime();
+            Object downloadBitrate = mAliPlayer.getOption(IPlayer.Option.DownloadBitrate);
+            if (downloadBitrate instanceof Number) {
+                mController.onThroughputSample(nowMs, ((Number) downloadBitrate).doubleValue());
+            }
+            mController.onBufferSample(nowMs, Math.max(0, infoBean.getExtraValue() - mCurrentPositionMs));
+        }
+    }
+}
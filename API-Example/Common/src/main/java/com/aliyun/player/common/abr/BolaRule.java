@@ -0,0 +1,82 @@
+package com.aliyun.player.common.abr;
+
+import java.util.List;
+
+/**
+ * @brief 基于缓冲的码率选择（BOLA），缓冲不足时退回吞吐量规则
+ * <p>
+ * <b>BOLA：</b>每路码率的效用为 ln(码率 / 最低码率) + 1，选择使 (V x (效用 + gp) - 缓冲) / 码率 最大的一路。
+ * V 和 gp 由 minBufferMs、targetBufferMs 推出：缓冲在 minBufferMs 时选最低码率，到 targetBufferMs 时选最高码率，
+ * 中间随缓冲增长逐级升高。
+ * <p>
+ * <b>吞吐量兜底：</b>
+ * <ul>
+ *   <li>缓冲低于 startupBufferMs（起播、seek 后、直播等缓冲很短的场景）时 BOLA 没有足够信息，直接使用吞吐量规则</li>
+ *   <li>BOLA 选出的码率高于吞吐量能支撑的码率时，最多保持当前码率，不继续升高，避免缓冲被快速耗尽后再降回来</li>
+ * </ul>
+ */
+public class BolaRule implements AbrRule {
+
+    public static final long DEFAULT_STARTUP_BUFFER_MS = 10_000;
+    public static final long DEFAULT_MIN_BUFFER_MS = 5_000;
+    public static final long DEFAULT_TARGET_BUFFER_MS = 30_000;
+
+    private final long mStartupBufferMs;
+    private final long mMinBufferMs;
+    private final long mTargetBufferMs;
+    private final AbrRule mFallbackRule;
+
+    public BolaRule() {
+        this(DEFAULT_STARTUP_BUFFER_MS, DEFAULT_MIN_BUFFER_MS, DEFAULT_TARGET_BUFFER_MS, new ThroughputRule());
+    }
+
+    public BolaRule(long startupBufferMs, long minBufferMs, long targetBufferMs, AbrRule fallbackRule) {
+        if (minBufferMs <= 0 || targetBufferMs <= minBufferMs) {
+            throw new IllegalArgumentException("need 0 < minBufferMs < targetBufferMs");
+        }
+        mStartupBufferMs = startupBufferMs;
+        mMinBufferMs = minBufferMs;
+        mTargetBufferMs = targetBufferMs;
+        mFallbackRule = fallbackRule;
+    }
+
+    @Override
+    public int choose(List<AbrRendition> renditions, int currentIndex, long bufferMs, long throughputBps) {
+        int fallbackIndex = mFallbackRule.choose(renditions, currentIndex, bufferMs, throughputBps);
+        if (renditions.size() == 1 || bufferMs < mStartupBufferMs) {
+            return fallbackIndex;
+        }
+        int bolaIndex = chooseBola(renditions, bufferMs);
+        if (throughputBps > 0 && bolaIndex > fallbackIndex) {
+            return Math.min(bolaIndex, Math.max(fallbackIndex, currentIndex));
+        }
+        return bolaIndex;
+    }
+
+    private int chooseBola(List<AbrRendition> renditions, long bufferMs) {
+        double lowestBitrate = renditions.get(0).bitrateBps;
+        double topUtility = utility(renditions.get(renditions.size() - 1).bitrateBps, lowestBitrate);
+        if (topUtility <= 1) {
+            // 码率都相同，选哪一路都一样
+            return 0;
+        }
+        double gp = (topUtility - 1) / ((double) mTargetBufferMs / mMinBufferMs - 1);
+        double v = mMinBufferMs / gp;
+
+        int index = 0;
+        double bestScore = -Double.MAX_VALUE;
+        for (int i = 0; i < renditions.size(); i++) {
+            double bitrate = renditions.get(i).bitrateBps;
+            double score = (v * (utility(bitrate, lowestBitrate) + gp) - bufferMs) / bitrate;
+            if (score >= bestScore) {
+                bestScore = score;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static double utility(double bitrate, double lowestBitrate) {
+        return Math.log(bitrate / lowestBitrate) + 1;
+    }
+}
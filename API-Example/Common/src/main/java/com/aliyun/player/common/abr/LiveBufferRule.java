@@ -0,0 +1,87 @@
+package com.aliyun.player.common.abr;
+
+import java.util.List;
+
+/**
+ * @brief 直播码率选择：按缓冲和卡顿逐级升降，不使用吞吐量
+ * <p>
+ * 直播按实时速度拉流，下载速度基本等于当前码率，吞吐量规则选不出比当前更高的码率，降级后无法再升回来。
+ * 因此直播只看缓冲：
+ * <ul>
+ *   <li>缓冲低于 lowBufferMs（卡顿时上报为 0）时降一级</li>
+ *   <li>缓冲不低于 stableBufferMs 时试探升一级，升级后的节奏由 {@link AbrController} 的切换间隔和连续确认次数限制</li>
+ *   <li>试探升级后连续 {@link #PROBE_CONFIRM_SAMPLES} 次采样内又因缓冲不足降回，视为试探失败，
+ *   下一次试探前需要的稳定采样次数翻倍（最多 {@link #MAX_PROBE_HOLD_SAMPLES} 次），避免在两路码率间反复切换</li>
+ * </ul>
+ * 规则有状态，每个 {@link AbrController} 使用单独的实例。
+ */
+public class LiveBufferRule implements AbrRule {
+
+    public static final long DEFAULT_LOW_BUFFER_MS = 500;
+    public static final long DEFAULT_STABLE_BUFFER_MS = 1_500;
+
+    // 试探升级后稳定这么多次采样，视为试探成功
+    public static final int PROBE_CONFIRM_SAMPLES = 20;
+    // 试探失败后，下一次试探前需要的稳定采样次数上限
+    public static final int MAX_PROBE_HOLD_SAMPLES = 240;
+
+    private final long mLowBufferMs;
+    private final long mStableBufferMs;
+
+    // 当前码率下连续稳定的采样次数，码率变化时清零
+    private int mStableSamples = 0;
+    private int mLastIndex = -1;
+    // 试探升级到的码率下标，试探成功或失败后为 -1
+    private int mProbedIndex = -1;
+    // 下一次试探前需要的稳定采样次数
+    private int mProbeHoldSamples = 0;
+
+    public LiveBufferRule() {
+        this(DEFAULT_LOW_BUFFER_MS, DEFAULT_STABLE_BUFFER_MS);
+    }
+
+    public LiveBufferRule(long lowBufferMs, long stableBufferMs) {
+        if (lowBufferMs < 0 || stableBufferMs <= lowBufferMs) {
+            throw new IllegalArgumentException("need 0 <= lowBufferMs < stableBufferMs");
+        }
+        mLowBufferMs = lowBufferMs;
+        mStableBufferMs = stableBufferMs;
+    }
+
+    @Override
+    public int choose(List<AbrRendition> renditions, int currentIndex, long bufferMs, long throughputBps) {
+        if (currentIndex != mLastIndex) {
+            mLastIndex = currentIndex;
+            mStableSamples = 0;
+        }
+        if (bufferMs < mLowBufferMs) {
+            mStableSamples = 0;
+            if (currentIndex == mProbedIndex) {
+                // 试探的码率撑不住
+                mProbeHoldSamples = Math.min(MAX_PROBE_HOLD_SAMPLES, Math.max(PROBE_CONFIRM_SAMPLES, mProbeHoldSamples * 2));
+                mProbedIndex = -1;
+            }
+            return Math.max(0, currentIndex - 1);
+        }
+        if (bufferMs < mStableBufferMs) {
+            return currentIndex;
+        }
+        mStableSamples++;
+        if (currentIndex == mProbedIndex && mStableSamples >= PROBE_CONFIRM_SAMPLES) {
+            mProbedIndex = -1;
+            mProbeHoldSamples = 0;
+        }
+        if (currentIndex >= renditions.size() - 1 || mStableSamples < mProbeHoldSamples) {
+            return currentIndex;
+        }
+        mProbedIndex = currentIndex + 1;
+        return currentIndex + 1;
+    }
+
+    /**
+     * 下一次试探升级前需要的稳定采样次数
+     */
+    public int getProbeHoldSamples() {
+        return mProbeHoldSamples;
+    }
+}
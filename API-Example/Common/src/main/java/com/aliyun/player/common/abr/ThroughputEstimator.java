@@ -0,0 +1,72 @@
+package com.aliyun.player.common.abr;
+
+/**
+ * @brief 吞吐量估计
+ * <p>
+ * 快、慢两个按时间加权的指数滑动平均（半衰期 3s / 8s），取两者较小值：
+ * 带宽下降时快速跟上，带宽短暂升高时不会立刻被采信。0 和负值的采样（缓冲已满、没有下载）会被忽略。
+ */
+public class ThroughputEstimator {
+
+    private static final long FAST_HALF_LIFE_MS = 3_000;
+    private static final long SLOW_HALF_LIFE_MS = 8_000;
+    // 第一个采样没有间隔可用时按该间隔加权
+    private static final long DEFAULT_SAMPLE_INTERVAL_MS = 500;
+
+    private final Ewma mFast = new Ewma(FAST_HALF_LIFE_MS);
+    private final Ewma mSlow = new Ewma(SLOW_HALF_LIFE_MS);
+    private long mLastSampleMs = -1;
+
+    public void addSample(long nowMs, double bps) {
+        if (bps <= 0) {
+            return;
+        }
+        long intervalMs = mLastSampleMs < 0 ? DEFAULT_SAMPLE_INTERVAL_MS : Math.max(1, nowMs - mLastSampleMs);
+        mLastSampleMs = nowMs;
+        mFast.add(intervalMs, bps);
+        mSlow.add(intervalMs, bps);
+    }
+
+    /**
+     * 吞吐量估计（bps），还没有采样时返回 -1
+     */
+    public long getEstimateBps() {
+        if (mLastSampleMs < 0) {
+            return -1;
+        }
+        return (long) Math.min(mFast.get(), mSlow.get());
+    }
+
+    public void reset() {
+        mFast.reset();
+        mSlow.reset();
+        mLastSampleMs = -1;
+    }
+
+    private static class Ewma {
+        private final long mHalfLifeMs;
+        private double mEstimate;
+        private long mTotalWeightMs;
+
+        Ewma(long halfLifeMs) {
+            mHalfLifeMs = halfLifeMs;
+        }
+
+        void add(long weightMs, double value) {
+            double alpha = Math.pow(0.5, (double) weightMs / mHalfLifeMs);
+            mEstimate = alpha * mEstimate + (1 - alpha) * value;
+            mTotalWeightMs += weightMs;
+        }
+
+        double get() {
+            // 修正初始值为 0 带来的偏低
+            double zeroFactor = 1 - Math.pow(0.5, (double) mTotalWeightMs / mHalfLifeMs);
+            return zeroFactor > 0 ? mEstimate / zeroFactor : 0;
+        }
+
+        void reset() {
+            mEstimate = 0;
+            mTotalWeightMs = 0;
+        }
+    }
+}
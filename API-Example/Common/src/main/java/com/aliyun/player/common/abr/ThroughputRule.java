@@ -0,0 +1,38 @@
+package com.aliyun.player.common.abr;
+
+import java.util.List;
+
+/**
+ * @brief 基于吞吐量的码率选择：选择不超过 "吞吐量 x 安全系数" 的最高码率
+ * <p>
+ * 还没有吞吐量采样时保持当前码率。
+ */
+public class ThroughputRule implements AbrRule {
+
+    public static final float DEFAULT_SAFETY_FACTOR = 0.9f;
+
+    private final float mSafetyFactor;
+
+    public ThroughputRule() {
+        this(DEFAULT_SAFETY_FACTOR);
+    }
+
+    public ThroughputRule(float safetyFactor) {
+        mSafetyFactor = safetyFactor;
+    }
+
+    @Override
+    public int choose(List<AbrRendition> renditions, int currentIndex, long bufferMs, long throughputBps) {
+        if (throughputBps <= 0) {
+            return Math.max(currentIndex, 0);
+        }
+        double budget = throughputBps * (double) mSafetyFactor;
+        int index = 0;
+        for (int i = 1; i < renditions.size(); i++) {
+            if (renditions.get(i).bitrateBps <= budget) {
+                index = i;
+            }
+        }
+        return index;
+    }
+}
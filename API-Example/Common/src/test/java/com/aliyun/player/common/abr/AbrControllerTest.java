@@ -0,0 +1,144 @@
+package com.aliyun.player.common.abr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @brief AbrController 的迟滞、手动锁定、切换失败回退和码率未知处理
+ */
+public class AbrControllerTest {
+
+    // 规则直接返回 mTarget，便于控制每次判断的结果
+    private int mTarget;
+    private final List<AbrRendition> mSwitched = new ArrayList<>();
+    private AbrController mController;
+
+    @Before
+    public void setUp() {
+        mTarget = 0;
+        mSwitched.clear();
+        mController = new AbrController((renditions, currentIndex, bufferMs, throughputBps) -> mTarget,
+                (rendition, manual) -> mSwitched.add(rendition));
+        mController.setRenditions(Arrays.asList(
+                new AbrRendition(10, 3_000_000, null, "720P"),
+                new AbrRendition(11, 800_000, null, "360P"),
+                new AbrRendition(12, 1_500_000, null, "480P")), 11);
+    }
+
+    @Test
+    public void setRenditions_sortsByBitrate() {
+        List<AbrRendition> renditions = mController.getRenditions();
+        assertEquals(11, renditions.get(0).id);
+        assertEquals(12, renditions.get(1).id);
+        assertEquals(10, renditions.get(2).id);
+        assertEquals(11, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void upSwitch_needsConsecutiveVotes() {
+        mTarget = 2;
+        for (int i = 0; i < AbrController.UP_SWITCH_CONFIRMATIONS - 1; i++) {
+            mController.onBufferSample(i * 1000L, 20_000);
+        }
+        assertTrue(mSwitched.isEmpty());
+        mController.onBufferSample(5_000, 20_000);
+        assertEquals(1, mSwitched.size());
+        assertEquals(10, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void upSwitch_votesResetWhenTargetMatchesCurrent() {
+        mTarget = 2;
+        mController.onBufferSample(0, 20_000);
+        mController.onBufferSample(1_000, 20_000);
+        mTarget = 0;
+        mController.onBufferSample(2_000, 20_000);
+        mTarget = 2;
+        mController.onBufferSample(3_000, 20_000);
+        mController.onBufferSample(4_000, 20_000);
+        assertTrue(mSwitched.isEmpty());
+    }
+
+    @Test
+    public void downSwitch_waitsForIntervalUnlessBufferIsLow() {
+        mController.setManualRendition(10, 0);
+        mController.setAutoEnabled(true);
+        mSwitched.clear();
+
+        mTarget = 1;
+        mController.onBufferSample(1_000, 10_000);
+        assertTrue("within the switch interval", mSwitched.isEmpty());
+        mController.onBufferSample(2_000, AbrController.PANIC_BUFFER_MS - 1);
+        assertEquals("panic down-switch", 1, mSwitched.size());
+
+        mTarget = 0;
+        mController.onBufferSample(3_000, 10_000);
+        assertEquals(1, mSwitched.size());
+        mController.onBufferSample(2_000 + AbrController.MIN_SWITCH_INTERVAL_MS, 10_000);
+        assertEquals(2, mSwitched.size());
+        assertEquals(11, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void manualRendition_locksUntilAutoResumed() {
+        assertTrue(mController.setManualRendition(12, 0));
+        assertFalse(mController.isAutoEnabled());
+        assertEquals(12, mController.getCurrentRendition().id);
+
+        mTarget = 2;
+        for (int i = 1; i <= 10; i++) {
+            mController.onBufferSample(i * AbrController.MIN_SWITCH_INTERVAL_MS, 20_000);
+        }
+        assertEquals(1, mSwitched.size());
+
+        mController.setAutoEnabled(true);
+        for (int i = 11; i <= 13; i++) {
+            mController.onBufferSample(i * AbrController.MIN_SWITCH_INTERVAL_MS, 20_000);
+        }
+        assertEquals(10, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void switchFailed_rollsBack() {
+        mController.setManualRendition(10, 0);
+        mController.onSwitchFailed();
+        assertEquals(11, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void unknownCurrentBitrate_pausesAutoSwitching() {
+        mController.setRenditions(Arrays.asList(
+                new AbrRendition(0, 0, null, "auto"),
+                new AbrRendition(1, 800_000, null, "360P"),
+                new AbrRendition(2, 3_000_000, null, "720P")), 0);
+        assertNull(mController.getCurrentRendition());
+        assertEquals(2, mController.getRenditions().size());
+
+        mTarget = 1;
+        for (int i = 1; i <= 5; i++) {
+            mController.onBufferSample(i * AbrController.MIN_SWITCH_INTERVAL_MS, 20_000);
+        }
+        assertTrue(mSwitched.isEmpty());
+
+        // 手动选择码率已知的一路后恢复
+        assertTrue(mController.setManualRendition(1, 0));
+        assertEquals(1, mController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void manualUnknownRendition_marksCurrentUnknown() {
+        assertFalse(mController.setManualRendition(99, 0));
+        assertFalse(mController.isAutoEnabled());
+        assertNull(mController.getCurrentRendition());
+        assertTrue(mSwitched.isEmpty());
+    }
+}
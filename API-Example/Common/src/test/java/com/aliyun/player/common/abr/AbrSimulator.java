@@ -0,0 +1,224 @@
+package com.aliyun.player.common.abr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * @brief ABR 离线模拟器
+ * <p>
+ * 用带宽轨迹回放一次播放：按分片下载，下载期间播放消耗缓冲，缓冲耗尽即卡顿，缓冲满时暂停下载。
+ * 每个分片下载前把缓冲交给 {@link AbrController} 判断码率，下载完成后把本分片的实际吞吐量作为采样。
+ * 输出卡顿率、平均码率、切换次数和起播耗时，用于在不同规则、参数之间做对比。
+ * <p>
+ * <b>轨迹格式：</b>每行 "持续时长ms 带宽bps"，空行和 # 开头的行被忽略，例如：
+ * <pre>
+ * # 10 秒 4Mbps，再 5 秒 800kbps
+ * 10000 4000000
+ * 5000 800000
+ * </pre>
+ * 由 {@link AbrSimulatorTest} 在 JVM 上运行。
+ */
+public class AbrSimulator {
+
+    public static final long DEFAULT_SEGMENT_MS = 2_000;
+    public static final long DEFAULT_MAX_BUFFER_MS = 30_000;
+
+    /**
+     * 模拟结果
+     */
+    public static class Report {
+        // 正常播放时长（毫秒）
+        public long playedMs;
+        // 卡顿时长（毫秒），不含起播
+        public long rebufferMs;
+        // 起播耗时（毫秒）
+        public long startupMs;
+        // 按播放时长加权的平均码率（bps）
+        public long averageBitrateBps;
+        public int switchCount;
+        public int segmentCount;
+
+        /**
+         * 卡顿率 = 卡顿时长 / (播放时长 + 卡顿时长)
+         */
+        public double getRebufferRatio() {
+            long total = playedMs + rebufferMs;
+            return total > 0 ? (double) rebufferMs / total : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "rebufferRatio=%.4f averageBitrate=%dkbps switches=%d startup=%dms played=%dms rebuffer=%dms segments=%d",
+                    getRebufferRatio(), averageBitrateBps / 1000, switchCount, startupMs, playedMs, rebufferMs, segmentCount);
+        }
+    }
+
+    /**
+     * 带宽轨迹中的一段
+     */
+    public static class TracePoint {
+        public final long durationMs;
+        public final long bps;
+
+        public TracePoint(long durationMs, long bps) {
+            this.durationMs = durationMs;
+            this.bps = bps;
+        }
+    }
+
+    private final List<TracePoint> mTrace;
+    private final long mSegmentMs;
+    private final long mMaxBufferMs;
+
+    // 当前模拟时间在轨迹中的位置
+    private int mTraceIndex;
+    private long mTraceOffsetMs;
+
+    public AbrSimulator(List<TracePoint> trace) {
+        this(trace, DEFAULT_SEGMENT_MS, DEFAULT_MAX_BUFFER_MS);
+    }
+
+    public AbrSimulator(List<TracePoint> trace, long segmentMs, long maxBufferMs) {
+        if (trace.isEmpty()) {
+            throw new IllegalArgumentException("empty trace");
+        }
+        mTrace = trace;
+        mSegmentMs = segmentMs;
+        mMaxBufferMs = maxBufferMs;
+    }
+
+    /**
+     * 用指定规则回放整条轨迹，轨迹结束时模拟结束
+     */
+    public Report run(AbrRule rule, List<AbrRendition> renditions) {
+        mTraceIndex = 0;
+        mTraceOffsetMs = 0;
+        Report report = new Report();
+        AbrController controller = new AbrController(rule, (rendition, manual) -> {
+        });
+        // 从最低码率起播
+        AbrRendition lowest = renditions.get(0);
+        for (AbrRendition rendition : renditions) {
+            if (rendition.bitrateBps > 0 && (lowest.bitrateBps <= 0 || rendition.bitrateBps < lowest.bitrateBps)) {
+                lowest = rendition;
+            }
+        }
+        controller.setRenditions(renditions, lowest.id);
+        if (controller.getCurrentRendition() == null) {
+            throw new IllegalArgumentException("no rendition with a known bitrate");
+        }
+
+        long nowMs = 0;
+        long bufferMs = 0;
+        boolean playing = false;
+        double bitrateTimeSum = 0;
+        long contentMs = 0;
+
+        while (mTraceIndex < mTrace.size()) {
+            // 缓冲已满，等待播放消耗出一个分片的空间
+            if (bufferMs + mSegmentMs > mMaxBufferMs) {
+                long waitMs = bufferMs + mSegmentMs - mMaxBufferMs;
+                advance(waitMs);
+                nowMs += waitMs;
+                bufferMs -= waitMs;
+                report.playedMs += waitMs;
+                continue;
+            }
+
+            controller.onBufferSample(nowMs, bufferMs);
+            AbrRendition rendition = controller.getCurrentRendition();
+            double bits = rendition.bitrateBps * (double) mSegmentMs / 1000;
+            long downloadMs = download(bits);
+            if (downloadMs < 0) {
+                break;
+            }
+            nowMs += downloadMs;
+            controller.onThroughputSample(nowMs, bits * 1000 / Math.max(1, downloadMs));
+
+            if (playing) {
+                if (downloadMs > bufferMs) {
+                    report.rebufferMs += downloadMs - bufferMs;
+                    report.playedMs += bufferMs;
+                    bufferMs = 0;
+                } else {
+                    report.playedMs += downloadMs;
+                    bufferMs -= downloadMs;
+                }
+            } else {
+                report.startupMs += downloadMs;
+            }
+            bufferMs += mSegmentMs;
+            playing = true;
+
+            bitrateTimeSum += rendition.bitrateBps * (double) mSegmentMs;
+            contentMs += mSegmentMs;
+            report.segmentCount++;
+        }
+
+        report.averageBitrateBps = contentMs > 0 ? (long) (bitrateTimeSum / contentMs) : 0;
+        report.switchCount = controller.getSwitchCount();
+        return report;
+    }
+
+    /**
+     * 按轨迹带宽下载 bits，返回耗时，轨迹结束前没有下载完时返回 -1
+     */
+    private long download(double bits) {
+        double remaining = bits;
+        long elapsedMs = 0;
+        while (mTraceIndex < mTrace.size()) {
+            TracePoint point = mTrace.get(mTraceIndex);
+            long leftMs = point.durationMs - mTraceOffsetMs;
+            double capacity = point.bps * (double) leftMs / 1000;
+            if (point.bps > 0 && capacity >= remaining) {
+                long usedMs = (long) Math.ceil(remaining * 1000 / point.bps);
+                mTraceOffsetMs += usedMs;
+                return elapsedMs + usedMs;
+            }
+            remaining -= Math.max(0, capacity);
+            elapsedMs += leftMs;
+            mTraceIndex++;
+            mTraceOffsetMs = 0;
+        }
+        return -1;
+    }
+
+    private void advance(long ms) {
+        while (ms > 0 && mTraceIndex < mTrace.size()) {
+            long leftMs = mTrace.get(mTraceIndex).durationMs - mTraceOffsetMs;
+            if (ms < leftMs) {
+                mTraceOffsetMs += ms;
+                return;
+            }
+            ms -= leftMs;
+            mTraceIndex++;
+            mTraceOffsetMs = 0;
+        }
+    }
+
+    /**
+     * 解析带宽轨迹，格式错误时抛出 IllegalArgumentException
+     */
+    public static List<TracePoint> parseTrace(Reader reader) throws IOException {
+        List<TracePoint> trace = new ArrayList<>();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("bad trace line: " + line);
+            }
+            trace.add(new TracePoint(Long.parseLong(parts[0]), Long.parseLong(parts[1])));
+        }
+        return trace;
+    }
+}
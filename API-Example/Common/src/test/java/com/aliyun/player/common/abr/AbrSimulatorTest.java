@@ -0,0 +1,81 @@
+package com.aliyun.player.common.abr;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @brief 用带宽轨迹回放，对比吞吐量规则和 BOLA 的卡顿率、平均码率和切换次数
+ */
+public class AbrSimulatorTest {
+
+    private static List<AbrRendition> renditions() {
+        List<AbrRendition> renditions = new ArrayList<>();
+        long[] bitrates = {400_000, 800_000, 1_500_000, 3_000_000, 6_000_000};
+        for (int i = 0; i < bitrates.length; i++) {
+            renditions.add(new AbrRendition(i, bitrates[i], null, String.valueOf(bitrates[i])));
+        }
+        return renditions;
+    }
+
+    private static List<AbrSimulator.TracePoint> trace(long... durationAndBps) {
+        List<AbrSimulator.TracePoint> trace = new ArrayList<>();
+        for (int i = 0; i + 1 < durationAndBps.length; i += 2) {
+            trace.add(new AbrSimulator.TracePoint(durationAndBps[i], durationAndBps[i + 1]));
+        }
+        return trace;
+    }
+
+    @Test
+    public void parseTrace_skipsCommentsAndBlankLines() throws IOException {
+        List<AbrSimulator.TracePoint> trace = AbrSimulator.parseTrace(new StringReader(
+                "# 10 秒 4Mbps，再 5 秒 800kbps\n\n10000 4000000\n  5000\t800000  \n"));
+        assertEquals(2, trace.size());
+        assertEquals(10_000, trace.get(0).durationMs);
+        assertEquals(4_000_000, trace.get(0).bps);
+        assertEquals(5_000, trace.get(1).durationMs);
+        assertEquals(800_000, trace.get(1).bps);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseTrace_rejectsBadLine() throws IOException {
+        AbrSimulator.parseTrace(new StringReader("10000\n"));
+    }
+
+    @Test
+    public void steadyBandwidth_climbsWithoutRebuffering() {
+        List<AbrSimulator.TracePoint> trace = trace(120_000, 10_000_000);
+        for (AbrRule rule : new AbrRule[]{new ThroughputRule(), new BolaRule()}) {
+            AbrSimulator.Report report = new AbrSimulator(trace).run(rule, renditions());
+            assertEquals(rule + ": " + report, 0, report.rebufferMs);
+            assertTrue(rule + ": " + report, report.averageBitrateBps >= 3_000_000);
+        }
+    }
+
+    @Test
+    public void stepDrop_staysWithinOnePercentRebuffer() {
+        List<AbrSimulator.TracePoint> trace = trace(60_000, 8_000_000, 60_000, 1_000_000);
+        for (AbrRule rule : new AbrRule[]{new ThroughputRule(), new BolaRule()}) {
+            AbrSimulator.Report report = new AbrSimulator(trace).run(rule, renditions());
+            assertTrue(rule + ": " + report, report.getRebufferRatio() < 0.01);
+        }
+    }
+
+    @Test
+    public void oscillatingBandwidth_hysteresisLimitsSwitches() {
+        long[] points = new long[120];
+        for (int i = 0; i < points.length; i += 2) {
+            points[i] = 2_000;
+            points[i + 1] = (i / 2) % 2 == 0 ? 6_000_000 : 2_000_000;
+        }
+        AbrSimulator.Report report = new AbrSimulator(trace(points)).run(new ThroughputRule(), renditions());
+        // 2 秒一次的带宽跳变不应该引起每个分片都切换
+        assertTrue(report.toString(), report.switchCount <= report.segmentCount / 4);
+    }
+}
@@ -0,0 +1,101 @@
+package com.aliyun.player.common.abr;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @brief 直播码率选择：下载速度等于当前码率时仍能升回高码率，试探失败后拉长试探间隔
+ */
+public class LiveBufferRuleTest {
+
+    private static final long SAMPLE_INTERVAL_MS = 500;
+
+    private static final List<AbrRendition> RENDITIONS = Arrays.asList(
+            new AbrRendition(1, 1_000_000, "low", "low"),
+            new AbrRendition(0, 2_500_000, "high", "high"));
+
+    @Test
+    public void lowBuffer_stepsDown() {
+        LiveBufferRule rule = new LiveBufferRule();
+        assertEquals(0, rule.choose(RENDITIONS, 1, 0, -1));
+        assertEquals(0, rule.choose(RENDITIONS, 0, 0, -1));
+        assertEquals(1, rule.choose(RENDITIONS, 1, LiveBufferRule.DEFAULT_LOW_BUFFER_MS, -1));
+    }
+
+    @Test
+    public void healthyBuffer_climbsBackAlthoughThroughputIsCapped() {
+        AbrController controller = new AbrController(new LiveBufferRule(), (rendition, manual) -> {
+        });
+        controller.setRenditions(RENDITIONS, 1);
+        long nowMs = 0;
+        // 卡顿后降到低码率
+        controller.onBufferSample(nowMs, 0);
+        assertEquals(1, controller.getCurrentRendition().id);
+
+        // 直播的下载速度等于当前码率，吞吐量规则会停在低码率
+        AbrController throughputController = new AbrController(new ThroughputRule(), (rendition, manual) -> {
+        });
+        throughputController.setRenditions(RENDITIONS, 1);
+
+        for (int i = 0; i < 60; i++) {
+            nowMs += SAMPLE_INTERVAL_MS;
+            long currentBps = controller.getCurrentRendition().bitrateBps;
+            controller.onThroughputSample(nowMs, currentBps);
+            controller.onBufferSample(nowMs, 2_000);
+            throughputController.onThroughputSample(nowMs, throughputController.getCurrentRendition().bitrateBps);
+            throughputController.onBufferSample(nowMs, 2_000);
+        }
+        assertEquals(0, controller.getCurrentRendition().id);
+        assertEquals(1, throughputController.getCurrentRendition().id);
+    }
+
+    @Test
+    public void failedProbe_backsOffExponentially() {
+        LiveBufferRule rule = new LiveBufferRule();
+        int current = 0;
+        int previousHold = 0;
+        for (int round = 0; round < 6; round++) {
+            // 稳定直到试探升级
+            int samples = 0;
+            while (rule.choose(RENDITIONS, current, 2_000, -1) == current) {
+                samples++;
+                assertTrue("never probes", samples < 10_000);
+            }
+            assertTrue(samples + 1 >= previousHold);
+            current = 1;
+            // 高码率撑不住，立即降回
+            assertEquals(0, rule.choose(RENDITIONS, current, 0, -1));
+            current = 0;
+            int hold = rule.getProbeHoldSamples();
+            assertTrue(hold >= LiveBufferRule.PROBE_CONFIRM_SAMPLES);
+            assertTrue(hold <= LiveBufferRule.MAX_PROBE_HOLD_SAMPLES);
+            assertTrue(hold == LiveBufferRule.MAX_PROBE_HOLD_SAMPLES || hold > previousHold);
+            previousHold = hold;
+        }
+        assertEquals(LiveBufferRule.MAX_PROBE_HOLD_SAMPLES, rule.getProbeHoldSamples());
+    }
+
+    @Test
+    public void confirmedProbe_resetsBackoff() {
+        LiveBufferRule rule = new LiveBufferRule();
+        while (rule.choose(RENDITIONS, 0, 2_000, -1) == 0) {
+        }
+        rule.choose(RENDITIONS, 1, 0, -1);
+        assertTrue(rule.getProbeHoldSamples() > 0);
+
+        while (rule.choose(RENDITIONS, 0, 2_000, -1) == 0) {
+        }
+        for (int i = 0; i < LiveBufferRule.PROBE_CONFIRM_SAMPLES; i++) {
+            rule.choose(RENDITIONS, 1, 2_000, -1);
+        }
+        assertEquals(0, rule.getProbeHoldSamples());
+        // 试探成功后的卡顿按普通降级处理，不再拉长试探间隔
+        rule.choose(RENDITIONS, 1, 0, -1);
+        assertEquals(0, rule.getProbeHoldSamples());
+    }
+}
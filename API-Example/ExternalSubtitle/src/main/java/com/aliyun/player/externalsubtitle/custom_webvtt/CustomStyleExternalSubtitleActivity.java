@@ -4,7 +4,9 @@ import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.Gravity;
+import android.view.View;
 import android.widget.FrameLayout;
+import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
@@ -13,7 +15,9 @@ import com.aliyun.player.AliPlayer;
 import com.aliyun.player.AliPlayerFactory;
 import com.aliyun.player.IPlayer;
 import com.aliyun.player.bean.ErrorInfo;
+import com.aliyun.player.bean.InfoCode;
 import com.aliyun.player.common.Constants;
+import com.aliyun.player.common.network.HttpClientUtils;
 import com.aliyun.player.common.utils.ToastUtils;
 import com.aliyun.player.externalsubtitle.R;
 import com.aliyun.player.nativeclass.PlayerScene;
@@ -22,6 +26,9 @@ import com.aliyun.player.videoview.AliDisplayView;
 import com.aliyun.subtitle.SubTitleBase;
 import com.cicada.player.utils.webVtt.VttSubtitleView;
 
+import java.io.IOException;
+import java.io.StringReader;
+
 /**
  * @author yuqiwang
  * @date 2026/01/15
@@ -42,6 +49,8 @@ import com.cicada.player.utils.webVtt.VttSubtitleView;
  *         加载并播放视频
  * Step 4: Handle subtitle loading and display events
  *         处理字幕加载与显示事件
+ *         (the subtitle file is pre-parsed into a cue timeline; SDK subtitle callbacks are the fallback)
+ *         （字幕文件预解析为 cue 时间轴，解析失败时回退到 SDK 字幕回调）
  * Step 5: Clean up resources to prevent memory leaks
  *         清理资源（防止内存泄漏）
  */
@@ -61,6 +70,24 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
     private CustomStyleWebVttResolver mResolver; // Step 2: Custom resolver for parsing WebVTT styles
     // Step 2: 自定义字幕样式解析器
 
+    private TextView mCueTextView;          // Step 4: View for pre-parsed cues
+    // Step 4: 预解析字幕的显示 View
+
+    private WebVttCueRenderer mCueRenderer; // Step 4: Drives pre-parsed cues by playback position, null until parsed
+    // Step 4: 按播放位置调度预解析的字幕，解析完成前为 null
+
+    private boolean mPrepared = false;      // Step 4: Whether onPrepared has been received
+    // Step 4: 是否已收到 onPrepared
+
+    private boolean mCueLoadFinished = false; // Step 4: Whether subtitle pre-parsing has finished (success or failure)
+    // Step 4: 字幕预解析是否已结束（无论成功失败）
+
+    private boolean mPlaying = false;       // Step 4: Whether the player is in started state
+    // Step 4: 播放器是否处于播放状态
+
+    private boolean mBuffering = false;     // Step 4: Whether the player is rebuffering
+    // Step 4: 播放器是否正在卡顿缓冲
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -79,6 +106,8 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
         // Step 1: 初始化播放器
         setupView();        // Step 2: Initialize UI
         // Step 2: 初始化 UI
+        loadCueTimeline();  // Step 4: Pre-parse subtitle file in background
+        // Step 4: 后台预解析字幕文件
         startPlayback();    // Step 3: Start playback
         // Step 3: 开始播放
     }
@@ -105,9 +134,59 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
         mAliPlayer.setOnPreparedListener(new IPlayer.OnPreparedListener() {
             @Override
             public void onPrepared() {
-                // Step 4 entry point: Add external subtitle track
-                // Step 4 的起点：添加外挂字幕轨道
-                mAliPlayer.addExtSubtitle(Constants.DataSource.EXT_SUBTITLE);
+                // Step 4 entry point: Add external subtitle track if pre-parsing failed
+                // Step 4 的起点：预解析失败时添加外挂字幕轨道
+                mPrepared = true;
+                addExtSubtitleIfNeeded();
+            }
+        });
+
+        // Playback position drives pre-parsed cues, including the position after seeking
+        // 播放进度驱动预解析字幕的显示，seek 后的进度同样由此传入
+        mAliPlayer.setOnInfoListener(infoBean -> {
+            if (infoBean.getCode() == InfoCode.CurrentPosition && mCueRenderer != null) {
+                mCueRenderer.onPosition(infoBean.getExtraValue());
+            }
+        });
+
+        // Pause cue scheduling when playback is not running
+        // 非播放状态时暂停字幕调度
+        mAliPlayer.setOnStateChangedListener(newState -> {
+            mPlaying = newState == IPlayer.started;
+            if (mCueRenderer != null) {
+                mCueRenderer.setPlaying(mPlaying);
+            }
+        });
+
+        // Rebuffering stops playback position, pause cue scheduling until loading ends
+        // 卡顿缓冲期间播放位置不前进，暂停字幕调度直到缓冲结束
+        mAliPlayer.setOnLoadingStatusListener(new IPlayer.OnLoadingStatusListener() {
+            @Override
+            public void onLoadingBegin() {
+                mBuffering = true;
+                if (mCueRenderer != null) {
+                    mCueRenderer.setBuffering(true);
+                }
+            }
+
+            @Override
+            public void onLoadingProgress(int percent, float netSpeed) {
+            }
+
+            @Override
+            public void onLoadingEnd() {
+                mBuffering = false;
+                if (mCueRenderer != null) {
+                    mCueRenderer.setBuffering(false);
+                }
+            }
+        });
+
+        // The position after a seek always re-queries cues, even when it is slightly behind
+        // seek 完成后的进度无论前进后退都重新查询字幕
+        mAliPlayer.setOnSeekCompleteListener(() -> {
+            if (mCueRenderer != null) {
+                mCueRenderer.onSeekComplete();
             }
         });
 
@@ -186,6 +265,7 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
      */
     private void setupView() {
         mRootView = findViewById(R.id.styler_root_layout);
+        mCueTextView = findViewById(R.id.styler_cue_text_view);
         // Step 2: Video rendering view
         AliDisplayView mDisplayView = findViewById(R.id.styler_ali_display_view);
 
@@ -245,6 +325,77 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
         // prepare 后可立即 start，onPrepared 后自动播放
     }
 
+    /**
+     * Step 4: Pre-parse the subtitle file
+     * - Download and parse the whole file once in background, build a cue timeline (interval tree)
+     * - Seeking and cue changes are then resolved locally in O(log n), styled cues are cached
+     *
+     * Step 4: 预解析字幕文件
+     * - 在后台线程下载并一次性解析整个文件，建立 cue 时间轴（区间树）
+     * - 之后 seek 和字幕切换均在本地以 O(log n) 查询，带样式的字幕文本会被缓存
+     */
+    private void loadCueTimeline() {
+        // 简单的网络请求工具 实际项目中请替换为您项目中的网络请求工具
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                WebVttCueTimeline timeline = null;
+                String content = HttpClientUtils.getContentFromURI(Constants.DataSource.EXT_SUBTITLE);
+                if (content != null) {
+                    try {
+                        timeline = new WebVttCueTimeline(WebVttParser.parse(new StringReader(content)));
+                    } catch (IOException e) {
+                        Log.e(TAG, "[loadCueTimeline] parse failed: " + e.getMessage());
+                    }
+                }
+                WebVttCueTimeline result = timeline;
+                runOnUiThread(() -> onCueTimelineLoaded(result));
+            }
+        }).start();
+    }
+
+    /**
+     * Step 4: Pre-parsing finished, switch to pre-parsed cues or fall back to SDK subtitle track
+     *
+     * Step 4: 预解析结束，使用预解析字幕，或回退到 SDK 字幕轨道
+     *
+     * @param timeline parsed timeline, null on failure
+     *                 解析结果，失败时为 null
+     */
+    private void onCueTimelineLoaded(WebVttCueTimeline timeline) {
+        if (mAliPlayer == null) {
+            // Activity already destroyed
+            // Activity 已销毁
+            return;
+        }
+        mCueLoadFinished = true;
+        if (timeline != null && !timeline.isEmpty()) {
+            Log.d(TAG, "[onCueTimelineLoaded] cue count: " + timeline.size());
+            WebVttCueStyler styler = new WebVttCueStyler(mResolver.getTypeface());
+            mCueRenderer = new WebVttCueRenderer(timeline, styler, text -> {
+                mCueTextView.setText(text);
+                mCueTextView.setVisibility(text == null ? View.GONE : View.VISIBLE);
+            });
+            mCueRenderer.setPlaying(mPlaying);
+            mCueRenderer.setBuffering(mBuffering);
+            // Call setSpeed again wherever the player's speed is changed
+            // 修改播放器倍速的地方需要同步调用 setSpeed
+            mCueRenderer.setSpeed(mAliPlayer.getSpeed());
+        }
+        addExtSubtitleIfNeeded();
+    }
+
+    /**
+     * Step 4: Fall back to SDK external subtitle track when pre-parsing failed
+     *
+     * Step 4: 预解析失败时，回退为 SDK 外挂字幕轨道
+     */
+    private void addExtSubtitleIfNeeded() {
+        if (mPrepared && mCueLoadFinished && mCueRenderer == null) {
+            mAliPlayer.addExtSubtitle(Constants.DataSource.EXT_SUBTITLE);
+        }
+    }
+
     /**
      * Step 4: Handle external subtitle track loaded event
      * - Select and enable the subtitle track
@@ -278,6 +429,10 @@ public class CustomStyleExternalSubtitleActivity extends AppCompatActivity {
      * Step 5: 销毁字幕相关组件
      */
     private void destroyView() {
+        if (mCueRenderer != null) {
+            mCueRenderer.release();
+            mCueRenderer = null;
+        }
         if (mVttSubtitleView != null) {
             mVttSubtitleView.destroy();
         }
@@ -12,6 +12,9 @@ import android.util.Log;
 import com.cicada.player.utils.webVtt.VttContentAttribute;
 import com.cicada.player.utils.webVtt.WebVttResolver;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 自定义样式 WebVTT 解析器
  * 该类继承自 WebVttResolver，用于在解析字幕时动态修改文本样式（如字体大小、颜色等）。
@@ -21,8 +24,18 @@ public class CustomStyleWebVttResolver extends WebVttResolver {
 
     private static final String TAG = "CustomStylerResolver";
 
+    // 自定义字幕颜色：不透明红色（ARGB: 255, 255, 0, 0）
+    static final int PRIMARY_COLOR = Color.argb(255, 255, 0, 0);
+
+    // 自定义字号相对原始字号的倍数
+    static final float FONT_SIZE_SCALE = 2f;
+
     private Typeface mTypeface;
 
+    // 复用的字体 span：同一个 span 对象在一段文本中只能挂载一次，
+    // 因此每次取第一个尚未挂载到当前文本上的实例，池大小等于单条字幕中样式片段的最大数量
+    private final List<CustomTypefaceSpan> mTypefaceSpans = new ArrayList<>();
+
     /**
      * 构造函数
      *
@@ -52,6 +65,14 @@ public class CustomStyleWebVttResolver extends WebVttResolver {
     }
 
 
+    /**
+     * 获取自定义字体，未加载成功时为 Typeface.DEFAULT
+     */
+    public Typeface getTypeface() {
+        return mTypeface;
+    }
+
+
     /**
      * 重写文本样式应用逻辑，实现自定义样式效果
      * 本方法在父类解析出基础样式后调用，允许对字体大小、颜色等属性进行二次处理。
@@ -69,11 +90,11 @@ public class CustomStyleWebVttResolver extends WebVttResolver {
 
         // 【自定义逻辑】将字体大小放大为原来的 2 倍
         // 注意：WebVTT 中的 fontSizePx 通常已根据视频高度计算得出，此处为演示目的进行缩放
-        vttContentAttribute.fontSizePx = originalFontSizePx * 2;
+        vttContentAttribute.fontSizePx = originalFontSizePx * FONT_SIZE_SCALE;
 
         // 【自定义逻辑】强制将字体颜色设置为不透明红色（ARGB: 255, 255, 0, 0）
         // 覆盖 WebVTT 原始定义的颜色，适用于高亮或调试场景
-        vttContentAttribute.mPrimaryColour = Color.argb(255, 255, 0, 0);
+        vttContentAttribute.mPrimaryColour = PRIMARY_COLOR;
 
         // 调用父类方法，使用修改后的 vttContentAttribute 应用完整样式
         // 父类内部会处理：字体名称、大小、颜色、粗体、斜体、下划线等
@@ -102,8 +123,26 @@ public class CustomStyleWebVttResolver extends WebVttResolver {
          */
 
         // 再叠加自定义字体样式（覆盖父类可能设置的 TypefaceSpan）
-        // 使用自定义的 CustomTypefaceSpan，支持直接传入 Typeface 对象
-        spannableStringBuilder.setSpan(new CustomTypefaceSpan(mTypeface), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        // 使用自定义的 CustomTypefaceSpan，支持直接传入 Typeface 对象；span 从池中复用，不在每次渲染时分配
+        spannableStringBuilder.setSpan(obtainTypefaceSpan(spannableStringBuilder), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /**
+     * 从池中取一个尚未挂载到 text 上的字体 span，池中没有时新建并放入池中
+     * CustomTypefaceSpan 不含可变状态，可以同时挂载在不同的文本上。
+     *
+     * @param text 当前正在构建的字幕文本
+     */
+    private CustomTypefaceSpan obtainTypefaceSpan(Spanned text) {
+        for (int i = 0; i < mTypefaceSpans.size(); i++) {
+            CustomTypefaceSpan span = mTypefaceSpans.get(i);
+            if (text.getSpanStart(span) < 0) {
+                return span;
+            }
+        }
+        CustomTypefaceSpan span = new CustomTypefaceSpan(mTypeface);
+        mTypefaceSpans.add(span);
+        return span;
     }
 
 
@@ -111,8 +150,9 @@ public class CustomStyleWebVttResolver extends WebVttResolver {
      * 自定义 Typeface Span 类
      * 继承自 MetricAffectingSpan，能够在文本绘制和测量阶段正确应用 Typeface。
      * 解决了标准 TypefaceSpan 无法直接使用 Typeface 对象的问题。
+     * 同包的 {@link WebVttCueStyler} 也使用该类，以保持两条渲染路径的字体效果一致。
      */
-    private static class CustomTypefaceSpan extends MetricAffectingSpan {
+    static class CustomTypefaceSpan extends MetricAffectingSpan {
 
         // 要应用的自定义字体
         private final Typeface typeface;
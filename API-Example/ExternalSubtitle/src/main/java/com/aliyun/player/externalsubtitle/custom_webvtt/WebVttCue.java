@@ -0,0 +1,33 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+/**
+ * WebVTT 字幕条目（cue）
+ * 由 {@link WebVttParser} 解析得到，时间区间为 [startMs, endMs)，text 为未处理的原始文本（可能包含 b、i、c 等标签）。
+ */
+public class WebVttCue {
+
+    // cue 标识，文件中没有写时为 null
+    public final String id;
+    public final long startMs;
+    public final long endMs;
+    public final String text;
+
+    public WebVttCue(String id, long startMs, long endMs, String text) {
+        this.id = id;
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.text = text;
+    }
+
+    /**
+     * 指定时间点是否在该 cue 的显示区间内
+     */
+    public boolean isActiveAt(long positionMs) {
+        return startMs <= positionMs && positionMs < endMs;
+    }
+
+    @Override
+    public String toString() {
+        return "WebVttCue{" + startMs + " --> " + endMs + ", " + text + "}";
+    }
+}
@@ -0,0 +1,211 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字幕 cue 渲染调度器
+ * 根据播放位置从 {@link WebVttCueTimeline} 中查出需要显示的 cue，只有显示内容发生变化时才通知 {@link Display}。
+ * <p>
+ * 调度方式：
+ * 1. 每次查询同时得到"显示内容保持不变的截止时间"，截止时间之前的进度回调直接忽略，不做任何查询；
+ * 2. 播放中按截止时间设置定时器，到点切换字幕，切换时机不受进度回调间隔（默认 500ms）的限制；
+ * 3. 进度跳出 [查询位置, 截止时间) 区间（seek、循环播放等）时重新查询，耗时 O(log n)，与字幕文件长度无关。
+ * <p>
+ * 定时器按当前倍速推算播放位置；暂停、卡顿缓冲时播放位置不再前进，定时器停止，恢复后从停止时的位置继续推算。
+ * 需在主线程调用。
+ */
+public class WebVttCueRenderer {
+
+    /**
+     * 字幕显示回调
+     */
+    public interface Display {
+        /**
+         * 显示内容发生变化
+         *
+         * @param text 需要显示的字幕，为 null 时隐藏字幕
+         */
+        void onCuesChanged(CharSequence text);
+    }
+
+    private final WebVttCueTimeline mTimeline;
+    private final WebVttCueStyler mStyler;
+    private final Display mDisplay;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // 当前显示的 cue 与查询缓冲区，两者交替使用，避免每次查询分配新列表
+    private List<WebVttCue> mVisibleCues = new ArrayList<>();
+    private List<WebVttCue> mQueryCues = new ArrayList<>();
+
+    // 显示内容在 [mWindowStartMs, mWindowEndMs) 区间内保持不变
+    private long mWindowStartMs = -1;
+    private long mWindowEndMs = -1;
+
+    // 推算播放位置的起点：播放位置及对应的系统时间，进度回调、暂停、缓冲和倍速变化时更新
+    private long mPositionMs = -1;
+    private long mPositionRealtimeMs;
+    // 最近一次进度回调的播放位置，用于区分回调滞后和真正的回退
+    private long mReportedPositionMs = -1;
+    // 上次进度回调后，显示区间是否由定时器推进过
+    private boolean mAdvancedByTimer = false;
+    // 下一次进度回调必须重新查询（seek 完成后）
+    private boolean mForceUpdate = false;
+    private boolean mPlaying = false;
+    private boolean mBuffering = false;
+    private float mSpeed = 1f;
+
+    private final Runnable mChangeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mPositionMs < 0) {
+                return;
+            }
+            // 定时器可能略早于截止时间触发，此时以截止时间为准
+            update(Math.max(estimatePosition(), mWindowEndMs));
+            mAdvancedByTimer = true;
+        }
+    };
+
+    public WebVttCueRenderer(WebVttCueTimeline timeline, WebVttCueStyler styler, Display display) {
+        mTimeline = timeline;
+        mStyler = styler;
+        mDisplay = display;
+    }
+
+    /**
+     * 播放进度更新，seek 完成后的进度也通过该方法传入
+     *
+     * @param positionMs 播放位置（毫秒）
+     */
+    public void onPosition(long positionMs) {
+        // 定时器按推算位置提前切换后，稍有滞后的进度回调不回退显示内容，避免字幕闪烁；
+        // 进度比上一次回调还小则是真正的回退（seek、循环播放），重新查询
+        boolean lagging = mAdvancedByTimer && !mForceUpdate
+                && positionMs >= mReportedPositionMs && positionMs < mWindowStartMs;
+        mPositionMs = positionMs;
+        mPositionRealtimeMs = SystemClock.elapsedRealtime();
+        mReportedPositionMs = positionMs;
+        mForceUpdate = false;
+        if (lagging) {
+            scheduleChange();
+            return;
+        }
+        mAdvancedByTimer = false;
+        update(positionMs);
+    }
+
+    /**
+     * seek 完成，下一次进度回调无论前进还是后退都重新查询
+     */
+    public void onSeekComplete() {
+        mForceUpdate = true;
+    }
+
+    /**
+     * 播放状态变化，暂停时停止定时器
+     */
+    public void setPlaying(boolean playing) {
+        if (playing != mPlaying) {
+            rebasePosition();
+            mPlaying = playing;
+        }
+        scheduleChange();
+    }
+
+    /**
+     * 卡顿缓冲开始/结束（onLoadingBegin/onLoadingEnd），缓冲期间播放位置不前进，停止定时器
+     */
+    public void setBuffering(boolean buffering) {
+        if (buffering != mBuffering) {
+            rebasePosition();
+            mBuffering = buffering;
+        }
+        scheduleChange();
+    }
+
+    /**
+     * 播放倍速变化，调用播放器 setSpeed 后同步调用
+     */
+    public void setSpeed(float speed) {
+        if (speed <= 0 || speed == mSpeed) {
+            return;
+        }
+        rebasePosition();
+        mSpeed = speed;
+        scheduleChange();
+    }
+
+    /**
+     * 停止调度并隐藏字幕
+     */
+    public void release() {
+        mHandler.removeCallbacks(mChangeRunnable);
+        mPositionMs = -1;
+        mReportedPositionMs = -1;
+        mAdvancedByTimer = false;
+        mWindowStartMs = -1;
+        mWindowEndMs = -1;
+        if (!mVisibleCues.isEmpty()) {
+            mVisibleCues.clear();
+            mDisplay.onCuesChanged(null);
+        }
+    }
+
+    private void update(long positionMs) {
+        if (positionMs >= mWindowStartMs && positionMs < mWindowEndMs) {
+            // 显示内容不变，只需在播放状态下保证定时器存在
+            scheduleChange();
+            return;
+        }
+        mQueryCues.clear();
+        mTimeline.query(positionMs, mQueryCues);
+        mWindowStartMs = positionMs;
+        mWindowEndMs = mTimeline.nextChangeAfter(positionMs, mQueryCues);
+
+        if (!mQueryCues.equals(mVisibleCues)) {
+            List<WebVttCue> visibleCues = mQueryCues;
+            mQueryCues = mVisibleCues;
+            mVisibleCues = visibleCues;
+            mDisplay.onCuesChanged(mStyler.compose(mVisibleCues));
+        }
+        scheduleChange();
+    }
+
+    private boolean isAdvancing() {
+        return mPlaying && !mBuffering;
+    }
+
+    /**
+     * 当前播放位置的推算值，暂停和缓冲期间不前进
+     */
+    private long estimatePosition() {
+        if (!isAdvancing()) {
+            return mPositionMs;
+        }
+        return mPositionMs + (long) ((SystemClock.elapsedRealtime() - mPositionRealtimeMs) * mSpeed);
+    }
+
+    /**
+     * 以当前推算位置为新的推算起点，在暂停、缓冲、倍速变化前调用
+     */
+    private void rebasePosition() {
+        if (mPositionMs >= 0) {
+            mPositionMs = estimatePosition();
+        }
+        mPositionRealtimeMs = SystemClock.elapsedRealtime();
+    }
+
+    private void scheduleChange() {
+        mHandler.removeCallbacks(mChangeRunnable);
+        if (!isAdvancing() || mPositionMs < 0 || mWindowEndMs == Long.MAX_VALUE || mWindowEndMs < 0) {
+            return;
+        }
+        long remainingMs = Math.max(0, mWindowEndMs - estimatePosition());
+        mHandler.postDelayed(mChangeRunnable, (long) Math.ceil(remainingMs / mSpeed));
+    }
+}
@@ -0,0 +1,252 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.style.ForegroundColorSpan;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.UnderlineSpan;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字幕 cue 样式生成器
+ * 将 cue 原始文本转换为带样式的 Spanned，效果与 {@link CustomStyleWebVttResolver} 一致（自定义字体、红色、2 倍字号）。
+ * <p>
+ * 性能要点：
+ * 1. 每个 cue 的结果缓存在 LruCache 中，重复显示（如 seek 回退）时不再重新解析和分配；
+ * 2. 整条 cue 共用的字体、颜色、字号 span 在所有 cue 之间复用同一组实例，只有 b、i、u 标签需要单独创建 span。
+ * <p>
+ * 支持的标签：b、i、u；c、v、lang、ruby、font 等标签及时间戳标签只去掉标签本身，保留文本。
+ * 需在主线程调用。
+ */
+public class WebVttCueStyler {
+
+    private static final int CACHE_SIZE = 64;
+
+    private final LruCache<WebVttCue, Spanned> mCache = new LruCache<>(CACHE_SIZE);
+
+    // 整条 cue 共用的样式 span，所有 cue 复用同一组实例
+    private final Object[] mCueSpans;
+
+    // 解析标签时复用的栈，记录未闭合标签的名称和起始位置
+    private final List<String> mOpenTagNames = new ArrayList<>();
+    private final List<Integer> mOpenTagStarts = new ArrayList<>();
+
+    /**
+     * 构造函数
+     *
+     * @param typeface 字幕字体，通常与 {@link CustomStyleWebVttResolver#getTypeface()} 相同
+     */
+    public WebVttCueStyler(Typeface typeface) {
+        mCueSpans = new Object[]{
+                new CustomStyleWebVttResolver.CustomTypefaceSpan(typeface),
+                new ForegroundColorSpan(CustomStyleWebVttResolver.PRIMARY_COLOR),
+                new RelativeSizeSpan(CustomStyleWebVttResolver.FONT_SIZE_SCALE)
+        };
+    }
+
+    /**
+     * 获取单个 cue 的带样式文本，优先从缓存中读取
+     */
+    public Spanned getSpanned(WebVttCue cue) {
+        Spanned spanned = mCache.get(cue);
+        if (spanned == null) {
+            spanned = build(cue.text);
+            mCache.put(cue, spanned);
+        }
+        return spanned;
+    }
+
+    /**
+     * 将同时显示的多个 cue 合并为一段文本，每个 cue 一行
+     *
+     * @param cues 同时显示的 cue，为空时返回 null
+     */
+    public CharSequence compose(List<WebVttCue> cues) {
+        if (cues.isEmpty()) {
+            return null;
+        }
+        if (cues.size() == 1) {
+            return getSpanned(cues.get(0));
+        }
+        // 同一个 span 对象在一段文本中只能挂载一次，共用的 span 不逐个拷贝，合并后统一设置到整段文本上
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        for (int i = 0; i < cues.size(); i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            int offset = builder.length();
+            Spanned spanned = getSpanned(cues.get(i));
+            builder.append(spanned.toString());
+            Object[] spans = spanned.getSpans(0, spanned.length(), Object.class);
+            for (Object span : spans) {
+                if (!isCueSpan(span)) {
+                    builder.setSpan(span, offset + spanned.getSpanStart(span), offset + spanned.getSpanEnd(span),
+                            spanned.getSpanFlags(span));
+                }
+            }
+        }
+        applyCueSpans(builder);
+        return builder;
+    }
+
+    /**
+     * 清空缓存，切换字幕文件时调用
+     */
+    public void clear() {
+        mCache.evictAll();
+    }
+
+    private Spanned build(String text) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        mOpenTagNames.clear();
+        mOpenTagStarts.clear();
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                int tagEnd = text.indexOf('>', i + 1);
+                if (tagEnd < 0) {
+                    // 没有闭合的 '<' 按普通字符处理
+                    builder.append(c);
+                    i++;
+                    continue;
+                }
+                handleTag(builder, text, i + 1, tagEnd);
+                i = tagEnd + 1;
+            } else if (c == '&') {
+                i = appendEntity(builder, text, i);
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        // 未闭合的标签作用到文本末尾
+        for (int j = mOpenTagNames.size() - 1; j >= 0; j--) {
+            applyTagSpan(builder, mOpenTagNames.get(j), mOpenTagStarts.get(j), builder.length());
+        }
+        applyCueSpans(builder);
+        return new SpannedString(builder);
+    }
+
+    private void handleTag(SpannableStringBuilder builder, String text, int from, int to) {
+        if (from >= to || Character.isDigit(text.charAt(from))) {
+            // 空标签或时间戳标签
+            return;
+        }
+        boolean closing = text.charAt(from) == '/';
+        String name = tagName(text, closing ? from + 1 : from, to);
+        if (!closing) {
+            mOpenTagNames.add(name);
+            mOpenTagStarts.add(builder.length());
+            return;
+        }
+        // 从栈顶找到对应的开始标签，中间未闭合的标签一并结束
+        for (int j = mOpenTagNames.size() - 1; j >= 0; j--) {
+            if (mOpenTagNames.get(j).equals(name)) {
+                for (int k = mOpenTagNames.size() - 1; k >= j; k--) {
+                    applyTagSpan(builder, mOpenTagNames.get(k), mOpenTagStarts.get(k), builder.length());
+                    mOpenTagNames.remove(k);
+                    mOpenTagStarts.remove(k);
+                }
+                return;
+            }
+        }
+    }
+
+    private static String tagName(String text, int from, int to) {
+        int end = from;
+        while (end < to) {
+            char c = text.charAt(end);
+            if (c == '.' || c == ' ' || c == '\t') {
+                break;
+            }
+            end++;
+        }
+        return text.substring(from, end);
+    }
+
+    private static void applyTagSpan(SpannableStringBuilder builder, String name, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        Object span;
+        switch (name) {
+            case "b":
+                span = new StyleSpan(Typeface.BOLD);
+                break;
+            case "i":
+                span = new StyleSpan(Typeface.ITALIC);
+                break;
+            case "u":
+                span = new UnderlineSpan();
+                break;
+            default:
+                return;
+        }
+        builder.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    /**
+     * 处理 HTML 实体，返回下一个待处理字符的位置
+     */
+    private static int appendEntity(SpannableStringBuilder builder, String text, int ampersand) {
+        int semicolon = text.indexOf(';', ampersand + 1);
+        // 支持的实体名最长 4 个字符
+        if (semicolon > ampersand + 1 && semicolon - ampersand <= 5) {
+            char replacement = 0;
+            switch (text.substring(ampersand + 1, semicolon)) {
+                case "amp":
+                    replacement = '&';
+                    break;
+                case "lt":
+                    replacement = '<';
+                    break;
+                case "gt":
+                    replacement = '>';
+                    break;
+                case "nbsp":
+                    replacement = '\u00A0';
+                    break;
+                case "lrm":
+                    replacement = '\u200E';
+                    break;
+                case "rlm":
+                    replacement = '\u200F';
+                    break;
+                default:
+                    break;
+            }
+            if (replacement != 0) {
+                builder.append(replacement);
+                return semicolon + 1;
+            }
+        }
+        builder.append('&');
+        return ampersand + 1;
+    }
+
+    private void applyCueSpans(SpannableStringBuilder builder) {
+        if (builder.length() == 0) {
+            return;
+        }
+        for (Object span : mCueSpans) {
+            builder.setSpan(span, 0, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+    }
+
+    private boolean isCueSpan(Object span) {
+        for (Object cueSpan : mCueSpans) {
+            if (cueSpan == span) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,129 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 字幕 cue 时间轴索引（静态区间树）
+ * cue 按开始时间排序后存入数组，以数组为隐式平衡二叉树：区间 [lo, hi) 的根节点为中点 mid，
+ * 每个节点额外记录其子树内最大的结束时间。查询某一时刻正在显示的 cue 时，
+ * 子树最大结束时间不晚于该时刻、或根节点开始时间晚于该时刻（右子树同理）的分支会被整体跳过，
+ * 复杂度为 O(log n + k)，k 为命中的 cue 数量；seek 到任意位置都不需要遍历整个文件。
+ * <p>
+ * 建立后不可修改，可在后台线程构建，构建完成后只读访问，无需加锁。
+ */
+public class WebVttCueTimeline {
+
+    private final WebVttCue[] mCues;
+    private final long[] mStarts;
+    private final long[] mEnds;
+    // mMaxEnds[mid] 为以 mid 为根的子树内最大的结束时间
+    private final long[] mMaxEnds;
+
+    public WebVttCueTimeline(List<WebVttCue> cues) {
+        List<WebVttCue> sorted = new ArrayList<>(cues);
+        // 稳定排序，开始时间相同的 cue 保持文件中的顺序
+        Collections.sort(sorted, (a, b) -> Long.compare(a.startMs, b.startMs));
+        int size = sorted.size();
+        mCues = sorted.toArray(new WebVttCue[size]);
+        mStarts = new long[size];
+        mEnds = new long[size];
+        mMaxEnds = new long[size];
+        for (int i = 0; i < size; i++) {
+            mStarts[i] = mCues[i].startMs;
+            mEnds[i] = mCues[i].endMs;
+        }
+        buildMaxEnds(0, size);
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo >= hi) {
+            return Long.MIN_VALUE;
+        }
+        int mid = (lo + hi) >>> 1;
+        long maxEnd = Math.max(mEnds[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        mMaxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    public int size() {
+        return mCues.length;
+    }
+
+    public boolean isEmpty() {
+        return mCues.length == 0;
+    }
+
+    /**
+     * 按开始时间排序后的第 index 个 cue
+     */
+    public WebVttCue get(int index) {
+        return mCues[index];
+    }
+
+    /**
+     * 查询指定时刻正在显示的 cue，结果按开始时间排序追加到 out 中
+     *
+     * @param positionMs 播放位置（毫秒）
+     * @param out        查询结果，调用方可复用该列表以避免分配，查询前不会被清空
+     */
+    public void query(long positionMs, List<WebVttCue> out) {
+        query(0, mCues.length, positionMs, out);
+    }
+
+    private void query(int lo, int hi, long positionMs, List<WebVttCue> out) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mMaxEnds[mid] <= positionMs) {
+                // 整棵子树都已结束
+                return;
+            }
+            query(lo, mid, positionMs, out);
+            if (mStarts[mid] > positionMs) {
+                // 右子树开始得更晚，不可能命中
+                return;
+            }
+            if (mEnds[mid] > positionMs) {
+                out.add(mCues[mid]);
+            }
+            // 右子树改为循环处理，递归深度只取决于左子树
+            lo = mid + 1;
+        }
+    }
+
+    /**
+     * 指定时刻之后，第一个开始时间晚于该时刻的 cue 的开始时间
+     *
+     * @return 不存在时返回 Long.MAX_VALUE
+     */
+    public long nextStartAfter(long positionMs) {
+        int lo = 0;
+        int hi = mStarts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mStarts[mid] <= positionMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < mStarts.length ? mStarts[lo] : Long.MAX_VALUE;
+    }
+
+    /**
+     * 从指定时刻开始，显示内容保持不变的截止时间：即正在显示的 cue 中最早的结束时间，
+     * 与下一个 cue 的开始时间两者中的较小值。在此之前无需重新查询。
+     *
+     * @param positionMs 播放位置（毫秒）
+     * @param activeCues positionMs 时刻的 {@link #query} 结果
+     * @return 之后不再有变化时返回 Long.MAX_VALUE
+     */
+    public long nextChangeAfter(long positionMs, List<WebVttCue> activeCues) {
+        long nextChangeMs = nextStartAfter(positionMs);
+        for (int i = 0; i < activeCues.size(); i++) {
+            nextChangeMs = Math.min(nextChangeMs, activeCues.get(i).endMs);
+        }
+        return nextChangeMs;
+    }
+}
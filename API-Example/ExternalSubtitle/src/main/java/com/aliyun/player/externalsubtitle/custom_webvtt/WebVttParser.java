@@ -0,0 +1,146 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WebVTT 字幕文件解析器
+ * 逐行读取，一次性解析出全部 cue，交给 {@link WebVttCueTimeline} 建立索引。
+ * <p>
+ * 兼容 SRT 格式（毫秒分隔符为逗号、没有 WEBVTT 文件头）；NOTE、STYLE、REGION 等不含时间行的块会被跳过，
+ * 时间格式错误或结束时间不晚于开始时间的 cue 会被丢弃，不会中断整个文件的解析。
+ */
+public class WebVttParser {
+
+    private static final String ARROW = "-->";
+
+    /**
+     * 解析字幕文件，返回按文件顺序排列的 cue
+     *
+     * @param reader 字幕文件内容，由调用方负责关闭
+     */
+    public static List<WebVttCue> parse(Reader reader) throws IOException {
+        List<WebVttCue> cues = new ArrayList<>();
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        // 当前块的上一行（时间行之前的那一行即为 cue id）
+        String previousLine = null;
+        long startMs = -1;
+        long endMs = -1;
+        String id = null;
+        StringBuilder text = new StringBuilder();
+        boolean inCue = false;
+        boolean firstLine = true;
+
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            if (firstLine) {
+                // 去掉 UTF-8 BOM
+                if (!line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                firstLine = false;
+            }
+
+            if (line.trim().isEmpty()) {
+                // 空行结束当前块
+                if (inCue) {
+                    addCue(cues, id, startMs, endMs, text);
+                    inCue = false;
+                }
+                previousLine = null;
+                continue;
+            }
+
+            if (inCue) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(line);
+                continue;
+            }
+
+            if (line.contains(ARROW)) {
+                int arrow = line.indexOf(ARROW);
+                startMs = parseTimestamp(line, 0, arrow);
+                endMs = parseTimestamp(line, arrow + ARROW.length(), line.length());
+                if (startMs >= 0 && endMs > startMs) {
+                    id = previousLine;
+                    text.setLength(0);
+                    inCue = true;
+                }
+                previousLine = null;
+            } else {
+                previousLine = line.trim();
+            }
+        }
+        if (inCue) {
+            addCue(cues, id, startMs, endMs, text);
+        }
+        return cues;
+    }
+
+    private static void addCue(List<WebVttCue> cues, String id, long startMs, long endMs, StringBuilder text) {
+        if (text.length() > 0) {
+            cues.add(new WebVttCue(id, startMs, endMs, text.toString()));
+        }
+    }
+
+    /**
+     * 解析 [hh:]mm:ss.ttt 格式的时间戳（也接受逗号分隔的毫秒），时间戳后的 cue 设置会被忽略
+     *
+     * @return 毫秒，格式错误时返回 -1
+     */
+    static long parseTimestamp(String line, int from, int to) {
+        int i = from;
+        while (i < to && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        long seconds = 0;
+        int fieldCount = 0;
+        long millis = -1;
+        while (i < to) {
+            int fieldStart = i;
+            long value = 0;
+            while (i < to && Character.isDigit(line.charAt(i))) {
+                value = value * 10 + (line.charAt(i) - '0');
+                i++;
+            }
+            if (i == fieldStart) {
+                return -1;
+            }
+            if (i < to && line.charAt(i) == ':') {
+                seconds = seconds * 60 + value;
+                fieldCount++;
+                i++;
+                continue;
+            }
+            if (i < to && (line.charAt(i) == '.' || line.charAt(i) == ',')) {
+                seconds = seconds * 60 + value;
+                fieldCount++;
+                i++;
+                int millisStart = i;
+                millis = 0;
+                while (i < to && i - millisStart < 3 && Character.isDigit(line.charAt(i))) {
+                    millis = millis * 10 + (line.charAt(i) - '0');
+                    i++;
+                }
+                if (i - millisStart != 3) {
+                    return -1;
+                }
+            }
+            break;
+        }
+        // 必须是 mm:ss.ttt 或 hh:mm:ss.ttt
+        if (millis < 0 || fieldCount < 2 || fieldCount > 3) {
+            return -1;
+        }
+        if (i < to && line.charAt(i) != ' ' && line.charAt(i) != '\t') {
+            return -1;
+        }
+        return seconds * 1000 + millis;
+    }
+}
@@ -0,0 +1,116 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WebVttCueTimeline：重叠 cue 的查询、区间边界和 nextChangeAfter，随机数据与线性扫描对比
+ */
+public class WebVttCueTimelineTest {
+
+    private static WebVttCue cue(long startMs, long endMs, String text) {
+        return new WebVttCue(null, startMs, endMs, text);
+    }
+
+    private static List<WebVttCue> query(WebVttCueTimeline timeline, long positionMs) {
+        List<WebVttCue> out = new ArrayList<>();
+        timeline.query(positionMs, out);
+        return out;
+    }
+
+    @Test
+    public void query_overlappingCuesInStartOrder() {
+        WebVttCue longCue = cue(2_000, 6_000, "long");
+        WebVttCue early = cue(1_000, 3_000, "early");
+        WebVttCue sameStart = cue(2_000, 4_000, "same start");
+        WebVttCueTimeline timeline = new WebVttCueTimeline(Arrays.asList(longCue, early, sameStart));
+
+        assertEquals(Collections.emptyList(), query(timeline, 999));
+        assertEquals(Collections.singletonList(early), query(timeline, 1_000));
+        // 开始时间相同的 cue 保持文件中的顺序
+        assertEquals(Arrays.asList(early, longCue, sameStart), query(timeline, 2_000));
+        assertEquals(Arrays.asList(longCue, sameStart), query(timeline, 3_000));
+        assertEquals(Collections.singletonList(longCue), query(timeline, 4_000));
+        assertEquals(Collections.emptyList(), query(timeline, 6_000));
+    }
+
+    @Test
+    public void query_appendsWithoutClearing() {
+        WebVttCue only = cue(0, 1_000, "only");
+        WebVttCueTimeline timeline = new WebVttCueTimeline(Collections.singletonList(only));
+        List<WebVttCue> out = new ArrayList<>();
+        out.add(cue(5, 6, "existing"));
+        timeline.query(500, out);
+        assertEquals(2, out.size());
+        assertEquals(only, out.get(1));
+    }
+
+    @Test
+    public void nextChangeAfter_isEarliestEndOrNextStart() {
+        WebVttCueTimeline timeline = new WebVttCueTimeline(Arrays.asList(
+                cue(1_000, 5_000, "a"), cue(2_000, 3_000, "b"), cue(4_000, 8_000, "c")));
+        assertEquals(1_000, timeline.nextChangeAfter(0, query(timeline, 0)));
+        // a 正在显示，b 在 2000 开始
+        assertEquals(2_000, timeline.nextChangeAfter(1_500, query(timeline, 1_500)));
+        // a、b 同时显示，b 先结束
+        assertEquals(3_000, timeline.nextChangeAfter(2_000, query(timeline, 2_000)));
+        assertEquals(4_000, timeline.nextChangeAfter(3_000, query(timeline, 3_000)));
+        assertEquals(5_000, timeline.nextChangeAfter(4_000, query(timeline, 4_000)));
+        assertEquals(8_000, timeline.nextChangeAfter(5_000, query(timeline, 5_000)));
+        assertEquals(Long.MAX_VALUE, timeline.nextChangeAfter(8_000, query(timeline, 8_000)));
+    }
+
+    @Test
+    public void emptyTimeline() {
+        WebVttCueTimeline timeline = new WebVttCueTimeline(Collections.<WebVttCue>emptyList());
+        assertTrue(timeline.isEmpty());
+        assertEquals(Collections.emptyList(), query(timeline, 0));
+        assertEquals(Long.MAX_VALUE, timeline.nextStartAfter(0));
+        assertEquals(Long.MAX_VALUE, timeline.nextChangeAfter(0, Collections.<WebVttCue>emptyList()));
+    }
+
+    @Test
+    public void randomCues_matchLinearScan() {
+        Random random = new Random(1);
+        for (int round = 0; round < 20; round++) {
+            List<WebVttCue> cues = new ArrayList<>();
+            int count = 1 + random.nextInt(200);
+            for (int i = 0; i < count; i++) {
+                long start = random.nextInt(60_000);
+                cues.add(cue(start, start + 1 + random.nextInt(round % 2 == 0 ? 500 : 20_000), "c" + i));
+            }
+            WebVttCueTimeline timeline = new WebVttCueTimeline(cues);
+            List<WebVttCue> sorted = new ArrayList<>(cues);
+            Collections.sort(sorted, (a, b) -> Long.compare(a.startMs, b.startMs));
+
+            for (int sample = 0; sample < 500; sample++) {
+                long position = random.nextInt(90_000) - 1_000;
+                List<WebVttCue> expected = new ArrayList<>();
+                long expectedChange = Long.MAX_VALUE;
+                for (WebVttCue cue : sorted) {
+                    if (cue.isActiveAt(position)) {
+                        expected.add(cue);
+                        expectedChange = Math.min(expectedChange, cue.endMs);
+                    } else if (cue.startMs > position) {
+                        expectedChange = Math.min(expectedChange, cue.startMs);
+                    }
+                }
+                List<WebVttCue> actual = query(timeline, position);
+                assertEquals("position " + position, expected, actual);
+                assertEquals("position " + position, expectedChange, timeline.nextChangeAfter(position, actual));
+                // 截止时间之前显示内容不变
+                if (expectedChange != Long.MAX_VALUE) {
+                    assertEquals(expected, query(timeline, expectedChange - 1));
+                }
+            }
+        }
+    }
+}
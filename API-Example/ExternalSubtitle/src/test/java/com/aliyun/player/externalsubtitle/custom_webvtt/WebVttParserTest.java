@@ -0,0 +1,124 @@
+package com.aliyun.player.externalsubtitle.custom_webvtt;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * WebVttParser：VTT 与 SRT 两种格式、时间戳形式、非 cue 块和错误 cue 的处理
+ */
+public class WebVttParserTest {
+
+    private static List<WebVttCue> parse(String content) throws IOException {
+        return WebVttParser.parse(new StringReader(content));
+    }
+
+    private static long timestamp(String value) {
+        return WebVttParser.parseTimestamp(value, 0, value.length());
+    }
+
+    @Test
+    public void parseTimestamp_acceptsVttAndSrtForms() {
+        assertEquals(3_723_004, timestamp("01:02:03.004"));
+        assertEquals(123_004, timestamp("02:03.004"));
+        assertEquals(1_500, timestamp("00:00:01,500"));
+        assertEquals(36_000_000, timestamp("10:00:00.000"));
+        // 前导空白和时间戳后的 cue 设置
+        assertEquals(61_000, timestamp("  01:01.000 line:0 position:20%"));
+    }
+
+    @Test
+    public void parseTimestamp_rejectsMalformed() {
+        assertEquals(-1, timestamp("1.000"));
+        assertEquals(-1, timestamp("00:01.00"));
+        assertEquals(-1, timestamp("00:01.0000"));
+        assertEquals(-1, timestamp("00:01"));
+        assertEquals(-1, timestamp("aa:01.000"));
+        assertEquals(-1, timestamp("1:2:3:4.000"));
+        assertEquals(-1, timestamp("00:01.000x"));
+        assertEquals(-1, timestamp(""));
+    }
+
+    @Test
+    public void parse_vtt() throws IOException {
+        List<WebVttCue> cues = parse("﻿WEBVTT - title\n"
+                + "\n"
+                + "STYLE\n"
+                + "::cue { color: red }\n"
+                + "\n"
+                + "NOTE 这里是注释\n"
+                + "可以有多行\n"
+                + "\n"
+                + "intro\n"
+                + "00:01.000 --> 00:02.500 align:start\n"
+                + "<b>Hello</b>\n"
+                + "world\n"
+                + "\n"
+                + "00:00:03.000 --> 00:00:04.000\n"
+                + "second\n");
+        assertEquals(2, cues.size());
+        WebVttCue first = cues.get(0);
+        assertEquals("intro", first.id);
+        assertEquals(1_000, first.startMs);
+        assertEquals(2_500, first.endMs);
+        assertEquals("<b>Hello</b>\nworld", first.text);
+        assertNull(cues.get(1).id);
+        assertEquals(3_000, cues.get(1).startMs);
+        assertEquals("second", cues.get(1).text);
+    }
+
+    @Test
+    public void parse_srt() throws IOException {
+        List<WebVttCue> cues = parse("1\r\n"
+                + "00:00:01,000 --> 00:00:02,000\r\n"
+                + "first\r\n"
+                + "\r\n"
+                + "2\r\n"
+                + "00:00:02,000 --> 00:00:03,250\r\n"
+                + "second line 1\r\n"
+                + "second line 2\r\n");
+        assertEquals(2, cues.size());
+        assertEquals("1", cues.get(0).id);
+        assertEquals(1_000, cues.get(0).startMs);
+        assertEquals(2_000, cues.get(0).endMs);
+        assertEquals("2", cues.get(1).id);
+        assertEquals(3_250, cues.get(1).endMs);
+        assertEquals("second line 1\nsecond line 2", cues.get(1).text);
+    }
+
+    @Test
+    public void parse_dropsInvalidCuesAndKeepsGoing() throws IOException {
+        List<WebVttCue> cues = parse("WEBVTT\n"
+                + "\n"
+                + "00:05.000 --> 00:04.000\n"
+                + "ends before it starts\n"
+                + "\n"
+                + "00:xx.000 --> 00:06.000\n"
+                + "bad start\n"
+                + "\n"
+                + "00:07.000 --> 00:08.000\n"
+                + "\n"
+                + "00:09.000 --> 00:10.000\n"
+                + "kept\n");
+        assertEquals(1, cues.size());
+        assertEquals("kept", cues.get(0).text);
+        assertEquals(9_000, cues.get(0).startMs);
+    }
+
+    @Test
+    public void parse_keepsFileOrderOfOverlappingCues() throws IOException {
+        List<WebVttCue> cues = parse("WEBVTT\n\n"
+                + "00:02.000 --> 00:06.000\nlong\n\n"
+                + "00:01.000 --> 00:03.000\nearly\n\n"
+                + "00:02.000 --> 00:04.000\nsame start\n");
+        assertEquals(3, cues.size());
+        assertEquals("long", cues.get(0).text);
+        assertEquals("early", cues.get(1).text);
+        assertEquals("same start", cues.get(2).text);
+    }
+}
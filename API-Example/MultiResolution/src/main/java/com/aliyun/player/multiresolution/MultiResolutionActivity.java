@@ -1,6 +1,7 @@
 package com.aliyun.player.multiresolution;
 
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 
@@ -14,6 +15,10 @@ import com.aliyun.player.AliPlayerFactory;
 import com.aliyun.player.IPlayer;
 import com.aliyun.player.bean.ErrorInfo;
 import com.aliyun.player.common.Constants;
+import com.aliyun.player.common.abr.AbrController;
+import com.aliyun.player.common.abr.AbrRendition;
+import com.aliyun.player.common.abr.AliPlayerAbrBinder;
+import com.aliyun.player.common.abr.BolaRule;
 import com.aliyun.player.common.utils.ToastUtils;
 import com.aliyun.player.nativeclass.PlayerConfig;
 import com.aliyun.player.nativeclass.PlayerScene;
@@ -53,7 +58,8 @@ import java.util.logging.Logger;
  * - 调用 start() 方法播放
  * <p>
  * Step 5: 切换清晰度
- * - 调用 selectTrack(trackInfo.getIndex()) 方法切换清晰度
+ * - 默认由 AbrController 根据缓冲和下载速度自动调用 selectTrack 切换清晰度
+ * - 点击清晰度后改为手动，调用 selectTrack(trackInfo.getIndex()) 方法切换清晰度；再次点击当前清晰度恢复自动
  * <p>
  * Step 6: 资源清理
  * - 调用 stop() 停止播放
@@ -73,6 +79,9 @@ public class MultiResolutionActivity extends AppCompatActivity {
     // 清晰度列表适配器 / multi-resolution Adapter
     private MultiResolutionAdapter mAdapter;
 
+    // 自动切换清晰度：缓冲充足时按 BOLA 选择，缓冲不足时按下载速度选择
+    private AbrController mAbrController;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -145,6 +154,17 @@ public class MultiResolutionActivity extends AppCompatActivity {
             mAliPlayer.setConfig(config);
         }
 
+        // 自动切换清晰度，切换时同步更新清晰度列表的选中状态
+        mAbrController = new AbrController(new BolaRule(), (rendition, manual) -> {
+            mAliPlayer.selectTrack(rendition.id, true);
+            if (!manual) {
+                mAdapter.selectTrackInfo(rendition.id);
+            }
+            Log.d(TAG, "[ABR] switchTo " + rendition + " manual=" + manual + " throughput=" + mAbrController.getThroughputBps());
+        });
+        // 将缓冲、下载速度事件交给 AbrController
+        new AliPlayerAbrBinder(mAliPlayer, mAbrController).bind();
+
         // 监听清晰度切换结果
         mAliPlayer.setOnTrackChangedListener(new IPlayer.OnTrackChangedListener() {
             @Override
@@ -158,6 +178,7 @@ public class MultiResolutionActivity extends AppCompatActivity {
             @Override
             public void onChangedFail(TrackInfo trackInfo, ErrorInfo errorInfo) {
                 Log.e(TAG, "[onChangedFail]" + errorInfo.getCode().name() + ":" + errorInfo.getMsg());
+                mAbrController.onSwitchFailed();
                 ToastUtils.showToastLong(errorInfo.getMsg());
             }
         });
@@ -233,6 +254,18 @@ public class MultiResolutionActivity extends AppCompatActivity {
             mAdapter.setDataList(result);
             mAdapter.notifyItemRangeChanged(0, result.size());
 
+            // 可选清晰度交给 AbrController，码率未知的清晰度不参与自动切换
+            List<AbrRendition> renditions = new ArrayList<>();
+            for (TrackInfo info : result) {
+                renditions.add(new AbrRendition(info.getIndex(), info.getVideoBitrate(), null, info.getVideoWidth() + "P"));
+            }
+            TrackInfo currentTrack = mAliPlayer.currentTrack(TrackInfo.Type.TYPE_VOD);
+            mAbrController.setRenditions(renditions, currentTrack != null ? currentTrack.getIndex() : -1);
+            if (mAbrController.getCurrentRendition() == null) {
+                // 当前清晰度码率未知，无法判断升降，手动选择一路码率已知的清晰度后才会自动切换
+                Log.w(TAG, "[ABR] current track bitrate unknown, auto switching paused");
+            }
+
             mAdapter.setOnItemClickListener(new MultiResolutionAdapter.OnItemClickListener() {
                 @Override
                 public void onItemClick(View v, int position) {
@@ -240,8 +273,20 @@ public class MultiResolutionActivity extends AppCompatActivity {
                     if (position != mAdapter.getSelectTrackInfoIndex()) {
                         TrackInfo trackInfo = mAdapter.getDataList().get(position);
                         mAdapter.selectTrackInfo(trackInfo.getIndex());
-                        mAliPlayer.selectTrack(trackInfo.getIndex(), true);
+                        // 手动选择清晰度，关闭自动切换
+                        mAbrController.setAutoEnabled(false);
+                        if (!mAbrController.setManualRendition(trackInfo.getIndex(), SystemClock.elapsedRealtime())) {
+                            mAliPlayer.selectTrack(trackInfo.getIndex(), true);
+                        }
                         Log.e(TAG, "[Step 4] selectTrack(trackInfo.getIndex())" + trackInfo.getVideoWidth() + "/" + trackInfo.getIndex());
+                    } else if (!mAbrController.isAutoEnabled()) {
+                        // 再次点击当前清晰度，恢复自动切换；码率未知的清晰度无法自动切换
+                        if (mAbrController.getCurrentRendition() == null) {
+                            ToastUtils.showToastLong("当前清晰度码率未知，无法自动切换");
+                        } else {
+                            mAbrController.setAutoEnabled(true);
+                            ToastUtils.showToastLong("恢复自动切换清晰度");
+                        }
                     }
                 }
             });
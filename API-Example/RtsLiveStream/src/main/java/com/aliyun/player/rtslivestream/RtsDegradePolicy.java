@@ -0,0 +1,315 @@
+package com.aliyun.player.rtslivestream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RTS 降级/恢复策略
+ * <p>
+ * 只依赖传入的采样和时间，不依赖播放器和 Android 系统时钟，可以用录制的采样轨迹离线回放验证。
+ * <p>
+ * <b>降级条件（当前为 RTS 流时，满足任一即降级）：</b>
+ * <ul>
+ *   <li>{@link #STALL_WINDOW_MS} 内卡顿次数达到 {@link #MAX_STALLS_IN_WINDOW}</li>
+ *   <li>单次卡顿超过 {@link #MAX_STALL_MS}</li>
+ *   <li>延迟连续 {@link #DELAY_SUSTAIN_MS} 高于档位的 degradeDelayMs</li>
+ * </ul>
+ * <b>恢复条件（当前为普通直播流时）：</b>
+ * <ul>
+ *   <li>降级后已过退避时间，且最近 {@link #STABLE_MS} 内没有卡顿</li>
+ *   <li>退避时间从 {@link #INITIAL_BACKOFF_MS} 开始，恢复后很快又降级则翻倍，最长 {@link #MAX_BACKOFF_MS}，
+ *   避免在两条流之间来回切换</li>
+ * </ul>
+ * <b>轨迹格式：</b>每行一个采样 "时间 类型 [值]"，类型为 start、buffer、delay、stall_begin、stall_end、resume、tick，
+ * 例如 "1200 buffer 350"。通过 {@link #setTraceRecorder} 录制，{@link #replay} 回放。
+ */
+public class RtsDegradePolicy {
+
+    public static final long STALL_WINDOW_MS = 10_000;
+    public static final int MAX_STALLS_IN_WINDOW = 3;
+    public static final long MAX_STALL_MS = 3_000;
+    public static final long DELAY_SUSTAIN_MS = 5_000;
+    public static final long STABLE_MS = 15_000;
+    public static final long INITIAL_BACKOFF_MS = 30_000;
+    public static final long MAX_BACKOFF_MS = 5 * 60_000;
+    // 恢复到 RTS 后稳定播放超过该时长，退避时间重置
+    public static final long BACKOFF_RESET_MS = 2 * 60_000;
+    // 切换播放源后的重新缓冲不计入卡顿次数
+    public static final long SWITCH_GRACE_MS = 3_000;
+
+    static final String INPUT_START = "start";
+    static final String INPUT_BUFFER = "buffer";
+    static final String INPUT_DELAY = "delay";
+    static final String INPUT_STALL_BEGIN = "stall_begin";
+    static final String INPUT_STALL_END = "stall_end";
+    static final String INPUT_RESUME = "resume";
+    static final String INPUT_TICK = "tick";
+
+    /**
+     * 采样轨迹录制
+     */
+    public interface TraceRecorder {
+        void onTrace(String line);
+    }
+
+    private final RtsLatencyProfile mProfile;
+    private TraceRecorder mTraceRecorder;
+
+    private boolean mDegraded = false;
+    // 窗口内每次卡顿的开始时间
+    private final ArrayDeque<Long> mStallBeginTimes = new ArrayDeque<>();
+    // 正在卡顿时为卡顿开始时间，否则为 -1
+    private long mStallBeginMs = -1;
+    private long mLastStallEndMs = -1;
+    // 延迟开始持续超限的时间，未超限时为 -1
+    private long mDelayHighSinceMs = -1;
+    private long mLastSwitchMs = -1;
+    // 最近一次恢复到 RTS 的时间，没有恢复过时为 -1
+    private long mLastUpgradeMs = -1;
+    private long mBackoffMs = INITIAL_BACKOFF_MS;
+
+    private long mBufferMs = -1;
+    private long mDelayMs = -1;
+
+    public RtsDegradePolicy(RtsLatencyProfile profile) {
+        mProfile = profile;
+    }
+
+    public void setTraceRecorder(TraceRecorder recorder) {
+        mTraceRecorder = recorder;
+    }
+
+    public RtsLatencyProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * 当前是否已降级到普通直播流
+     */
+    public boolean isDegraded() {
+        return mDegraded;
+    }
+
+    /**
+     * 当前生效的档位，降级后使用 SMOOTH
+     */
+    public RtsLatencyProfile getActiveProfile() {
+        return mDegraded ? RtsLatencyProfile.SMOOTH : mProfile;
+    }
+
+    /**
+     * 会话启动，返回 PROFILE_APPLIED 事件
+     */
+    public RtsSessionEvent start(long nowMs) {
+        record(nowMs, INPUT_START);
+        mDegraded = false;
+        mLastUpgradeMs = -1;
+        mBackoffMs = INITIAL_BACKOFF_MS;
+        resetSamples(nowMs);
+        return newEvent(RtsSessionEvent.Type.PROFILE_APPLIED, RtsSessionEvent.Reason.START, nowMs);
+    }
+
+    /**
+     * 缓冲时长采样，返回状态切换事件，没有切换时返回 null
+     */
+    public RtsSessionEvent onBufferSample(long nowMs, long bufferMs) {
+        record(nowMs, INPUT_BUFFER, bufferMs);
+        mBufferMs = bufferMs;
+        return evaluate(nowMs);
+    }
+
+    /**
+     * 延迟采样，返回状态切换事件，没有切换时返回 null
+     */
+    public RtsSessionEvent onDelaySample(long nowMs, long delayMs) {
+        record(nowMs, INPUT_DELAY, delayMs);
+        mDelayMs = delayMs;
+        if (delayMs > mProfile.degradeDelayMs) {
+            if (mDelayHighSinceMs < 0) {
+                mDelayHighSinceMs = nowMs;
+            }
+        } else {
+            mDelayHighSinceMs = -1;
+        }
+        return evaluate(nowMs);
+    }
+
+    public RtsSessionEvent onStallBegin(long nowMs) {
+        record(nowMs, INPUT_STALL_BEGIN);
+        if (mStallBeginMs < 0) {
+            mStallBeginMs = nowMs;
+            if (mLastSwitchMs < 0 || nowMs - mLastSwitchMs >= SWITCH_GRACE_MS) {
+                mStallBeginTimes.addLast(nowMs);
+            }
+        }
+        return evaluate(nowMs);
+    }
+
+    public RtsSessionEvent onStallEnd(long nowMs) {
+        record(nowMs, INPUT_STALL_END);
+        if (mStallBeginMs >= 0) {
+            mStallBeginMs = -1;
+            mLastStallEndMs = nowMs;
+        }
+        return evaluate(nowMs);
+    }
+
+    /**
+     * 暂停后恢复播放，暂停期间没有延迟采样，延迟需要重新持续超限才降级
+     */
+    public RtsSessionEvent onResume(long nowMs) {
+        record(nowMs, INPUT_RESUME);
+        mDelayHighSinceMs = -1;
+        return evaluate(nowMs);
+    }
+
+    /**
+     * 定时检查，用于卡顿中或没有其他采样时判断长时间卡顿和恢复条件
+     */
+    public RtsSessionEvent onTick(long nowMs) {
+        record(nowMs, INPUT_TICK);
+        return evaluate(nowMs);
+    }
+
+    /**
+     * 窗口内的卡顿次数
+     */
+    public int getStallCount(long nowMs) {
+        trimStalls(nowMs);
+        return mStallBeginTimes.size();
+    }
+
+    /**
+     * 处理一行轨迹，格式错误时抛出 IllegalArgumentException
+     */
+    public RtsSessionEvent apply(String traceLine) {
+        String[] parts = traceLine.trim().split("\\s+");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("bad trace line: " + traceLine);
+        }
+        try {
+            long nowMs = Long.parseLong(parts[0]);
+            switch (parts[1]) {
+                case INPUT_START:
+                    return start(nowMs);
+                case INPUT_BUFFER:
+                    return onBufferSample(nowMs, Long.parseLong(parts[2]));
+                case INPUT_DELAY:
+                    return onDelaySample(nowMs, Long.parseLong(parts[2]));
+                case INPUT_STALL_BEGIN:
+                    return onStallBegin(nowMs);
+                case INPUT_STALL_END:
+                    return onStallEnd(nowMs);
+                case INPUT_RESUME:
+                    return onResume(nowMs);
+                case INPUT_TICK:
+                    return onTick(nowMs);
+                default:
+                    throw new IllegalArgumentException("bad trace line: " + traceLine);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("bad trace line: " + traceLine, e);
+        }
+    }
+
+    /**
+     * 用录制的轨迹回放策略，返回依次产生的事件（含 PROFILE_APPLIED），空行和 # 开头的行被忽略。
+     * 轨迹不以 start 开头时，以第一行的时间启动会话
+     */
+    public static List<RtsSessionEvent> replay(RtsLatencyProfile profile, Iterable<String> trace) {
+        RtsDegradePolicy policy = new RtsDegradePolicy(profile);
+        List<RtsSessionEvent> events = new ArrayList<>();
+        boolean started = false;
+        for (String line : trace) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (!started && (parts.length < 2 || !INPUT_START.equals(parts[1]))) {
+                events.add(policy.start(Long.parseLong(parts[0])));
+            }
+            started = true;
+            RtsSessionEvent event = policy.apply(trimmed);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private RtsSessionEvent evaluate(long nowMs) {
+        trimStalls(nowMs);
+        if (!mDegraded) {
+            RtsSessionEvent.Reason reason = null;
+            if (mStallBeginTimes.size() >= MAX_STALLS_IN_WINDOW) {
+                reason = RtsSessionEvent.Reason.STALL_COUNT;
+            } else if (mStallBeginMs >= 0 && nowMs - mStallBeginMs >= MAX_STALL_MS) {
+                reason = RtsSessionEvent.Reason.STALL_DURATION;
+            } else if (mDelayHighSinceMs >= 0 && nowMs - mDelayHighSinceMs >= DELAY_SUSTAIN_MS) {
+                reason = RtsSessionEvent.Reason.DELAY;
+            }
+            if (reason == null) {
+                return null;
+            }
+            RtsSessionEvent event = newEvent(RtsSessionEvent.Type.DEGRADE, reason, nowMs);
+            // 恢复后很快又降级，说明网络还不稳定，下次恢复等待更久
+            if (mLastUpgradeMs >= 0 && nowMs - mLastUpgradeMs < BACKOFF_RESET_MS) {
+                mBackoffMs = Math.min(mBackoffMs * 2, MAX_BACKOFF_MS);
+            } else {
+                mBackoffMs = INITIAL_BACKOFF_MS;
+            }
+            mDegraded = true;
+            resetSamples(nowMs);
+            return event;
+        }
+
+        boolean backoffPassed = nowMs - mLastSwitchMs >= mBackoffMs;
+        boolean stable = mStallBeginMs < 0
+                && (mLastStallEndMs < 0 || nowMs - mLastStallEndMs >= STABLE_MS);
+        if (!backoffPassed || !stable) {
+            return null;
+        }
+        mDegraded = false;
+        mLastUpgradeMs = nowMs;
+        RtsSessionEvent event = newEvent(RtsSessionEvent.Type.UPGRADE, RtsSessionEvent.Reason.STABLE, nowMs);
+        resetSamples(nowMs);
+        return event;
+    }
+
+    private void resetSamples(long nowMs) {
+        mStallBeginTimes.clear();
+        mStallBeginMs = -1;
+        mLastStallEndMs = -1;
+        mDelayHighSinceMs = -1;
+        mLastSwitchMs = nowMs;
+    }
+
+    private void trimStalls(long nowMs) {
+        while (!mStallBeginTimes.isEmpty() && nowMs - mStallBeginTimes.peekFirst() > STALL_WINDOW_MS) {
+            mStallBeginTimes.pollFirst();
+        }
+    }
+
+    private RtsSessionEvent newEvent(RtsSessionEvent.Type type, RtsSessionEvent.Reason reason, long nowMs) {
+        return new RtsSessionEvent(type, reason, nowMs, getActiveProfileAfter(type), mBufferMs, mDelayMs,
+                mStallBeginTimes.size(), null);
+    }
+
+    private RtsLatencyProfile getActiveProfileAfter(RtsSessionEvent.Type type) {
+        return type == RtsSessionEvent.Type.DEGRADE ? RtsLatencyProfile.SMOOTH : mProfile;
+    }
+
+    private void record(long nowMs, String input) {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.onTrace(nowMs + " " + input);
+        }
+    }
+
+    private void record(long nowMs, String input, long value) {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.onTrace(nowMs + " " + input + " " + value);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.aliyun.player.rtslivestream;
+
+import com.aliyun.player.nativeclass.PlayerConfig;
+
+/**
+ * RTS 低延迟播放的延迟档位
+ * <p>
+ * <ul>
+ *   <li>INTERACTIVE：互动场景（连麦、带货抢购），缓冲压到最低，对网络要求最高，只用于 artc:// 流</li>
+ *   <li>BALANCED：普通直播，允许少量缓冲换取更少的卡顿</li>
+ *   <li>SMOOTH：弱网或降级到普通直播流时使用，优先保证流畅</li>
+ * </ul>
+ */
+public enum RtsLatencyProfile {
+
+    INTERACTIVE(1000, 10, 10, 3000),
+    BALANCED(2000, 200, 500, 5000),
+    SMOOTH(4000, 500, 1500, 8000);
+
+    private static final String RTS_SCHEME = "artc://";
+
+    // 最大允许延迟（毫秒），超过后播放器会追帧
+    public final int maxDelayTimeMs;
+    // 起播时最小缓冲时长（毫秒）
+    public final int startBufferDurationMs;
+    // 卡顿恢复时的缓冲时长（毫秒）
+    public final int highBufferDurationMs;
+    // 延迟持续高于该值时，降级策略认为当前 RTS 流不可用（毫秒）
+    public final int degradeDelayMs;
+
+    RtsLatencyProfile(int maxDelayTimeMs, int startBufferDurationMs, int highBufferDurationMs, int degradeDelayMs) {
+        this.maxDelayTimeMs = maxDelayTimeMs;
+        this.startBufferDurationMs = startBufferDurationMs;
+        this.highBufferDurationMs = highBufferDurationMs;
+        this.degradeDelayMs = degradeDelayMs;
+    }
+
+    /**
+     * 播放指定地址时实际使用的档位
+     * INTERACTIVE 的 10ms 缓冲只适合 RTS（artc://）流，FLV、HLS 等普通直播流按分片或 GOP 到达，使用后会频繁卡顿，改用 BALANCED
+     */
+    public RtsLatencyProfile forUrl(String url) {
+        if (this == INTERACTIVE && !isRtsUrl(url)) {
+            return BALANCED;
+        }
+        return this;
+    }
+
+    /**
+     * 是否为 RTS 低延迟流地址
+     */
+    public static boolean isRtsUrl(String url) {
+        return url != null && url.regionMatches(true, 0, RTS_SCHEME, 0, RTS_SCHEME.length());
+    }
+
+    /**
+     * 将档位的缓冲参数写入播放器配置，其余配置保持不变
+     */
+    public PlayerConfig applyTo(PlayerConfig config) {
+        config.mMaxDelayTime = maxDelayTimeMs;
+        config.mStartBufferDuration = startBufferDurationMs;
+        config.mHighBufferDuration = highBufferDurationMs;
+        return config;
+    }
+}
@@ -9,15 +9,11 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.aliyun.player.AliPlayer;
 import com.aliyun.player.AliPlayerFactory;
-import com.aliyun.player.AliPlayerGlobalSettings;
 import com.aliyun.player.IPlayer;
 import com.aliyun.player.bean.ErrorInfo;
-import com.aliyun.player.bean.InfoCode;
 import com.aliyun.player.common.Constants;
 import com.aliyun.player.common.utils.ToastUtils;
-import com.aliyun.player.nativeclass.PlayerConfig;
 import com.aliyun.player.nativeclass.PlayerScene;
-import com.aliyun.player.source.UrlSource;
 import com.aliyun.player.videoview.AliDisplayView;
 
 /**
@@ -32,9 +28,9 @@ import com.aliyun.player.videoview.AliDisplayView;
  * Step 1: 加载 RTS 低延迟组件库 System.loadLibrary("RtsSDK")
  * Step 2: 创建播放器实例（AliPlayerFactory.createAliPlayer）
  * Step 3: 设置播放视图（AliDisplayView）
- * Step 4: 配置播放参数（如低延迟缓冲策略）
- * Step 5: 设置播放源（UrlSource）
- * Step 6: 准备并开始播放（prepare + start）
+ * Step 4: 配置播放参数（通过 RtsSessionManager 按延迟档位配置缓冲策略）
+ * Step 5: 设置播放源（UrlSource，可选降级流）
+ * Step 6: 准备并开始播放（prepare + start），卡顿严重时自动降级，网络稳定后恢复 RTS
  * Step 7: 播放结束或页面销毁时释放资源（stop + release）
  * <p>
  * ==================== 如何接入 RTS 低延迟直播组件 ====================
@@ -74,6 +70,8 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
     private AliPlayer mAliPlayer;
     // 播放画面承载视图
     private AliDisplayView mAliDisplayView;
+    // RTS 播放会话：延迟档位、采样统计、自动降级与恢复
+    private RtsSessionManager mRtsSessionManager;
 
     // =============================================================================================
     // == Activity 生命周期处理
@@ -124,8 +122,8 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
      *   <li>2. 初始化 AliDisplayView（播放器视图），并设置首选显示视图类型为 SurfaceView</li>
      *   <li>3. 绑定播放视图到播放器</li>
      *   <li>4. setTraceId(traceId), 启用单点追查(可选)。</li>
-     *   <li>5. 监听播放器 Info 事件，获取本次播放的 TraceID（用于问题排查）</li>
      * </ul>
+     * 本次播放的 TraceID（用于问题排查）由 RtsSessionManager 从 Info 事件中获取，随会话事件输出
      */
     private void setupPlayer() {
         // 创建播放器对象
@@ -150,16 +148,6 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
         // 文档：https://help.aliyun.com/zh/vod/developer-reference/single-point-tracing
         // mAliPlayer.setTraceId(traceId);
 
-        // 设置 OnInfo 监听，获取TraceID
-        // 注意：这个 TraceId 和 上面的 TraceId 功能不同哦
-        // 每一次低延时播放都会有一个traceId，可用于问题排查，可以通过播放器事件回调拿到traceid
-        mAliPlayer.setOnInfoListener(infoBean -> {
-            if (infoBean.getCode() == InfoCode.DemuxerTraceID) {
-                String traceId = infoBean.getExtraMsg();
-                Log.e("AliPlayer", "traceId:" + traceId); // 可用于阿里云后台追查
-            }
-        });
-
         Log.d(TAG, "[Step 3] 设置播放视图: " + mAliDisplayView);
 
     }
@@ -174,11 +162,9 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
      * <b>执行流程：</b>
      * <ul>
      * <li>1. 获取播放源 </li>
-     * <li>2. 配置播放参数 </li>
-     * <li>3. 设置异常监听 setOnError </li>
-     * <li>4. 启用 RTS 自动降级功能（网络差时切换至普通流）</li>
-     * <li>5. 创建 UrlSource 并设置为播放源 </li>
-     * <li>6. 播放数据源 prepare + start </li>
+     * <li>2. 设置异常监听 setOnError </li>
+     * <li>3. 创建 RTS 会话，选择延迟档位并设置降级流（网络差时切换至普通流）</li>
+     * <li>4. 会话按档位配置播放参数，设置播放源并 prepare + start </li>
      * </ul>
      */
     private void startupPlayer() {
@@ -191,25 +177,6 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
             return;
         }
 
-        // 若为 ARTC 低延迟协议，优化播放参数以降低延迟
-        if (videoUrl.contains("artc")) {
-            // 1. 获取当前播放器配置
-            PlayerConfig config = mAliPlayer.getConfig();
-
-            // 设置最大允许延迟为 1 秒（毫秒）
-            config.mMaxDelayTime = 1000;
-            // 起播时最小缓冲时长（10ms，极低缓冲）
-            config.mStartBufferDuration = 10;
-            // 卡顿时最大缓冲上限（10ms）
-            config.mHighBufferDuration = 10;
-
-            // 2. 将修改后的配置应用到播放器
-            mAliPlayer.setConfig(config);
-
-            Log.d(TAG, "[Step 4] 播放器播放参数配置完成" );
-        }
-
-
         // 设置播放器异常监听
         mAliPlayer.setOnErrorListener(new IPlayer.OnErrorListener() {
             @Override
@@ -219,31 +186,26 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
             }
         });
 
-        // 全局设置：启用 RTS 自动降级功能（默认开启）
-        // 当网络不佳时，自动切换至普通直播流保障连续性
-        AliPlayerGlobalSettings.setOption(AliPlayerGlobalSettings.ALLOW_RTS_DEGRADE, 1);
+        // 创建 RTS 会话，INTERACTIVE 档位：最大延迟 1 秒，起播和卡顿恢复缓冲 10ms，仅对 artc:// 地址生效，其他地址使用 BALANCED
+        // 对流畅度要求更高时可改用 BALANCED 或 SMOOTH
+        mRtsSessionManager = new RtsSessionManager(mAliPlayer, RtsLatencyProfile.INTERACTIVE);
 
-        // 可选功能：自定义降级流地址（当前未启用）
-        // PlayerConfig config = mAliPlayer.getConfig();
-        // UrlSource downgradeSource = new UrlSource();
-        // downgradeSource.setUri(downgradeUrl);
-        // mAliPlayer.enableDowngrade(downgradeSource, config);
+        // 可选功能：设置降级流地址，卡顿严重时切换到普通直播流，网络稳定后自动恢复 RTS
+        // 未设置时降级只放大缓冲参数，不切换播放源
+        mRtsSessionManager.setFallbackUrl(Constants.DataSource.SAMPLE_RTS_FALLBACK_URL.trim());
 
-        // 创建播放源对象并设置播放地址
-        UrlSource urlSource = new UrlSource();
-        urlSource.setUri(videoUrl);
-        mAliPlayer.setDataSource(urlSource);
+        // 降级、恢复等状态切换事件，可用于埋点上报
+        mRtsSessionManager.setOnSessionEventListener(event -> Log.i(TAG, "[RTS] " + event));
 
-        Log.d(TAG, "[Step 5] 设置播放源: " + videoUrl);
+        // 可选功能：录制降级策略的采样轨迹，可用 RtsDegradePolicy.replay 离线回放，调整阈值时对比事件
+        // mRtsSessionManager.setTraceRecorder(line -> Log.v(TAG, "[RTS trace] " + line));
 
-        // 开始准备播放（异步过程）
-        mAliPlayer.prepare();
+        Log.d(TAG, "[Step 4] 播放器播放参数配置完成");
 
-        // prepare 后可立即调用 start
-        // 实际起播将在 onPrepared 回调中由 SDK 自动触发
-        mAliPlayer.start();
+        // 配置播放参数、设置播放源并开始播放
+        mRtsSessionManager.start(videoUrl);
 
-        Log.d(TAG, "[Step 6] 开始播放视频: " + videoUrl);
+        Log.d(TAG, "[Step 5 & 6] 开始播放视频: " + videoUrl);
     }
 
     // =============================================================================================
@@ -264,6 +226,12 @@ public class RtsLiveStreamActivity extends AppCompatActivity {
      * - 释放后不可再操作播放器实例
      */
     private void cleanupPlayer() {
+        if (mRtsSessionManager != null) {
+            // 停止会话的定时检查和事件采样
+            mRtsSessionManager.stop();
+            mRtsSessionManager = null;
+        }
+
         if (mAliPlayer != null) {
             // 停止播放
             mAliPlayer.stop();
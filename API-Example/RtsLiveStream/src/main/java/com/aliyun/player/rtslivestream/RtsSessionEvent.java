@@ -0,0 +1,78 @@
+package com.aliyun.player.rtslivestream;
+
+/**
+ * RTS 播放会话的状态切换事件
+ * <p>
+ * 每次应用档位、降级到普通直播流、恢复到 RTS 流都会产生一个事件，
+ * 携带切换时的缓冲、延迟和卡顿统计，toString 输出 key=value 格式，便于日志检索和上报
+ */
+public class RtsSessionEvent {
+
+    public enum Type {
+        // 应用延迟档位（首次起播）
+        PROFILE_APPLIED,
+        // 降级到普通直播流
+        DEGRADE,
+        // 恢复到 RTS 流
+        UPGRADE
+    }
+
+    public enum Reason {
+        // 会话启动
+        START,
+        // 窗口内卡顿次数过多
+        STALL_COUNT,
+        // 单次卡顿时间过长
+        STALL_DURATION,
+        // 延迟持续过高
+        DELAY,
+        // 降级后网络已稳定
+        STABLE
+    }
+
+    public final Type type;
+    public final Reason reason;
+    // 事件时间（毫秒，单调时钟）
+    public final long timeMs;
+    // 切换后使用的延迟档位
+    public final RtsLatencyProfile profile;
+    // 当前缓冲时长（毫秒），未知时为 -1
+    public final long bufferMs;
+    // 当前延迟估计（毫秒），未知时为 -1
+    public final long delayMs;
+    // 统计窗口内的卡顿次数
+    public final int stallCount;
+    // 本次低延迟播放的 TraceID，可用于阿里云后台追查，未知时为 null
+    public final String traceId;
+
+    public RtsSessionEvent(Type type, Reason reason, long timeMs, RtsLatencyProfile profile,
+                           long bufferMs, long delayMs, int stallCount, String traceId) {
+        this.type = type;
+        this.reason = reason;
+        this.timeMs = timeMs;
+        this.profile = profile;
+        this.bufferMs = bufferMs;
+        this.delayMs = delayMs;
+        this.stallCount = stallCount;
+        this.traceId = traceId;
+    }
+
+    /**
+     * 附带 TraceID 的副本，降级策略不感知 TraceID，由会话管理补充
+     */
+    public RtsSessionEvent withTraceId(String traceId) {
+        return new RtsSessionEvent(type, reason, timeMs, profile, bufferMs, delayMs, stallCount, traceId);
+    }
+
+    @Override
+    public String toString() {
+        return "type=" + type +
+                " reason=" + reason +
+                " time=" + timeMs +
+                " profile=" + profile +
+                " buffer=" + bufferMs +
+                " delay=" + delayMs +
+                " stalls=" + stallCount +
+                " traceId=" + traceId;
+    }
+}
@@ -0,0 +1,260 @@
+package com.aliyun.player.rtslivestream;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.aliyun.player.AliPlayer;
+import com.aliyun.player.AliPlayerGlobalSettings;
+import com.aliyun.player.IPlayer;
+import com.aliyun.player.bean.InfoBean;
+import com.aliyun.player.bean.InfoCode;
+import com.aliyun.player.nativeclass.PlayerConfig;
+import com.aliyun.player.source.UrlSource;
+
+/**
+ * RTS 低延迟播放会话管理
+ * <p>
+ * <b>职责：</b>
+ * <ul>
+ *   <li>1. 按延迟档位（{@link RtsLatencyProfile}）配置播放器缓冲参数</li>
+ *   <li>2. 从播放器 Info 和 Loading 事件中采样缓冲时长、卡顿和延迟，交给 {@link RtsDegradePolicy} 判断</li>
+ *   <li>3. 策略决定降级时切换到降级流（同时通过 enableDowngrade 交给 SDK 用于建连失败的兜底），网络稳定后恢复到 RTS 流</li>
+ *   <li>4. 每次状态切换回调一个 {@link RtsSessionEvent}，附带本次播放的 TraceID</li>
+ * </ul>
+ * <b>延迟估计：</b>SDK 没有直接提供端到端延迟，这里用 "已缓冲未播放的时长 + 起播后累计落后于墙钟的时长" 估计，
+ * 反映的是起播之后新增的延迟，不含推流和 CDN 段的固有延迟。暂停期间不采样延迟，恢复播放时基准顺延暂停的时长。
+ * <p>
+ * <b>档位：</b>INTERACTIVE 只对 artc:// 地址生效，其他地址使用 BALANCED，见 {@link RtsLatencyProfile#forUrl}。
+ * <p>
+ * 所有方法和回调都在主线程。
+ */
+public class RtsSessionManager {
+
+    private static final String TAG = "RtsSessionManager";
+
+    // 没有其他采样时的检查间隔，保证长时间卡顿和恢复条件能被及时判断
+    private static final long TICK_INTERVAL_MS = 1000;
+
+    /**
+     * 会话事件回调
+     */
+    public interface OnSessionEventListener {
+        void onSessionEvent(RtsSessionEvent event);
+    }
+
+    private final AliPlayer mAliPlayer;
+    private final RtsLatencyProfile mProfile;
+    private RtsDegradePolicy mPolicy;
+    private RtsDegradePolicy.TraceRecorder mTraceRecorder;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private String mRtsUrl;
+    private String mFallbackUrl;
+    private String mTraceId;
+    private OnSessionEventListener mOnSessionEventListener;
+    private boolean mStarted = false;
+
+    private long mCurrentPositionMs = -1;
+    // 延迟估计的基准：第一个播放进度采样的墙钟时间和播放进度
+    private long mBaseRealtimeMs = -1;
+    private long mBasePositionMs = -1;
+    // 暂停开始的墙钟时间，未暂停时为 -1
+    private long mPausedAtMs = -1;
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            handleEvent(mPolicy.onTick(now()));
+            mHandler.postDelayed(this, TICK_INTERVAL_MS);
+        }
+    };
+
+    public RtsSessionManager(AliPlayer aliPlayer, RtsLatencyProfile profile) {
+        mAliPlayer = aliPlayer;
+        mProfile = profile;
+        mPolicy = new RtsDegradePolicy(profile);
+    }
+
+    /**
+     * 设置降级流地址（如同一路流的 FLV/HLS 地址），需在 start 前调用。
+     * 未设置时降级只把缓冲参数切换到 SMOOTH 档位，不切换播放源
+     */
+    public void setFallbackUrl(String fallbackUrl) {
+        mFallbackUrl = fallbackUrl;
+    }
+
+    public void setOnSessionEventListener(OnSessionEventListener listener) {
+        mOnSessionEventListener = listener;
+    }
+
+    /**
+     * 录制策略的采样轨迹，可用 {@link RtsDegradePolicy#replay} 离线回放
+     */
+    public void setTraceRecorder(RtsDegradePolicy.TraceRecorder recorder) {
+        mTraceRecorder = recorder;
+        mPolicy.setTraceRecorder(recorder);
+    }
+
+    public boolean isDegraded() {
+        return mPolicy.isDegraded();
+    }
+
+    public String getTraceId() {
+        return mTraceId;
+    }
+
+    /**
+     * 开始播放 RTS 流。会接管播放器的 OnInfoListener、OnLoadingStatusListener 和 OnStateChangedListener
+     */
+    public void start(String rtsUrl) {
+        mRtsUrl = rtsUrl;
+        mStarted = true;
+        mPausedAtMs = -1;
+
+        RtsLatencyProfile profile = mProfile.forUrl(rtsUrl);
+        if (profile != mProfile) {
+            Log.w(TAG, mProfile + " needs an artc:// url, using " + profile + " for " + rtsUrl);
+        }
+        mPolicy = new RtsDegradePolicy(profile);
+        mPolicy.setTraceRecorder(mTraceRecorder);
+
+        mAliPlayer.setOnInfoListener(this::onInfo);
+        mAliPlayer.setOnLoadingStatusListener(new IPlayer.OnLoadingStatusListener() {
+            @Override
+            public void onLoadingBegin() {
+                handleEvent(mPolicy.onStallBegin(now()));
+            }
+
+            @Override
+            public void onLoadingProgress(int percent, float netSpeed) {
+            }
+
+            @Override
+            public void onLoadingEnd() {
+                handleEvent(mPolicy.onStallEnd(now()));
+            }
+        });
+        mAliPlayer.setOnStateChangedListener(this::onStateChanged);
+
+        if (!TextUtils.isEmpty(mFallbackUrl)) {
+            // RTS 自动降级为全局开关（默认开启），enableDowngrade 设置的降级流依赖它
+            AliPlayerGlobalSettings.setOption(AliPlayerGlobalSettings.ALLOW_RTS_DEGRADE, 1);
+            mAliPlayer.enableDowngrade(newUrlSource(mFallbackUrl),
+                    RtsLatencyProfile.SMOOTH.applyTo(mAliPlayer.getConfig()));
+        }
+
+        RtsSessionEvent event = mPolicy.start(now());
+        playSource(mRtsUrl, mPolicy.getActiveProfile());
+        dispatchEvent(event);
+
+        mHandler.removeCallbacks(mTickRunnable);
+        mHandler.postDelayed(mTickRunnable, TICK_INTERVAL_MS);
+    }
+
+    /**
+     * 停止会话，不释放播放器
+     */
+    public void stop() {
+        mStarted = false;
+        mHandler.removeCallbacks(mTickRunnable);
+        mAliPlayer.setOnInfoListener(null);
+        mAliPlayer.setOnLoadingStatusListener(null);
+        mAliPlayer.setOnStateChangedListener(null);
+    }
+
+    private void onStateChanged(int newState) {
+        long nowMs = now();
+        if (newState == IPlayer.paused) {
+            if (mPausedAtMs < 0) {
+                mPausedAtMs = nowMs;
+                // 暂停期间不做检查，避免暂停前的采样触发降级或恢复
+                mHandler.removeCallbacks(mTickRunnable);
+            }
+        } else if (newState == IPlayer.started && mPausedAtMs >= 0) {
+            // 暂停期间播放进度不动，基准顺延暂停时长，否则暂停时长会被算作延迟
+            if (mBaseRealtimeMs >= 0) {
+                mBaseRealtimeMs += nowMs - mPausedAtMs;
+            }
+            mPausedAtMs = -1;
+            handleEvent(mPolicy.onResume(nowMs));
+            mHandler.removeCallbacks(mTickRunnable);
+            mHandler.postDelayed(mTickRunnable, TICK_INTERVAL_MS);
+        }
+    }
+
+    private void onInfo(InfoBean infoBean) {
+        if (infoBean.getCode() == InfoCode.DemuxerTraceID) {
+            // 每一次低延时播放都会有一个 traceId，可用于阿里云后台追查
+            mTraceId = infoBean.getExtraMsg();
+            Log.i(TAG, "traceId:" + mTraceId);
+        } else if (infoBean.getCode() == InfoCode.CurrentPosition) {
+            mCurrentPositionMs = infoBean.getExtraValue();
+            long nowMs = now();
+            if (mBaseRealtimeMs < 0) {
+                mBaseRealtimeMs = nowMs;
+                mBasePositionMs = mCurrentPositionMs;
+            }
+        } else if (infoBean.getCode() == InfoCode.BufferedPosition && mCurrentPositionMs >= 0) {
+            long nowMs = now();
+            long bufferMs = Math.max(0, infoBean.getExtraValue() - mCurrentPositionMs);
+            // 播放进度比墙钟慢的部分即起播后新增的延迟，追帧后会减小
+            long lagMs = Math.max(0, (nowMs - mBaseRealtimeMs) - (mCurrentPositionMs - mBasePositionMs));
+            handleEvent(mPolicy.onBufferSample(nowMs, bufferMs));
+            if (mPausedAtMs < 0) {
+                handleEvent(mPolicy.onDelaySample(nowMs, bufferMs + lagMs));
+            }
+        }
+    }
+
+    private void handleEvent(RtsSessionEvent event) {
+        if (event == null || !mStarted) {
+            return;
+        }
+        if (event.type == RtsSessionEvent.Type.DEGRADE) {
+            playSource(TextUtils.isEmpty(mFallbackUrl) ? null : mFallbackUrl, event.profile);
+        } else if (event.type == RtsSessionEvent.Type.UPGRADE) {
+            playSource(TextUtils.isEmpty(mFallbackUrl) ? null : mRtsUrl, event.profile);
+        }
+        dispatchEvent(event);
+    }
+
+    /**
+     * 按档位配置播放器，url 不为空时切换播放源并重新起播，为空时只更新缓冲参数
+     */
+    private void playSource(String url, RtsLatencyProfile profile) {
+        PlayerConfig config = mAliPlayer.getConfig();
+        mAliPlayer.setConfig(profile.applyTo(config));
+        if (url == null) {
+            return;
+        }
+        mAliPlayer.stop();
+        mAliPlayer.setDataSource(newUrlSource(url));
+        mAliPlayer.prepare();
+        mAliPlayer.start();
+
+        mCurrentPositionMs = -1;
+        mBaseRealtimeMs = -1;
+        mBasePositionMs = -1;
+    }
+
+    private void dispatchEvent(RtsSessionEvent event) {
+        RtsSessionEvent sessionEvent = event.withTraceId(mTraceId);
+        Log.i(TAG, "session event: " + sessionEvent);
+        if (mOnSessionEventListener != null) {
+            mOnSessionEventListener.onSessionEvent(sessionEvent);
+        }
+    }
+
+    private static UrlSource newUrlSource(String url) {
+        UrlSource urlSource = new UrlSource();
+        urlSource.setUri(url);
+        return urlSource;
+    }
+
+    private static long now() {
+        return SystemClock.elapsedRealtime();
+    }
+}
@@ -0,0 +1,203 @@
+package com.aliyun.player.rtslivestream;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用采样轨迹回放 {@link RtsDegradePolicy}，校验降级、恢复和退避
+ */
+public class RtsDegradePolicyTest {
+
+    private static List<RtsSessionEvent> replay(String... trace) {
+        return RtsDegradePolicy.replay(RtsLatencyProfile.INTERACTIVE, Arrays.asList(trace));
+    }
+
+    private static void assertEvent(RtsSessionEvent event, RtsSessionEvent.Type type, RtsSessionEvent.Reason reason,
+                                    long timeMs) {
+        assertEquals(event.toString(), type, event.type);
+        assertEquals(event.toString(), reason, event.reason);
+        assertEquals(event.toString(), timeMs, event.timeMs);
+    }
+
+    @Test
+    public void stallsInWindow_degrade() {
+        List<RtsSessionEvent> events = replay(
+                "# 切换后的宽限期内的卡顿不计数",
+                "0 start",
+                "1000 stall_begin",
+                "1200 stall_end",
+                "",
+                "4000 stall_begin",
+                "4200 stall_end",
+                "6000 stall_begin",
+                "6300 stall_end",
+                "8000 stall_begin");
+        assertEquals(2, events.size());
+        assertEvent(events.get(0), RtsSessionEvent.Type.PROFILE_APPLIED, RtsSessionEvent.Reason.START, 0);
+        assertEvent(events.get(1), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.STALL_COUNT, 8000);
+        assertSame(RtsLatencyProfile.SMOOTH, events.get(1).profile);
+    }
+
+    @Test
+    public void stallsOutsideWindow_doNotDegrade() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "4000 stall_begin",
+                "4100 stall_end",
+                "10000 stall_begin",
+                "10100 stall_end",
+                "16000 stall_begin",
+                "16100 stall_end",
+                "30000 tick");
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void longStall_degradesOnTick() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "5000 stall_begin",
+                "7000 tick",
+                "8000 tick");
+        assertEquals(2, events.size());
+        assertEvent(events.get(1), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.STALL_DURATION, 8000);
+    }
+
+    @Test
+    public void sustainedDelay_degrades() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "1000 delay 3500",
+                "3000 delay 2000",
+                "4000 delay 3500",
+                "8000 delay 3600",
+                "9000 delay 3700");
+        assertEquals(2, events.size());
+        assertEvent(events.get(1), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.DELAY, 9000);
+        assertEquals(3700, events.get(1).delayMs);
+    }
+
+    @Test
+    public void resume_restartsDelaySustain() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "1000 delay 3500",
+                "# 暂停 20 秒后恢复，暂停前的超限时长不再累计",
+                "21000 resume",
+                "21000 tick",
+                "22000 delay 3500",
+                "26000 tick",
+                "27000 delay 3500");
+        assertEquals(2, events.size());
+        assertEvent(events.get(1), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.DELAY, 27000);
+    }
+
+    @Test
+    public void upgradeAfterBackoff_andBackoffDoublesOnQuickDegrade() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "5000 stall_begin",
+                "8000 tick",
+                "20000 tick",
+                "37999 tick",
+                "38000 tick",
+                "# 恢复后很快又卡顿",
+                "45000 stall_begin",
+                "48000 tick",
+                "78000 tick",
+                "108000 tick");
+        assertEquals(5, events.size());
+        assertEvent(events.get(1), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.STALL_DURATION, 8000);
+        assertEvent(events.get(2), RtsSessionEvent.Type.UPGRADE, RtsSessionEvent.Reason.STABLE,
+                8000 + RtsDegradePolicy.INITIAL_BACKOFF_MS);
+        assertSame(RtsLatencyProfile.INTERACTIVE, events.get(2).profile);
+        assertEvent(events.get(3), RtsSessionEvent.Type.DEGRADE, RtsSessionEvent.Reason.STALL_DURATION, 48000);
+        assertEvent(events.get(4), RtsSessionEvent.Type.UPGRADE, RtsSessionEvent.Reason.STABLE,
+                48000 + 2 * RtsDegradePolicy.INITIAL_BACKOFF_MS);
+    }
+
+    @Test
+    public void stallAfterDegrade_delaysUpgrade() {
+        List<RtsSessionEvent> events = replay(
+                "0 start",
+                "5000 stall_begin",
+                "8000 tick",
+                "30000 stall_begin",
+                "31000 stall_end",
+                "38000 tick",
+                "45999 tick",
+                "46000 tick");
+        assertEquals(3, events.size());
+        assertEvent(events.get(2), RtsSessionEvent.Type.UPGRADE, RtsSessionEvent.Reason.STABLE,
+                31000 + RtsDegradePolicy.STABLE_MS);
+    }
+
+    @Test
+    public void replay_startsSessionAtFirstLine() {
+        List<RtsSessionEvent> events = replay("500 buffer 300", "600 tick");
+        assertEquals(1, events.size());
+        assertEvent(events.get(0), RtsSessionEvent.Type.PROFILE_APPLIED, RtsSessionEvent.Reason.START, 500);
+        assertEquals(300, replay("500 buffer 300", "600 delay 100", "700 stall_begin", "10000 tick").get(1).bufferMs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replay_rejectsBadLine() {
+        replay("0 start", "100 buffer");
+    }
+
+    @Test
+    public void recordedTrace_replaysToTheSameEvents() {
+        final List<String> trace = new ArrayList<>();
+        RtsDegradePolicy policy = new RtsDegradePolicy(RtsLatencyProfile.BALANCED);
+        policy.setTraceRecorder(new RtsDegradePolicy.TraceRecorder() {
+            @Override
+            public void onTrace(String line) {
+                trace.add(line);
+            }
+        });
+        List<RtsSessionEvent> live = new ArrayList<>();
+        live.add(policy.start(0));
+        for (long t = 1000; t <= 120_000; t += 1000) {
+            RtsSessionEvent event;
+            if (t % 40_000 == 10_000) {
+                event = policy.onStallBegin(t);
+            } else if (t % 40_000 == 14_000) {
+                event = policy.onStallEnd(t);
+            } else {
+                event = policy.onBufferSample(t, 400);
+            }
+            if (event != null) {
+                live.add(event);
+            }
+            event = policy.onTick(t);
+            if (event != null) {
+                live.add(event);
+            }
+        }
+        assertTrue(live.size() > 2);
+
+        List<RtsSessionEvent> replayed = RtsDegradePolicy.replay(RtsLatencyProfile.BALANCED, trace);
+        assertEquals(live.size(), replayed.size());
+        for (int i = 0; i < live.size(); i++) {
+            assertEquals(live.get(i).toString(), replayed.get(i).toString());
+        }
+    }
+
+    @Test
+    public void interactiveProfile_onlyForRtsUrls() {
+        assertSame(RtsLatencyProfile.INTERACTIVE, RtsLatencyProfile.INTERACTIVE.forUrl("artc://example.com/live/a"));
+        assertSame(RtsLatencyProfile.INTERACTIVE, RtsLatencyProfile.INTERACTIVE.forUrl("ARTC://example.com/live/a"));
+        assertSame(RtsLatencyProfile.BALANCED, RtsLatencyProfile.INTERACTIVE.forUrl("https://example.com/live/a.flv"));
+        assertSame(RtsLatencyProfile.BALANCED, RtsLatencyProfile.INTERACTIVE.forUrl(null));
+        assertSame(RtsLatencyProfile.SMOOTH, RtsLatencyProfile.SMOOTH.forUrl("https://example.com/live/a.m3u8"));
+        assertFalse(RtsLatencyProfile.isRtsUrl("rtmp://example.com/live/a"));
+    }
+}
@@ -18,7 +18,6 @@ import com.aliyun.player.common.utils.ToastUtils;
 import com.aliyun.player.nativeclass.PlayerScene;
 import com.aliyun.player.source.UrlSource;
 import com.aliyun.player.videoview.AliDisplayView;
-import com.aliyun.thumbnail.ThumbnailBitmapInfo;
 import com.aliyun.thumbnail.ThumbnailHelper;
 
 /**
@@ -50,13 +49,14 @@ import com.aliyun.thumbnail.ThumbnailHelper;
  * - 设置进度条长度 mSeekBar.setMax((int) mAliPlayer.getDuration());
  * <p>
  * Step 6: 设置缩略图相关监听
- * - 调用 setOnThumbnailGetListener 设置监听
- * - 在onThumbnailGetSuccess() 方法中调用 getThumbnailBitmap() 获取指定位置的Bitmap
+ * - 调用 setOnThumbnailListener 设置监听（ThumbnailCache 封装 ThumbnailHelper 的 setOnThumbnailGetListener）
+ * - 在onThumbnailGetSuccess() 方法中获取指定位置的Bitmap，ThumbnailCache 回调的是其缓存的拷贝
  * - 对缩略图的图片进行设置
  * <p>
  * Step 7: 缩略图显示
  * - 设置 seekBar 监听 setOnSeekBarChangeListener
  * - 在onProgressChanged() 中调用 requestBitmapAtPosition() 获取指定位置的缩略图
+ * - 拖动时进度回调很频繁,通过 ThumbnailCache 按雪碧图格子缓存缩略图、合并重复请求并沿拖动方向预取
  * - 在onStartTrackingTouch() 中进行缩略图显示设置
  * - 在onStopTrackingTouch() 中进行缩略图隐藏
  * - 在onStopTrackingTouch() 中调用 seekTo()
@@ -75,8 +75,8 @@ public class ThumbnailActivity extends AppCompatActivity {
     // 播放器视图
     private AliDisplayView mAliDisplayView;
 
-    // 创建缩略图帮助类
-    private ThumbnailHelper mThumbnailHelper;
+    // 缩略图缓存,内部封装 ThumbnailHelper
+    private ThumbnailCache mThumbnailCache;
 
     // 拖动按钮
     private SeekBar mSeekBar;
@@ -203,9 +203,9 @@ public class ThumbnailActivity extends AppCompatActivity {
 
     // Step 6 设置缩略图相关监听及缩略图实现
     private void getThumbnail(String thumbnail) {
-        mThumbnailHelper = new ThumbnailHelper(thumbnail);
+        mThumbnailCache = new ThumbnailCache(thumbnail);
         // 设置缩略图相关监听。
-        mThumbnailHelper.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
+        mThumbnailCache.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
             @Override
             public void onPrepareSuccess() {
                 // 6.1 缩略图加载成功后，可以请求获取指定位置的缩略图。
@@ -218,13 +218,11 @@ public class ThumbnailActivity extends AppCompatActivity {
             }
         });
 
-        mThumbnailHelper.setOnThumbnailGetListener(new ThumbnailHelper.OnThumbnailGetListener() {
+        mThumbnailCache.setOnThumbnailListener(new ThumbnailCache.OnThumbnailListener() {
             @Override
-            public void onThumbnailGetSuccess(long positionMs, ThumbnailBitmapInfo thumbnailBitmapInfo) {
-                if (thumbnailBitmapInfo != null && thumbnailBitmapInfo.getThumbnailBitmap() != null) {
-                    // 6.2 获取指定位置缩略图的Bitmap。
-                    Bitmap thumbnailBitmap = thumbnailBitmapInfo.getThumbnailBitmap();
-
+            public void onThumbnailGetSuccess(long positionMs, Bitmap thumbnailBitmap) {
+                // 6.2 获取指定位置缩略图的Bitmap，为缓存持有的拷贝，不要回收
+                if (thumbnailBitmap != null) {
                     // 6.3 缩略图图片设置(缩略图视图需要自定义)
                     mThumbnailView.setThumbnailPicture(thumbnailBitmap);
                 }
@@ -237,7 +235,7 @@ public class ThumbnailActivity extends AppCompatActivity {
         });
 
         // 6.4 加载缩略图。
-        mThumbnailHelper.prepare();
+        mThumbnailCache.prepare();
 
         Log.d(TAG, "[Step 6.4] 缩略图加载");
     }
@@ -247,9 +245,9 @@ public class ThumbnailActivity extends AppCompatActivity {
         mSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                if (mThumbnailHelper != null) {
+                if (mThumbnailCache != null) {
                     // 7.1 请求获取指定位置的缩略图。
-                    mThumbnailHelper.requestBitmapAtPosition(progress);
+                    mThumbnailCache.requestBitmapAtPosition(progress);
 
                     // 缩略图 TextView 设置(缩略图视图需要自定义)
                     mThumbnailView.setTime(TimeFormatter.formatMs(progress));
@@ -266,7 +264,7 @@ public class ThumbnailActivity extends AppCompatActivity {
 
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {
-                if (mThumbnailHelper != null) {
+                if (mThumbnailCache != null) {
                     // 7.3 缩略图隐藏
                     mThumbnailView.hideThumbnailView();
                     // 进度seek到指定位置
@@ -311,7 +309,12 @@ public class ThumbnailActivity extends AppCompatActivity {
 
             // 8.3 清空引用，避免内存泄漏
             mAliPlayer = null;
-            mThumbnailHelper = null;
+            if (mThumbnailCache != null) {
+                // 8.4 输出缩略图缓存命中率和解码耗时
+                Log.d(TAG, "[Step 8] 缩略图缓存统计: " + mThumbnailCache.getStats());
+                mThumbnailCache.clear();
+            }
+            mThumbnailCache = null;
 
             Log.d(TAG, "[Step 8] 播放器资源清理完成");
         }
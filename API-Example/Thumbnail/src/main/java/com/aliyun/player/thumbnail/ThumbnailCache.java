@@ -0,0 +1,433 @@
+package com.aliyun.player.thumbnail;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.aliyun.thumbnail.ThumbnailBitmapInfo;
+import com.aliyun.thumbnail.ThumbnailHelper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @brief 缩略图缓存
+ * <p>
+ * 1.按雪碧图的格子量化位置,同一格子内的位置共用一张缩略图
+ * 2.已解码的缩略图缓存在按字节数限制大小的LRU中
+ * 3.同一格子的请求只发起一次,拖动过快时只请求最新位置,中间位置直接丢弃
+ * 4.沿拖动方向预取后面的格子
+ * 5.统计命中率和解码耗时
+ * <p>
+ * SDK回调的Bitmap由SDK持有,缓存和回调的都是拷贝,SDK之后复用或回收原图不影响缓存
+ * <p>
+ * 所有方法需在主线程调用
+ */
+class ThumbnailCache {
+
+    /**
+     * 同时进行的解码请求数
+     */
+    private static final int MAX_IN_FLIGHT = 3;
+
+    /**
+     * 沿拖动方向预取的格子数
+     */
+    private static final int PREFETCH_CELLS = 2;
+
+    /**
+     * 缓存大小上限
+     */
+    private static final int MAX_CACHE_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * 请求超时时间,超时未回调的请求不再占用名额
+     */
+    private static final long REQUEST_TIMEOUT_MS = 5000;
+
+    /**
+     * 缩略图回调
+     */
+    public interface OnThumbnailListener {
+        /**
+         * @param positionMs 请求的位置
+         * @param bitmap     缓存持有的缩略图拷贝,调用方不要回收
+         */
+        void onThumbnailGetSuccess(long positionMs, Bitmap bitmap);
+
+        void onThumbnailGetFail(long positionMs, String errorMsg);
+    }
+
+    private final ThumbnailHelper mThumbnailHelper;
+    private OnThumbnailListener mOnThumbnailListener;
+
+    private final LruCache<Long, Bitmap> mCache;
+    // 进行中的请求,按请求顺序排列。以请求id为key而不是位置,因为SDK回调的位置可能与请求的不同(对齐到格子或关键帧)
+    private final Map<Long, Request> mInFlight = new LinkedHashMap<>();
+    private long mNextRequestId = 0;
+    // 雪碧图格子时长,第一张缩略图解码前为0
+    private long mCellMs = 0;
+
+    // 用户最新请求的位置,以及请求数满时等待发起的位置
+    private long mTargetPosition = -1;
+    private long mPendingPosition = -1;
+    private long mLastPosition = -1;
+    private int mDirection = 0;
+
+    private long mRequestCount = 0;
+    private long mHitCount = 0;
+    private long mCoalescedCount = 0;
+    private long mPrefetchCount = 0;
+    private long mDecodeCount = 0;
+    private long mTotalDecodeMs = 0;
+    private long mMaxDecodeMs = 0;
+    private long mTimeoutCount = 0;
+
+    ThumbnailCache(String url) {
+        mThumbnailHelper = new ThumbnailHelper(url);
+        int maxBytes = (int) Math.min(MAX_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 32);
+        mCache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return Math.max(1, value.getByteCount());
+            }
+        };
+        mThumbnailHelper.setOnThumbnailGetListener(new ThumbnailHelper.OnThumbnailGetListener() {
+            @Override
+            public void onThumbnailGetSuccess(long positionMs, ThumbnailBitmapInfo thumbnailBitmapInfo) {
+                onDecoded(positionMs, thumbnailBitmapInfo);
+            }
+
+            @Override
+            public void onThumbnailGetFail(long positionMs, String errorMsg) {
+                onDecodeFail(positionMs, errorMsg);
+            }
+        });
+    }
+
+    public void setOnPrepareListener(ThumbnailHelper.OnPrepareListener listener) {
+        mThumbnailHelper.setOnPrepareListener(listener);
+    }
+
+    public void setOnThumbnailListener(OnThumbnailListener listener) {
+        mOnThumbnailListener = listener;
+    }
+
+    public void prepare() {
+        mThumbnailHelper.prepare();
+    }
+
+    /**
+     * 请求指定位置的缩略图,命中缓存时同步回调
+     */
+    public void requestBitmapAtPosition(long positionMs) {
+        if (positionMs < 0) {
+            return;
+        }
+        mRequestCount++;
+        if (mLastPosition >= 0 && positionMs != mLastPosition) {
+            mDirection = positionMs > mLastPosition ? 1 : -1;
+        }
+        mLastPosition = positionMs;
+        mTargetPosition = positionMs;
+        expireRequests();
+
+        Bitmap cached = mCellMs > 0 ? mCache.get(cellOf(positionMs)) : null;
+        if (cached != null) {
+            mHitCount++;
+            mPendingPosition = -1;
+            dispatchSuccess(positionMs, cached);
+            prefetch(positionMs);
+            return;
+        }
+        long requestPosition = requestPositionOf(positionMs);
+        if (isInFlight(requestPosition)) {
+            mCoalescedCount++;
+            mPendingPosition = -1;
+            return;
+        }
+        if (mInFlight.size() >= MAX_IN_FLIGHT) {
+            //只保留最新的位置
+            if (mPendingPosition >= 0) {
+                mCoalescedCount++;
+            }
+            mPendingPosition = positionMs;
+            return;
+        }
+        request(requestPosition);
+        prefetch(positionMs);
+    }
+
+    /**
+     * 清空缓存和请求状态
+     */
+    public void clear() {
+        mCache.evictAll();
+        mInFlight.clear();
+        mTargetPosition = -1;
+        mPendingPosition = -1;
+        mLastPosition = -1;
+        mDirection = 0;
+    }
+
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    private void request(long requestPosition) {
+        long id = mNextRequestId++;
+        mInFlight.put(id, new Request(id, requestPosition, SystemClock.elapsedRealtime()));
+        mThumbnailHelper.requestBitmapAtPosition(requestPosition);
+    }
+
+    private boolean isInFlight(long requestPosition) {
+        for (Request request : mInFlight.values()) {
+            if (request.mPositionMs == requestPosition) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 移除超时未回调的请求,避免名额被永久占用
+     */
+    private void expireRequests() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Request> iterator = mInFlight.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().mRequestTimeMs >= REQUEST_TIMEOUT_MS) {
+                iterator.remove();
+                mTimeoutCount++;
+            }
+        }
+    }
+
+    /**
+     * 找到回调对应的请求并移除:先按位置精确匹配,再按缩略图覆盖的时间范围匹配;没有时间范围时取最早的请求(SDK按请求顺序回调)。
+     * 有时间范围却没有匹配的请求时返回null,说明是已超时请求的回调
+     */
+    private Request takeRequest(long positionMs, long[] range) {
+        Request matched = null;
+        for (Request request : mInFlight.values()) {
+            if (request.mPositionMs == positionMs) {
+                matched = request;
+                break;
+            }
+            if (matched == null && isValidRange(range)
+                    && request.mPositionMs >= range[0] && request.mPositionMs < range[1]) {
+                matched = request;
+            }
+        }
+        if (matched == null && !isValidRange(range) && !mInFlight.isEmpty()) {
+            matched = mInFlight.values().iterator().next();
+        }
+        if (matched != null) {
+            mInFlight.remove(matched.mId);
+        }
+        return matched;
+    }
+
+    private void prefetch(long positionMs) {
+        if (mCellMs <= 0 || mDirection == 0) {
+            return;
+        }
+        long cell = cellOf(positionMs);
+        for (int i = 1; i <= PREFETCH_CELLS && mInFlight.size() < MAX_IN_FLIGHT; i++) {
+            long prefetchCell = cell + i * mDirection;
+            if (prefetchCell < 0) {
+                return;
+            }
+            long requestPosition = prefetchCell * mCellMs;
+            if (mCache.get(prefetchCell) == null && !isInFlight(requestPosition)) {
+                mPrefetchCount++;
+                request(requestPosition);
+            }
+        }
+    }
+
+    private void onDecoded(long positionMs, ThumbnailBitmapInfo thumbnailBitmapInfo) {
+        long[] range = thumbnailBitmapInfo == null ? null : thumbnailBitmapInfo.getPositionRange();
+        Request request = takeRequest(positionMs, range);
+        if (request != null) {
+            long decodeMs = SystemClock.elapsedRealtime() - request.mRequestTimeMs;
+            mDecodeCount++;
+            mTotalDecodeMs += decodeMs;
+            mMaxDecodeMs = Math.max(mMaxDecodeMs, decodeMs);
+        }
+        Bitmap bitmap = thumbnailBitmapInfo == null ? null : copyOf(thumbnailBitmapInfo.getThumbnailBitmap());
+        if (bitmap != null) {
+            if (mCellMs <= 0 && isValidRange(range)) {
+                mCellMs = range[1] - range[0];
+            }
+            //按请求的位置缓存,查找时用的也是请求位置所在的格子
+            long cell;
+            if (request != null) {
+                cell = cellOf(request.mPositionMs);
+            } else {
+                cell = cellOf(isValidRange(range) ? range[0] : positionMs);
+            }
+            if (mCellMs > 0) {
+                mCache.put(cell, bitmap);
+            }
+            //预取和过期的结果只进缓存,不回调
+            if (mTargetPosition >= 0 && (mCellMs <= 0 || cellOf(mTargetPosition) == cell)) {
+                dispatchSuccess(mTargetPosition, bitmap);
+            }
+        }
+        requestPending();
+    }
+
+    private void onDecodeFail(long positionMs, String errorMsg) {
+        Request request = takeRequest(positionMs, null);
+        long requestPosition = request != null ? request.mPositionMs : positionMs;
+        if (mTargetPosition >= 0 && requestPositionOf(mTargetPosition) == requestPosition && mOnThumbnailListener != null) {
+            mOnThumbnailListener.onThumbnailGetFail(mTargetPosition, errorMsg);
+        }
+        requestPending();
+    }
+
+    /**
+     * 拷贝SDK回调的Bitmap,拷贝失败时返回null,不缓存
+     */
+    private static Bitmap copyOf(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        Bitmap.Config config = bitmap.getConfig() != null ? bitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        try {
+            return bitmap.copy(config, false);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+    }
+
+    private static boolean isValidRange(long[] range) {
+        return range != null && range.length >= 2 && range[1] > range[0];
+    }
+
+    private void requestPending() {
+        if (mPendingPosition < 0 || mInFlight.size() >= MAX_IN_FLIGHT) {
+            return;
+        }
+        long positionMs = mPendingPosition;
+        mPendingPosition = -1;
+        Bitmap cached = mCellMs > 0 ? mCache.get(cellOf(positionMs)) : null;
+        if (cached != null) {
+            if (positionMs == mTargetPosition) {
+                dispatchSuccess(positionMs, cached);
+            }
+            return;
+        }
+        long requestPosition = requestPositionOf(positionMs);
+        if (!isInFlight(requestPosition)) {
+            request(requestPosition);
+        }
+        prefetch(positionMs);
+    }
+
+    private void dispatchSuccess(long positionMs, Bitmap bitmap) {
+        if (mOnThumbnailListener != null) {
+            mOnThumbnailListener.onThumbnailGetSuccess(positionMs, bitmap);
+        }
+    }
+
+    private long cellOf(long positionMs) {
+        return mCellMs > 0 ? positionMs / mCellMs : positionMs;
+    }
+
+    /**
+     * 格子未知时按原位置请求,否则按格子起点请求
+     */
+    private long requestPositionOf(long positionMs) {
+        return mCellMs > 0 ? cellOf(positionMs) * mCellMs : positionMs;
+    }
+
+    private static class Request {
+        private final long mId;
+        private final long mPositionMs;
+        private final long mRequestTimeMs;
+
+        private Request(long id, long positionMs, long requestTimeMs) {
+            mId = id;
+            mPositionMs = positionMs;
+            mRequestTimeMs = requestTimeMs;
+        }
+    }
+
+    /**
+     * 缩略图缓存统计
+     */
+    public static class Stats {
+        private final long mRequestCount;
+        private final long mHitCount;
+        private final long mCoalescedCount;
+        private final long mPrefetchCount;
+        private final long mDecodeCount;
+        private final long mAverageDecodeMs;
+        private final long mMaxDecodeMs;
+        private final long mTimeoutCount;
+        private final int mCacheBytes;
+
+        private Stats(ThumbnailCache cache) {
+            mRequestCount = cache.mRequestCount;
+            mHitCount = cache.mHitCount;
+            mCoalescedCount = cache.mCoalescedCount;
+            mPrefetchCount = cache.mPrefetchCount;
+            mDecodeCount = cache.mDecodeCount;
+            mAverageDecodeMs = cache.mDecodeCount == 0 ? 0 : cache.mTotalDecodeMs / cache.mDecodeCount;
+            mMaxDecodeMs = cache.mMaxDecodeMs;
+            mTimeoutCount = cache.mTimeoutCount;
+            mCacheBytes = cache.mCache.size();
+        }
+
+        public long getRequestCount() {
+            return mRequestCount;
+        }
+
+        public long getHitCount() {
+            return mHitCount;
+        }
+
+        public float getHitRate() {
+            return mRequestCount == 0 ? 0 : (float) mHitCount / mRequestCount;
+        }
+
+        public long getCoalescedCount() {
+            return mCoalescedCount;
+        }
+
+        public long getPrefetchCount() {
+            return mPrefetchCount;
+        }
+
+        public long getDecodeCount() {
+            return mDecodeCount;
+        }
+
+        public long getAverageDecodeMs() {
+            return mAverageDecodeMs;
+        }
+
+        public long getMaxDecodeMs() {
+            return mMaxDecodeMs;
+        }
+
+        public long getTimeoutCount() {
+            return mTimeoutCount;
+        }
+
+        public int getCacheBytes() {
+            return mCacheBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "requests=%d hit=%.1f%% coalesced=%d prefetch=%d decode=%d decode(avg/max)=%d/%dms timeout=%d cache=%dKB",
+                    mRequestCount, getHitRate() * 100, mCoalescedCount, mPrefetchCount, mDecodeCount,
+                    mAverageDecodeMs, mMaxDecodeMs, mTimeoutCount, mCacheBytes / 1024);
+        }
+    }
+}
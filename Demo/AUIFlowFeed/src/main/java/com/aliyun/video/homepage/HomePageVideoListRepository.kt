@@ -37,6 +37,14 @@ open class HomePageVideoListRepository{
      */
     protected var mLastVideoId: Long? = null
 
+    /**
+     * 每次请求列表时递增,用于丢弃已过时的首页刷新结果
+     */
+    /****
+     * Incremented on every list request, so that an outdated first page revalidation is dropped
+     */
+    private var mRequestGeneration = 0
+
     private val mFlowFeedServer by lazy {
         HomePageFetcher()
     }
@@ -45,14 +53,7 @@ open class HomePageVideoListRepository{
         if (!mStsInit) {
             requestStsAndVideoListData(callback)
         } else {
-            mFlowFeedServer.initPlayerListDatas(mLastVideoId,isLoadMore, object: HomePageFetcher.VideoListDataBack{
-                override fun onResult(list: MutableList<VideoInfo>) {
-                    initVideoListRandomUUID(list)
-                    callback.onResult(list)
-                }
-
-                override fun onError(msg: String?) {}
-            })
+            mFlowFeedServer.initPlayerListDatas(mLastVideoId,isLoadMore, pageCallback(callback))
         }
     }
 
@@ -72,20 +73,42 @@ open class HomePageVideoListRepository{
                 mStsInit = true
                 saveGlobalPlayConfig()
 
-                mFlowFeedServer.initPlayerListDatas(mLastVideoId,false,object: HomePageFetcher.VideoListDataBack{
-                    override fun onResult(list: MutableList<VideoInfo>) {
-                        initVideoListRandomUUID(list)
-                        callback.onResult(list)
-                    }
-
-                    override fun onError(msg: String?) {}
-                })
+                mFlowFeedServer.initPlayerListDatas(mLastVideoId,false, pageCallback(callback))
             }
 
             override fun onError(msg: String?) {}
         })
     }
 
+    /**
+     * 首页可能先返回缓存,缓存页的最后一个视频不一定还是服务端首页的最后一个,
+     * 刷新结果到达且其间没有再请求列表时,以刷新后的首页重新计算加载更多的游标
+     */
+    /****
+     * The first page may be served from cache first, and its last video is not necessarily the last one of the
+     * current first page on the server. When the revalidated page arrives and no other list request was made in
+     * between, the load-more cursor is recomputed from it
+     */
+    private fun pageCallback(callback: HomePageFetcher.VideoListDataBack): HomePageFetcher.VideoListDataBack {
+        val generation = ++mRequestGeneration
+        return object : HomePageFetcher.VideoListDataBack {
+            override fun onResult(list: MutableList<VideoInfo>) {
+                initVideoListRandomUUID(list)
+                callback.onResult(list)
+            }
+
+            override fun onError(msg: String?) {}
+
+            override fun onRevalidated(list: MutableList<VideoInfo>) {
+                if (generation != mRequestGeneration) {
+                    return
+                }
+                initVideoListRandomUUID(list)
+                callback.onRevalidated(list)
+            }
+        }
+    }
+
     private fun initVideoListRandomUUID(list: MutableList<VideoInfo>){
         for (i in list.indices) {
             if (i == list.size - 1) {
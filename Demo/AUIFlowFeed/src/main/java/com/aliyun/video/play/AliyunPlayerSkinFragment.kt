@@ -819,6 +819,9 @@ class AliyunPlayerSkinFragment : BaseFragment(R.layout.alivc_player_layout_skin)
      * Authentication expired
      */
     private fun onTimExpiredError() {
+        //服务端已拒绝当前STS,不再使用缓存
+        //The server rejected the current STS, so the cached one is not used again
+        GetAuthInformation.invalidateStsInfo()
         mGetAuthInformation.getVideoPlayStsDemoInfo(RetryExpiredSts(this))
     }
 
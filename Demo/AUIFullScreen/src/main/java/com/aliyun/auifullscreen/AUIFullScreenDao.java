@@ -3,7 +3,6 @@ package com.aliyun.auifullscreen;
 import com.aliyun.auiplayerserver.bean.VideoInfo;
 import com.aliyun.auiplayerserver.bean.VideoStsInfo;
 import com.aliyun.auiplayerserver.flowfeed.HomePageFetcher;
-import com.aliyun.player.source.StsInfo;
 import com.aliyun.player.source.VidSts;
 import com.google.gson.Gson;
 
@@ -19,27 +18,18 @@ public class AUIFullScreenDao {
 
             @Override
             public void onResult(@NotNull String result) {
+                Gson gson = new Gson();
+                final VideoStsInfo videoStsInfo = gson.fromJson(result, VideoStsInfo.class);
                 homePageFetcher.initPlayerListDatas(0L, false, new HomePageFetcher.VideoListDataBack() {
+
+                    private String mVideoId;
+
                     @Override
                     public void onResult(@NotNull List<VideoInfo> list) {
-                        Gson gson = new Gson();
-                        VideoStsInfo videoStsInfo = gson.fromJson(result, VideoStsInfo.class);
-                        StsInfo stsInfo = new StsInfo();
-                        stsInfo.setAccessKeyId(videoStsInfo.getAccessKeyId());
-                        stsInfo.setSecurityToken(videoStsInfo.getSecurityToken());
-                        stsInfo.setAccessKeySecret(videoStsInfo.getAccessKeySecret());
-
                         if(list.size() > 0){
-                            VideoInfo videoInfo = list.get(0);
-                            String videoId = videoInfo.getVideoId();
-                            VidSts vidSts = new VidSts();
-                            vidSts.setVid(videoId);
-                            vidSts.setAccessKeyId(stsInfo.getAccessKeyId());
-                            vidSts.setAccessKeySecret(stsInfo.getAccessKeySecret());
-                            vidSts.setSecurityToken(stsInfo.getSecurityToken());
-
+                            mVideoId = list.get(0).getVideoId();
                             if(listener != null){
-                                listener.getStsDataSourceSuccess(vidSts);
+                                listener.getStsDataSourceSuccess(createVidSts(mVideoId, videoStsInfo));
                             }
                         }
                     }
@@ -50,6 +40,20 @@ public class AUIFullScreenDao {
                             listener.getStsDataSourceFailure(msg);
                         }
                     }
+
+                    @Override
+                    public void onRevalidated(@NotNull List<VideoInfo> list) {
+                        // 先返回的是缓存的首页,正在播放的视频已不在刷新后的首页中时(可能已下架),改播刷新后的首个视频
+                        // The cached first page was returned first. When the playing video is no longer on the
+                        // revalidated page (it may have been taken down), switch to the first revalidated video
+                        if (list.isEmpty() || containsVideo(list, mVideoId)) {
+                            return;
+                        }
+                        mVideoId = list.get(0).getVideoId();
+                        if(listener != null){
+                            listener.getStsDataSourceSuccess(createVidSts(mVideoId, videoStsInfo));
+                        }
+                    }
                 });
             }
 
@@ -62,6 +66,24 @@ public class AUIFullScreenDao {
         });
     }
 
+    private static VidSts createVidSts(String videoId, VideoStsInfo videoStsInfo) {
+        VidSts vidSts = new VidSts();
+        vidSts.setVid(videoId);
+        vidSts.setAccessKeyId(videoStsInfo.getAccessKeyId());
+        vidSts.setAccessKeySecret(videoStsInfo.getAccessKeySecret());
+        vidSts.setSecurityToken(videoStsInfo.getSecurityToken());
+        return vidSts;
+    }
+
+    private static boolean containsVideo(List<VideoInfo> list, String videoId) {
+        for (VideoInfo videoInfo : list) {
+            if (videoInfo.getVideoId() != null && videoInfo.getVideoId().equals(videoId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public interface OnGetStsDataSourceListener{
         void getStsDataSourceSuccess(VidSts vidSts);
         void getStsDataSourceFailure(String error);
@@ -4,7 +4,9 @@ import androidx.multidex.MultiDex;
 import androidx.multidex.MultiDexApplication;
 
 import com.alibaba.android.arouter.launcher.ARouter;
+import com.alivc.player.playerkits.shortvideolist.utils.NetWorkRequestUtils;
 import com.alivc.player.settings.backstage.sp.SharedPrefBusinessManager;
+import com.aliyun.auiplayerserver.okhttp.AlivcHttpStack;
 
 public class PlayerApplication extends MultiDexApplication {
     @Override
@@ -16,5 +18,7 @@ public class PlayerApplication extends MultiDexApplication {
         ARouter.printStackTrace();
         ARouter.init(this);
         SharedPrefBusinessManager.init(this);
+        AlivcHttpStack.init(this);
+        NetWorkRequestUtils.init(this);
     }
 }
@@ -70,6 +70,16 @@ public class AUIShortVideoListActivity extends AppCompatActivity {
                         mLoadingView.post(() -> mLoadingView.setVisibility(GONE));
                         addFragmentView();
                     }
+                }, new AUIShortVideoListUtil.OnNetworkCallBack<List<VideoInfo>>() {
+                    @Override
+                    public void onResponse(List<VideoInfo> data) {
+                        // 先展示的是缓存,后台刷新的列表交给Fragment更新
+                        runOnUiThread(() -> {
+                            if (mShortVideoListFragment != null) {
+                                mShortVideoListFragment.refreshVideoList(data);
+                            }
+                        });
+                    }
                 });
             }
         }
@@ -46,6 +46,33 @@ public class AUIShortVideoListConstants {
      */
     public static int PLAYER_POOL_CAPACITY = 2;
 
+    /**
+     * enable player pool recycle mode, default value is false
+     * <p>
+     * if enabled, the evicted player is reset (stop, clear surface) and reused by the next item instead of being destroyed
+     */
+    public static boolean ENABLE_PLAYER_POOL_RECYCLE = false;
+
+    /**
+     * number of spare players pre-created off the main thread in recycle mode, default value is 1
+     */
+    public static int PLAYER_POOL_WARM_SPARE_COUNT = 1;
+
+    /**
+     * enable adaptive preload, default value is true
+     * <p>
+     * if enabled, the media preload window and duration follow the observed throughput and swipe rate;
+     * if not, n-1 & n+2 are preloaded for 3s
+     */
+    public static boolean ENABLE_ADAPTIVE_PRELOAD = true;
+
+    /**
+     * enable swipe-to-first-frame metrics, default value is true
+     * <p>
+     * the latency percentiles are logged as JSON when the list is destroyed
+     */
+    public static boolean ENABLE_FIRST_FRAME_METRICS = true;
+
     /**
      * enable cover url strategy
      * <p>
@@ -79,6 +79,14 @@ public class AUIShortVideoListFragment extends Fragment {
                             callback.onData(data);
                         }
                     }
+                }, new AUIShortVideoListUtil.OnNetworkCallBack<List<VideoInfo>>() {
+                    @Override
+                    public void onResponse(List<VideoInfo> data) {
+                        // 先展示的是缓存,后台刷新的列表通过DiffUtil替换
+                        if (mShortVideoListViewModel != null) {
+                            mShortVideoListViewModel.refreshAllData(data);
+                        }
+                    }
                 });
             } else {
                 videoInfoList.clear();
@@ -164,6 +172,28 @@ public class AUIShortVideoListFragment extends Fragment {
         });
     }
 
+    /**
+     * 用后台刷新的列表替换当前列表,通过DiffUtil只更新变化的条目,需在主线程调用
+     *
+     * @param data 新的完整列表
+     */
+    public void refreshVideoList(List<VideoInfo> data) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        if (mShortVideoListViewModel == null) {
+            // 页面尚未创建时更新参数,创建后直接加载新列表
+            Bundle args = getArguments();
+            if (args != null) {
+                args.putString(AUIShortVideoListView.KEY_VIDEO_INFO_LIST_DATA, AUIShortVideoListUtil.serializeVideoInfoListToJson(data));
+            }
+            return;
+        }
+        videoInfoList.clear();
+        videoInfoList.addAll(data);
+        mShortVideoListViewModel.refreshAllData(new ArrayList<>(data));
+    }
+
     // TODO yjh 为什么不能在当前方法的onResume()方法中，内部完成这块的逻辑处理，而是需要外部来调用？
     public void rebindVideoPlayer(int position) {
         AUIVideoListViewHolder viewHolder = mShortVideoListView.getViewHolderByPosition(position);
@@ -16,6 +16,7 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.alivc.player.playerkits.shortvideolist.business.trackinfo.AUIVideoTrackInfoPanelView;
 import com.alivc.player.playerkits.shortvideolist.controller.AUIShortVideoListController;
+import com.alivc.player.playerkits.shortvideolist.controller.metrics.FirstFrameTracker;
 import com.alivc.player.playerkits.shortvideolist.controller.player.AliVideoView;
 import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
 import com.alivc.player.playerkits.shortvideolist.listener.OnLoadDataListener;
@@ -173,6 +174,9 @@ public class AUIShortVideoListView extends FrameLayout implements OnViewHolderIt
     }
 
     public void onPageSelected(int position, boolean autoStart) {
+        if (position >= 0 && position < mDataList.size()) {
+            FirstFrameTracker.getInstance().onPageSelected(mDataList.get(position).videoId);
+        }
         if (mDataList.size() - position < DEFAULT_PRELOAD_NUMBER && !mIsLoadMore) {
             // 正在加载中, 防止网络太慢或其他情况造成重复请求列表
             // Loading, to prevent slow networks and other conditions from duplicating the request list.
@@ -439,6 +443,13 @@ public class AUIShortVideoListView extends FrameLayout implements OnViewHolderIt
         }
     }
 
+    @Override
+    public void onLoadingProgress(int position, float netSpeed) {
+        if (mController != null) {
+            mController.onNetSpeed(netSpeed);
+        }
+    }
+
     @Override
     public void onError(ErrorInfo errorInfo) {
 
@@ -1,7 +1,10 @@
 package com.alivc.player.playerkits.shortvideolist.controller;
 
 import android.content.Context;
+import android.util.Log;
 
+import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
+import com.alivc.player.playerkits.shortvideolist.controller.metrics.FirstFrameTracker;
 import com.alivc.player.playerkits.shortvideolist.controller.player.AliPlayerPool;
 import com.alivc.player.playerkits.shortvideolist.controller.preload.AliPlayerPreload;
 import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
@@ -62,6 +65,13 @@ public class AUIShortVideoListController {
         }
     }
 
+    // feed the net speed observed by the player, in kbps
+    public void onNetSpeed(float netSpeed) {
+        if (mAliPlayerPreload != null) {
+            mAliPlayerPreload.onNetSpeed(netSpeed);
+        }
+    }
+
     /**
      * load Video List
      * 1. set Video List to AliPlayerPreload
@@ -100,7 +110,7 @@ public class AUIShortVideoListController {
     }
 
     public void onInitComplete() {
-        SLog.w(this, "INIT_COMPLETE", mCurrentPosition + "->" + 0);
+        SLog.w(this, "INIT_COMPLETE", mCurrentPosition, 0);
         if (mAliPlayerPreload != null) {
             mAliPlayerPreload.moveTo(0);
         }
@@ -111,7 +121,11 @@ public class AUIShortVideoListController {
             return;
         }
         int targetPosition = position - 1;
-        SLog.w(this, "PEEK_START", mCurrentPosition + "->" + targetPosition);
+        // 滑动时每次都会调用,先检查级别,避免创建可变参数数组和装箱位置
+        // Called on every swipe, checked first so the varargs array and the boxed positions are not allocated
+        if (SLog.isLoggable(Log.WARN, this)) {
+            SLog.w(this, "PEEK_START", mCurrentPosition, targetPosition);
+        }
         // If you drag the page without letting go, the onPageSelected method of the item will not execute.
         // Therefore, you can use the attach method of the item to move the pointer to ensure that the preload works properly
         if (mAliPlayerPreload != null) {
@@ -123,7 +137,9 @@ public class AUIShortVideoListController {
         if (mCurrentPosition == position) {
             return;
         }
-        SLog.w(this, "UPDATE_POSITION", mCurrentPosition + "->" + position);
+        if (SLog.isLoggable(Log.WARN, this)) {
+            SLog.w(this, "UPDATE_POSITION", mCurrentPosition, position);
+        }
         this.mCurrentPosition = position;
         if (mAliPlayerPreload != null) {
             mAliPlayerPreload.moveTo(position);
@@ -131,6 +147,9 @@ public class AUIShortVideoListController {
     }
 
     public void destroy() {
+        if (AUIShortVideoListConstants.ENABLE_FIRST_FRAME_METRICS) {
+            SLog.i(this, "FIRST_FRAME_METRICS", FirstFrameTracker.getInstance().toJson());
+        }
         if (mAliPlayerPool != null) {
             mAliPlayerPool.release();
             mAliPlayerPool = null;
@@ -0,0 +1,278 @@
+package com.alivc.player.playerkits.shortvideolist.controller.metrics;
+
+import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
+import com.google.gson.Gson;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author keria
+ * @date 2024/9/25
+ * @brief Swipe-to-first-frame latency tracker for the short video list.
+ * @note Every item records the timestamps of its phases: page selected, player acquired from the player pool,
+ * @note prepare called, prepared and first frame rendered, and whether its media was preloaded by media loader
+ * @note or loaded from the local cache.
+ * @note When both the page selected and the first frame are known, the item is aggregated into latency histograms,
+ * @note overall and by source, which can be exported as JSON by {@link #toJson()}.
+ * @note An item rendered before its page is selected (pre-rendered) counts with a latency of 0.
+ * @note Every selection restarts the measurement of an item, so a swipe back is measured from the swipe back.
+ * @note All methods are thread-safe.
+ */
+public class FirstFrameTracker {
+    // Highest latency tracked by the histograms. Unit: us
+    private static final long HIGHEST_TRACKABLE_LATENCY_US = TimeUnit.SECONDS.toMicros(60);
+
+    // Max number of items in progress; older items (e.g. prepared but never selected) are dropped
+    private static final int MAX_PENDING_ITEMS = 32;
+
+    private static final double[] EXPORT_PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    /**
+     * Source of the media of an item at first frame.
+     */
+    public enum Source {
+        // Rendered before its page was selected
+        PRERENDERED,
+        // Preloaded by media loader
+        PRELOADED,
+        // Loaded from the local cache
+        LOCAL_CACHE,
+        // Loaded from network
+        NETWORK
+    }
+
+    private static class Item {
+        long pageSelectedUs = -1;
+        long playerAcquiredUs = -1;
+        long prepareCalledUs = -1;
+        long preparedUs = -1;
+        long firstFrameUs = -1;
+        boolean preloaded = false;
+        boolean localCache = false;
+    }
+
+    private final Map<String, Item> mItems = new LinkedHashMap<String, Item>(MAX_PENDING_ITEMS, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Item> eldest) {
+            return size() > MAX_PENDING_ITEMS;
+        }
+    };
+
+    private final LatencyHistogram mSwipeToFirstFrame = newHistogram();
+    private final LatencyHistogram[] mSwipeToFirstFrameBySource = new LatencyHistogram[Source.values().length];
+    private final LatencyHistogram mPageSelectedToPlayerAcquired = newHistogram();
+    private final LatencyHistogram mPageSelectedToPrepare = newHistogram();
+    private final LatencyHistogram mPrepareToPrepared = newHistogram();
+    private final LatencyHistogram mPreparedToFirstFrame = newHistogram();
+
+    private static class SingletonHolder {
+        private static final FirstFrameTracker instance = new FirstFrameTracker();
+    }
+
+    public static FirstFrameTracker getInstance() {
+        return SingletonHolder.instance;
+    }
+
+    FirstFrameTracker() {
+        for (int i = 0; i < mSwipeToFirstFrameBySource.length; i++) {
+            mSwipeToFirstFrameBySource[i] = newHistogram();
+        }
+    }
+
+    /**
+     * Start the measurement of an item. Every selection restarts it, e.g. a swipe back to an item selected before
+     * but not rendered yet: the phases of the previous attempt are dropped, only the preloaded mark is kept.
+     */
+    public void onPageSelected(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item == null) {
+                return;
+            }
+            if (item.pageSelectedUs >= 0) {
+                Item restarted = new Item();
+                restarted.preloaded = item.preloaded;
+                // Re-inserted, so that the restarted item is the newest one and not dropped first
+                mItems.remove(videoId);
+                mItems.put(videoId, restarted);
+                item = restarted;
+            }
+            item.pageSelectedUs = nowUs();
+            completeIfReady(videoId, item);
+        }
+    }
+
+    public void onPlayerAcquired(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item != null && item.playerAcquiredUs < 0) {
+                item.playerAcquiredUs = nowUs();
+            }
+        }
+    }
+
+    public void onPrepareCalled(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item != null && item.prepareCalledUs < 0) {
+                item.prepareCalledUs = nowUs();
+            }
+        }
+    }
+
+    public void onPrepared(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item != null && item.preparedUs < 0) {
+                item.preparedUs = nowUs();
+            }
+        }
+    }
+
+    public void onFirstFrame(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item == null || item.firstFrameUs >= 0) {
+                return;
+            }
+            item.firstFrameUs = nowUs();
+            completeIfReady(videoId, item);
+        }
+    }
+
+    /**
+     * Mark that the media of the item has been preloaded by media loader.
+     */
+    public void markPreloaded(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item != null) {
+                item.preloaded = true;
+            }
+        }
+    }
+
+    /**
+     * Mark that the player has loaded the media of the item from the local cache.
+     */
+    public void markLocalCache(String videoId) {
+        synchronized (mItems) {
+            Item item = getItem(videoId);
+            if (item != null) {
+                item.localCache = true;
+            }
+        }
+    }
+
+    /**
+     * Drop the items in progress and clear the histograms.
+     */
+    public void reset() {
+        synchronized (mItems) {
+            mItems.clear();
+            mSwipeToFirstFrame.reset();
+            for (LatencyHistogram histogram : mSwipeToFirstFrameBySource) {
+                histogram.reset();
+            }
+            mPageSelectedToPlayerAcquired.reset();
+            mPageSelectedToPrepare.reset();
+            mPrepareToPrepared.reset();
+            mPreparedToFirstFrame.reset();
+        }
+    }
+
+    /**
+     * @return percentiles of the latencies in ms, as JSON
+     */
+    public String toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        synchronized (mItems) {
+            json.put("swipe_to_first_frame", export(mSwipeToFirstFrame));
+            Map<String, Object> bySource = new LinkedHashMap<>();
+            for (Source source : Source.values()) {
+                bySource.put(source.name().toLowerCase(Locale.US), export(mSwipeToFirstFrameBySource[source.ordinal()]));
+            }
+            json.put("swipe_to_first_frame_by_source", bySource);
+            json.put("page_selected_to_player_acquired", export(mPageSelectedToPlayerAcquired));
+            json.put("page_selected_to_prepare", export(mPageSelectedToPrepare));
+            json.put("prepare_to_prepared", export(mPrepareToPrepared));
+            json.put("prepared_to_first_frame", export(mPreparedToFirstFrame));
+        }
+        return new Gson().toJson(json);
+    }
+
+    private Item getItem(String videoId) {
+        if (!AUIShortVideoListConstants.ENABLE_FIRST_FRAME_METRICS || videoId == null) {
+            return null;
+        }
+        Item item = mItems.get(videoId);
+        if (item == null) {
+            item = new Item();
+            mItems.put(videoId, item);
+        }
+        return item;
+    }
+
+    private void completeIfReady(String videoId, Item item) {
+        if (item.pageSelectedUs < 0 || item.firstFrameUs < 0) {
+            return;
+        }
+        mItems.remove(videoId);
+
+        long latencyUs = Math.max(0, item.firstFrameUs - item.pageSelectedUs);
+        Source source;
+        if (item.firstFrameUs <= item.pageSelectedUs) {
+            source = Source.PRERENDERED;
+        } else if (item.preloaded) {
+            source = Source.PRELOADED;
+        } else if (item.localCache) {
+            source = Source.LOCAL_CACHE;
+        } else {
+            source = Source.NETWORK;
+        }
+        mSwipeToFirstFrame.record(latencyUs);
+        mSwipeToFirstFrameBySource[source.ordinal()].record(latencyUs);
+
+        // Phases are only meaningful when the player was acquired and prepared after the swipe
+        if (item.playerAcquiredUs >= item.pageSelectedUs) {
+            mPageSelectedToPlayerAcquired.record(item.playerAcquiredUs - item.pageSelectedUs);
+        }
+        if (item.prepareCalledUs >= item.pageSelectedUs) {
+            mPageSelectedToPrepare.record(item.prepareCalledUs - item.pageSelectedUs);
+        }
+        if (item.prepareCalledUs >= 0 && item.preparedUs >= item.prepareCalledUs) {
+            mPrepareToPrepared.record(item.preparedUs - item.prepareCalledUs);
+        }
+        if (item.preparedUs >= 0 && item.firstFrameUs >= item.preparedUs) {
+            mPreparedToFirstFrame.record(item.firstFrameUs - item.preparedUs);
+        }
+    }
+
+    private static Map<String, Object> export(LatencyHistogram histogram) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", histogram.getTotalCount());
+        json.put("min_ms", toMs(histogram.getMinValue()));
+        json.put("mean_ms", toMs(histogram.getMean()));
+        for (double percentile : EXPORT_PERCENTILES) {
+            String key = "p" + (percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile).replace('.', '_'));
+            json.put(key + "_ms", toMs(histogram.getValueAtPercentile(percentile)));
+        }
+        json.put("max_ms", toMs(histogram.getMaxValue()));
+        return json;
+    }
+
+    private static double toMs(double us) {
+        return Math.round(us / 100) / 10.0;
+    }
+
+    private static long nowUs() {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime());
+    }
+
+    private static LatencyHistogram newHistogram() {
+        return new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY_US);
+    }
+}
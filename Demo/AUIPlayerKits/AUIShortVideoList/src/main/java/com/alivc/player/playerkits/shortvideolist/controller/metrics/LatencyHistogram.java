@@ -0,0 +1,107 @@
+package com.alivc.player.playerkits.shortvideolist.controller.metrics;
+
+import java.util.Arrays;
+
+/**
+ * @author keria
+ * @date 2024/9/25
+ * @brief Fixed-size log-linear latency histogram, in the style of HdrHistogram.
+ * @note Values below 128 are counted exactly; above, every power of two is split into 64 buckets,
+ * @note so any recorded value is reported within 1.6% of its real value, with a constant memory footprint.
+ * @note Values above the highest trackable value are clamped. All methods are thread-safe.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private final long mHighestTrackableValue;
+    private final long[] mCounts;
+
+    private long mTotalCount = 0;
+    private long mMinValue = Long.MAX_VALUE;
+    private long mMaxValue = 0;
+    private double mSum = 0;
+
+    /**
+     * @param highestTrackableValue highest value to track, greater values are clamped
+     */
+    public LatencyHistogram(long highestTrackableValue) {
+        mHighestTrackableValue = Math.max(SUB_BUCKET_COUNT, highestTrackableValue);
+        mCounts = new long[indexOf(mHighestTrackableValue) + 1];
+    }
+
+    /**
+     * @param value value to record, negative values are recorded as 0
+     */
+    public synchronized void record(long value) {
+        value = Math.min(Math.max(0, value), mHighestTrackableValue);
+        mCounts[indexOf(value)]++;
+        mTotalCount++;
+        mMinValue = Math.min(mMinValue, value);
+        mMaxValue = Math.max(mMaxValue, value);
+        mSum += value;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(mCounts, 0);
+        mTotalCount = 0;
+        mMinValue = Long.MAX_VALUE;
+        mMaxValue = 0;
+        mSum = 0;
+    }
+
+    public synchronized long getTotalCount() {
+        return mTotalCount;
+    }
+
+    public synchronized long getMinValue() {
+        return mTotalCount == 0 ? 0 : mMinValue;
+    }
+
+    public synchronized long getMaxValue() {
+        return mMaxValue;
+    }
+
+    public synchronized double getMean() {
+        return mTotalCount == 0 ? 0 : mSum / mTotalCount;
+    }
+
+    /**
+     * @param percentile percentile, from 0 to 100
+     * @return value at the percentile, reported as the highest equivalent value of its bucket, capped by the max value
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        double clamped = Math.min(Math.max(percentile, 0), 100);
+        long countAtPercentile = Math.max(1, (long) Math.ceil(clamped / 100 * mTotalCount));
+        long count = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            count += mCounts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), mMaxValue);
+            }
+        }
+        return mMaxValue;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // value >> shift is in [SUB_BUCKET_HALF_COUNT, SUB_BUCKET_COUNT)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (int) ((value >> shift) - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+}
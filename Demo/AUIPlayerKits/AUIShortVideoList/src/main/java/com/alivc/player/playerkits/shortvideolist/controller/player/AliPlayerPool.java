@@ -10,7 +10,9 @@ import com.aliyun.player.IPlayer;
 import com.aliyun.player.nativeclass.PlayerConfig;
 
 import java.lang.ref.WeakReference;
-import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author baorunchen
@@ -18,11 +20,42 @@ import java.util.LinkedHashMap;
  * @brief Manages a pool of AliPlayer instances to be reused across the application.
  * @note Call logic and timing:
  * @note {@link AliPlayerPool#init(Context)} -> {@link AliPlayerPool#acquire(T)} -> ... -> {@link AliPlayerPool#release()}
+ * @note When {@link AUIShortVideoListConstants#ENABLE_PLAYER_POOL_RECYCLE} is on, evicted players are reset and reused
+ * @note instead of being destroyed, and {@link AUIShortVideoListConstants#PLAYER_POOL_WARM_SPARE_COUNT} spare players
+ * @note are pre-created on a sub-thread at {@link AliPlayerPool#init(Context)}.
  */
 public class AliPlayerPool<T> {
     // The number of AliPlayer instances to be initialized
     public static final int INITIAL_CAPACITY = AUIShortVideoListConstants.PLAYER_POOL_CAPACITY;
-    private final LinkedHashMap<T, AliPlayer> mPlayerPool = new LinkedHashMap<>(INITIAL_CAPACITY, 0.75f, true);
+
+    // Spare players are created on this thread, so that a swipe doesn't pay for player creation.
+    // Created at the first init and shut down at the last release.
+    private volatile ExecutorService mWarmUpExecutor;
+
+    private final PlayerInstancePool<T, AliPlayer> mPlayerPool = new PlayerInstancePool<>(INITIAL_CAPACITY, new PlayerInstancePool.Factory<AliPlayer>() {
+        @Override
+        public AliPlayer create() {
+            WeakReference<Context> contextRef = mContext;
+            Context context = contextRef != null ? contextRef.get() : null;
+            return context != null ? initNewAliPlayerInstance(context) : null;
+        }
+
+        @Override
+        public void reset(AliPlayer player) {
+            resetAliPlayerInstance(player);
+        }
+
+        @Override
+        public void destroy(AliPlayer player, String tag) {
+            destroyAliPlayerInstance(player, tag);
+        }
+    }, command -> {
+        ExecutorService executor = mWarmUpExecutor;
+        if (executor == null) {
+            throw new RejectedExecutionException("player pool is released");
+        }
+        executor.execute(command);
+    });
 
     // Through interface settings, a full screen effect can be achieved, with the default being IPlayer ScaleMode SCALE_ASPECT_FIT
     // The current SDK defaults to IPlayer ScaleMode SCALE-ASPECT_FIT, which means that the image is filled based on its own aspect ratio, and the shorter side is not fully covered on the entire screen, but it will cause the remaining space to be transparent, similar to the top and bottom black edges
@@ -33,7 +66,7 @@ public class AliPlayerPool<T> {
     private int refCounter = 0;
     private final Object refLock = new Object();
 
-    private WeakReference<Context> mContext;
+    private volatile WeakReference<Context> mContext;
 
     private AliPlayerPool() {
     }
@@ -57,8 +90,13 @@ public class AliPlayerPool<T> {
     public void init(Context context) {
         synchronized (refLock) {
             mContext = new WeakReference<>(context.getApplicationContext());
+            if (mWarmUpExecutor == null) {
+                mWarmUpExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "PlayerPoolWarmUp"));
+            }
             refCounter++;
         }
+        mPlayerPool.setRecycleStrategy(AUIShortVideoListConstants.ENABLE_PLAYER_POOL_RECYCLE, AUIShortVideoListConstants.PLAYER_POOL_WARM_SPARE_COUNT);
+        mPlayerPool.warmUp();
     }
 
     /**
@@ -75,6 +113,11 @@ public class AliPlayerPool<T> {
                 // Last release
                 releasePlayers();
                 mContext = null;
+                // Queued warm up tasks still run and destroy their players, as the pool generation has changed
+                if (mWarmUpExecutor != null) {
+                    mWarmUpExecutor.shutdown();
+                    mWarmUpExecutor = null;
+                }
             }
         }
     }
@@ -83,12 +126,8 @@ public class AliPlayerPool<T> {
      * Releases all AliPlayer instances and clears the pool.
      */
     private void releasePlayers() {
-        synchronized (mPlayerPool) {
-            for (AliPlayer aliPlayer : mPlayerPool.values()) {
-                destroyAliPlayerInstance(aliPlayer, "RELEASE");
-            }
-            mPlayerPool.clear();
-        }
+        SLog.i(this, "STATS", mPlayerPool.getStats());
+        mPlayerPool.clear();
         checkPlayerPoolSizeAssert();
     }
 
@@ -103,32 +142,13 @@ public class AliPlayerPool<T> {
      */
     public AliPlayer acquire(T key) {
         SLog.i(this, "ACQUIRE", key);
-        synchronized (mPlayerPool) {
-            AliPlayer aliPlayer = mPlayerPool.get(key);
-            if (aliPlayer != null) {
-                SLog.w(this, "REUSE", key, aliPlayer);
-                mPlayerPool.remove(key); // Remove it first
-                mPlayerPool.put(key, aliPlayer); // Then put it back
-                checkPlayerPoolSizeAssert();
-                return aliPlayer;
-            }
-
-            // Originally implemented using linked lists, the purpose was to achieve reusability of player instances and reduce performance overhead.
-            // However, due to various invocation issues in the application layer, exceptions are caused.
-            // Therefore, we adopt a method where one view corresponds to one unique player to avoid the reuse of player instances.
-            if (mPlayerPool.size() == INITIAL_CAPACITY) {
-                T oldestKey = mPlayerPool.keySet().iterator().next();
-                AliPlayer oldAliPlayer = mPlayerPool.remove(oldestKey);
-                checkPlayerPoolSizeAssert();
-                destroyAliPlayerInstance(oldAliPlayer, "GC");
-            }
-
-            aliPlayer = initNewAliPlayerInstance(mContext.get());
-            // Insert to end of LinkedHashMap, marking it as most recently used.
-            mPlayerPool.put(key, aliPlayer);
-            checkPlayerPoolSizeAssert();
-            return aliPlayer;
-        }
+        // Originally implemented using linked lists, the purpose was to achieve reusability of player instances and reduce performance overhead.
+        // However, due to various invocation issues in the application layer, exceptions are caused.
+        // Therefore, by default we adopt a method where one view corresponds to one unique player to avoid the reuse of player instances,
+        // and player reuse is only enabled by AUIShortVideoListConstants#ENABLE_PLAYER_POOL_RECYCLE.
+        AliPlayer aliPlayer = mPlayerPool.acquire(key);
+        checkPlayerPoolSizeAssert();
+        return aliPlayer;
     }
 
     /**
@@ -138,11 +158,30 @@ public class AliPlayerPool<T> {
      */
     public void recycle(T key) {
         SLog.i(this, "RECYCLE", key);
-        synchronized (mPlayerPool) {
-            AliPlayer oldAliPlayer = mPlayerPool.remove(key);
-            checkPlayerPoolSizeAssert();
-            destroyAliPlayerInstance(oldAliPlayer, "RECYCLE");
-        }
+        mPlayerPool.recycle(key);
+        checkPlayerPoolSizeAssert();
+    }
+
+    /**
+     * Check whether the AliPlayer instance is still bound to the key.
+     * <p>
+     * In recycle mode, an evicted player may already be handed to another key.
+     *
+     * @param key       The key to identify the needed AliPlayer instance.
+     * @param aliPlayer The AliPlayer instance.
+     * @return true if the AliPlayer instance is bound to the key.
+     */
+    public boolean isBound(T key, AliPlayer aliPlayer) {
+        return key != null && aliPlayer != null && mPlayerPool.isBound(key, aliPlayer);
+    }
+
+    /**
+     * Acquire/recycle latency counters of the player pool
+     *
+     * @return the stats of the player pool
+     */
+    public PlayerInstancePool.Stats getStats() {
+        return mPlayerPool.getStats();
     }
 
     /// If further design is needed, it can be considered to expose the init/destroy method in the form of a callback,
@@ -166,6 +205,30 @@ public class AliPlayerPool<T> {
         return aliPlayer;
     }
 
+    /**
+     * Resets the AliPlayer instance so that it can be bound to another key.
+     *
+     * @param aliPlayer The AliPlayer instance to reset.
+     * @note The data source is replaced by the next setDataSource call, so stop is enough to drop it.
+     */
+    private static void resetAliPlayerInstance(AliPlayer aliPlayer) {
+        SLog.w("AliPlayerPool", "PLAYER-API-RESET", aliPlayer);
+        aliPlayer.stop();
+        aliPlayer.clearScreen();
+        aliPlayer.setSurface(null);
+        // Drop the listeners of the previous owner, the next owner sets its own before prepare
+        aliPlayer.setOnPreparedListener(null);
+        aliPlayer.setOnInfoListener(null);
+        aliPlayer.setOnStateChangedListener(null);
+        aliPlayer.setOnRenderingStartListener(null);
+        aliPlayer.setOnCompletionListener(null);
+        aliPlayer.setOnErrorListener(null);
+        aliPlayer.setOnTrackChangedListener(null);
+        aliPlayer.setOnLoadingStatusListener(null);
+        aliPlayer.setLoop(false);
+        aliPlayer.setSpeed(1.0f);
+    }
+
     /**
      * Destroys the AliPlayer instance and releases its resources.
      *
@@ -187,5 +250,6 @@ public class AliPlayerPool<T> {
     // If it exceeds this limit, it may cause memory leaks, and the problem needs to be investigated.
     private void checkPlayerPoolSizeAssert() {
         assert mPlayerPool.size() <= INITIAL_CAPACITY;
+        assert mPlayerPool.spareSize() <= AUIShortVideoListConstants.PLAYER_POOL_WARM_SPARE_COUNT;
     }
 }
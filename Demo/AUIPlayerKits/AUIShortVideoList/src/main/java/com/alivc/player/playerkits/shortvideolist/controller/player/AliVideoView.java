@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.graphics.SurfaceTexture;
 import android.text.TextUtils;
+import android.util.Log;
 import android.view.Surface;
 import android.view.TextureView;
 import android.view.ViewGroup;
@@ -11,9 +12,11 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
 import com.alivc.player.playerkits.shortvideolist.R;
 import com.alivc.player.playerkits.shortvideolist.business.trackinfo.AUIVideoTrackInfoPanelView;
 import com.alivc.player.playerkits.shortvideolist.business.trackinfo.AUIVideoTrackInfoUtil;
+import com.alivc.player.playerkits.shortvideolist.controller.metrics.FirstFrameTracker;
 import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
 import com.alivc.player.playerkits.shortvideolist.listener.OnPlayerEventListener;
 import com.alivc.player.playerkits.shortvideolist.utils.SLog;
@@ -21,6 +24,7 @@ import com.aliyun.player.AliPlayer;
 import com.aliyun.player.IPlayer;
 import com.aliyun.player.bean.ErrorCode;
 import com.aliyun.player.bean.ErrorInfo;
+import com.aliyun.player.bean.InfoCode;
 import com.aliyun.player.nativeclass.TrackInfo;
 import com.aliyun.player.source.VidAuth;
 
@@ -45,6 +49,8 @@ public class AliVideoView {
     private AUIVideoTrackInfoPanelView.OnTrackInfoListener mOnTrackInfoListener;
 
     private boolean mHasPrepared = false;
+    // A bind skipped because the playAuth was missing, run once bindData delivers it
+    private boolean mBindPending = false;
 
     private int mSelectedTrackBitrate;
     // default prepare/play start time
@@ -71,48 +77,81 @@ public class AliVideoView {
     }
 
     private void initListener() {
-        mAliPlayer.setOnPreparedListener(() -> {
+        // Listener callbacks may arrive after the reference is dropped on eviction, use the instance they belong to
+        AliPlayer aliPlayer = mAliPlayer;
+        aliPlayer.setOnPreparedListener(() -> {
             mHasPrepared = true;
+            FirstFrameTracker.getInstance().onPrepared(getVideoId());
             if (mOnPlayerEventListener != null) {
                 mOnPlayerEventListener.onPrepared(-1);
             }
             // update track info list when player is prepared
             if (mOnTrackInfoListener != null) {
-                List<TrackInfo> trackInfoList = mAliPlayer.getMediaInfo().getTrackInfos();
+                List<TrackInfo> trackInfoList = aliPlayer.getMediaInfo().getTrackInfos();
                 mOnTrackInfoListener.onTrackInfoListUpdated(AUIVideoTrackInfoUtil.filterVideoTrackInfoList(trackInfoList));
             }
         });
 
-        mAliPlayer.setOnInfoListener(infoBean -> {
+        aliPlayer.setOnInfoListener(infoBean -> {
+            if (infoBean.getCode() == InfoCode.LocalCacheLoaded) {
+                FirstFrameTracker.getInstance().markLocalCache(getVideoId());
+            }
             if (mOnPlayerEventListener != null) {
                 mOnPlayerEventListener.onInfo(-1, infoBean);
             }
         });
 
-        mAliPlayer.setOnStateChangedListener(i -> {
-            SLog.i(this, "PLAYER-CBK-STATE_CHANGED", "STATE: " + mPlayerState + "->" + i);
+        aliPlayer.setOnStateChangedListener(i -> {
+            // 播放器回调和绑定在每次滑动时都会执行,先检查级别,避免创建可变参数数组和装箱参数
+            // Player callbacks and binds run on every swipe, the level is checked first so the varargs array and the
+            // boxed arguments are not allocated
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-CBK-STATE_CHANGED", mPlayerState, i);
+            }
             mPlayerState = i;
             if (mOnPlayerEventListener != null) {
                 mOnPlayerEventListener.onPlayStateChanged(-1, mPlayerState == IPlayer.paused);
             }
         });
 
-        mAliPlayer.setOnRenderingStartListener(() -> {
-            SLog.i(this, "PLAYER-CBK-RENDER_START");
+        aliPlayer.setOnRenderingStartListener(() -> {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-CBK-RENDER_START");
+            }
+            FirstFrameTracker.getInstance().onFirstFrame(getVideoId());
             if (mOnPlayerEventListener != null) {
-                mOnPlayerEventListener.onRenderingStart(-1, mAliPlayer.getDuration());
+                mOnPlayerEventListener.onRenderingStart(-1, aliPlayer.getDuration());
             }
         });
 
-        mAliPlayer.setOnCompletionListener(() -> {
-            SLog.i(this, "PLAYER-CBK-COMPLETION");
+        aliPlayer.setOnCompletionListener(() -> {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-CBK-COMPLETION");
+            }
             mHasPrepared = false;
             if (mOnPlayerEventListener != null) {
                 mOnPlayerEventListener.onCompletion(-1);
             }
         });
 
-        mAliPlayer.setOnErrorListener(new IPlayer.OnErrorListener() {
+        aliPlayer.setOnLoadingStatusListener(new IPlayer.OnLoadingStatusListener() {
+            @Override
+            public void onLoadingBegin() {
+            }
+
+            @Override
+            public void onLoadingProgress(int percent, float netSpeed) {
+                if (mOnPlayerEventListener != null) {
+                    mOnPlayerEventListener.onLoadingProgress(-1, netSpeed);
+                }
+            }
+
+            @Override
+            public void onLoadingEnd() {
+            }
+        });
+
+        aliPlayer.setOnErrorListener(new IPlayer.OnErrorListener() {
             @Override
             public void onError(ErrorInfo errorInfo) {
                 // TODO ErrorCode.ERROR_ARTP_UNKNOWN 后续会变更命名
@@ -131,7 +170,7 @@ public class AliVideoView {
             }
         });
 
-        mAliPlayer.setOnTrackChangedListener(new IPlayer.OnTrackChangedListener() {
+        aliPlayer.setOnTrackChangedListener(new IPlayer.OnTrackChangedListener() {
             /**
              * 切换成功xq
              *
@@ -176,21 +215,41 @@ public class AliVideoView {
         mTextureView.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
             @Override
             public void onSurfaceTextureAvailable(@NonNull SurfaceTexture surfaceTexture, int i, int i1) {
-                SLog.i(this, "PLAYER-CBK-SURFACE_AVAILABLE");
-                mAliPlayer.setSurface(new Surface(surfaceTexture));
-                SLog.i(this, "PLAYER-API-SET_SURFACE", surfaceTexture);
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "PLAYER-CBK-SURFACE_AVAILABLE");
+                }
+                AliPlayer aliPlayer = getBoundPlayer();
+                if (aliPlayer == null) {
+                    return;
+                }
+                aliPlayer.setSurface(new Surface(surfaceTexture));
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "PLAYER-API-SET_SURFACE", surfaceTexture);
+                }
             }
 
             @Override
             public void onSurfaceTextureSizeChanged(@NonNull SurfaceTexture surfaceTexture, int i, int i1) {
-                mAliPlayer.surfaceChanged();
+                AliPlayer aliPlayer = getBoundPlayer();
+                if (aliPlayer != null) {
+                    aliPlayer.surfaceChanged();
+                }
             }
 
             @Override
             public boolean onSurfaceTextureDestroyed(@NonNull SurfaceTexture surfaceTexture) {
-                SLog.i(this, "PLAYER-CBK-SURFACE_DESTROYED");
-                mAliPlayer.setSurface(null);
-                SLog.i(this, "PLAYER-API-SET_SURFACE_NULL", surfaceTexture);
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "PLAYER-CBK-SURFACE_DESTROYED");
+                }
+                // In recycle mode, the player may already be handed to another item, don't touch its surface
+                AliPlayer aliPlayer = getBoundPlayer();
+                if (aliPlayer == null) {
+                    return false;
+                }
+                aliPlayer.setSurface(null);
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "PLAYER-API-SET_SURFACE_NULL", surfaceTexture);
+                }
                 return false;
             }
 
@@ -205,22 +264,31 @@ public class AliVideoView {
      * TextureView add to FrameLayout
      */
     public TextureView initTextureView() {
-        SLog.i(this, "INIT_TEXTURE_VIEW");
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "INIT_TEXTURE_VIEW");
+        }
         //remove
         removeTextureView();
         return mTextureView;
     }
 
     public void removeTextureView() {
-        SLog.i(this, "REM_TEXTURE_VIEW");
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "REM_TEXTURE_VIEW");
+        }
         if (mTextureView.getParent() != null) {
             ((ViewGroup) mTextureView.getParent()).removeView(mTextureView);
         }
     }
 
     public void bindData(VideoInfo videoInfo) {
-        SLog.i(this, "DATA", mAliPlayer, mVideoInfo + "->" + videoInfo);
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "DATA", mAliPlayer, mVideoInfo, videoInfo);
+        }
         mVideoInfo = videoInfo;
+        if (mBindPending && videoInfo != null && !TextUtils.isEmpty(videoInfo.playAuth)) {
+            bindVideoPlayer(false);
+        }
     }
 
     /**
@@ -231,21 +299,44 @@ public class AliVideoView {
      * Player set data source and prepare
      */
     public void bindVideoPlayer(boolean forceResume) {
-        if (mVideoInfo == null || TextUtils.isEmpty(mVideoInfo.playAuth) || TextUtils.isEmpty(mVideoInfo.videoId)) {
+        if (mVideoInfo == null || TextUtils.isEmpty(mVideoInfo.videoId)) {
+            return;
+        }
+        // A cached page is shown before its playAuths are fetched, the refreshed item rebinds through bindData
+        mBindPending = TextUtils.isEmpty(mVideoInfo.playAuth);
+        if (mBindPending) {
             return;
         }
 
-        mAliPlayer = AliPlayerPool.getInstance().acquire(mVideoInfo);
-        assert mAliPlayer != null;
+        AliPlayer aliPlayer = AliPlayerPool.getInstance().acquire(mVideoInfo);
+        assert aliPlayer != null;
+        if (aliPlayer != mAliPlayer) {
+            // A different instance (spare, recycled or new) has not prepared our source yet
+            mHasPrepared = false;
+        }
+        mAliPlayer = aliPlayer;
+        FirstFrameTracker.getInstance().onPlayerAcquired(mVideoInfo.videoId);
 
         if (!forceResume && mHasPrepared) {
-            SLog.w(this, "REBIND", mAliPlayer, mVideoInfo);
+            if (SLog.isLoggable(Log.WARN, this)) {
+                SLog.w(this, "REBIND", mAliPlayer, mVideoInfo);
+            }
             return;
         }
-        SLog.w(this, "BIND", mAliPlayer, mVideoInfo, "FORCE: " + forceResume);
+        if (SLog.isLoggable(Log.WARN, this)) {
+            SLog.w(this, "BIND", mAliPlayer, mVideoInfo, forceResume);
+        }
 
         initListener();
 
+        // A recycled or spare player has no surface yet, while the texture may already be available
+        if (AUIShortVideoListConstants.ENABLE_PLAYER_POOL_RECYCLE && mTextureView.isAvailable()) {
+            mAliPlayer.setSurface(new Surface(mTextureView.getSurfaceTexture()));
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-SET_SURFACE", mTextureView.getSurfaceTexture());
+            }
+        }
+
         VidAuth vidAuth = new VidAuth();
         vidAuth.setVid(mVideoInfo.videoId);
         vidAuth.setPlayAuth(mVideoInfo.playAuth);
@@ -259,18 +350,56 @@ public class AliVideoView {
         if (mSelectedTrackBitrate > 0) {
             mAliPlayer.setDefaultBandWidth(mSelectedTrackBitrate);
         }
-        SLog.i(this, "DefaultBandWidth ", mSelectedTrackBitrate);
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "DefaultBandWidth ", mSelectedTrackBitrate);
+        }
         mAliPlayer.prepare();
-        SLog.i(this, "PLAYER-API-PREPARE", "VID: " + mVideoInfo.videoId);
+        FirstFrameTracker.getInstance().onPrepareCalled(mVideoInfo.videoId);
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "PLAYER-API-PREPARE", mVideoInfo.videoId);
+        }
+
+    }
+
+    /**
+     * Get the player only if it is still bound to our video.
+     * <p>
+     * In recycle mode, the pool may evict our player and hand it to another item, after which every call on it
+     * would drive the other item's playback. In that case the reference is dropped and null is returned.
+     */
+    private AliPlayer getBoundPlayer() {
+        AliPlayer aliPlayer = mAliPlayer;
+        if (aliPlayer == null || !AUIShortVideoListConstants.ENABLE_PLAYER_POOL_RECYCLE) {
+            return aliPlayer;
+        }
+        if (AliPlayerPool.getInstance().isBound(mVideoInfo, aliPlayer)) {
+            return aliPlayer;
+        }
+        if (SLog.isLoggable(Log.WARN, this)) {
+            SLog.w(this, "EVICTED", aliPlayer, mVideoInfo);
+        }
+        mAliPlayer = null;
+        mHasPrepared = false;
+        return null;
+    }
 
+    private String getVideoId() {
+        VideoInfo videoInfo = mVideoInfo;
+        return videoInfo != null ? videoInfo.videoId : null;
     }
 
     public void unbind() {
-        SLog.w(this, "UNBIND", mAliPlayer, mVideoInfo);
-        if (mHasPrepared && mAliPlayer != null) {
-            SLog.i(this, "PLAYER-API-PAUSE_STOP");
-            mAliPlayer.pause();
-            mAliPlayer.stop();
+        if (SLog.isLoggable(Log.WARN, this)) {
+            SLog.w(this, "UNBIND", mAliPlayer, mVideoInfo);
+        }
+        mBindPending = false;
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (mHasPrepared && aliPlayer != null) {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-PAUSE_STOP");
+            }
+            aliPlayer.pause();
+            aliPlayer.stop();
         }
 
         // Recycle player instances immediately if the initial capacity of the AliPlayerPool is set to 2.
@@ -296,42 +425,56 @@ public class AliVideoView {
     }
 
     public void start() {
-        if (mAliPlayer != null) {
-            SLog.i(this, "PLAYER-API-START");
-            mAliPlayer.start();
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-START");
+            }
+            aliPlayer.start();
         }
     }
 
     public void pause() {
-        if (mAliPlayer != null) {
-            SLog.i(this, "PLAYER-API-PAUSE");
-            mAliPlayer.pause();
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-PAUSE");
+            }
+            aliPlayer.pause();
         }
     }
 
     public void seekTo(long progress) {
-        if (mAliPlayer != null) {
-            SLog.i(this, "PLAYER-API-SEEK");
-            mAliPlayer.seekTo(progress, DEFAULT_SEEK_MODE);
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-SEEK");
+            }
+            aliPlayer.seekTo(progress, DEFAULT_SEEK_MODE);
         }
     }
 
     public void setStartTime(long time) {
-        if (mAliPlayer != null) {
-            mAliPlayer.setStartTime(time, IPlayer.SeekMode.Accurate);
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            aliPlayer.setStartTime(time, IPlayer.SeekMode.Accurate);
         }
     }
 
     public void setLoop(boolean looperStart) {
-        if (mAliPlayer != null) {
-            SLog.i(this, "PLAYER-API-SET-LOOP");
-            mAliPlayer.setLoop(looperStart);
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            if (SLog.isLoggable(Log.INFO, this)) {
+                SLog.i(this, "PLAYER-API-SET-LOOP");
+            }
+            aliPlayer.setLoop(looperStart);
         }
     }
 
     public void setSpeed(float time) {
-        if (time > 0 && mAliPlayer != null) {
-            mAliPlayer.setSpeed(time);
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (time > 0 && aliPlayer != null) {
+            aliPlayer.setSpeed(time);
         }
     }
 
@@ -353,8 +496,9 @@ public class AliVideoView {
      * 4320p (也称为8K, 超高清): 7680 x 4320
      */
     public void selectTrackByTrackInfo(TrackInfo trackInfo) {
-        if (mAliPlayer != null) {
-            mAliPlayer.selectTrack(trackInfo == null ? TrackInfo.AUTO_SELECT_INDEX : trackInfo.getIndex());
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer != null) {
+            aliPlayer.selectTrack(trackInfo == null ? TrackInfo.AUTO_SELECT_INDEX : trackInfo.getIndex());
             Toast.makeText(mTextureView.getContext(), String.format("Select Track %s~", AUIVideoTrackInfoUtil.getQuality(trackInfo)), Toast.LENGTH_SHORT).show();
             if (trackInfo == null) {
                 return;
@@ -368,20 +512,23 @@ public class AliVideoView {
 
     // set the bandwidth size
     public void setBandWidth(int bandWidth) {
-        if (mAliPlayer == null) {
+        AliPlayer aliPlayer = getBoundPlayer();
+        if (aliPlayer == null) {
             return; // 提前返回，避免不必要的逻辑执行
         }
         if (mSelectedTrackBitrate == bandWidth) {
             return;
         }
-        SLog.i(this, "[API][SET_BANDWIDTH]", mSelectedTrackBitrate + "->" + bandWidth);
+        if (SLog.isLoggable(Log.INFO, this)) {
+            SLog.i(this, "[API][SET_BANDWIDTH]", mSelectedTrackBitrate, bandWidth);
+        }
         // 如果当前尚未prepare，直接设置trackBitrate，并在prepare前设置setDefaultBandWidth接口来实现指定清晰度
         if (!mHasPrepared) {
             mSelectedTrackBitrate = bandWidth;
             return;
         }
         // 如果当前已经prepare，直接通过selectTrack切换清晰度
-        List<TrackInfo> trackInfoList = mAliPlayer.getMediaInfo().getTrackInfos();
+        List<TrackInfo> trackInfoList = aliPlayer.getMediaInfo().getTrackInfos();
 
         for (TrackInfo trackInfo : trackInfoList) {
             if (trackInfo != null && trackInfo.getVideoBitrate() == bandWidth) {
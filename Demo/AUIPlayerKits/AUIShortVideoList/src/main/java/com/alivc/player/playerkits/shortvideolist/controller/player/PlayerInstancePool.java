@@ -0,0 +1,425 @@
+package com.alivc.player.playerkits.shortvideolist.controller.player;
+
+import com.alivc.player.playerkits.shortvideolist.utils.SLog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author baorunchen
+ * @date 2024/4/10
+ * @brief Key-bound LRU pool of player instances, independent of the concrete player type.
+ * @note Two eviction strategies are supported:
+ * @note 1. destroy mode (default): the least recently used player is destroyed and a new one is created for the new key;
+ * @note 2. recycle mode: the least recently used player is reset and handed over to the new key,
+ * @note and a number of warm spare players is kept ready so that a swipe never pays for player creation.
+ * @note All methods are thread-safe.
+ */
+public class PlayerInstancePool<K, P> {
+
+    /**
+     * Creates, resets and destroys player instances for the pool.
+     *
+     * @param <P> player type
+     */
+    public interface Factory<P> {
+        /**
+         * Create a new player instance.
+         *
+         * @return new player instance, or null if it can't be created now
+         */
+        P create();
+
+        /**
+         * Reset a player instance so that it can be bound to another key.
+         * <p>
+         * After reset, the player must hold no surface, no data source and no listeners of its previous owner.
+         *
+         * @param player player instance to reset
+         */
+        void reset(P player);
+
+        /**
+         * Destroy a player instance and release its resources.
+         *
+         * @param player player instance to destroy
+         * @param tag    reason of destroy, for log
+         */
+        void destroy(P player, String tag);
+    }
+
+    private final Factory<P> mFactory;
+    private final Executor mWarmUpExecutor;
+
+    private final LinkedHashMap<K, P> mPlayerPool;
+    private final ArrayDeque<P> mSparePlayers = new ArrayDeque<>();
+
+    private final int mCapacity;
+    // Written under the lock, read without it by releaseInstance
+    private volatile boolean mRecycleEnabled;
+    private int mWarmSpareCount;
+
+    // Number of spare players being created on the warm up executor
+    private int mPendingWarmUpCount = 0;
+    // Increased on every clear, so that a late warm up result of a previous session is dropped
+    private int mGeneration = 0;
+
+    private final Stats mStats = new Stats();
+
+    /**
+     * @param capacity       max number of players bound to keys
+     * @param factory        player factory
+     * @param warmUpExecutor executor to create spare players on, must not be the main thread
+     */
+    public PlayerInstancePool(int capacity, Factory<P> factory, Executor warmUpExecutor) {
+        mCapacity = Math.max(1, capacity);
+        mFactory = factory;
+        mWarmUpExecutor = warmUpExecutor;
+        mPlayerPool = new LinkedHashMap<>(mCapacity, 0.75f, true);
+    }
+
+    /**
+     * Configure the eviction strategy.
+     *
+     * @param recycleEnabled true to reset and reuse evicted players, false to destroy them
+     * @param warmSpareCount number of spare players to keep ready, only works in recycle mode
+     */
+    public void setRecycleStrategy(boolean recycleEnabled, int warmSpareCount) {
+        List<P> toDestroy = new ArrayList<>();
+        synchronized (mPlayerPool) {
+            mRecycleEnabled = recycleEnabled;
+            mWarmSpareCount = recycleEnabled ? Math.max(0, warmSpareCount) : 0;
+            while (mSparePlayers.size() > mWarmSpareCount) {
+                toDestroy.add(mSparePlayers.pollLast());
+            }
+        }
+        for (P player : toDestroy) {
+            mFactory.destroy(player, "TRIM");
+        }
+    }
+
+    /**
+     * Create the missing spare players on the warm up executor.
+     */
+    public void warmUp() {
+        int count;
+        int generation;
+        synchronized (mPlayerPool) {
+            count = mWarmSpareCount - mSparePlayers.size() - mPendingWarmUpCount;
+            if (count <= 0) {
+                return;
+            }
+            mPendingWarmUpCount += count;
+            generation = mGeneration;
+        }
+        for (int i = 0; i < count; i++) {
+            try {
+                mWarmUpExecutor.execute(() -> createSparePlayer(generation));
+            } catch (RejectedExecutionException e) {
+                // The executor is shut down, give back the pending count so that the next warm up can retry
+                synchronized (mPlayerPool) {
+                    if (generation == mGeneration) {
+                        mPendingWarmUpCount -= count - i;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void createSparePlayer(int generation) {
+        P player = null;
+        long startNs = System.nanoTime();
+        try {
+            player = mFactory.create();
+        } catch (Exception e) {
+            SLog.e(this, "WARM_UP", e, "create spare player failed");
+        }
+        mStats.recordWarmUp(System.nanoTime() - startNs);
+
+        boolean accepted = false;
+        synchronized (mPlayerPool) {
+            if (generation == mGeneration) {
+                mPendingWarmUpCount--;
+                if (player != null && mSparePlayers.size() < mWarmSpareCount) {
+                    mSparePlayers.addLast(player);
+                    accepted = true;
+                }
+            }
+        }
+        if (!accepted && player != null) {
+            mFactory.destroy(player, "WARM_UP_DROP");
+        }
+    }
+
+    /**
+     * Retrieves the player bound to the key. If the key is not bound yet, a spare player, a recycled player
+     * or a new player is bound to it, in that order of preference.
+     *
+     * @param key key to identify the player
+     * @return player bound to the key
+     */
+    public P acquire(K key) {
+        long startNs = System.nanoTime();
+        P evicted = null;
+        P player;
+        int source;
+        synchronized (mPlayerPool) {
+            player = mPlayerPool.get(key);
+            if (player != null) {
+                mStats.recordAcquire(Stats.SOURCE_HIT, System.nanoTime() - startNs);
+                return player;
+            }
+
+            if (mPlayerPool.size() >= mCapacity) {
+                Iterator<Map.Entry<K, P>> iterator = mPlayerPool.entrySet().iterator();
+                evicted = iterator.next().getValue();
+                iterator.remove();
+            }
+
+            player = mSparePlayers.pollFirst();
+            if (player != null) {
+                source = Stats.SOURCE_SPARE;
+            } else if (evicted != null && mRecycleEnabled) {
+                player = evicted;
+                evicted = null;
+                source = Stats.SOURCE_RECYCLED;
+            } else {
+                source = Stats.SOURCE_CREATED;
+            }
+        }
+
+        if (evicted != null) {
+            // The evicted player is not reused directly: it goes back to spare (recycle mode) or is destroyed.
+            releaseInstance(evicted, "GC");
+        }
+        if (source == Stats.SOURCE_RECYCLED) {
+            long resetStartNs = System.nanoTime();
+            mFactory.reset(player);
+            mStats.recordRecycle(System.nanoTime() - resetStartNs);
+        } else if (source == Stats.SOURCE_CREATED) {
+            player = mFactory.create();
+        }
+
+        synchronized (mPlayerPool) {
+            P previous = mPlayerPool.put(key, player);
+            assert previous == null;
+            assert mPlayerPool.size() <= mCapacity;
+        }
+        mStats.recordAcquire(source, System.nanoTime() - startNs);
+
+        if (source == Stats.SOURCE_SPARE) {
+            warmUp();
+        }
+        return player;
+    }
+
+    /**
+     * Unbind the player from the key. In recycle mode the player is reset and kept as spare if there is room.
+     *
+     * @param key key to identify the player
+     */
+    public void recycle(K key) {
+        P player;
+        synchronized (mPlayerPool) {
+            player = mPlayerPool.remove(key);
+        }
+        if (player != null) {
+            releaseInstance(player, "RECYCLE");
+        }
+    }
+
+    /**
+     * Destroy all players, including spare players.
+     */
+    public void clear() {
+        List<P> toDestroy;
+        synchronized (mPlayerPool) {
+            toDestroy = new ArrayList<>(mPlayerPool.values());
+            toDestroy.addAll(mSparePlayers);
+            mPlayerPool.clear();
+            mSparePlayers.clear();
+            mPendingWarmUpCount = 0;
+            mGeneration++;
+        }
+        for (P player : toDestroy) {
+            mFactory.destroy(player, "RELEASE");
+        }
+    }
+
+    /**
+     * Check whether the player is still bound to the key, without touching the LRU order.
+     *
+     * @param key    key to identify the player
+     * @param player player instance
+     * @return true if the player is bound to the key
+     */
+    public boolean isBound(K key, P player) {
+        synchronized (mPlayerPool) {
+            for (Map.Entry<K, P> entry : mPlayerPool.entrySet()) {
+                if (entry.getValue() == player) {
+                    return entry.getKey().equals(key);
+                }
+            }
+            return false;
+        }
+    }
+
+    public int size() {
+        synchronized (mPlayerPool) {
+            return mPlayerPool.size();
+        }
+    }
+
+    public int spareSize() {
+        synchronized (mPlayerPool) {
+            return mSparePlayers.size();
+        }
+    }
+
+    public Stats getStats() {
+        return mStats;
+    }
+
+    private void releaseInstance(P player, String tag) {
+        if (mRecycleEnabled) {
+            long resetStartNs = System.nanoTime();
+            mFactory.reset(player);
+            mStats.recordRecycle(System.nanoTime() - resetStartNs);
+            synchronized (mPlayerPool) {
+                if (mSparePlayers.size() < mWarmSpareCount) {
+                    mSparePlayers.addLast(player);
+                    return;
+                }
+            }
+        }
+        mFactory.destroy(player, tag);
+    }
+
+    /**
+     * Acquire and recycle latency counters of the pool.
+     */
+    public static class Stats {
+        static final int SOURCE_HIT = 0;
+        static final int SOURCE_SPARE = 1;
+        static final int SOURCE_RECYCLED = 2;
+        static final int SOURCE_CREATED = 3;
+
+        private final AtomicLong[] mAcquireCount = {new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()};
+        private final AtomicLong mAcquireTotalNs = new AtomicLong();
+        private final AtomicLong mAcquireMaxNs = new AtomicLong();
+        private final AtomicLong mRecycleCount = new AtomicLong();
+        private final AtomicLong mRecycleTotalNs = new AtomicLong();
+        private final AtomicLong mWarmUpCount = new AtomicLong();
+        private final AtomicLong mWarmUpTotalNs = new AtomicLong();
+
+        void recordAcquire(int source, long costNs) {
+            mAcquireCount[source].incrementAndGet();
+            mAcquireTotalNs.addAndGet(costNs);
+            long max;
+            do {
+                max = mAcquireMaxNs.get();
+            } while (costNs > max && !mAcquireMaxNs.compareAndSet(max, costNs));
+        }
+
+        void recordRecycle(long costNs) {
+            mRecycleCount.incrementAndGet();
+            mRecycleTotalNs.addAndGet(costNs);
+        }
+
+        void recordWarmUp(long costNs) {
+            mWarmUpCount.incrementAndGet();
+            mWarmUpTotalNs.addAndGet(costNs);
+        }
+
+        public long getAcquireCount() {
+            long count = 0;
+            for (AtomicLong c : mAcquireCount) {
+                count += c.get();
+            }
+            return count;
+        }
+
+        public long getHitCount() {
+            return mAcquireCount[SOURCE_HIT].get();
+        }
+
+        public long getSpareCount() {
+            return mAcquireCount[SOURCE_SPARE].get();
+        }
+
+        public long getRecycledCount() {
+            return mAcquireCount[SOURCE_RECYCLED].get();
+        }
+
+        /**
+         * @return number of players created synchronously inside acquire, i.e. on the swipe path
+         */
+        public long getCreatedCount() {
+            return mAcquireCount[SOURCE_CREATED].get();
+        }
+
+        public long getAcquireAvgNs() {
+            long count = getAcquireCount();
+            return count == 0 ? 0 : mAcquireTotalNs.get() / count;
+        }
+
+        public long getAcquireMaxNs() {
+            return mAcquireMaxNs.get();
+        }
+
+        public long getRecycleCount() {
+            return mRecycleCount.get();
+        }
+
+        public long getRecycleAvgNs() {
+            long count = mRecycleCount.get();
+            return count == 0 ? 0 : mRecycleTotalNs.get() / count;
+        }
+
+        public long getWarmUpCount() {
+            return mWarmUpCount.get();
+        }
+
+        public long getWarmUpAvgNs() {
+            long count = mWarmUpCount.get();
+            return count == 0 ? 0 : mWarmUpTotalNs.get() / count;
+        }
+
+        public void reset() {
+            for (AtomicLong c : mAcquireCount) {
+                c.set(0);
+            }
+            mAcquireTotalNs.set(0);
+            mAcquireMaxNs.set(0);
+            mRecycleCount.set(0);
+            mRecycleTotalNs.set(0);
+            mWarmUpCount.set(0);
+            mWarmUpTotalNs.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                    "acquire=" + getAcquireCount() +
+                    ", hit=" + getHitCount() +
+                    ", spare=" + getSpareCount() +
+                    ", recycled=" + getRecycledCount() +
+                    ", created=" + getCreatedCount() +
+                    ", acquireAvgNs=" + getAcquireAvgNs() +
+                    ", acquireMaxNs=" + getAcquireMaxNs() +
+                    ", recycle=" + getRecycleCount() +
+                    ", recycleAvgNs=" + getRecycleAvgNs() +
+                    ", warmUp=" + getWarmUpCount() +
+                    ", warmUpAvgNs=" + getWarmUpAvgNs() +
+                    '}';
+        }
+    }
+}
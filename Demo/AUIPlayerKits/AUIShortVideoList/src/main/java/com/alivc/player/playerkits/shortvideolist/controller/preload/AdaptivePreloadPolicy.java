@@ -0,0 +1,209 @@
+package com.alivc.player.playerkits.shortvideolist.controller.preload;
+
+import java.util.Arrays;
+
+/**
+ * @author baorunchen
+ * @date 2024/4/19
+ * @brief Adaptive preload policy, which scales the preload depth and the per-item preload duration.
+ * @note Inputs: observed throughput (player net speed and preload task timings), selected bitrate, metered network,
+ * @note and the dwell time per item, which also gives the swipe rate.
+ * @note Outputs: the media preload window offsets and the preload duration of each item.
+ * @note Slow or metered links get a shallow window and a short duration; fast links with quick swipes get a deeper window.
+ * @note The policy has no Android dependency, so it can be driven by recorded or simulated traces offline.
+ * @note All methods are thread-safe.
+ */
+public class AdaptivePreloadPolicy {
+
+    // Duration used while there is no throughput sample yet. Unit: ms
+    public static final int DEFAULT_PRELOAD_DURATION_MS = 3 * 1000;
+    public static final int MIN_PRELOAD_DURATION_MS = 1000;
+    public static final int MAX_PRELOAD_DURATION_MS = 6 * 1000;
+    // Duration cap on metered networks. Unit: ms
+    public static final int METERED_MAX_PRELOAD_DURATION_MS = 2 * 1000;
+
+    // First forward offset preloaded by media loader; n and n+1 use prepare instead of media loader
+    public static final int FIRST_FORWARD_OFFSET = 2;
+    public static final int DEFAULT_FORWARD_DEPTH = 1;
+    public static final int MAX_FORWARD_DEPTH = 4;
+
+    // Bitrate assumed while no track is selected. Unit: bps
+    public static final int DEFAULT_BITRATE_BPS = 1500 * 1000;
+
+    // Throughput / bitrate below which the link is considered slow
+    private static final float SLOW_LINK_HEADROOM = 1.5f;
+    // Throughput / bitrate above which the link is considered fast
+    private static final float FAST_LINK_HEADROOM = 6f;
+    // Share of the throughput which preloading may use while the user watches the current item
+    private static final float PRELOAD_BANDWIDTH_SHARE = 0.5f;
+
+    // Weight of a new sample in the moving averages
+    private static final float EWMA_ALPHA = 0.3f;
+    // Preload tasks faster than this are served by the local cache and say nothing about the link. Unit: ms
+    private static final long MIN_PRELOAD_ELAPSED_MS = 100;
+    // Dwell times longer than this are capped, so that a paused item doesn't skew the swipe rate. Unit: ms
+    private static final long MAX_DWELL_MS = 30 * 1000;
+
+    // Moving average of throughput, 0 if unknown. Unit: kbps
+    private float mThroughputKbps = 0f;
+    // Moving average of dwell time per item, 0 if unknown. Unit: ms
+    private float mDwellMs = 0f;
+
+    private int mBitrateBps = DEFAULT_BITRATE_BPS;
+    private boolean mMetered = false;
+
+    private long mLastMoveTimeMs = -1;
+
+    private int mPreloadDurationMs = DEFAULT_PRELOAD_DURATION_MS;
+    private int mForwardDepth = DEFAULT_FORWARD_DEPTH;
+    private boolean mPreloadBackward = true;
+
+    /**
+     * Feed a net speed sample, e.g. from {@code OnLoadingStatusListener#onLoadingProgress}.
+     *
+     * @param netSpeedKbps net speed. Unit: kbps
+     */
+    public synchronized void onNetSpeed(float netSpeedKbps) {
+        if (netSpeedKbps <= 0) {
+            return;
+        }
+        mThroughputKbps = ewma(mThroughputKbps, netSpeedKbps);
+        evaluate();
+    }
+
+    /**
+     * Feed the timing of a completed preload task.
+     *
+     * @param preloadDurationMs media duration preloaded by the task. Unit: ms
+     * @param elapsedMs         wall time the task took. Unit: ms
+     */
+    public synchronized void onPreloadCompleted(long preloadDurationMs, long elapsedMs) {
+        if (preloadDurationMs <= 0 || elapsedMs < MIN_PRELOAD_ELAPSED_MS) {
+            return;
+        }
+        float kbps = mBitrateBps / 1000f * preloadDurationMs / elapsedMs;
+        mThroughputKbps = ewma(mThroughputKbps, kbps);
+        evaluate();
+    }
+
+    /**
+     * Notify that the user moved to another item, which gives the dwell time of the previous item.
+     *
+     * @param nowMs current time. Unit: ms
+     */
+    public synchronized void onMove(long nowMs) {
+        if (mLastMoveTimeMs >= 0 && nowMs > mLastMoveTimeMs) {
+            long dwellMs = Math.min(nowMs - mLastMoveTimeMs, MAX_DWELL_MS);
+            mDwellMs = ewma(mDwellMs, dwellMs);
+        }
+        mLastMoveTimeMs = nowMs;
+        evaluate();
+    }
+
+    /**
+     * @param bitrateBps selected video bitrate, or not positive for unknown. Unit: bps
+     */
+    public synchronized void setBitrate(int bitrateBps) {
+        mBitrateBps = bitrateBps > 0 ? bitrateBps : DEFAULT_BITRATE_BPS;
+        evaluate();
+    }
+
+    /**
+     * @param metered whether the active network is metered
+     */
+    public synchronized void setMetered(boolean metered) {
+        mMetered = metered;
+        evaluate();
+    }
+
+    /**
+     * @return preload duration of each item. Unit: ms
+     */
+    public synchronized int getPreloadDurationMs() {
+        return mPreloadDurationMs;
+    }
+
+    /**
+     * @return number of forward items preloaded by media loader, starting from {@link #FIRST_FORWARD_OFFSET}
+     */
+    public synchronized int getForwardDepth() {
+        return mForwardDepth;
+    }
+
+    /**
+     * @return media preload window offsets, e.g. {-1, 2} by default
+     */
+    public synchronized int[] getWindowItems() {
+        int[] windowItems = new int[mForwardDepth + (mPreloadBackward ? 1 : 0)];
+        int i = 0;
+        if (mPreloadBackward) {
+            windowItems[i++] = -1;
+        }
+        for (int depth = 0; depth < mForwardDepth; depth++) {
+            windowItems[i++] = FIRST_FORWARD_OFFSET + depth;
+        }
+        return windowItems;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptivePreloadPolicy{" +
+                "throughputKbps=" + mThroughputKbps +
+                ", dwellMs=" + mDwellMs +
+                ", bitrateBps=" + mBitrateBps +
+                ", metered=" + mMetered +
+                ", durationMs=" + mPreloadDurationMs +
+                ", window=" + Arrays.toString(getWindowItems()) +
+                '}';
+    }
+
+    private void evaluate() {
+        if (mThroughputKbps <= 0) {
+            // No throughput sample yet, keep the defaults
+            mPreloadDurationMs = mMetered ? METERED_MAX_PRELOAD_DURATION_MS : DEFAULT_PRELOAD_DURATION_MS;
+            mForwardDepth = DEFAULT_FORWARD_DEPTH;
+            mPreloadBackward = !mMetered;
+            return;
+        }
+
+        float headroom = mThroughputKbps / (mBitrateBps / 1000f);
+
+        // Duration: enough to start instantly on a slow link, more to ride out stalls on a fast one
+        int durationMs;
+        if (headroom < SLOW_LINK_HEADROOM) {
+            durationMs = MIN_PRELOAD_DURATION_MS;
+        } else if (headroom < FAST_LINK_HEADROOM) {
+            durationMs = DEFAULT_PRELOAD_DURATION_MS;
+        } else {
+            durationMs = MAX_PRELOAD_DURATION_MS;
+        }
+        if (mMetered) {
+            durationMs = Math.min(durationMs, METERED_MAX_PRELOAD_DURATION_MS);
+        }
+
+        // Depth: number of items the spare bandwidth can preload while the user stays on one item;
+        // quick swipes shorten the dwell time, but also need the items further ahead sooner.
+        int depth;
+        if (headroom < SLOW_LINK_HEADROOM) {
+            depth = 1;
+        } else {
+            float dwellMs = mDwellMs > 0 ? mDwellMs : DEFAULT_PRELOAD_DURATION_MS;
+            float budgetKb = mThroughputKbps * PRELOAD_BANDWIDTH_SHARE * dwellMs / 1000f;
+            float itemKb = mBitrateBps / 1000f * durationMs / 1000f;
+            depth = (int) (budgetKb / itemKb);
+            if (mDwellMs > 0 && mDwellMs < durationMs) {
+                // Fast swipes: an extra item ahead is worth more than a longer buffer
+                depth++;
+            }
+        }
+        depth = Math.max(1, Math.min(depth, mMetered ? 1 : MAX_FORWARD_DEPTH));
+
+        mPreloadDurationMs = durationMs;
+        mForwardDepth = depth;
+        mPreloadBackward = !mMetered && headroom >= SLOW_LINK_HEADROOM;
+    }
+
+    private static float ewma(float average, float sample) {
+        return average <= 0 ? sample : average + EWMA_ALPHA * (sample - average);
+    }
+}
@@ -2,6 +2,8 @@ package com.alivc.player.playerkits.shortvideolist.controller.preload;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -9,6 +11,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
+import com.alivc.player.playerkits.shortvideolist.controller.metrics.FirstFrameTracker;
 import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
 import com.alivc.player.playerkits.shortvideolist.utils.AUIShortVideoListUtil;
 import com.alivc.player.playerkits.shortvideolist.utils.SLog;
@@ -26,6 +29,8 @@ import com.bumptech.glide.request.target.Target;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -41,46 +46,50 @@ import java.util.concurrent.locks.ReentrantLock;
 public class AliPlayerPreload {
     private static final boolean ENABLE_PRELOAD_LOG_FLAG = true;
 
-    // Load duration for media loader. Unit: ms
-    private static final int PRELOAD_BUFFER_DURATION = 3 * 1000;
-
-    // if current item index is n, preload n-1 & n+2 video; n & n+1 use prepare instead of media loader
-    private static final int[] MEDIA_PRELOAD_WINDOWS = {-1, 2};
+    // max number of media loader tasks running at once, the others wait by distance from the current item
+    private static final int MEDIA_PRELOAD_MAX_RUNNING_TASKS = 2;
 
     // if current item index is n, preload n-3 to n+10 cover
     private static final int COVER_PRELOAD_LEFT_WINDOW_SIZE = 3;
     private static final int COVER_PRELOAD_RIGHT_WINDOW_SIZE = 10;
 
-    private final ReentrantLock mCallMethodLock = new ReentrantLock(true);
+    private final ReentrantLock mCallMethodLock = new ReentrantLock();
 
     private final AliSlidingWindow<VideoInfo> videoPreloader;
     private final AliSlidingWindow<String> coverPreloader;
 
     private ExecutorService mExecutorService = null;
 
+    private PreloadScheduler<VideoInfo> mMediaPreloadScheduler = null;
+
     private Context mContext = null;
 
     private int mCurrentBandWidth;
 
-    // 预加载任务
-    private PreloadTask mPreloadTask;
-
     private MediaLoaderV2 mMediaLoaderV2;
 
-    private PreloadConfig mPreloadConfig;
+    // Preload window and duration; if current item index is n, preload n-1 & n+2 video for 3s by default;
+    // n & n+1 use prepare instead of media loader
+    private final AdaptivePreloadPolicy mPreloadPolicy = new AdaptivePreloadPolicy();
 
-    private String taskId;
+    // Start time and duration of running media loader tasks, by task id, to measure the throughput
+    private final Map<String, long[]> mPreloadTaskTimings = new ConcurrentHashMap<>();
 
     public AliPlayerPreload() {
-        videoPreloader = new AliSlidingWindow<>(MEDIA_PRELOAD_WINDOWS, new AliSlidingWindow.Callback<VideoInfo>() {
+        videoPreloader = new AliSlidingWindow<>(mPreloadPolicy.getWindowItems(), new AliSlidingWindow.Callback<VideoInfo>() {
             @Override
             public void execute(VideoInfo videoInfo) {
-                preloadMedia(videoInfo);
+                preloadMedia(videoInfo, videoPreloader.getCurrentPosition());
+            }
+
+            @Override
+            public void execute(VideoInfo videoInfo, int index) {
+                preloadMedia(videoInfo, index);
             }
 
             @Override
             public void cancel(VideoInfo videoInfo) {
-                cancelPreloadMedia(taskId);
+                cancelPreloadMedia(videoInfo);
             }
 
             @Override
@@ -108,6 +117,12 @@ public class AliPlayerPreload {
     public void init(Context context) {
         log4Preload(Log.INFO, "API-INIT");
         mContext = context;
+        if (AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD) {
+            ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            if (connectivityManager != null) {
+                mPreloadPolicy.setMetered(connectivityManager.isActiveNetworkMetered());
+            }
+        }
         startExecutorService();
         initMediaLoaderV2();
     }
@@ -119,8 +134,13 @@ public class AliPlayerPreload {
         log4Preload(Log.INFO, "API-RELEASE");
         videoPreloader.release();
         coverPreloader.release();
+        if (mMediaPreloadScheduler != null) {
+            mMediaPreloadScheduler.release();
+            mMediaPreloadScheduler = null;
+        }
         releaseMediaLoader();
         stopExecutorService();
+        mPreloadTaskTimings.clear();
 
         mContext = null;
     }
@@ -201,7 +221,14 @@ public class AliPlayerPreload {
         }
 
         try {
+            if (mMediaPreloadScheduler != null) {
+                mMediaPreloadScheduler.setPosition(position);
+            }
+            if (AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD && position != videoPreloader.getCurrentPosition()) {
+                mPreloadPolicy.onMove(SystemClock.elapsedRealtime());
+            }
             videoPreloader.moveTo(position);
+            applyPreloadPolicy();
             if (AUIShortVideoListConstants.ENABLE_COVER_URL_STRATEGY) {
                 coverPreloader.moveTo(position);
             }
@@ -230,6 +257,9 @@ public class AliPlayerPreload {
             mCurrentBandWidth = bandWidth;
             SLog.i(this, "[API][SET_BANDWIDTH][SET]: " + mCurrentBandWidth);
         }
+        if (AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD) {
+            mPreloadPolicy.setBitrate(mCurrentBandWidth);
+        }
 
         // 刷新预加载器逻辑
         refreshPreloader();
@@ -240,6 +270,26 @@ public class AliPlayerPreload {
         return mCurrentBandWidth;
     }
 
+    /**
+     * feed the net speed observed by the player
+     *
+     * @param netSpeed net speed, unit: kbps
+     */
+    public void onNetSpeed(float netSpeed) {
+        if (AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD) {
+            mPreloadPolicy.onNetSpeed(netSpeed);
+        }
+    }
+
+    /**
+     * resize the media preload window if the policy has changed it
+     */
+    private void applyPreloadPolicy() {
+        if (AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD) {
+            videoPreloader.setWindowItems(mPreloadPolicy.getWindowItems());
+        }
+    }
+
     private void refreshPreloader() {
         if (videoPreloader != null) {
             videoPreloader.refresh();
@@ -250,7 +300,17 @@ public class AliPlayerPreload {
 
     private void initMediaLoaderV2() {
         mMediaLoaderV2 = MediaLoaderV2.getInstance();
-        mPreloadConfig = new PreloadConfig();
+        mMediaPreloadScheduler = new PreloadScheduler<>(MEDIA_PRELOAD_MAX_RUNNING_TASKS, mExecutorService, new PreloadScheduler.Loader<VideoInfo>() {
+            @Override
+            public String load(VideoInfo videoInfo) {
+                return addPreloadTask(videoInfo);
+            }
+
+            @Override
+            public void cancel(String taskId) {
+                cancelPreloadTask(taskId);
+            }
+        });
     }
 
     private void releaseMediaLoader() {
@@ -264,55 +324,79 @@ public class AliPlayerPreload {
         }
     }
 
-    private void preloadMedia(final VideoInfo videoInfo) {
+    private void preloadMedia(final VideoInfo videoInfo, int index) {
         if (videoInfo == null || TextUtils.isEmpty(videoInfo.videoId) || TextUtils.isEmpty(videoInfo.playAuth)) {
             SLog.w(this, "[VIDEO-PRELOAD]: Invalid video info");
             return;
         }
 
-        log4Preload(Log.INFO, "VIDEO-PRELOAD", videoInfo.videoId, mMediaLoaderV2);
-        assert mExecutorService != null;
-        mExecutorService.execute(() -> {
-            mCallMethodLock.lock();
-            try {
-                VidAuth vidAuth = new VidAuth();
-                vidAuth.setVid(videoInfo.videoId);
-                vidAuth.setPlayAuth(videoInfo.playAuth);
-                if (mCurrentBandWidth > 0) {
-                    mPreloadConfig.setDuration(PRELOAD_BUFFER_DURATION);
-                    // 如果设置了带宽值，同步传入带宽参数
-                    mPreloadConfig.setDefaultBandWidth(mCurrentBandWidth);
-                    mPreloadTask = new PreloadTask(vidAuth, mPreloadConfig);
-                    taskId = mMediaLoaderV2.addTask(mPreloadTask, new PreloadListenerImpl());
-                } else if (mMediaLoaderV2 != null) {
-                    // 默认逻辑
-                    mPreloadConfig.setDuration(PRELOAD_BUFFER_DURATION);
-                    mPreloadTask = new PreloadTask(vidAuth, mPreloadConfig);
-                    taskId = mMediaLoaderV2.addTask(mPreloadTask, new PreloadListenerImpl());
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                mCallMethodLock.unlock();
+        log4Preload(Log.INFO, "VIDEO-PRELOAD", videoInfo.videoId, index);
+        if (mMediaPreloadScheduler != null) {
+            mMediaPreloadScheduler.submit(videoInfo, index);
+        }
+    }
+
+    private void cancelPreloadMedia(final VideoInfo videoInfo) {
+        log4Preload(Log.INFO, "VIDEO-CANCEL", videoInfo.videoId);
+        if (mMediaPreloadScheduler != null) {
+            mMediaPreloadScheduler.cancel(videoInfo);
+        }
+    }
+
+    /**
+     * Add media loader task, called on the executor by the preload scheduler
+     *
+     * @param videoInfo video to preload
+     * @return task id, or null if the task isn't added
+     */
+    private String addPreloadTask(VideoInfo videoInfo) {
+        mCallMethodLock.lock();
+        try {
+            if (mMediaLoaderV2 == null) {
+                return null;
             }
-        });
+            VidAuth vidAuth = new VidAuth();
+            vidAuth.setVid(videoInfo.videoId);
+            vidAuth.setPlayAuth(videoInfo.playAuth);
+            int duration = mPreloadPolicy.getPreloadDurationMs();
+            PreloadConfig preloadConfig = new PreloadConfig();
+            preloadConfig.setDuration(duration);
+            if (mCurrentBandWidth > 0) {
+                // 如果设置了带宽值，同步传入带宽参数
+                preloadConfig.setDefaultBandWidth(mCurrentBandWidth);
+            }
+            String taskId = mMediaLoaderV2.addTask(new PreloadTask(vidAuth, preloadConfig), new PreloadListenerImpl());
+            log4Preload(Log.INFO, "VIDEO-TASK-ADD", videoInfo.videoId, taskId, duration);
+            if (TextUtils.isEmpty(taskId)) {
+                return null;
+            }
+            mPreloadTaskTimings.put(taskId, new long[]{SystemClock.elapsedRealtime(), duration});
+            return taskId;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            mCallMethodLock.unlock();
+        }
     }
 
-    private void cancelPreloadMedia(final String taskId) {
-        log4Preload(Log.INFO, "VIDEO-CANCEL", taskId, mMediaLoaderV2);
-        assert mExecutorService != null;
-        mExecutorService.execute(() -> {
-            mCallMethodLock.lock();
-            try {
-                if (mMediaLoaderV2 != null && !TextUtils.isEmpty(taskId)) {
-                    mMediaLoaderV2.cancelTask(taskId);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                mCallMethodLock.unlock();
+    /**
+     * Cancel media loader task, called on the executor by the preload scheduler
+     *
+     * @param taskId task id
+     */
+    private void cancelPreloadTask(String taskId) {
+        mCallMethodLock.lock();
+        try {
+            log4Preload(Log.INFO, "VIDEO-TASK-CANCEL", taskId);
+            if (mMediaLoaderV2 != null && !TextUtils.isEmpty(taskId)) {
+                mMediaLoaderV2.cancelTask(taskId);
             }
-        });
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            mCallMethodLock.unlock();
+        }
     }
 
     // ---- cover preload by glide ----
@@ -398,16 +482,32 @@ public class AliPlayerPreload {
         @Override
         public void onError(@NonNull String taskId, @NonNull String urlOrVid, @NonNull ErrorInfo errorInfo) {
             log4Preload(Log.ERROR, "VIDEO-CBK-ERROR", taskId);
+            onPreloadTaskFinished(taskId);
         }
 
         @Override
         public void onCompleted(@NonNull String taskId, @NonNull String urlOrVid) {
             log4Preload(Log.INFO, "VIDEO-CBK-COMPLETE", taskId);
+            FirstFrameTracker.getInstance().markPreloaded(urlOrVid);
+            long[] timing = mPreloadTaskTimings.get(taskId);
+            if (timing != null && AUIShortVideoListConstants.ENABLE_ADAPTIVE_PRELOAD) {
+                mPreloadPolicy.onPreloadCompleted(timing[1], SystemClock.elapsedRealtime() - timing[0]);
+            }
+            onPreloadTaskFinished(taskId);
         }
 
         @Override
         public void onCanceled(@NonNull String taskId, @NonNull String urlOrVid) {
             log4Preload(Log.WARN, "VIDEO-CBK-CANCEL", taskId);
+            onPreloadTaskFinished(taskId);
+        }
+
+        private void onPreloadTaskFinished(String taskId) {
+            mPreloadTaskTimings.remove(taskId);
+            PreloadScheduler<VideoInfo> scheduler = mMediaPreloadScheduler;
+            if (scheduler != null) {
+                scheduler.onTaskFinished(taskId);
+            }
         }
     }
 }
@@ -1,17 +1,21 @@
 package com.alivc.player.playerkits.shortvideolist.controller.preload;
 
+import android.util.Log;
+
 import com.alivc.player.playerkits.shortvideolist.utils.SLog;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A generic class that manages sliding window loading and cancellation for a collection of items.
+ * <p>
+ * Items are kept in an array list and the window is described by its offsets, so a move only diffs
+ * the old and new offsets: it costs O(window) and doesn't allocate, regardless of the feed depth.
  *
  * @param <T> Type of items to be managed in the sliding window.
  * @author baorunchen
@@ -20,7 +24,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class AliSlidingWindow<T> {
     private static final boolean ENABLE_LOG_FLAG = true;
 
-    private final int[] windowItems;
+    private int[] windowItems;
+
+    // Lookup table of window offsets: windowMask[offset - minWindowOffset] is true if offset is in the window
+    private boolean[] windowMask;
+    private int minWindowOffset;
 
     // List to hold the items
     private final List<T> itemList;
@@ -47,7 +55,11 @@ public class AliSlidingWindow<T> {
     public AliSlidingWindow(int leftWindowSize, int rightWindowSize, Callback<T> callback, String extra) {
         this.windowItems = getWindowRange(leftWindowSize, rightWindowSize);
 
-        this.itemList = new LinkedList<>();
+        this.minWindowOffset = getMinOffset(windowItems);
+
+        this.windowMask = getWindowMask(windowItems, minWindowOffset);
+
+        this.itemList = new ArrayList<>();
 
         this.executedItemSets = new HashSet<>();
 
@@ -68,9 +80,13 @@ public class AliSlidingWindow<T> {
      * @param extra    log extra
      */
     public AliSlidingWindow(int[] items, Callback<T> callback, String extra) {
-        this.windowItems = items;
+        this.windowItems = items.clone();
+
+        this.minWindowOffset = getMinOffset(windowItems);
+
+        this.windowMask = getWindowMask(windowItems, minWindowOffset);
 
-        this.itemList = new LinkedList<>();
+        this.itemList = new ArrayList<>();
 
         this.executedItemSets = new HashSet<>();
 
@@ -128,33 +144,87 @@ public class AliSlidingWindow<T> {
      * @param position The new position to move to.
      */
     public void moveTo(int position) {
-        printLog("API-MOVE", currentPosition.get() + "->" + position);
-
-        // Invalid position
-        if (position < 0 || position >= itemList.size()) {
-            return;
+        // Checked here so the varargs array and the boxed positions are not allocated on every move
+        if (isLogEnabled()) {
+            printLog("API-MOVE", currentPosition.get(), position);
         }
 
-        // No change in position
-        if (currentPosition.get() == position) {
-            return;
-        }
+        synchronized (itemList) {
+            // Invalid position
+            if (position < 0 || position >= itemList.size()) {
+                return;
+            }
 
-        List<T> currentWindow = getWindowIndices(position);
-        List<T> previousWindow = getWindowIndices(currentPosition.get());
+            int previousPosition = currentPosition.get();
 
-        // Determine new items to load and cancel
-        List<T> toLoad = new LinkedList<>(currentWindow);
-        if (currentPosition.get() >= 0) {
-            toLoad.removeAll(previousWindow);
+            // No change in position
+            if (previousPosition == position) {
+                return;
+            }
+
+            // Cancel items of the previous window which are not in the current window
+            if (previousPosition >= 0) {
+                for (int offset : windowItems) {
+                    int index = previousPosition + offset;
+                    if (isValidIndex(index) && !isInWindow(position, index)) {
+                        cancelItem(itemList.get(index));
+                    }
+                }
+            }
+
+            // Execute items of the current window which are not in the previous window
+            for (int offset : windowItems) {
+                int index = position + offset;
+                if (isValidIndex(index) && (previousPosition < 0 || !isInWindow(previousPosition, index))) {
+                    executeItem(itemList.get(index), index);
+                }
+            }
+
+            currentPosition.set(position);
         }
-        List<T> toCancel = new LinkedList<>(previousWindow);
-        toCancel.removeAll(currentWindow);
+    }
+
+    /**
+     * Replace the window offsets, and cancel or execute the items which leave or enter the window at the current position.
+     *
+     * @param items Items of sliding window.
+     */
+    public void setWindowItems(int[] items) {
+        synchronized (itemList) {
+            if (Arrays.equals(windowItems, items)) {
+                return;
+            }
+            printLog("API-WINDOW", Arrays.toString(windowItems), Arrays.toString(items));
+
+            int[] previousWindowItems = windowItems;
+            boolean[] previousWindowMask = windowMask;
+            int previousMinWindowOffset = minWindowOffset;
 
-        cancelItems(toCancel);
-        executeItems(toLoad);
+            windowItems = items.clone();
+            minWindowOffset = getMinOffset(windowItems);
+            windowMask = getWindowMask(windowItems, minWindowOffset);
 
-        currentPosition.set(position);
+            int position = currentPosition.get();
+            if (position < 0) {
+                return;
+            }
+
+            // Cancel items which are only in the previous window
+            for (int offset : previousWindowItems) {
+                int index = position + offset;
+                if (isValidIndex(index) && !isInWindow(position, index)) {
+                    cancelItem(itemList.get(index));
+                }
+            }
+
+            // Execute items which are only in the current window
+            for (int offset : windowItems) {
+                int index = position + offset;
+                if (isValidIndex(index) && !isInWindow(previousWindowMask, previousMinWindowOffset, position, index)) {
+                    executeItem(itemList.get(index), index);
+                }
+            }
+        }
     }
 
     /**
@@ -177,23 +247,29 @@ public class AliSlidingWindow<T> {
     }
 
     /**
-     * Get items within the sliding window based on the current position.
+     * Check whether the index is in the sliding window of the position.
      *
-     * @param position The current position.
-     * @return List of items in the current sliding window.
+     * @param position The window position.
+     * @param index    The item index.
+     * @return true if the index is in the window.
      */
-    private List<T> getWindowIndices(int position) {
-        List<T> windowIndices = new LinkedList<>();
-        synchronized (itemList) {
-            // Loop through the defined range and collect window items
-            for (int i = 0; i < windowItems.length; i++) {
-                int index = position + windowItems[i];
-                if (index >= 0 && index < itemList.size()) {
-                    windowIndices.add(itemList.get(index));
-                }
-            }
-        }
-        return windowIndices;
+    private boolean isInWindow(int position, int index) {
+        return isInWindow(windowMask, minWindowOffset, position, index);
+    }
+
+    private static boolean isInWindow(boolean[] mask, int minOffset, int position, int index) {
+        int maskIndex = index - position - minOffset;
+        return maskIndex >= 0 && maskIndex < mask.length && mask[maskIndex];
+    }
+
+    /**
+     * Check whether the index is a valid index of the item list.
+     *
+     * @param index The item index.
+     * @return true if valid.
+     */
+    private boolean isValidIndex(int index) {
+        return index >= 0 && index < itemList.size();
     }
 
     /**
@@ -212,6 +288,39 @@ public class AliSlidingWindow<T> {
         return windowRange;
     }
 
+    /**
+     * Get the smallest offset of the window.
+     *
+     * @param windowItems window offsets
+     * @return the smallest offset
+     */
+    private static int getMinOffset(int[] windowItems) {
+        int min = 0;
+        for (int i = 0; i < windowItems.length; i++) {
+            min = i == 0 ? windowItems[i] : Math.min(min, windowItems[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Build the lookup table of window offsets.
+     *
+     * @param windowItems     window offsets
+     * @param minWindowOffset the smallest offset
+     * @return lookup table, indexed by offset - minWindowOffset
+     */
+    private static boolean[] getWindowMask(int[] windowItems, int minWindowOffset) {
+        int max = minWindowOffset;
+        for (int offset : windowItems) {
+            max = Math.max(max, offset);
+        }
+        boolean[] mask = new boolean[windowItems.length == 0 ? 0 : max - minWindowOffset + 1];
+        for (int offset : windowItems) {
+            mask[offset - minWindowOffset] = true;
+        }
+        return mask;
+    }
+
     /**
      * Cancel specific items.
      *
@@ -231,32 +340,26 @@ public class AliSlidingWindow<T> {
     private void cancelItem(T item) {
         if (item != null && executedItemSets.contains(item)) {
             executedItemSets.remove(item);
-            printLog("CANCEL", item);
+            if (isLogEnabled()) {
+                printLog("CANCEL", item);
+            }
             callback.cancel(item);
         }
     }
 
-    /**
-     * Execute items and start loading the first item.
-     *
-     * @param items List of items to execute.
-     */
-    private void executeItems(List<T> items) {
-        for (T item : items) {
-            executeItem(item);
-        }
-    }
-
     /**
      * Execute item
      *
-     * @param item item to execute
+     * @param item  item to execute
+     * @param index index of the item
      */
-    private void executeItem(T item) {
+    private void executeItem(T item, int index) {
         if (item != null && !executedItemSets.contains(item)) {
             executedItemSets.add(item);
-            printLog("EXECUTE", item);
-            callback.execute(item);
+            if (isLogEnabled()) {
+                printLog("EXECUTE", item);
+            }
+            callback.execute(item, index);
         }
     }
 
@@ -272,18 +375,38 @@ public class AliSlidingWindow<T> {
     }
 
     public void refresh() {
-        // get all items in the current window
-        List<T> currentWindow = getWindowIndices(currentPosition.get());
-
-        // if the window is empty, these is no need to refresh
-        if (!currentWindow.isEmpty()) {
+        synchronized (itemList) {
+            int position = currentPosition.get();
+            // if the window is empty, these is no need to refresh
+            if (position < 0) {
+                return;
+            }
             // cancel all items in the current window
-            cancelItems(currentWindow);
+            for (int offset : windowItems) {
+                int index = position + offset;
+                if (isValidIndex(index)) {
+                    cancelItem(itemList.get(index));
+                }
+            }
             // re execute all items in the current window
-            executeItems(currentWindow);
+            for (int offset : windowItems) {
+                int index = position + offset;
+                if (isValidIndex(index)) {
+                    executeItem(itemList.get(index), index);
+                }
+            }
         }
     }
 
+    /**
+     * Check the log level before building the arguments of a hot path log call.
+     *
+     * @return true if printLog would log
+     */
+    private boolean isLogEnabled() {
+        return ENABLE_LOG_FLAG && SLog.isLoggable(Log.INFO, this);
+    }
+
     /**
      * print log message
      *
@@ -291,8 +414,8 @@ public class AliSlidingWindow<T> {
      * @param messages log messages
      */
     private void printLog(String method, Object... messages) {
-        if (ENABLE_LOG_FLAG) {
-            SLog.i(this, String.format("%s-%s", extra, method), messages);
+        if (isLogEnabled()) {
+            SLog.i(this, extra + "-" + method, messages);
         }
     }
 
@@ -304,6 +427,16 @@ public class AliSlidingWindow<T> {
          */
         public abstract void execute(T item);
 
+        /**
+         * execute item task, with the index of the item in the item list
+         *
+         * @param item  item to execute
+         * @param index index of the item
+         */
+        public void execute(T item, int index) {
+            execute(item);
+        }
+
         /**
          * cancel item task
          *
@@ -0,0 +1,332 @@
+package com.alivc.player.playerkits.shortvideolist.controller.preload;
+
+import com.alivc.player.playerkits.shortvideolist.utils.SLog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author baorunchen
+ * @date 2024/4/19
+ * @brief Priority-ordered preload scheduler, independent of the concrete loader.
+ * @note Every item owns its own task handle, so cancelling an item only cancels its own task.
+ * @note Pending tasks are ordered by distance from the current position: forward items first (n+1, n+2, ...),
+ * @note then backward items (n-1, n-2, ...); at most maxRunningTasks tasks are handed to the loader at once.
+ * @note A task which is cancelled before it starts is simply dropped, so a fling never queues up stale work.
+ * @note A task may finish before {@link Loader#load(Object)} returns, e.g. when the media is already cached; such an
+ * @note early {@link #onTaskFinished(String)} is kept until the handle is returned, so the slot is still freed.
+ * @note A task rejected by the loader executor is put back to pending and dispatched again later.
+ * @note All methods are thread-safe.
+ */
+public class PreloadScheduler<T> {
+
+    /**
+     * Starts and cancels preload tasks.
+     *
+     * @param <T> item type
+     */
+    public interface Loader<T> {
+        /**
+         * Start a preload task, called on the loader executor.
+         *
+         * @param item item to preload
+         * @return task handle, or null if the task can't be started
+         */
+        String load(T item);
+
+        /**
+         * Cancel a started preload task, called on the loader executor, or on the thread calling
+         * {@link PreloadScheduler#release()}.
+         *
+         * @param handle task handle returned by {@link #load(Object)}
+         */
+        void cancel(String handle);
+    }
+
+    private static class Task<T> {
+        final T item;
+        int index;
+        boolean running = false;
+        boolean cancelled = false;
+        String handle;
+
+        Task(T item, int index) {
+            this.item = item;
+            this.index = index;
+        }
+    }
+
+    private final Loader<T> mLoader;
+    private final Executor mLoaderExecutor;
+    private final int mMaxRunningTasks;
+
+    // All tasks which are pending or running, by item
+    private final Map<T, Task<T>> mTasks = new HashMap<>();
+    // Tasks which are waiting for a free slot
+    private final List<Task<T>> mPendingTasks = new ArrayList<>();
+    // Running tasks by their handle, to match the completion callbacks of the loader
+    private final Map<String, Task<T>> mRunningTasks = new HashMap<>();
+    // Handles finished while a load call was still in progress, before they were put into mRunningTasks
+    private final Set<String> mEarlyFinishedHandles = new HashSet<>();
+
+    // Number of load calls in progress
+    private int mLoadingCount = 0;
+
+    // Number of tasks handed to the loader and not finished yet
+    private int mRunningCount = 0;
+    private int mCurrentPosition = 0;
+    private boolean mReleased = false;
+
+    /**
+     * @param maxRunningTasks max number of tasks handed to the loader at once
+     * @param loaderExecutor  executor to call the loader on
+     * @param loader          preload task loader
+     */
+    public PreloadScheduler(int maxRunningTasks, Executor loaderExecutor, Loader<T> loader) {
+        mMaxRunningTasks = Math.max(1, maxRunningTasks);
+        mLoaderExecutor = loaderExecutor;
+        mLoader = loader;
+    }
+
+    /**
+     * Update the current position, which the pending tasks are ordered by.
+     *
+     * @param position current position
+     */
+    public synchronized void setPosition(int position) {
+        mCurrentPosition = position;
+    }
+
+    /**
+     * Schedule a preload task for the item.
+     *
+     * @param item  item to preload
+     * @param index index of the item in the list
+     */
+    public void submit(T item, int index) {
+        synchronized (this) {
+            if (mReleased || item == null) {
+                return;
+            }
+            Task<T> task = mTasks.get(item);
+            if (task != null) {
+                task.index = index;
+            } else {
+                task = new Task<>(item, index);
+                mTasks.put(item, task);
+                mPendingTasks.add(task);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Cancel the preload task of the item; a pending task is dropped, a running task is cancelled in the loader.
+     *
+     * @param item item to cancel
+     */
+    public void cancel(T item) {
+        String handle = null;
+        synchronized (this) {
+            Task<T> task = mTasks.remove(item);
+            if (task == null) {
+                return;
+            }
+            task.cancelled = true;
+            if (!task.running) {
+                mPendingTasks.remove(task);
+                return;
+            }
+            // If the loader hasn't returned a handle yet, the task is cancelled as soon as it does
+            if (task.handle != null) {
+                mRunningTasks.remove(task.handle);
+                mRunningCount--;
+                handle = task.handle;
+            }
+        }
+        if (handle != null) {
+            cancelInLoader(handle);
+            dispatch();
+        }
+    }
+
+    /**
+     * Notify that a task has completed, failed or been cancelled in the loader, which frees its slot.
+     *
+     * @param handle task handle
+     */
+    public void onTaskFinished(String handle) {
+        synchronized (this) {
+            Task<T> task = mRunningTasks.remove(handle);
+            if (task == null) {
+                if (mLoadingCount > 0 && !mReleased) {
+                    // The loader may report the task before load() has returned its handle
+                    mEarlyFinishedHandles.add(handle);
+                }
+                return;
+            }
+            mTasks.remove(task.item);
+            mRunningCount--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Drop all pending tasks and cancel all running tasks; the scheduler can't be used afterwards.
+     * Running tasks are cancelled in the loader on the calling thread before this method returns,
+     * so the loader executor and the loader itself may be released right after.
+     */
+    public void release() {
+        List<String> handles;
+        synchronized (this) {
+            mReleased = true;
+            for (Task<T> task : mTasks.values()) {
+                task.cancelled = true;
+            }
+            handles = new ArrayList<>(mRunningTasks.keySet());
+            mTasks.clear();
+            mPendingTasks.clear();
+            mRunningTasks.clear();
+            mEarlyFinishedHandles.clear();
+            mRunningCount = 0;
+        }
+        for (String handle : handles) {
+            cancelNow(handle);
+        }
+    }
+
+    /**
+     * Hand the most important pending tasks to the loader, until all slots are taken.
+     */
+    private void dispatch() {
+        while (true) {
+            Task<T> task;
+            synchronized (this) {
+                if (mReleased || mRunningCount >= mMaxRunningTasks || mPendingTasks.isEmpty()) {
+                    return;
+                }
+                task = pollMostImportantTask();
+                task.running = true;
+                mRunningCount++;
+            }
+            final Task<T> startTask = task;
+            try {
+                mLoaderExecutor.execute(() -> start(startTask));
+            } catch (RejectedExecutionException e) {
+                // The executor is saturated or shut down: give the slot back and requeue the task, it is dispatched
+                // again on the next submit or finished task
+                SLog.w(this, "DISPATCH_REJECTED", e.getMessage());
+                synchronized (this) {
+                    task.running = false;
+                    mRunningCount--;
+                    if (!task.cancelled && !mReleased) {
+                        mPendingTasks.add(task);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void start(Task<T> task) {
+        synchronized (this) {
+            if (task.cancelled) {
+                // Cancelled while waiting for the executor, free the slot taken by this task
+                mRunningCount--;
+                task = null;
+            } else {
+                mLoadingCount++;
+            }
+        }
+        if (task == null) {
+            dispatch();
+            return;
+        }
+
+        String handle = null;
+        try {
+            handle = mLoader.load(task.item);
+        } catch (Exception e) {
+            SLog.e(this, "LOAD", e, task.item);
+        }
+
+        boolean started;
+        boolean cancelled;
+        synchronized (this) {
+            mLoadingCount--;
+            cancelled = task.cancelled;
+            boolean finished = handle != null && mEarlyFinishedHandles.remove(handle);
+            started = handle != null && !cancelled && !finished;
+            if (started) {
+                task.handle = handle;
+                mRunningTasks.put(handle, task);
+            } else {
+                mRunningCount--;
+                if (!cancelled) {
+                    mTasks.remove(task.item);
+                }
+            }
+            if (mLoadingCount == 0) {
+                // Handles which never matched a load call belong to tasks that were already cancelled
+                mEarlyFinishedHandles.clear();
+            }
+        }
+        if (handle != null && cancelled) {
+            // Already on the loader executor
+            cancelNow(handle);
+        }
+        if (!started) {
+            dispatch();
+        }
+    }
+
+    private void cancelInLoader(String handle) {
+        try {
+            mLoaderExecutor.execute(() -> cancelNow(handle));
+        } catch (RejectedExecutionException e) {
+            cancelNow(handle);
+        }
+    }
+
+    private void cancelNow(String handle) {
+        try {
+            mLoader.cancel(handle);
+        } catch (Exception e) {
+            SLog.e(this, "CANCEL", e, handle);
+        }
+    }
+
+    /**
+     * Remove the pending task with the highest priority, must be called with the lock held.
+     *
+     * @return pending task with the highest priority
+     */
+    private Task<T> pollMostImportantTask() {
+        int bestIndex = 0;
+        for (int i = 1; i < mPendingTasks.size(); i++) {
+            if (compare(mPendingTasks.get(i), mPendingTasks.get(bestIndex)) < 0) {
+                bestIndex = i;
+            }
+        }
+        return mPendingTasks.remove(bestIndex);
+    }
+
+    /**
+     * Order tasks by distance from the current position, forward items before backward items.
+     */
+    private int compare(Task<T> a, Task<T> b) {
+        return Integer.compare(getPriority(a.index), getPriority(b.index));
+    }
+
+    private int getPriority(int index) {
+        int offset = index - mCurrentPosition;
+        // n, n+1, n+2, ... come first; n-1, n-2, ... come after every forward item
+        return offset >= 0 ? offset : Short.MAX_VALUE - offset;
+    }
+}
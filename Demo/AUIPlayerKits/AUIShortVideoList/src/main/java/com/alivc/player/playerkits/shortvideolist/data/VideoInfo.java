@@ -3,6 +3,7 @@ package com.alivc.player.playerkits.shortvideolist.data;
 import androidx.annotation.NonNull;
 
 import java.io.Serializable;
+import java.util.Objects;
 // Copyright © 2025 Alibaba Cloud. All rights reserved.
 //
 // Author: junHuiYe
@@ -46,6 +47,34 @@ public class VideoInfo implements Serializable {
      */
     public String playAuth;
 
+    /**
+     * 按内容比较,列表刷新时DiffUtil据此跳过未变化的条目
+     */
+    /****
+     * Compared by content, so that DiffUtil skips unchanged items when the list is refreshed
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        VideoInfo videoInfo = (VideoInfo) o;
+        return Objects.equals(playlistId, videoInfo.playlistId)
+                && Objects.equals(videoId, videoInfo.videoId)
+                && Objects.equals(title, videoInfo.title)
+                && Objects.equals(description, videoInfo.description)
+                && Objects.equals(coverUrl, videoInfo.coverUrl)
+                && Objects.equals(playAuth, videoInfo.playAuth);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playlistId, videoId, title, description, coverUrl, playAuth);
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -19,5 +19,8 @@ public interface OnPlayerEventListener {
 
     void onCompletion(int position);
 
+    default void onLoadingProgress(int position, float netSpeed) {
+    }
+
     void onError(ErrorInfo errorInfo);
 }
@@ -98,6 +98,13 @@ public class AUIShortVideoListViewHolder extends AUIVideoListViewHolder {
                 }
             }
 
+            @Override
+            public void onLoadingProgress(int position, float netSpeed) {
+                if (mOnPlayerEventListener != null) {
+                    mOnPlayerEventListener.onLoadingProgress(getAdapterPosition(), netSpeed);
+                }
+            }
+
             @Override
             public void onError(ErrorInfo errorInfo) {
 
@@ -1,6 +1,7 @@
 package com.alivc.player.playerkits.shortvideolist.skeleton;
 
 import android.content.Context;
+import android.util.Log;
 import android.view.View;
 
 import androidx.annotation.NonNull;
@@ -81,14 +82,22 @@ public class AUIVideoListLayoutManager extends LinearLayoutManager {
             @Override
             public void onChildViewAttachedToWindow(@NonNull View view) {
                 int position = getPosition(view);
-                SLog.i(this, "CHILD-ATTACH", position);
+                // 滑动时每次都会调用,先检查级别,避免创建可变参数数组和装箱位置
+                // Called on every swipe, checked first so the varargs array and the boxed positions are not allocated
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "CHILD-ATTACH", position);
+                }
                 if (recyclerView.getChildCount() == 1) {
-                    SLog.w(this, "PAGE-INIT_COMPLETE", position);
+                    if (SLog.isLoggable(Log.WARN, this)) {
+                        SLog.w(this, "PAGE-INIT_COMPLETE", position);
+                    }
                     if (mOnViewPagerListener != null) {
                         mOnViewPagerListener.onInitComplete();
                     }
                 } else {
-                    SLog.w(this, "PAGE-PEEK_START", position);
+                    if (SLog.isLoggable(Log.WARN, this)) {
+                        SLog.w(this, "PAGE-PEEK_START", position);
+                    }
                     if (mOnViewPagerListener != null) {
                         mOnViewPagerListener.onPagePeekStart(position);
                     }
@@ -98,9 +107,13 @@ public class AUIVideoListLayoutManager extends LinearLayoutManager {
             @Override
             public void onChildViewDetachedFromWindow(@NonNull View view) {
                 int position = getPosition(view);
-                SLog.i(this, "CHILD-DETACH", position);
+                if (SLog.isLoggable(Log.INFO, this)) {
+                    SLog.i(this, "CHILD-DETACH", position);
+                }
                 if (mOnViewPagerListener != null) {
-                    SLog.w(this, "PAGE-RELEASE", position);
+                    if (SLog.isLoggable(Log.WARN, this)) {
+                        SLog.w(this, "PAGE-RELEASE", position);
+                    }
                     mOnViewPagerListener.onPageRelease(position);
                 }
             }
@@ -114,7 +127,9 @@ public class AUIVideoListLayoutManager extends LinearLayoutManager {
             View snapView = mPagerSnapHelper.findSnapView(this);
             if (snapView != null && mOnViewPagerListener != null) {
                 int position = getPosition(snapView);
-                SLog.w(this, "PAGE_SELECT", mOldPosition + "->" + position);
+                if (SLog.isLoggable(Log.WARN, this)) {
+                    SLog.w(this, "PAGE_SELECT", mOldPosition, position);
+                }
                 mOnViewPagerListener.onPageSelected(position, false);
                 mOldPosition = position;
             }
@@ -2,24 +2,20 @@ package com.alivc.player.playerkits.shortvideolist.utils;
 
 import android.content.Context;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 
 import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
-import com.alivc.player.playerkits.shortvideolist.data.BaseResponse;
-import com.alivc.player.playerkits.shortvideolist.data.PlaylistInfo;
 import com.alivc.player.playerkits.shortvideolist.data.PlayInfoListRequestParams;
 import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -29,6 +25,7 @@ import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * @author keria
@@ -36,6 +33,19 @@ import okhttp3.Response;
  * @brief 短视频列表播放-工具类
  */
 public class AUIShortVideoListUtil {
+    // 缓存内容格式变化时递增,旧格式的缓存不再读取
+    // Bumped when the cached content format changes, so entries in an older format are not read
+    private static final String CACHE_KEY_VERSION = "v3:";
+
+    // 播放凭证约100秒后失效,只保存在内存中,并留出余量
+    // PlayAuth expires in about 100 s, so it is only kept in memory and with a margin
+    private static final long PLAY_AUTH_TTL_MS = 60 * 1000L;
+    private static final int PLAY_AUTH_ENTRIES = 256;
+
+    // videoId -> 最近一次从网络获取的播放凭证
+    // videoId -> the playAuth last fetched from the network
+    private static final LruCache<String, PlayAuthEntry> sPlayAuths = new LruCache<>(PLAY_AUTH_ENTRIES);
+
     private AUIShortVideoListUtil() {
     }
 
@@ -66,15 +76,11 @@ public class AUIShortVideoListUtil {
      * @return 页面内容
      */
     public static String getContentFromURI(String uri) {
-        try {
-            URL url = new URL(uri);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestMethod("GET");
-            if (conn.getResponseCode() == 200) {
-                InputStream in = conn.getInputStream();
-                return convertStreamToString(in);
+        Request request = new Request.Builder().url(uri).build();
+        try (Response response = NetWorkRequestUtils.getOkHttpClient().newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (response.code() == 200 && body != null) {
+                return body.string();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -136,66 +142,230 @@ public class AUIShortVideoListUtil {
      * @return video info list
      */
     public static void requestVideoInfoList(final PlayInfoListRequestParams requestParams, final OnNetworkCallBack<List<VideoInfo>> callBack) {
-        Request request = NetWorkRequestUtils.postContentFromURI(requestParams);
+        requestVideoInfoList(requestParams, callBack, null);
+    }
 
-        NetWorkRequestUtils.getOkHttpClient().newCall(request).enqueue(new Callback() {
+    /**
+     * 请求播单列表,先返回缓存,过期时后台刷新
+     *
+     * @param callBack      只回调一次:有缓存时回调缓存,否则回调网络结果
+     * @param onRevalidated 后台刷新的结果与缓存不同或缓存缺少播放凭证时回调
+     */
+    /****
+     * Request the playlist videos, the cached page first, revalidated in the background when stale
+     *
+     * @param callBack      called once: with the cached page when there is one, otherwise with the network result
+     * @param onRevalidated called when the revalidated page differs from the cached one or brings its missing playAuths
+     */
+    public static void requestVideoInfoList(final PlayInfoListRequestParams requestParams, final OnNetworkCallBack<List<VideoInfo>> callBack,
+                                            final OnNetworkCallBack<List<VideoInfo>> onRevalidated) {
+        String key = "playlistVideos:" + requestParams.pageNo + ":" + requestParams.pageSize + ":" + requestParams.sortBy;
+        requestWithCache(key, new VideoListFetcher() {
             @Override
-            public void onFailure(@NonNull Call call, @NonNull IOException e) {
-                SLog.e(this, "请求失败: ", e.getMessage());
-            }
+            public void fetch(final OnNetworkCallBack<List<VideoInfo>> fetchCallBack) {
+                Request request = NetWorkRequestUtils.postContentFromURI(requestParams);
+                NetWorkRequestUtils.getOkHttpClient().newCall(request).enqueue(new Callback() {
+                    @Override
+                    public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                        SLog.e(this, "请求失败: ", e.getMessage());
+                        fetchCallBack.onResponse(null);
+                    }
 
-            @Override
-            public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
-                if (response.isSuccessful() && response.body() != null) {
-                    String json = response.body().string();
-                    Gson gson = new Gson();
-                    Type type = new TypeToken<BaseResponse<List<PlaylistInfo>>>() {
-                    }.getType();
+                    @Override
+                    public void onResponse(@NonNull Call call, @NonNull Response response) {
+                        List<VideoInfo> videoInfoList = null;
+                        try {
+                            ResponseBody body = response.body();
+                            if (response.isSuccessful() && body != null) {
+                                videoInfoList = VideoListJsonParser.parsePlaylistVideos(body.charStream());
+                            }
+                        } catch (IOException | JsonParseException e) {
+                            SLog.e(this, "解析失败: ", e.getMessage());
+                        } finally {
+                            response.close();
+                        }
+                        if (videoInfoList == null) {
+                            SLog.e(this, "playlistVideos数据为空");
+                        }
+                        fetchCallBack.onResponse(videoInfoList);
+                    }
+                });
+            }
+        }, callBack, onRevalidated);
+    }
 
-                    BaseResponse<List<PlaylistInfo>> baseResponse = gson.fromJson(json, type);
+    public static void requestVideoInfoList(String playlist, final OnNetworkCallBack<List<VideoInfo>> callBack) {
+        requestVideoInfoList(playlist, callBack, null);
+    }
 
-                    if (baseResponse == null || baseResponse.data == null || baseResponse.data.isEmpty()) {
-                        SLog.e(this, "返回数据为空");
-                        return;
-                    }
+    /**
+     * 请求播单,先返回缓存,过期时后台刷新
+     *
+     * @param callBack      只回调一次:有缓存时回调缓存,否则回调网络结果
+     * @param onRevalidated 后台刷新的结果与缓存不同或缓存缺少播放凭证时回调
+     */
+    /****
+     * Request a playlist, the cached one first, revalidated in the background when stale
+     *
+     * @param callBack      called once: with the cached playlist when there is one, otherwise with the network result
+     * @param onRevalidated called when the revalidated playlist differs from the cached one or brings its missing playAuths
+     */
+    public static void requestVideoInfoList(final String playlist, final OnNetworkCallBack<List<VideoInfo>> callBack,
+                                            final OnNetworkCallBack<List<VideoInfo>> onRevalidated) {
+        if (TextUtils.isEmpty(playlist)) {
+            return;
+        }
+        requestWithCache("playlist:" + playlist, new VideoListFetcher() {
+            @Override
+            public void fetch(OnNetworkCallBack<List<VideoInfo>> fetchCallBack) {
+                NetWorkRequestUtils.getFromURI(AUIShortVideoListConstants.DEFAULT_VIDEO_INFO_LIST_URL + playlist, PLAYLIST_PARSER, fetchCallBack);
+            }
+        }, callBack, onRevalidated);
+    }
 
-                    PlaylistInfo firstItem = baseResponse.data.get(0);
+    private interface VideoListFetcher {
+        void fetch(OnNetworkCallBack<List<VideoInfo>> fetchCallBack);
+    }
 
-                    if (firstItem.playlistVideos == null) {
-                        SLog.e(this, "playlistVideos数据为空");
-                        return;
-                    }
+    private static final NetWorkRequestUtils.ResponseParser<List<VideoInfo>> PLAYLIST_PARSER = new NetWorkRequestUtils.ResponseParser<List<VideoInfo>>() {
+        @Override
+        public List<VideoInfo> parse(Reader reader) throws IOException {
+            List<VideoInfo> videoInfoList = VideoListJsonParser.parsePlaylistVideos(reader);
+            return videoInfoList == null || videoInfoList.isEmpty() ? null : videoInfoList;
+        }
+    };
 
-                    List<VideoInfo> playlistVideos = firstItem.playlistVideos;
+    /**
+     * stale-while-revalidate: 缓存可用时先回调缓存,新鲜期内不再请求网络;
+     * 过期或无缓存时请求网络,成功后更新缓存,内容变化时回调onRevalidated
+     * <p>
+     * 播放凭证不写入缓存:缓存的列表总是先返回,只填入内存中未过期的凭证;缺少凭证时即使缓存新鲜也请求网络,
+     * 并通过onRevalidated送达带凭证的列表,列表项在拿到凭证后才开始播放;未传onRevalidated时等待网络结果
+     */
+    /****
+     * Stale-while-revalidate: a usable cached page is delivered first, and the network is skipped while it is fresh;
+     * when stale or missing the network is requested, a good result updates the cache, and onRevalidated is called
+     * when the videos changed
+     * <p>
+     * PlayAuth is never cached: the cached page is always delivered first with only the unexpired in-memory
+     * playAuths filled in; when any is missing the network is requested even for a fresh entry, and the page with
+     * playAuths is delivered through onRevalidated, items start playing once theirs arrives; without onRevalidated
+     * the network result is waited for
+     */
+    private static void requestWithCache(String key, final VideoListFetcher fetcher,
+                                         final OnNetworkCallBack<List<VideoInfo>> callBack,
+                                         final OnNetworkCallBack<List<VideoInfo>> onRevalidated) {
+        //缓存的是解析后的视频列表而不是原始响应,读取时无需再跳过其余字段
+        //The parsed videos are cached rather than the raw response, so reading them skips nothing
+        final String cacheKey = CACHE_KEY_VERSION + key;
+        FeedCache.get(cacheKey, new FeedCache.OnEntryCallback() {
+            @Override
+            public void onEntry(final FeedCache.Entry entry) {
+                List<VideoInfo> cached = entry == null ? null : parseCachedQuietly(entry.content);
+                final boolean playAuthsMissing = cached != null && !attachPlayAuths(cached);
+                //没有onRevalidated时凭证无法补发,缺凭证的缓存页不返回
+                //Without onRevalidated the playAuths cannot follow, so a cached page lacking them is not delivered
+                final boolean cachedDelivered = cached != null && (!playAuthsMissing || onRevalidated != null);
+                if (cachedDelivered) {
                     if (callBack != null) {
-                        callBack.onResponse(playlistVideos);
+                        callBack.onResponse(cached);
+                    }
+                    if (entry.isFresh() && !playAuthsMissing) {
+                        return;
                     }
                 }
+                fetcher.fetch(new OnNetworkCallBack<List<VideoInfo>>() {
+                    @Override
+                    public void onResponse(List<VideoInfo> fresh) {
+                        if (fresh == null) {
+                            return;
+                        }
+                        putPlayAuths(fresh);
+                        String content = VideoListJsonParser.serializeVideoList(withoutPlayAuths(fresh));
+                        FeedCache.put(cacheKey, content);
+                        if (!cachedDelivered) {
+                            if (callBack != null) {
+                                callBack.onResponse(fresh);
+                            }
+                        } else if (onRevalidated != null && (playAuthsMissing || !entry.content.equals(content))) {
+                            //不含凭证比较,每次获取的凭证都不同,不应视为列表变化;但缓存页缺少的凭证必须送达
+                            //Compared without playAuth, which differs on every fetch and is not a list change,
+                            //but the playAuths the cached page lacked must still be delivered
+                            onRevalidated.onResponse(fresh);
+                        }
+                    }
+                });
             }
         });
     }
 
-    public static void requestVideoInfoList(String playlist, final OnNetworkCallBack<List<VideoInfo>> callBack) {
-        new Thread(new Runnable() {
-            @Override
-            public void run() {
-                if (TextUtils.isEmpty(playlist)) {
-                    return;
-                }
+    /**
+     * 为缓存的视频填入内存中未过期的播放凭证,缺少凭证的视频保持为空,不会播放
+     *
+     * @return 需要凭证的视频都已填入时返回true
+     */
+    /****
+     * Fill the unexpired in-memory playAuths into the cached videos, the videos without one stay empty and do not play
+     *
+     * @return true when every video that needs one got it
+     */
+    private static boolean attachPlayAuths(List<VideoInfo> videoInfoList) {
+        long now = System.currentTimeMillis();
+        boolean allAttached = true;
+        for (VideoInfo videoInfo : videoInfoList) {
+            if (TextUtils.isEmpty(videoInfo.videoId)) {
+                continue;
+            }
+            PlayAuthEntry playAuthEntry = sPlayAuths.get(videoInfo.videoId);
+            if (playAuthEntry == null || now - playAuthEntry.fetchedAtMs > PLAY_AUTH_TTL_MS) {
+                allAttached = false;
+                continue;
+            }
+            videoInfo.playAuth = playAuthEntry.playAuth;
+        }
+        return allAttached;
+    }
 
-                String content = AUIShortVideoListUtil.getContentFromURI(AUIShortVideoListConstants.DEFAULT_VIDEO_INFO_LIST_URL + playlist);
+    private static void putPlayAuths(List<VideoInfo> videoInfoList) {
+        long now = System.currentTimeMillis();
+        for (VideoInfo videoInfo : videoInfoList) {
+            if (!TextUtils.isEmpty(videoInfo.videoId) && !TextUtils.isEmpty(videoInfo.playAuth)) {
+                sPlayAuths.put(videoInfo.videoId, new PlayAuthEntry(videoInfo.playAuth, now));
+            }
+        }
+    }
 
-                SLog.d(this, "[VIDEO-ID]: ", content);
-                Gson gson = new Gson();
-                Type type = new TypeToken<BaseResponse<PlaylistInfo>>() {
-                }.getType();
-                BaseResponse<PlaylistInfo> response = gson.fromJson(content, type);
+    private static List<VideoInfo> withoutPlayAuths(List<VideoInfo> videoInfoList) {
+        List<VideoInfo> copies = new ArrayList<>(videoInfoList.size());
+        for (VideoInfo videoInfo : videoInfoList) {
+            VideoInfo copy = new VideoInfo();
+            copy.playlistId = videoInfo.playlistId;
+            copy.videoId = videoInfo.videoId;
+            copy.title = videoInfo.title;
+            copy.description = videoInfo.description;
+            copy.coverUrl = videoInfo.coverUrl;
+            copies.add(copy);
+        }
+        return copies;
+    }
 
-                if (response != null && response.data != null && response.data.playlistVideos != null && !response.data.playlistVideos.isEmpty()) {
-                    callBack.onResponse(response.data.playlistVideos);
-                }
-            }
-        }).start();
+    private static class PlayAuthEntry {
+        final String playAuth;
+        final long fetchedAtMs;
+
+        PlayAuthEntry(String playAuth, long fetchedAtMs) {
+            this.playAuth = playAuth;
+            this.fetchedAtMs = fetchedAtMs;
+        }
+    }
+
+    private static List<VideoInfo> parseCachedQuietly(String content) {
+        try {
+            return VideoListJsonParser.parseVideoList(content);
+        } catch (JsonParseException e) {
+            SLog.e(AUIShortVideoListUtil.class, "parseCachedQuietly", e);
+            return null;
+        }
     }
 
 
@@ -227,8 +397,7 @@ public class AUIShortVideoListUtil {
      * @return video info list serializable JSON String
      */
     public static String serializeVideoInfoListToJson(List<VideoInfo> videoInfoList) {
-        Gson gson = new Gson();
-        return gson.toJson(videoInfoList);
+        return VideoListJsonParser.serializeVideoList(videoInfoList);
     }
 
     /**
@@ -243,9 +412,7 @@ public class AUIShortVideoListUtil {
         }
         List<VideoInfo> videoInfoList = null;
         try {
-            Gson gson = new Gson();
-            videoInfoList = gson.fromJson(json, new TypeToken<List<VideoInfo>>() {
-            }.getType());
+            videoInfoList = VideoListJsonParser.parseVideoList(json);
         } catch (Exception e) {
             e.printStackTrace();
         }
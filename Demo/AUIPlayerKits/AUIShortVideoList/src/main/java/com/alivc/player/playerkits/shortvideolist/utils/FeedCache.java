@@ -0,0 +1,255 @@
+package com.alivc.player.playerkits.shortvideolist.utils;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 列表接口响应的持久化缓存(stale-while-revalidate)
+ * <p>
+ * 1.按播单ID和分页游标缓存上一次成功的响应,冷启动时立即返回
+ * 2.新鲜期内直接使用缓存,过期但未超过最大过期时长时先返回缓存,再由调用方后台刷新
+ * 3.文件读写在专用线程上进行,内存中保留最近使用的条目
+ * 4.统计命中、过期命中和未命中次数
+ * 5.内容会写入磁盘并保留到最大过期时长,调用方需先去掉播放凭证等短时有效的字段
+ */
+/****
+ * Persistent cache of list responses (stale-while-revalidate)
+ * <p>
+ * 1. The last good response is cached by playlist ID and page cursor, and returned at once on cold start
+ * 2. Within the fresh TTL the cache is used as is; past it but within the max stale TTL the cached response is
+ * returned first and the caller revalidates in the background
+ * 3. Files are read and written on a dedicated thread, recently used entries are kept in memory
+ * 4. Hits, stale hits and misses are counted
+ * 5. Content is written to disk and kept up to the max stale TTL, so callers must strip short-lived credentials
+ * such as playAuth first
+ */
+public class FeedCache {
+
+    private static final String CACHE_DIR = "aui_feed_cache";
+
+    private static final int MAX_ENTRIES = 32;
+    private static final int MEMORY_ENTRIES = 8;
+
+    /**
+     * 默认新鲜期和最大过期时长
+     */
+    /****
+     * Default fresh TTL and max stale TTL. Unit: ms
+     */
+    public static final long DEFAULT_FRESH_TTL_MS = 5 * 60 * 1000L;
+    public static final long DEFAULT_MAX_STALE_MS = 7 * 24 * 3600 * 1000L;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final LruCache<String, Entry> sMemoryCache = new LruCache<>(MEMORY_ENTRIES);
+
+    private static volatile File sCacheDir;
+    private static volatile long sFreshTtlMs = DEFAULT_FRESH_TTL_MS;
+    private static volatile long sMaxStaleMs = DEFAULT_MAX_STALE_MS;
+
+    private static final Object sStatsLock = new Object();
+    private static long sHitCount = 0;
+    private static long sStaleHitCount = 0;
+    private static long sMissCount = 0;
+
+    private FeedCache() {
+    }
+
+    /**
+     * 设置缓存目录,未设置时只缓存在内存中
+     */
+    /****
+     * Set the cache directory, entries are only kept in memory until it is set
+     */
+    public static void init(Context context) {
+        if (sCacheDir == null) {
+            sCacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        }
+    }
+
+    /**
+     * 设置新鲜期和最大过期时长
+     */
+    /****
+     * Set the fresh TTL and the max stale TTL. Unit: ms
+     */
+    public static void setTtl(long freshTtlMs, long maxStaleMs) {
+        sFreshTtlMs = Math.max(0, freshTtlMs);
+        sMaxStaleMs = Math.max(sFreshTtlMs, maxStaleMs);
+    }
+
+    /**
+     * 在缓存线程上读取,超过最大过期时长或不存在时回调null
+     */
+    /****
+     * Read on the cache thread, the callback gets null when the entry is missing or older than the max stale TTL
+     */
+    public static void get(final String key, final OnEntryCallback callback) {
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Entry entry = sMemoryCache.get(key);
+                if (entry == null) {
+                    entry = readFile(key);
+                    if (entry != null) {
+                        sMemoryCache.put(key, entry);
+                    }
+                }
+                if (entry != null && entry.getAgeMs() > sMaxStaleMs) {
+                    entry = null;
+                }
+                synchronized (sStatsLock) {
+                    if (entry == null) {
+                        sMissCount++;
+                    } else if (entry.isFresh()) {
+                        sHitCount++;
+                    } else {
+                        sStaleHitCount++;
+                    }
+                }
+                callback.onEntry(entry);
+            }
+        });
+    }
+
+    /**
+     * 保存成功的响应
+     */
+    /****
+     * Save a good response
+     */
+    public static void put(final String key, String content) {
+        final Entry entry = new Entry(content, System.currentTimeMillis());
+        sMemoryCache.put(key, entry);
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeFile(key, entry);
+            }
+        });
+    }
+
+    public static String getStats() {
+        synchronized (sStatsLock) {
+            long total = sHitCount + sStaleHitCount + sMissCount;
+            return String.format(Locale.US, "hit=%d stale=%d miss=%d hitRate=%.1f%%",
+                    sHitCount, sStaleHitCount, sMissCount,
+                    total == 0 ? 0f : (sHitCount + sStaleHitCount) * 100f / total);
+        }
+    }
+
+    private static File fileOf(String key) {
+        File dir = sCacheDir;
+        return dir == null ? null : new File(dir, Integer.toHexString(key.hashCode()) + "_" + key.length());
+    }
+
+    private static Entry readFile(String key) {
+        File file = fileOf(key);
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            String data = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            //第一行是键,防止哈希冲突;第二行是保存时间
+            //The first line is the key, guarding against hash collisions; the second one is the save time
+            int keyEnd = data.indexOf('\n');
+            int timeEnd = keyEnd < 0 ? -1 : data.indexOf('\n', keyEnd + 1);
+            if (timeEnd < 0 || !key.equals(data.substring(0, keyEnd))) {
+                return null;
+            }
+            long savedAtMs = Long.parseLong(data.substring(keyEnd + 1, timeEnd));
+            return new Entry(data.substring(timeEnd + 1), savedAtMs);
+        } catch (IOException | NumberFormatException e) {
+            SLog.e(FeedCache.class, "readFile", e, key);
+            return null;
+        }
+    }
+
+    private static void writeFile(String key, Entry entry) {
+        File file = fileOf(key);
+        if (file == null) {
+            return;
+        }
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            return;
+        }
+        //先写临时文件再重命名,崩溃时不会留下不完整的缓存
+        //Write a temp file then rename it, so that a crash never leaves a partial entry
+        File tempFile = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            out.write((key + "\n" + entry.savedAtMs + "\n" + entry.content).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            SLog.e(FeedCache.class, "writeFile", e, key);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+        trim(dir);
+    }
+
+    /**
+     * 超过条目上限时删除最旧的文件
+     */
+    /****
+     * Delete the oldest files above the entry limit
+     */
+    private static void trim(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_ENTRIES) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length - MAX_ENTRIES; i++) {
+            files[i].delete();
+        }
+    }
+
+    public static class Entry {
+        public final String content;
+        public final long savedAtMs;
+
+        private Entry(String content, long savedAtMs) {
+            this.content = content;
+            this.savedAtMs = savedAtMs;
+        }
+
+        public long getAgeMs() {
+            return System.currentTimeMillis() - savedAtMs;
+        }
+
+        public boolean isFresh() {
+            return getAgeMs() <= sFreshTtlMs;
+        }
+    }
+
+    public interface OnEntryCallback {
+        void onEntry(Entry entry);
+    }
+}
@@ -1,23 +1,108 @@
 package com.alivc.player.playerkits.shortvideolist.utils;
 
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
 import com.alivc.player.playerkits.shortvideolist.AUIShortVideoListConstants;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 
+/**
+ * 网络请求工具
+ * <p>
+ * 1.所有请求共用一个OkHttpClient,即一个连接池和一个调度器,支持HTTP/2
+ * 2.调用init后启用磁盘缓存
+ * 3.相同的GET请求进行中时只发起一次
+ * 4.按接口统计请求耗时,输出到日志
+ */
+/****
+ * Network request util
+ * <p>
+ * 1. All requests share one OkHttpClient, that is one connection pool and one dispatcher, with HTTP/2
+ * 2. After init, responses are cached on disk as allowed by the server's cache headers
+ * 3. An identical GET request in flight is sent once
+ * 4. Latency is counted per endpoint and logged
+ */
 public class NetWorkRequestUtils {
+
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+
+    private static final String CACHE_DIR = "aui_short_video_list_http";
+    private static final long CACHE_SIZE = 10 * 1024 * 1024;
+
+    private static volatile OkHttpClient sOkHttpClient;
+    private static File sCacheDir;
+
+    // Parser + url -> callers waiting for the GET request in flight
+    private static final Map<String, List<AUIShortVideoListUtil.OnNetworkCallBack<?>>> sInFlight = new HashMap<>();
+
+    // Endpoint -> {count, total ms, max ms}
+    private static final Map<String, long[]> sLatency = new HashMap<>();
+
+    private NetWorkRequestUtils() {
+    }
+
+    /**
+     * 启用磁盘缓存和列表缓存,需在第一次请求前调用
+     */
+    /****
+     * Enable the disk cache and the feed cache, must be called before the first request
+     */
+    public static synchronized void init(Context context) {
+        if (sCacheDir == null) {
+            sCacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        }
+        FeedCache.init(context);
+    }
+
     public static OkHttpClient getOkHttpClient() {
-        return new OkHttpClient()
-                .newBuilder()
-                .readTimeout(5L, TimeUnit.SECONDS)
-                .writeTimeout(5L, TimeUnit.SECONDS)
-                .connectTimeout(5L, TimeUnit.SECONDS)
-                .build();
+        if (sOkHttpClient == null) {
+            synchronized (NetWorkRequestUtils.class) {
+                if (sOkHttpClient == null) {
+                    OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                            .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                            .addInterceptor(new LatencyInterceptor());
+                    if (sCacheDir != null) {
+                        builder.cache(new Cache(sCacheDir, CACHE_SIZE));
+                    }
+                    sOkHttpClient = builder.build();
+                }
+            }
+        }
+        return sOkHttpClient;
     }
 
     public static <T> Request postContentFromURI(T requestBody) {
@@ -30,4 +115,142 @@ public class NetWorkRequestUtils {
                 .addHeader("Content-Type", "application/json")
                 .build();
     }
+
+    /**
+     * 响应体解析器,直接读取响应流,无需先缓存为字符串
+     */
+    /****
+     * Response body parser, reads the body stream directly instead of buffering it into a String first
+     */
+    public interface ResponseParser<T> {
+        T parse(Reader reader) throws IOException;
+    }
+
+    /**
+     * 异步GET请求,在子线程回调,失败时回调null。相同的请求进行中时不再重复发起
+     */
+    /****
+     * Asynchronous GET, called back on a worker thread with null on failure.
+     * An identical request already in flight is not sent again.
+     */
+    public static void getContentFromURI(String url, AUIShortVideoListUtil.OnNetworkCallBack<String> callBack) {
+        getFromURI(url, STRING_PARSER, callBack);
+    }
+
+    /**
+     * 异步GET请求,在子线程上边读取边解析响应,失败时回调null。相同的url和解析器进行中时不再重复发起
+     */
+    /****
+     * Asynchronous GET, parsing the body while it is read on a worker thread, called back with null on failure.
+     * An identical url and parser already in flight is not sent again.
+     */
+    public static <T> void getFromURI(final String url, final ResponseParser<T> parser, AUIShortVideoListUtil.OnNetworkCallBack<T> callBack) {
+        final String key = parser.getClass().getName() + " " + url;
+        synchronized (sInFlight) {
+            List<AUIShortVideoListUtil.OnNetworkCallBack<?>> waiting = sInFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callBack);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callBack);
+            sInFlight.put(key, waiting);
+        }
+        Request request = new Request.Builder().url(url).build();
+        getOkHttpClient().newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                SLog.e(this, "getFromURI", e, url);
+                dispatch(key, null);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                T result = null;
+                try {
+                    ResponseBody body = response.body();
+                    if (response.isSuccessful() && body != null) {
+                        result = parser.parse(body.charStream());
+                    }
+                } catch (IOException | JsonParseException e) {
+                    SLog.e(this, "getFromURI", e, url);
+                } finally {
+                    response.close();
+                }
+                dispatch(key, result);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void dispatch(String key, T result) {
+        List<AUIShortVideoListUtil.OnNetworkCallBack<?>> waiting;
+        synchronized (sInFlight) {
+            waiting = sInFlight.remove(key);
+        }
+        if (waiting == null) {
+            return;
+        }
+        //同一个key的回调类型相同,由解析器类型保证
+        //Callbacks of one key share a type, as the key includes the parser
+        for (AUIShortVideoListUtil.OnNetworkCallBack<?> callBack : waiting) {
+            ((AUIShortVideoListUtil.OnNetworkCallBack<T>) callBack).onResponse(result);
+        }
+    }
+
+    private static final ResponseParser<String> STRING_PARSER = new ResponseParser<String>() {
+        @Override
+        public String parse(Reader reader) throws IOException {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                builder.append(buffer, 0, read);
+            }
+            return builder.toString();
+        }
+    };
+
+    /**
+     * 统计到收到响应头的耗时
+     */
+    /****
+     * Counts the time to the response headers
+     */
+    private static class LatencyInterceptor implements Interceptor {
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException {
+            Request request = chain.request();
+            String endpoint = request.url().encodedPath();
+            long start = SystemClock.elapsedRealtime();
+            try {
+                return chain.proceed(request);
+            } finally {
+                long costMs = SystemClock.elapsedRealtime() - start;
+                // 每个请求都会执行,先检查级别,避免创建快照、可变参数数组和装箱参数
+                // Runs for every request, the level is checked first so the snapshot, the varargs array and the
+                // boxed numbers are not allocated
+                boolean loggable = SLog.isLoggable(Log.DEBUG, this);
+                long[] snapshot = null;
+                synchronized (sLatency) {
+                    long[] latency = sLatency.get(endpoint);
+                    if (latency == null) {
+                        latency = new long[3];
+                        sLatency.put(endpoint, latency);
+                    }
+                    latency[0]++;
+                    latency[1] += costMs;
+                    latency[2] = Math.max(latency[2], costMs);
+                    if (loggable) {
+                        snapshot = latency.clone();
+                    }
+                }
+                if (snapshot != null) {
+                    SLog.d(this, "intercept", endpoint, " cost=", costMs, "ms count=", snapshot[0],
+                            " avg=", snapshot[1] / snapshot[0], "ms max=", snapshot[2], "ms");
+                }
+            }
+        }
+    }
 }
@@ -4,23 +4,183 @@ import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 /**
  * @author keria
  * @date 2024/9/25
  * @brief log util
  * @note Android Studio logcat filter:
  * package:mine tag:AUIShortVideoList AliPlayerPool
+ * @note The level is checked before any formatting: globally by {@link #setMinLevel(int)},
+ * and per caller class by {@link #setLevel(Class, int)}. Messages are only formatted when they pass.
+ * @note In async mode ({@link #startAsync(int)}), messages are put into a lock-free ring buffer, and a background
+ * thread formats them and writes them to the sink; if the buffer is full, messages are dropped instead of blocking
+ * the caller. Only immutable arguments (strings, boxed primitives, classes) are formatted in the background; lazy
+ * messages, collections and other objects are formatted on the calling thread, as they may change afterwards.
  */
 public class SLog {
     private static final String TAG = "AUIShortVideoList";
     public static boolean ENABLE_LOG = true;
     public static final int BUFFER_SIZE = 3000;
 
+    // Default capacity of the async ring buffer
+    public static final int DEFAULT_ASYNC_CAPACITY = 1024;
+
+    // Max time the drain thread sleeps while the ring buffer is empty
+    private static final long ASYNC_IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static volatile int sMinLevel = Log.VERBOSE;
+    private static final Map<Class<?>, Integer> sClassLevels = new ConcurrentHashMap<>();
+
+    private static volatile Sink sSink = new LogcatSink();
+    private static volatile AsyncWriter sAsyncWriter = null;
+
     private SLog() {
     }
 
-    public static void log(Object o, String method, String s) {
+    /**
+     * Writes formatted log messages, e.g. to logcat or a file.
+     */
+    public interface Sink {
+        /**
+         * Write a log message.
+         *
+         * @param level      log level, see {@link Log#VERBOSE} etc.
+         * @param tag        log tag
+         * @param timeMs     time the message was logged at. Unit: ms
+         * @param threadName name of the thread the message was logged on
+         * @param message    formatted message
+         * @param throwable  throwable, may be null
+         */
+        void write(int level, String tag, long timeMs, String threadName, String message, Throwable throwable);
+
+        /**
+         * Flush buffered messages, called by the drain thread when the ring buffer becomes empty.
+         */
+        void flush();
+    }
+
+    /**
+     * Log argument which is only evaluated if the message passes the level check.
+     * It is evaluated on the calling thread, also in async mode.
+     */
+    public interface LazyMessage {
+        Object get();
+    }
+
+    /**
+     * Sink to logcat, the default sink.
+     */
+    public static class LogcatSink implements Sink {
+        @Override
+        public void write(int level, String tag, long timeMs, String threadName, String message, Throwable throwable) {
+            if (throwable != null) {
+                message = message + '\n' + Log.getStackTraceString(throwable);
+            }
+            Log.println(level, tag, message);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+
+    // ---- configuration ----
+
+    /**
+     * @param level min level of messages to log, see {@link Log#VERBOSE} etc.
+     */
+    public static void setMinLevel(int level) {
+        sMinLevel = level;
+    }
+
+    /**
+     * Set the min level of messages logged by the objects of a class, which overrides the global min level.
+     *
+     * @param clazz class of the logging object
+     * @param level min level of messages to log, see {@link Log#VERBOSE} etc.
+     */
+    public static void setLevel(Class<?> clazz, int level) {
+        sClassLevels.put(clazz, level);
+    }
+
+    /**
+     * Remove all per class levels.
+     */
+    public static void clearLevels() {
+        sClassLevels.clear();
+    }
+
+    /**
+     * @param sink sink to write messages to, null for logcat
+     */
+    public static void setSink(Sink sink) {
+        sSink = sink != null ? sink : new LogcatSink();
+    }
+
+    /**
+     * Start writing messages on a background thread, through a ring buffer of the capacity.
+     *
+     * @param capacity ring buffer capacity
+     */
+    public static synchronized void startAsync(int capacity) {
+        if (sAsyncWriter != null) {
+            return;
+        }
+        AsyncWriter writer = new AsyncWriter(capacity);
+        writer.start();
+        sAsyncWriter = writer;
+    }
+
+    /**
+     * Stop the background thread after it has written all buffered messages; messages are written synchronously again.
+     */
+    public static synchronized void stopAsync() {
+        AsyncWriter writer = sAsyncWriter;
+        if (writer == null) {
+            return;
+        }
+        sAsyncWriter = null;
+        writer.stop();
+    }
+
+    /**
+     * @return number of messages dropped because the ring buffer was full
+     */
+    public static long getDroppedCount() {
+        AsyncWriter writer = sAsyncWriter;
+        return writer != null ? writer.mDroppedCount.get() : 0;
+    }
+
+    /**
+     * Check the level of a message before building it.
+     *
+     * @param level log level
+     * @param o     logging object
+     * @return true if the message would be logged
+     */
+    public static boolean isLoggable(int level, Object o) {
         if (!ENABLE_LOG) {
+            return false;
+        }
+        if (o != null && !sClassLevels.isEmpty()) {
+            Integer classLevel = sClassLevels.get(o instanceof Class<?> ? (Class<?>) o : o.getClass());
+            if (classLevel != null) {
+                return level >= classLevel;
+            }
+        }
+        return level >= sMinLevel;
+    }
+
+    // ---- log ----
+
+    public static void log(Object o, String method, String s) {
+        if (!isLoggable(Log.VERBOSE, o)) {
             return;
         }
 
@@ -35,75 +195,99 @@ public class SLog {
     }
 
     public static void l(int level, Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.println(level, TAG, createLog(o, method, messages));
-        }
+        print(level, TAG, o, method, null, messages);
     }
 
     public static void v(Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.v(TAG, createLog(o, method, messages));
-        }
+        print(Log.VERBOSE, TAG, o, method, null, messages);
     }
 
     public static void v(Object o, String method, Throwable throwable, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.v(TAG, createLog(o, method, messages), throwable);
-        }
+        print(Log.VERBOSE, TAG, o, method, throwable, messages);
     }
 
     public static void d(Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.d(TAG, createLog(o, method, messages));
-        }
+        print(Log.DEBUG, TAG, o, method, null, messages);
     }
 
     public static void d(Object o, String method, Throwable throwable, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.d(TAG, createLog(o, method, messages), throwable);
-        }
+        print(Log.DEBUG, TAG, o, method, throwable, messages);
     }
 
     public static void i(Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.i(TAG, createLog(o, method, messages));
-        }
+        print(Log.INFO, TAG, o, method, null, messages);
     }
 
     public static void i(Object o, String method, Throwable throwable, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.i(TAG, createLog(o, method, messages), throwable);
-        }
+        print(Log.INFO, TAG, o, method, throwable, messages);
     }
 
     public static void e(Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.e(TAG, createLog(o, method, messages));
-        }
+        print(Log.ERROR, TAG, o, method, null, messages);
     }
 
     public static void e(Object o, String method, Throwable throwable, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.e(TAG, createLog(o, method, messages), throwable);
-        }
+        print(Log.ERROR, TAG, o, method, throwable, messages);
     }
 
     public static void w(Object o, String method, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.w(TAG, createLog(o, method, messages));
-        }
+        print(Log.WARN, TAG, o, method, null, messages);
     }
 
     public static void w(Object o, String method, Throwable throwable, Object... messages) {
-        if (ENABLE_LOG) {
-            Log.w(TAG, createLog(o, method, messages), throwable);
-        }
+        print(Log.WARN, TAG, o, method, throwable, messages);
     }
 
     public static void t(String method, long costTime) {
-        if (ENABLE_LOG) {
+        if (isLoggable(Log.DEBUG, null)) {
             String threadName = Looper.myLooper() == Looper.getMainLooper() ? "MAIN" : "SUB";
-            Log.d("TimeProfiler", createLog(null, method, new Object[]{threadName, "costTime: " + costTime}));
+            print(Log.DEBUG, "TimeProfiler", null, method, null, new Object[]{threadName, "costTime: " + costTime});
+        }
+    }
+
+    private static void print(int level, String tag, Object o, String method, Throwable throwable, Object[] messages) {
+        if (!isLoggable(level, o)) {
+            return;
+        }
+        AsyncWriter writer = sAsyncWriter;
+        if (writer != null) {
+            // Mutable arguments are formatted now, the rest on the drain thread
+            writer.offer(new Record(level, tag, snapshot(o), method, throwable, snapshot(messages)));
+            return;
+        }
+        write(sSink, level, tag, System.currentTimeMillis(), Thread.currentThread().getName(), createLog(o, method, messages), throwable);
+    }
+
+    /**
+     * Copy the arguments for the drain thread, formatting those which may change after the call.
+     */
+    private static Object[] snapshot(Object[] messages) {
+        if (messages == null) {
+            return null;
+        }
+        Object[] copy = new Object[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            copy[i] = snapshot(messages[i]);
+        }
+        return copy;
+    }
+
+    private static Object snapshot(Object o) {
+        return isImmutable(o) ? o : slimObj(o);
+    }
+
+    private static boolean isImmutable(Object o) {
+        return o == null || o instanceof String || o instanceof Class<?>
+                || o instanceof Integer || o instanceof Long || o instanceof Boolean
+                || o instanceof Float || o instanceof Double || o instanceof Short
+                || o instanceof Byte || o instanceof Character;
+    }
+
+    private static void write(Sink sink, int level, String tag, long timeMs, String threadName, String message, Throwable throwable) {
+        try {
+            sink.write(level, tag, timeMs, threadName, message, throwable);
+        } catch (Exception e) {
+            Log.e(TAG, "[SLog] sink write failed", e);
         }
     }
 
@@ -140,6 +324,8 @@ public class SLog {
             return "null";
         } else if (o instanceof String) {
             return (String) o;
+        } else if (o instanceof LazyMessage) {
+            return slimObj(((LazyMessage) o).get());
         } else if (o instanceof Boolean) {
             return String.valueOf(o);
         } else if (o instanceof Number) {
@@ -155,4 +341,114 @@ public class SLog {
             return o.getClass().getSimpleName() + '@' + Integer.toHexString(o.hashCode());
         }
     }
+
+    // ---- async ----
+
+    /**
+     * Log message waiting in the ring buffer, its arguments are immutable values or already formatted strings.
+     */
+    private static final class Record {
+        final int level;
+        final String tag;
+        final Object o;
+        final String method;
+        final Throwable throwable;
+        final Object[] messages;
+        final long timeMs;
+        final String threadName;
+
+        Record(int level, String tag, Object o, String method, Throwable throwable, Object[] messages) {
+            this.level = level;
+            this.tag = tag;
+            this.o = o;
+            this.method = method;
+            this.throwable = throwable;
+            this.messages = messages;
+            this.timeMs = System.currentTimeMillis();
+            this.threadName = Thread.currentThread().getName();
+        }
+    }
+
+    private static final class AsyncWriter implements Runnable {
+        private final SLogRingBuffer<Record> mBuffer;
+        private final AtomicLong mDroppedCount = new AtomicLong(0);
+        private final Thread mThread;
+
+        private volatile boolean mRunning = true;
+        private volatile boolean mIdle = false;
+
+        // Dropped count already reported by the drain thread
+        private long mReportedDroppedCount = 0;
+
+        AsyncWriter(int capacity) {
+            mBuffer = new SLogRingBuffer<>(capacity);
+            mThread = new Thread(this, "SLog#drain");
+            mThread.setDaemon(true);
+            mThread.setPriority(Thread.MIN_PRIORITY);
+        }
+
+        void start() {
+            mThread.start();
+        }
+
+        void stop() {
+            mRunning = false;
+            LockSupport.unpark(mThread);
+            try {
+                mThread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void offer(Record record) {
+            if (!mBuffer.offer(record)) {
+                mDroppedCount.incrementAndGet();
+                return;
+            }
+            if (mIdle) {
+                LockSupport.unpark(mThread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (mRunning || !mBuffer.isEmpty()) {
+                Record record = mBuffer.poll();
+                if (record != null) {
+                    String message;
+                    try {
+                        message = createLog(record.o, record.method, record.messages);
+                    } catch (Exception e) {
+                        // Keep draining if a toString() fails
+                        message = "[" + record.method + "] format failed: " + e;
+                    }
+                    write(sSink, record.level, record.tag, record.timeMs, record.threadName, message, record.throwable);
+                    continue;
+                }
+
+                reportDropped();
+                sSink.flush();
+                mIdle = true;
+                if (mRunning && mBuffer.isEmpty()) {
+                    LockSupport.parkNanos(this, ASYNC_IDLE_PARK_NS);
+                } else if (!mBuffer.isEmpty()) {
+                    // A slot is claimed but not published yet
+                    Thread.yield();
+                }
+                mIdle = false;
+            }
+            reportDropped();
+            sSink.flush();
+        }
+
+        private void reportDropped() {
+            long droppedCount = mDroppedCount.get();
+            if (droppedCount != mReportedDroppedCount) {
+                write(sSink, Log.WARN, TAG, System.currentTimeMillis(), mThread.getName(),
+                        "[SLog] ring buffer full, dropped " + (droppedCount - mReportedDroppedCount) + " messages", null);
+                mReportedDroppedCount = droppedCount;
+            }
+        }
+    }
 }
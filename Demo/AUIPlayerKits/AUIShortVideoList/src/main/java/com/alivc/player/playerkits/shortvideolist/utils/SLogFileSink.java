@@ -0,0 +1,115 @@
+package com.alivc.player.playerkits.shortvideolist.utils;
+
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * @author keria
+ * @date 2024/9/25
+ * @brief SLog sink which appends messages to a file, and optionally also writes them to logcat.
+ * @note Best used with {@link SLog#startAsync(int)}, so that file IO happens on the drain thread; the file is flushed
+ * whenever the ring buffer becomes empty.
+ */
+public class SLogFileSink implements SLog.Sink {
+    private final SimpleDateFormat mDateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date mDate = new Date();
+
+    private final SLog.Sink mLogcatSink;
+    private BufferedWriter mWriter;
+
+    /**
+     * @param file          file to append to
+     * @param alsoToLogcat  true to also write messages to logcat
+     * @throws IOException if the file can't be opened
+     */
+    public SLogFileSink(File file, boolean alsoToLogcat) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("can't create directory " + parent);
+        }
+        mWriter = new BufferedWriter(new FileWriter(file, true));
+        mLogcatSink = alsoToLogcat ? new SLog.LogcatSink() : null;
+    }
+
+    @Override
+    public synchronized void write(int level, String tag, long timeMs, String threadName, String message, Throwable throwable) {
+        if (mLogcatSink != null) {
+            mLogcatSink.write(level, tag, timeMs, threadName, message, throwable);
+        }
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mDate.setTime(timeMs);
+            mWriter.write(mDateFormat.format(mDate));
+            mWriter.write(' ');
+            mWriter.write(levelChar(level));
+            mWriter.write('/');
+            mWriter.write(tag);
+            mWriter.write(" (");
+            mWriter.write(threadName);
+            mWriter.write("): ");
+            mWriter.write(message);
+            mWriter.newLine();
+            if (throwable != null) {
+                throwable.printStackTrace(new PrintWriter(mWriter));
+            }
+        } catch (IOException e) {
+            Log.e("SLogFileSink", "write failed, stop writing to file", e);
+            close();
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.flush();
+        } catch (IOException e) {
+            Log.e("SLogFileSink", "flush failed, stop writing to file", e);
+            close();
+        }
+    }
+
+    /**
+     * Flush and close the file.
+     */
+    public synchronized void close() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        mWriter = null;
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case Log.VERBOSE:
+                return 'V';
+            case Log.DEBUG:
+                return 'D';
+            case Log.INFO:
+                return 'I';
+            case Log.WARN:
+                return 'W';
+            case Log.ERROR:
+                return 'E';
+            default:
+                return 'A';
+        }
+    }
+}
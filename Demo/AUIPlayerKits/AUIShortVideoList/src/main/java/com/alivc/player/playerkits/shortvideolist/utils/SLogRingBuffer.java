@@ -0,0 +1,80 @@
+package com.alivc.player.playerkits.shortvideolist.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author keria
+ * @date 2024/9/25
+ * @brief Bounded lock-free ring buffer with multiple producers and a single consumer.
+ * @note Producers claim a slot with a CAS on the write sequence and never block: when the buffer is full, offer fails.
+ * @note The consumer frees a slot by clearing it before advancing the read sequence, so a slot is never overwritten
+ * @note before it has been consumed.
+ */
+public class SLogRingBuffer<E> {
+    private final AtomicReferenceArray<E> mSlots;
+    private final int mMask;
+
+    // Next sequence to write, claimed by producers
+    private final AtomicLong mWriteSequence = new AtomicLong(0);
+    // Next sequence to read, only advanced by the consumer
+    private volatile long mReadSequence = 0;
+
+    /**
+     * @param capacity buffer capacity, rounded up to a power of two
+     */
+    public SLogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mSlots = new AtomicReferenceArray<>(size);
+        mMask = size - 1;
+    }
+
+    /**
+     * Add an element, called by any thread.
+     *
+     * @param element element to add, not null
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        long sequence;
+        do {
+            sequence = mWriteSequence.get();
+            if (sequence - mReadSequence > mMask) {
+                return false;
+            }
+        } while (!mWriteSequence.compareAndSet(sequence, sequence + 1));
+        mSlots.set((int) sequence & mMask, element);
+        return true;
+    }
+
+    /**
+     * Remove the oldest element, must only be called by the consumer thread.
+     *
+     * @return the oldest element, or null if the buffer is empty or the next element is not published yet
+     */
+    public E poll() {
+        long sequence = mReadSequence;
+        int index = (int) sequence & mMask;
+        E element = mSlots.get(index);
+        if (element == null) {
+            return null;
+        }
+        mSlots.set(index, null);
+        mReadSequence = sequence + 1;
+        return element;
+    }
+
+    /**
+     * @return true if there is no claimed slot left to consume
+     */
+    public boolean isEmpty() {
+        return mWriteSequence.get() == mReadSequence;
+    }
+
+    /**
+     * @return buffer capacity
+     */
+    public int capacity() {
+        return mMask + 1;
+    }
+}
@@ -0,0 +1,140 @@
+package com.alivc.player.playerkits.shortvideolist.utils;
+
+import com.alivc.player.playerkits.shortvideolist.data.VideoInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 播单接口响应的流式解析
+ * <p>
+ * 1.用JsonReader单次遍历响应,只物化playlistVideos,其余字段直接跳过
+ * 2.Gson实例和TypeAdapter只创建一次,不再每次请求反射
+ * 3.支持data为单个播单或播单数组,数组时取第一个
+ */
+/****
+ * Streaming parser of playlist responses
+ * <p>
+ * 1. The response is walked once with a JsonReader, only playlistVideos is materialized and other fields are skipped
+ * 2. The Gson instance and the type adapters are created once instead of being reflected on every request
+ * 3. data may be one playlist or an array of playlists, in which case the first one is used
+ */
+public class VideoListJsonParser {
+
+    private static final String KEY_DATA = "data";
+    private static final String KEY_PLAYLIST_VIDEOS = "playlistVideos";
+
+    private static final Gson sGson = new Gson();
+    private static final TypeAdapter<VideoInfo> sVideoInfoAdapter = sGson.getAdapter(VideoInfo.class);
+    private static final TypeAdapter<List<VideoInfo>> sVideoInfoListAdapter = sGson.getAdapter(new TypeToken<List<VideoInfo>>() {
+    });
+
+    private VideoListJsonParser() {
+    }
+
+    /**
+     * 从播单接口响应中解析视频列表,没有playlistVideos字段时返回null,读取结束后不关闭reader
+     */
+    /****
+     * Parse the videos out of a playlist response, null without a playlistVideos field. The reader is not closed
+     */
+    public static List<VideoInfo> parsePlaylistVideos(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        List<VideoInfo> videos = null;
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (KEY_DATA.equals(jsonReader.nextName())) {
+                    videos = readData(jsonReader);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+        return videos;
+    }
+
+    public static List<VideoInfo> parsePlaylistVideos(String json) {
+        try {
+            return parsePlaylistVideos(new StringReader(json));
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    /**
+     * 解析视频列表数组,即serializeVideoList的输出
+     */
+    /****
+     * Parse a video array, that is the output of serializeVideoList
+     */
+    public static List<VideoInfo> parseVideoList(String json) {
+        try {
+            return sVideoInfoListAdapter.fromJson(json);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    public static String serializeVideoList(List<VideoInfo> videoInfoList) {
+        return sVideoInfoListAdapter.toJson(videoInfoList);
+    }
+
+    private static List<VideoInfo> readData(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            return readPlaylist(reader);
+        }
+        if (token != JsonToken.BEGIN_ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+        List<VideoInfo> videos = null;
+        boolean firstRead = false;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (!firstRead && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                videos = readPlaylist(reader);
+                firstRead = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endArray();
+        return videos;
+    }
+
+    private static List<VideoInfo> readPlaylist(JsonReader reader) throws IOException {
+        List<VideoInfo> videos = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (KEY_PLAYLIST_VIDEOS.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                videos = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    VideoInfo videoInfo = sVideoInfoAdapter.read(reader);
+                    if (videoInfo != null) {
+                        videos.add(videoInfo);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return videos;
+    }
+}
@@ -0,0 +1,65 @@
+package com.alivc.player.playerkits.shortvideolist.controller.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FirstFrameTrackerTest {
+
+    private static final long STALE_MS = 200;
+
+    private static JsonObject swipeToFirstFrame(FirstFrameTracker tracker) {
+        return new JsonParser().parse(tracker.toJson()).getAsJsonObject().getAsJsonObject("swipe_to_first_frame");
+    }
+
+    @Test
+    public void swipeBackBeforeFirstFrameIsMeasuredFromTheSwipeBack() throws InterruptedException {
+        FirstFrameTracker tracker = new FirstFrameTracker();
+        tracker.onPageSelected("a");
+        tracker.onPlayerAcquired("a");
+        tracker.onPrepareCalled("a");
+        // Swiped away before the first frame, and back after a while
+        tracker.onPageSelected("b");
+        Thread.sleep(STALE_MS);
+        tracker.onPageSelected("a");
+        tracker.onFirstFrame("a");
+
+        JsonObject latency = swipeToFirstFrame(tracker);
+        assertEquals(1, latency.get("count").getAsLong());
+        assertTrue(latency.get("max_ms").getAsDouble() < STALE_MS);
+        // The phases of the first attempt were dropped
+        JsonObject json = new JsonParser().parse(tracker.toJson()).getAsJsonObject();
+        assertEquals(0, json.getAsJsonObject("page_selected_to_prepare").get("count").getAsLong());
+    }
+
+    @Test
+    public void swipeBackAfterFirstFrameStartsANewMeasurement() throws InterruptedException {
+        FirstFrameTracker tracker = new FirstFrameTracker();
+        tracker.onPageSelected("a");
+        tracker.onFirstFrame("a");
+        tracker.onPageSelected("b");
+        Thread.sleep(STALE_MS);
+        tracker.onPageSelected("a");
+        tracker.onFirstFrame("a");
+
+        JsonObject latency = swipeToFirstFrame(tracker);
+        assertEquals(2, latency.get("count").getAsLong());
+        assertTrue(latency.get("max_ms").getAsDouble() < STALE_MS);
+    }
+
+    @Test
+    public void preRenderedItemCountsWithZeroLatency() {
+        FirstFrameTracker tracker = new FirstFrameTracker();
+        tracker.onFirstFrame("a");
+        tracker.onPageSelected("a");
+
+        JsonObject json = new JsonParser().parse(tracker.toJson()).getAsJsonObject();
+        assertEquals(1, json.getAsJsonObject("swipe_to_first_frame_by_source").getAsJsonObject("prerendered")
+                .get("count").getAsLong());
+        assertEquals(0, swipeToFirstFrame(tracker).get("max_ms").getAsDouble(), 0);
+    }
+}
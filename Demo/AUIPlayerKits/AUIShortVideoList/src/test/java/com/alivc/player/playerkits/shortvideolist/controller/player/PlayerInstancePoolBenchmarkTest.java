@@ -0,0 +1,166 @@
+package com.alivc.player.playerkits.shortvideolist.controller.player;
+
+import com.aliyun.player.AliPlayer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Swipes through a feed with the destroy and the recycle strategy, with a fake factory whose players are
+ * {@link Proxy} instances of {@link AliPlayer} and whose create() takes as long as a real player creation.
+ */
+public class PlayerInstancePoolBenchmarkTest {
+
+    private static final int CAPACITY = 3;
+    private static final int SWIPES = 100;
+    // Rough cost of creating a player instance on a mid-range device. Unit: ms
+    private static final long CREATE_COST_MS = 5;
+
+    private final AtomicInteger mCreated = new AtomicInteger();
+    private final AtomicInteger mReset = new AtomicInteger();
+    private final AtomicInteger mDestroyed = new AtomicInteger();
+    private final AtomicInteger mLive = new AtomicInteger();
+
+    private ExecutorService mWarmUpExecutor;
+
+    private final PlayerInstancePool.Factory<AliPlayer> mFactory = new PlayerInstancePool.Factory<AliPlayer>() {
+        @Override
+        public AliPlayer create() {
+            try {
+                Thread.sleep(CREATE_COST_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mCreated.incrementAndGet();
+            mLive.incrementAndGet();
+            return fakePlayer();
+        }
+
+        @Override
+        public void reset(AliPlayer player) {
+            player.stop();
+            player.setSurface(null);
+            mReset.incrementAndGet();
+        }
+
+        @Override
+        public void destroy(AliPlayer player, String tag) {
+            player.release();
+            mDestroyed.incrementAndGet();
+            mLive.decrementAndGet();
+        }
+    };
+
+    private static AliPlayer fakePlayer() {
+        return (AliPlayer) Proxy.newProxyInstance(AliPlayer.class.getClassLoader(), new Class<?>[]{AliPlayer.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "FakeAliPlayer@" + Integer.toHexString(System.identityHashCode(proxy));
+                            default:
+                                return defaultValue(method.getReturnType());
+                        }
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == float.class) {
+            return 0f;
+        } else if (type == double.class) {
+            return 0d;
+        }
+        return null;
+    }
+
+    @Before
+    public void setUp() {
+        mWarmUpExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mWarmUpExecutor.shutdown();
+        mWarmUpExecutor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private PlayerInstancePool.Stats swipe(PlayerInstancePool<Integer, AliPlayer> pool) throws InterruptedException {
+        for (int i = 0; i < CAPACITY; i++) {
+            pool.acquire(i);
+        }
+        pool.warmUp();
+        waitForSpares(pool);
+        pool.getStats().reset();
+        for (int i = CAPACITY; i < CAPACITY + SWIPES; i++) {
+            // Swipe forward, like a user watching a bit of each video
+            pool.acquire(i);
+            pool.acquire(i - 1);
+            pool.acquire(i);
+        }
+        return pool.getStats();
+    }
+
+    private static void waitForSpares(PlayerInstancePool<Integer, AliPlayer> pool) throws InterruptedException {
+        long deadlineMs = System.currentTimeMillis() + 1000;
+        while (pool.spareSize() == 0 && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void destroyModeCreatesAPlayerOnEverySwipe() throws InterruptedException {
+        PlayerInstancePool<Integer, AliPlayer> pool = new PlayerInstancePool<>(CAPACITY, mFactory, mWarmUpExecutor);
+        pool.setRecycleStrategy(false, 1);
+        PlayerInstancePool.Stats stats = swipe(pool);
+        System.out.println("destroy: " + stats);
+
+        assertEquals(SWIPES, stats.getCreatedCount());
+        assertEquals(2 * SWIPES, stats.getHitCount());
+        assertEquals(0, pool.spareSize());
+        pool.clear();
+        assertEquals(0, mLive.get());
+    }
+
+    @Test
+    public void recycleModeKeepsPlayerCreationOffTheSwipePath() throws InterruptedException {
+        PlayerInstancePool<Integer, AliPlayer> pool = new PlayerInstancePool<>(CAPACITY, mFactory, mWarmUpExecutor);
+        pool.setRecycleStrategy(true, 1);
+        PlayerInstancePool.Stats stats = swipe(pool);
+        System.out.println("recycle: " + stats);
+
+        assertEquals(0, stats.getCreatedCount());
+        assertEquals(SWIPES, stats.getSpareCount() + stats.getRecycledCount());
+        assertEquals(2 * SWIPES, stats.getHitCount());
+        // A swipe only pays for a reset, far below a player creation
+        assertTrue(stats.getAcquireMaxNs() < TimeUnit.MILLISECONDS.toNanos(CREATE_COST_MS));
+        // Every player is still bound or spare, none was destroyed
+        assertEquals(0, mDestroyed.get());
+        assertEquals(CAPACITY + 1, mLive.get());
+        pool.clear();
+        assertEquals(0, mLive.get());
+    }
+}
@@ -0,0 +1,88 @@
+package com.alivc.player.playerkits.shortvideolist.controller.preload;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the policy with simulated network and swipe traces, no player involved.
+ */
+public class AdaptivePreloadPolicyTest {
+
+    private static final int BITRATE_BPS = 1500 * 1000;
+
+    /**
+     * Replay a trace: one net speed sample and one swipe per item.
+     */
+    private static void simulate(AdaptivePreloadPolicy policy, long startMs, int items, long dwellMs, float netSpeedKbps) {
+        long nowMs = startMs;
+        for (int i = 0; i < items; i++) {
+            policy.onNetSpeed(netSpeedKbps);
+            policy.onMove(nowMs);
+            nowMs += dwellMs;
+        }
+    }
+
+    @Test
+    public void defaultsAreKeptWithoutThroughputSamples() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.onMove(0);
+        policy.onMove(1000);
+        assertEquals(AdaptivePreloadPolicy.DEFAULT_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+        assertArrayEquals(new int[]{-1, 2}, policy.getWindowItems());
+    }
+
+    @Test
+    public void slowLinkGetsShallowWindowAndShortDuration() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.setBitrate(BITRATE_BPS);
+        simulate(policy, 0, 10, 1000, 1000f);
+        assertEquals(AdaptivePreloadPolicy.MIN_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+        assertArrayEquals(new int[]{2}, policy.getWindowItems());
+    }
+
+    @Test
+    public void fastLinkWithQuickSwipesGetsDeeperWindow() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.setBitrate(BITRATE_BPS);
+        simulate(policy, 0, 10, 2000, 20000f);
+        assertEquals(AdaptivePreloadPolicy.MAX_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+        assertArrayEquals(new int[]{-1, 2, 3, 4}, policy.getWindowItems());
+    }
+
+    @Test
+    public void meteredNetworkIsCapped() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.setBitrate(BITRATE_BPS);
+        policy.setMetered(true);
+        simulate(policy, 0, 10, 2000, 20000f);
+        assertEquals(AdaptivePreloadPolicy.METERED_MAX_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+        assertArrayEquals(new int[]{2}, policy.getWindowItems());
+    }
+
+    @Test
+    public void windowShrinksWhenThroughputDrops() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.setBitrate(BITRATE_BPS);
+        simulate(policy, 0, 10, 2000, 20000f);
+        int fastDepth = policy.getForwardDepth();
+        simulate(policy, 20000, 20, 2000, 1000f);
+        assertTrue(policy.getForwardDepth() < fastDepth);
+        assertEquals(AdaptivePreloadPolicy.MIN_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+    }
+
+    @Test
+    public void cachedPreloadTasksAreIgnored() {
+        AdaptivePreloadPolicy policy = new AdaptivePreloadPolicy();
+        policy.setBitrate(BITRATE_BPS);
+        // Served by the local cache: far too fast to say anything about the link
+        policy.onPreloadCompleted(3000, 10);
+        assertEquals(AdaptivePreloadPolicy.DEFAULT_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+        assertArrayEquals(new int[]{-1, 2}, policy.getWindowItems());
+        // 3s of 1.5Mbps media in 4s: 1125kbps, a slow link
+        policy.onPreloadCompleted(3000, 4000);
+        assertEquals(AdaptivePreloadPolicy.MIN_PRELOAD_DURATION_MS, policy.getPreloadDurationMs());
+    }
+}
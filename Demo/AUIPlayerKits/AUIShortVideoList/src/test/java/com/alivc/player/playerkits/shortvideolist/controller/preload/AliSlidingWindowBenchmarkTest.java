@@ -0,0 +1,133 @@
+package com.alivc.player.playerkits.shortvideolist.controller.preload;
+
+import android.util.Log;
+
+import com.alivc.player.playerkits.shortvideolist.utils.SLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Swipes a sliding window through a feed with INFO filtered out, as in release builds, and compares the
+ * level-gated log calls of {@link AliSlidingWindow} against the old path, which built the varargs array,
+ * the boxed positions and the method string of every log call before SLog dropped it.
+ */
+public class AliSlidingWindowBenchmarkTest {
+
+    private static final int FEED_SIZE = 1000;
+    private static final int MOVES = 200_000;
+    private static final int WARM_UP_MOVES = 20_000;
+    private static final String EXTRA = "bench";
+
+    private int mWrites;
+    private int mExecuted;
+    private int mCancelled;
+    private boolean mUngatedLogs;
+
+    private final SLog.Sink mSink = new SLog.Sink() {
+        @Override
+        public void write(int level, String tag, long timeMs, String threadName, String message, Throwable throwable) {
+            mWrites++;
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        SLog.setSink(mSink);
+        SLog.setMinLevel(Log.WARN);
+    }
+
+    @After
+    public void tearDown() {
+        SLog.setMinLevel(Log.VERBOSE);
+        SLog.setSink(null);
+    }
+
+    private AliSlidingWindow<Integer> newWindow() {
+        final Object[] owner = new Object[1];
+        AliSlidingWindow<Integer> window = new AliSlidingWindow<>(1, 2, new AliSlidingWindow.Callback<Integer>() {
+            @Override
+            public void execute(Integer item) {
+                mExecuted++;
+                if (mUngatedLogs) {
+                    SLog.i(owner[0], EXTRA + "-" + "EXECUTE", item);
+                }
+            }
+
+            @Override
+            public void cancel(Integer item) {
+                mCancelled++;
+                if (mUngatedLogs) {
+                    SLog.i(owner[0], EXTRA + "-" + "CANCEL", item);
+                }
+            }
+        }, EXTRA);
+        owner[0] = window;
+        List<Integer> items = new ArrayList<>(FEED_SIZE);
+        for (int i = 0; i < FEED_SIZE; i++) {
+            items.add(i);
+        }
+        window.setItems(items);
+        return window;
+    }
+
+    /**
+     * Swipe forward one item at a time, jumping back to the top at the end of the feed.
+     *
+     * @return elapsed time. Unit: ns
+     */
+    private long swipe(AliSlidingWindow<Integer> window, int moves) {
+        long start = System.nanoTime();
+        for (int i = 0; i < moves; i++) {
+            int position = i % FEED_SIZE;
+            if (mUngatedLogs) {
+                SLog.i(window, EXTRA + "-" + "API-MOVE", window.getCurrentPosition(), position);
+            }
+            window.moveTo(position);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void filteredMovesDoNotReachTheSink() {
+        AliSlidingWindow<Integer> window = newWindow();
+        swipe(window, FEED_SIZE);
+        // Only the last two items of [current - 1, current + 2] exist at the end of the feed
+        assertEquals(2, mExecuted - mCancelled);
+        assertEquals(0, mWrites);
+        window.release();
+        assertEquals(mExecuted, mCancelled);
+    }
+
+    @Test
+    public void benchmarkGatedAgainstUngatedLogs() {
+        AliSlidingWindow<Integer> gated = newWindow();
+        AliSlidingWindow<Integer> ungated = newWindow();
+
+        mUngatedLogs = false;
+        swipe(gated, WARM_UP_MOVES);
+        mUngatedLogs = true;
+        swipe(ungated, WARM_UP_MOVES);
+
+        mUngatedLogs = false;
+        long gatedNs = swipe(gated, MOVES);
+        mUngatedLogs = true;
+        long ungatedNs = swipe(ungated, MOVES);
+
+        assertEquals(0, mWrites);
+        System.out.println(String.format("sliding window %d moves with INFO filtered: ungated %d ms, gated %d ms",
+                MOVES, ungatedNs / 1_000_000, gatedNs / 1_000_000));
+        gated.release();
+        ungated.release();
+    }
+}
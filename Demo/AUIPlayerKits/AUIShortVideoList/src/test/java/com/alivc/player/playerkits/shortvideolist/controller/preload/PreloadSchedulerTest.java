@@ -0,0 +1,111 @@
+package com.alivc.player.playerkits.shortvideolist.controller.preload;
+
+import com.alivc.player.playerkits.shortvideolist.utils.SLog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+
+public class PreloadSchedulerTest {
+
+    private final List<String> mLoaded = new ArrayList<>();
+    private final List<String> mCancelled = new ArrayList<>();
+
+    private final PreloadScheduler.Loader<String> mLoader = new PreloadScheduler.Loader<String>() {
+        @Override
+        public String load(String item) {
+            mLoaded.add(item);
+            return "handle-" + item;
+        }
+
+        @Override
+        public void cancel(String handle) {
+            mCancelled.add(handle);
+        }
+    };
+
+    /**
+     * Runs tasks on the calling thread, or rejects them while rejecting is set
+     */
+    private static class RejectingExecutor implements Executor {
+        boolean rejecting = false;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) {
+                throw new RejectedExecutionException("saturated");
+            }
+            command.run();
+        }
+    }
+
+    private boolean mLogEnabled;
+
+    @Before
+    public void setUp() {
+        mLogEnabled = SLog.ENABLE_LOG;
+        SLog.ENABLE_LOG = false;
+    }
+
+    @After
+    public void tearDown() {
+        SLog.ENABLE_LOG = mLogEnabled;
+    }
+
+    @Test
+    public void tasksAreLoadedByDistanceFromTheCurrentPosition() {
+        RejectingExecutor executor = new RejectingExecutor();
+        executor.rejecting = true;
+        PreloadScheduler<String> scheduler = new PreloadScheduler<>(1, executor, mLoader);
+        scheduler.setPosition(5);
+        scheduler.submit("n-1", 4);
+        scheduler.submit("n+2", 7);
+        scheduler.submit("n+1", 6);
+        executor.rejecting = false;
+        scheduler.submit("n+3", 8);
+        assertEquals(Arrays.asList("n+1"), mLoaded);
+        scheduler.onTaskFinished("handle-n+1");
+        scheduler.onTaskFinished("handle-n+2");
+        scheduler.onTaskFinished("handle-n+3");
+        assertEquals(Arrays.asList("n+1", "n+2", "n+3", "n-1"), mLoaded);
+    }
+
+    @Test
+    public void rejectedTaskIsRequeuedAndDispatchedLater() {
+        RejectingExecutor executor = new RejectingExecutor();
+        executor.rejecting = true;
+        PreloadScheduler<String> scheduler = new PreloadScheduler<>(1, executor, mLoader);
+        scheduler.submit("a", 1);
+        assertEquals(0, mLoaded.size());
+
+        executor.rejecting = false;
+        scheduler.submit("b", 2);
+        // The slot given back by the rejected dispatch is used again, by the most important task
+        assertEquals(Arrays.asList("a"), mLoaded);
+        scheduler.onTaskFinished("handle-a");
+        assertEquals(Arrays.asList("a", "b"), mLoaded);
+    }
+
+    @Test
+    public void rejectedTaskCancelledMeanwhileIsDropped() {
+        RejectingExecutor executor = new RejectingExecutor();
+        executor.rejecting = true;
+        PreloadScheduler<String> scheduler = new PreloadScheduler<>(1, executor, mLoader);
+        scheduler.submit("a", 1);
+        scheduler.cancel("a");
+
+        executor.rejecting = false;
+        scheduler.submit("b", 2);
+        assertEquals(Arrays.asList("b"), mLoaded);
+        scheduler.release();
+        assertEquals(Arrays.asList("handle-b"), mCancelled);
+    }
+}
@@ -0,0 +1,461 @@
+package com.aliyun.auiplayerserver;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 鉴权凭证(STS、PlayAuth、MPS)缓存
+ * <p>
+ * 1.按scope缓存凭证及其过期时间,过期前一段时间内视为不可用,期间的请求会重新获取
+ * 2.同一scope的并发请求共用一次获取
+ * 3.有效期内被使用过或有刷新监听的凭证在过期前后台刷新,刷新结果通过OnRefreshListener通知
+ * 4.回调都在主线程
+ */
+/****
+ * Cache of credentials (STS, PlayAuth, MPS)
+ * <p>
+ * 1. Credentials are cached per scope with their expiry. Shortly before the expiry they are treated as unusable,
+ * and requests in that window fetch a new one
+ * 2. Concurrent requests of one scope share one fetch
+ * 3. Credentials that were used within their lifetime, or that have refresh listeners, are refreshed in the background before they
+ * expire. Refreshed credentials are delivered through OnRefreshListener
+ * 4. All callbacks are called on the main thread
+ */
+public class CredentialManager {
+
+    private static final String TAG = "CredentialManager";
+
+    /**
+     * 过期前多久视为不可用,不超过有效期的1/5
+     */
+    /****
+     * How long before the expiry a credential is treated as unusable, at most 1/5 of its lifetime. Unit: ms
+     */
+    public static final long REFRESH_AHEAD_MS = 5 * 60 * 1000L;
+
+    /**
+     * 响应中没有过期时间时的默认有效期:STS最短900秒,点播PlayAuth默认100秒
+     */
+    /****
+     * Default lifetimes when the response has no expiry: STS lasts 900s at least, VOD PlayAuth 100s by default. Unit: ms
+     */
+    public static final long DEFAULT_STS_TTL_MS = 900 * 1000L;
+    public static final long DEFAULT_PLAY_AUTH_TTL_MS = 100 * 1000L;
+
+    //过期时间异常(如客户端时钟偏差)时,后台刷新的最小间隔
+    //Min interval of background refreshes, for broken expiries (e.g. a skewed client clock)
+    private static final long MIN_REFRESH_INTERVAL_MS = 30 * 1000L;
+
+    //获取超时,fetcher未回调时按失败处理,避免同一scope的请求一直等待
+    //Fetch timeout, a fetcher that never calls back is treated as failed, so requests of the scope don't wait forever
+    static final long FETCH_TIMEOUT_MS = 15 * 1000L;
+    static final String ERROR_TIMEOUT = "fetch timeout";
+    static final String ERROR_INVALIDATED = "credential invalidated";
+
+    private static volatile CredentialManager sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    private final Map<String, List<OnRefreshListener>> mRefreshListeners = new HashMap<>();
+
+    private long mHitCount = 0;
+    private long mFetchCount = 0;
+    private long mSharedCount = 0;
+    private long mRefreshCount = 0;
+
+    private CredentialManager() {
+    }
+
+    public static CredentialManager getInstance() {
+        if (sInstance == null) {
+            synchronized (CredentialManager.class) {
+                if (sInstance == null) {
+                    sInstance = new CredentialManager();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 获取凭证:可用时直接回调缓存,否则调用fetcher获取,获取中时等待同一次结果
+     *
+     * @param scope    凭证范围,如接口地址加videoId
+     * @param fetcher  获取凭证,后台刷新时也会使用
+     * @param callback 结果回调
+     */
+    /****
+     * Get a credential: the cached one when usable, otherwise it is fetched with fetcher, or the fetch in flight is joined
+     *
+     * @param scope    scope of the credential, e.g. the endpoint and the videoId
+     * @param fetcher  fetches the credential, also used by the background refresh
+     * @param callback result callback
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void acquire(String scope, Fetcher<T> fetcher, final Callback<T> callback) {
+        final T cached;
+        int fetchId = 0;
+        synchronized (this) {
+            Entry entry = mEntries.get(scope);
+            if (entry == null) {
+                entry = new Entry(scope);
+                mEntries.put(scope, entry);
+            }
+            entry.fetcher = fetcher;
+            entry.used = true;
+            if (entry.isUsable(System.currentTimeMillis())) {
+                mHitCount++;
+                cached = (T) entry.value;
+            } else {
+                cached = null;
+                if (entry.waiting == null) {
+                    entry.waiting = new ArrayList<>();
+                    fetchId = ++entry.fetchId;
+                    mFetchCount++;
+                } else {
+                    mSharedCount++;
+                }
+                entry.waiting.add((Callback<Object>) callback);
+            }
+        }
+        if (cached != null) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onSuccess(cached);
+                }
+            });
+        } else if (fetchId != 0) {
+            fetch(scope, fetchId, fetcher);
+        }
+    }
+
+    /**
+     * 同步读取可用的缓存凭证,没有时返回null
+     */
+    /****
+     * Read a usable cached credential synchronously, null when there is none
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T peek(String scope) {
+        Entry entry = mEntries.get(scope);
+        if (entry == null || !entry.isUsable(System.currentTimeMillis())) {
+            return null;
+        }
+        entry.used = true;
+        return (T) entry.value;
+    }
+
+    /**
+     * 凭证被服务端拒绝(如提前失效)时调用,下次请求重新获取
+     */
+    /****
+     * Call when a credential was rejected by the server (e.g. revoked early), the next request fetches a new one
+     */
+    public synchronized void invalidate(String scope) {
+        Entry entry = mEntries.get(scope);
+        if (entry != null) {
+            clearValue(entry);
+            failWaiting(entry, ERROR_INVALIDATED);
+        }
+    }
+
+    /**
+     * 使所有以scopePrefix开头的凭证失效
+     */
+    /****
+     * Invalidate all credentials whose scope starts with scopePrefix
+     */
+    public synchronized void invalidatePrefix(String scopePrefix) {
+        for (Entry entry : mEntries.values()) {
+            if (entry.scope.startsWith(scopePrefix)) {
+                clearValue(entry);
+                failWaiting(entry, ERROR_INVALIDATED);
+            }
+        }
+    }
+
+    /**
+     * 监听scope的后台刷新,有监听的凭证一直在过期前刷新
+     */
+    /****
+     * Listen to the background refresh of scope. A credential with listeners keeps being refreshed before it expires
+     */
+    public synchronized void addOnRefreshListener(String scope, OnRefreshListener listener) {
+        List<OnRefreshListener> listeners = mRefreshListeners.get(scope);
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
+            mRefreshListeners.put(scope, listeners);
+        }
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public synchronized void removeOnRefreshListener(String scope, OnRefreshListener listener) {
+        List<OnRefreshListener> listeners = mRefreshListeners.get(scope);
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                mRefreshListeners.remove(scope);
+            }
+        }
+    }
+
+    public synchronized String getStats() {
+        return String.format(Locale.US, "hit=%d fetch=%d shared=%d refresh=%d scopes=%d",
+                mHitCount, mFetchCount, mSharedCount, mRefreshCount, mEntries.size());
+    }
+
+    /**
+     * 解析ISO8601格式(UTC)的过期时间,失败时返回当前时间加fallbackTtlMs
+     */
+    /****
+     * Parse an ISO8601 expiry (UTC), now plus fallbackTtlMs on failure. Unit: ms
+     */
+    public static long parseExpiration(String expiration, long fallbackTtlMs) {
+        if (!TextUtils.isEmpty(expiration)) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                Date date = format.parse(expiration);
+                if (date != null) {
+                    return date.getTime();
+                }
+            } catch (ParseException e) {
+                Log.w(TAG, "parseExpiration: " + expiration);
+            }
+        }
+        return System.currentTimeMillis() + fallbackTtlMs;
+    }
+
+    private <T> void fetch(final String scope, final int fetchId, Fetcher<T> fetcher) {
+        final Runnable timeoutTask = new Runnable() {
+            @Override
+            public void run() {
+                Log.w(TAG, "fetch timeout: " + scope);
+                onFetched(scope, fetchId, null, 0, ERROR_TIMEOUT);
+            }
+        };
+        mHandler.postDelayed(timeoutTask, FETCH_TIMEOUT_MS);
+        try {
+            fetcher.fetch(new FetchCallback<T>() {
+                @Override
+                public void onSuccess(T value, long expireAtMs) {
+                    mHandler.removeCallbacks(timeoutTask);
+                    onFetched(scope, fetchId, value, expireAtMs, null);
+                }
+
+                @Override
+                public void onError(String msg) {
+                    mHandler.removeCallbacks(timeoutTask);
+                    onFetched(scope, fetchId, null, 0, msg == null ? "" : msg);
+                }
+            });
+        } catch (RuntimeException e) {
+            mHandler.removeCallbacks(timeoutTask);
+            onFetched(scope, fetchId, null, 0, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /**
+     * fetchId不是当前获取(已超时或已失效)的结果被丢弃
+     */
+    /****
+     * Results whose fetchId is not the current fetch (timed out or invalidated) are dropped
+     */
+    private void onFetched(String scope, int fetchId, Object value, long expireAtMs, final String errorMsg) {
+        final List<Callback<Object>> waiting;
+        final List<OnRefreshListener> listeners;
+        synchronized (this) {
+            Entry entry = mEntries.get(scope);
+            if (entry == null || entry.fetchId != fetchId || entry.waiting == null) {
+                return;
+            }
+            waiting = entry.waiting;
+            entry.waiting = null;
+            listeners = errorMsg == null && entry.value != null ? mRefreshListeners.get(scope) : null;
+            if (errorMsg == null) {
+                entry.value = value;
+                entry.fetchedAtMs = System.currentTimeMillis();
+                entry.expireAtMs = expireAtMs;
+                entry.used = false;
+                scheduleRefresh(entry);
+            }
+        }
+        final Object result = value;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (waiting != null) {
+                    for (Callback<Object> callback : waiting) {
+                        if (errorMsg == null) {
+                            callback.onSuccess(result);
+                        } else {
+                            callback.onError(errorMsg);
+                        }
+                    }
+                }
+                if (listeners != null) {
+                    for (OnRefreshListener listener : listeners) {
+                        listener.onRefreshed(scope, result);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 结束进行中的获取并回调失败,之后到达的获取结果被丢弃
+     */
+    /****
+     * End the fetch in flight with an error, its result is dropped when it arrives later
+     */
+    private void failWaiting(Entry entry, final String errorMsg) {
+        final List<Callback<Object>> waiting = entry.waiting;
+        if (waiting == null) {
+            return;
+        }
+        entry.waiting = null;
+        entry.fetchId++;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Callback<Object> callback : waiting) {
+                    callback.onError(errorMsg);
+                }
+            }
+        });
+    }
+
+    private void clearValue(Entry entry) {
+        if (entry.refreshTask != null) {
+            mHandler.removeCallbacks(entry.refreshTask);
+            entry.refreshTask = null;
+        }
+        entry.value = null;
+        entry.fetchedAtMs = 0;
+        entry.expireAtMs = 0;
+    }
+
+    /**
+     * 在凭证不可用前再提前一个刷新窗口刷新,刷新时凭证仍然可用
+     */
+    /****
+     * Refresh one more refresh window before the credential becomes unusable, so it stays usable while refreshing
+     */
+    private void scheduleRefresh(final Entry entry) {
+        if (entry.refreshTask != null) {
+            mHandler.removeCallbacks(entry.refreshTask);
+        }
+        long delay = entry.expireAtMs - 2 * entry.getRefreshAheadMs() - System.currentTimeMillis();
+        entry.refreshTask = new Runnable() {
+            @Override
+            public void run() {
+                refresh(entry);
+            }
+        };
+        mHandler.postDelayed(entry.refreshTask, Math.max(MIN_REFRESH_INTERVAL_MS, delay));
+    }
+
+    private void refresh(Entry entry) {
+        Fetcher<?> fetcher;
+        int fetchId;
+        synchronized (this) {
+            entry.refreshTask = null;
+            if (mEntries.get(entry.scope) != entry || entry.waiting != null) {
+                return;
+            }
+            //有效期内没人用过也没人监听的凭证不再刷新,下次使用时再获取
+            //A credential nobody used or listens to is not refreshed, it is fetched again on next use
+            if (!entry.used && !mRefreshListeners.containsKey(entry.scope)) {
+                mEntries.remove(entry.scope);
+                return;
+            }
+            entry.waiting = new ArrayList<>();
+            fetchId = ++entry.fetchId;
+            fetcher = entry.fetcher;
+            mRefreshCount++;
+        }
+        fetch(entry.scope, fetchId, fetcher);
+    }
+
+    private static class Entry {
+        final String scope;
+        Object value;
+        long fetchedAtMs;
+        long expireAtMs;
+        boolean used;
+        Fetcher<?> fetcher;
+        List<Callback<Object>> waiting;
+        //当前获取的序号,用于丢弃超时或失效后到达的结果
+        //Sequence of the current fetch, to drop results arriving after a timeout or an invalidation
+        int fetchId;
+        Runnable refreshTask;
+
+        Entry(String scope) {
+            this.scope = scope;
+        }
+
+        long getRefreshAheadMs() {
+            return Math.min(REFRESH_AHEAD_MS, Math.max(0, expireAtMs - fetchedAtMs) / 5);
+        }
+
+        boolean isUsable(long now) {
+            return value != null && now < expireAtMs - getRefreshAheadMs();
+        }
+
+    }
+
+    /**
+     * 获取凭证,完成时必须回调FetchCallback的一个方法,超过FETCH_TIMEOUT_MS未回调按失败处理
+     */
+    /****
+     * Fetches a credential, must call one of the FetchCallback methods when done. Without a callback within
+     * FETCH_TIMEOUT_MS the fetch is treated as failed
+     */
+    public interface Fetcher<T> {
+        void fetch(FetchCallback<T> callback);
+    }
+
+    public interface FetchCallback<T> {
+        /**
+         * @param expireAtMs 过期时间,System.currentTimeMillis()时间基准
+         */
+        /****
+         * @param expireAtMs expiry time, based on System.currentTimeMillis()
+         */
+        void onSuccess(T value, long expireAtMs);
+
+        void onError(String msg);
+    }
+
+    public interface Callback<T> {
+        void onSuccess(T value);
+
+        void onError(String msg);
+    }
+
+    /**
+     * 凭证在后台刷新后回调
+     */
+    /****
+     * Called after a credential was refreshed in the background
+     */
+    public interface OnRefreshListener {
+        void onRefreshed(String scope, Object value);
+    }
+}
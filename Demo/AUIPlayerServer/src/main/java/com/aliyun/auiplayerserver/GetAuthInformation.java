@@ -13,13 +13,20 @@ import java.util.HashMap;
 import okhttp3.Request;
 
 /**
- * 获取鉴权信息
+ * 获取鉴权信息,STS、PlayAuth和MPS经CredentialManager缓存,同一凭证的并发请求只发起一次
  */
 /****
- * Obtain authentication information
+ * Obtain authentication information. STS, PlayAuth and MPS are cached by CredentialManager, concurrent requests of
+ * one credential are sent once
  */
 public class GetAuthInformation {
 
+    private static final String SCOPE_STS = "sts:";
+    private static final String SCOPE_PLAY_AUTH = "playAuth:";
+    private static final String SCOPE_MPS = "mps:";
+
+    private static final Gson sGson = new Gson();
+
     /**
      * 临时获取sts信息的接口，后期删除
      * @param listener  获取STS信息监听
@@ -29,49 +36,11 @@ public class GetAuthInformation {
      * @param listener listener for sts information
      */
     public void getVideoPlayLiveStsInfo(final OnGetStsInfoListener listener){
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_LIVE_PLAY_STS, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetStsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunSts aliyunSts = gson.fromJson(result, AliyunSts.class);
-                if(aliyunSts != null && aliyunSts.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunSts.StsBean data = aliyunSts.getData();
-                    if(listener != null){
-                        listener.onGetStsSuccess(data);
-                    }
-                }
-            }
-        });
+        getStsInfo(ServiceCommon.GET_LIVE_PLAY_STS, null, listener);
     }
 
     public void getVideoPlayStsDemoInfo(final OnGetStsInfoListener listener){
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_DEMO_STS, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetStsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunSts aliyunSts = gson.fromJson(result, AliyunSts.class);
-                if(aliyunSts != null && aliyunSts.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunSts.StsBean data = aliyunSts.getData();
-                    if(listener != null){
-                        listener.onGetStsSuccess(data);
-                    }
-                }
-            }
-        });
+        getStsInfo(ServiceCommon.GET_VIDEO_PLAY_DEMO_STS, null, listener);
     }
 
     /**
@@ -83,26 +52,7 @@ public class GetAuthInformation {
      * @param listener listener for sts information
      */
     public void getVideoPlayStsInfo(final OnGetStsInfoListener listener){
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_STS, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetStsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunSts aliyunSts = gson.fromJson(result, AliyunSts.class);
-                if(aliyunSts != null && aliyunSts.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunSts.StsBean data = aliyunSts.getData();
-                    if(listener != null){
-                        listener.onGetStsSuccess(data);
-                    }
-                }
-            }
-        });
+        getStsInfo(ServiceCommon.GET_VIDEO_PLAY_STS, null, listener);
     }
 
     /**
@@ -118,26 +68,7 @@ public class GetAuthInformation {
     public void getVideoPlayStsInfoWithVideoId(String videoId, final OnGetStsInfoListener listener){
         HashMap<String,String> mHashMap = new HashMap<>();
         mHashMap.put("videoId",videoId);
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_STS,mHashMap, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetStsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunSts aliyunSts = gson.fromJson(result, AliyunSts.class);
-                if(aliyunSts != null && aliyunSts.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunSts.StsBean data = aliyunSts.getData();
-                    if(listener != null){
-                        listener.onGetStsSuccess(data);
-                    }
-                }
-            }
-        });
+        getStsInfo(ServiceCommon.GET_VIDEO_PLAY_STS, mHashMap, listener);
     }
 
     /**
@@ -206,26 +137,7 @@ public class GetAuthInformation {
      * @param listener listener for MPS information
      */
     public void getVideoPlayMpsInfo(final OnGetMpsInfoListener listener){
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_MPS, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetMpsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunMps aliyunMps = gson.fromJson(result, AliyunMps.class);
-                if(aliyunMps != null && aliyunMps.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunMps.MpsBean mpsBean = aliyunMps.getData();
-                    if(listener != null){
-                        listener.onGetMpsSuccess(mpsBean);
-                    }
-                }
-            }
-        });
+        getMpsInfo(ServiceCommon.GET_VIDEO_PLAY_MPS, null, listener);
     }
 
     /**
@@ -241,26 +153,7 @@ public class GetAuthInformation {
     public void getVideoPlayMpsInfoWithVideoId(String videoId, final OnGetMpsInfoListener listener){
         HashMap<String,String> mHashMap = new HashMap<>();
         mHashMap.put("videoId",videoId);
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_MPS,mHashMap, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetMpsError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunMps aliyunMps = gson.fromJson(result, AliyunMps.class);
-                if(aliyunMps != null && aliyunMps.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunMps.MpsBean mpsBean = aliyunMps.getData();
-                    if(listener != null){
-                        listener.onGetMpsSuccess(mpsBean);
-                    }
-                }
-            }
-        });
+        getMpsInfo(ServiceCommon.GET_VIDEO_PLAY_MPS, mHashMap, listener);
     }
 
     /**
@@ -285,26 +178,7 @@ public class GetAuthInformation {
      * @param listener listener for PlayAuth information
      */
     public void getVideoPlayAuthInfo(final OnGetPlayAuthInfoListener listener){
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_AUTH, new AlivcOkHttpClient.HttpCallBack() {
-            @Override
-            public void onError(Request request, IOException e) {
-                if(listener != null){
-                    listener.onGetPlayAuthError(e.getMessage());
-                }
-            }
-
-            @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunPlayAuth aliyunPlayAuth = gson.fromJson(result, AliyunPlayAuth.class);
-                if(aliyunPlayAuth != null && aliyunPlayAuth.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunPlayAuth.PlayAuthBean data = aliyunPlayAuth.getData();
-                    if(listener != null){
-                        listener.onGetPlayAuthSuccess(data);
-                    }
-                }
-            }
-        });
+        getPlayAuthInfo(ServiceCommon.GET_VIDEO_PLAY_AUTH, null, listener);
     }
 
     /**
@@ -320,38 +194,164 @@ public class GetAuthInformation {
     public void getVideoPlayAuthInfoWithVideoId(String videoId, final OnGetPlayAuthInfoListener listener){
         HashMap<String,String> mHashMap = new HashMap<>();
         mHashMap.put("videoId",videoId);
-        AlivcOkHttpClient.getInstance().get(ServiceCommon.GET_VIDEO_PLAY_AUTH,mHashMap, new AlivcOkHttpClient.HttpCallBack() {
+        getPlayAuthInfo(ServiceCommon.GET_VIDEO_PLAY_AUTH, mHashMap, listener);
+    }
+
+    /**
+     * 获取PlayAuth监听
+     */
+    /****
+     * Get PlayAuth listener
+     */
+    public interface OnGetPlayAuthInfoListener{
+
+        void onGetPlayAuthError(String msg);
+
+        void onGetPlayAuthSuccess(AliyunPlayAuth.PlayAuthBean dataBean);
+    }
+
+    /**
+     * 使缓存的STS失效,凭证被服务端拒绝时调用,下次请求重新获取
+     */
+    /****
+     * Invalidate the cached STS, call it when a credential was rejected by the server, the next request fetches a new one
+     */
+    public static void invalidateStsInfo() {
+        CredentialManager.getInstance().invalidatePrefix(SCOPE_STS);
+    }
+
+    /**
+     * 使缓存的PlayAuth失效
+     */
+    /****
+     * Invalidate the cached PlayAuth
+     */
+    public static void invalidatePlayAuthInfo() {
+        CredentialManager.getInstance().invalidatePrefix(SCOPE_PLAY_AUTH);
+    }
+
+    private static String scopeOf(String type, String url, HashMap<String, String> params) {
+        return type + AlivcOkHttpClient.getInstance().urlWithParam(url, params);
+    }
+
+    private void getStsInfo(final String url, final HashMap<String, String> params, final OnGetStsInfoListener listener) {
+        CredentialManager.getInstance().acquire(scopeOf(SCOPE_STS, url, params), new CredentialManager.Fetcher<AliyunSts.StsBean>() {
             @Override
-            public void onError(Request request, IOException e) {
+            public void fetch(final CredentialManager.FetchCallback<AliyunSts.StsBean> callback) {
+                AlivcOkHttpClient.getInstance().get(url, params, new AlivcOkHttpClient.HttpCallBack() {
+                    @Override
+                    public void onError(Request request, IOException e) {
+                        callback.onError(e.getMessage());
+                    }
+
+                    @Override
+                    public void onSuccess(Request request, String result) {
+                        AliyunSts aliyunSts = sGson.fromJson(result, AliyunSts.class);
+                        if(aliyunSts != null && aliyunSts.getCode() == ServiceCommon.RESPONSE_SUCCESS && aliyunSts.getData() != null){
+                            AliyunSts.StsBean data = aliyunSts.getData();
+                            callback.onSuccess(data, CredentialManager.parseExpiration(data.getExpiration(), CredentialManager.DEFAULT_STS_TTL_MS));
+                        } else {
+                            callback.onError(aliyunSts == null ? result : aliyunSts.getMessage());
+                        }
+                    }
+                });
+            }
+        }, new CredentialManager.Callback<AliyunSts.StsBean>() {
+            @Override
+            public void onSuccess(AliyunSts.StsBean value) {
                 if(listener != null){
-                    listener.onGetPlayAuthError(e.getMessage());
+                    listener.onGetStsSuccess(value);
                 }
             }
 
             @Override
-            public void onSuccess(Request request, String result) {
-                Gson gson = new Gson();
-                AliyunPlayAuth aliyunPlayAuth = gson.fromJson(result, AliyunPlayAuth.class);
-                if(aliyunPlayAuth != null && aliyunPlayAuth.getCode() == ServiceCommon.RESPONSE_SUCCESS){
-                    AliyunPlayAuth.PlayAuthBean data = aliyunPlayAuth.getData();
-                    if(listener != null){
-                        listener.onGetPlayAuthSuccess(data);
+            public void onError(String msg) {
+                if(listener != null){
+                    listener.onGetStsError(msg);
+                }
+            }
+        });
+    }
+
+    private void getMpsInfo(final String url, final HashMap<String, String> params, final OnGetMpsInfoListener listener) {
+        CredentialManager.getInstance().acquire(scopeOf(SCOPE_MPS, url, params), new CredentialManager.Fetcher<AliyunMps.MpsBean>() {
+            @Override
+            public void fetch(final CredentialManager.FetchCallback<AliyunMps.MpsBean> callback) {
+                AlivcOkHttpClient.getInstance().get(url, params, new AlivcOkHttpClient.HttpCallBack() {
+                    @Override
+                    public void onError(Request request, IOException e) {
+                        callback.onError(e.getMessage());
+                    }
+
+                    @Override
+                    public void onSuccess(Request request, String result) {
+                        AliyunMps aliyunMps = sGson.fromJson(result, AliyunMps.class);
+                        if(aliyunMps != null && aliyunMps.getCode() == ServiceCommon.RESPONSE_SUCCESS && aliyunMps.getData() != null){
+                            AliyunMps.MpsBean mpsBean = aliyunMps.getData();
+                            //MPS的AK信息就是STS
+                            //The AK info of MPS is an STS
+                            String expiration = mpsBean.getAkInfo() == null ? null : mpsBean.getAkInfo().getExpiration();
+                            callback.onSuccess(mpsBean, CredentialManager.parseExpiration(expiration, CredentialManager.DEFAULT_STS_TTL_MS));
+                        } else {
+                            callback.onError(aliyunMps == null ? result : aliyunMps.getMessage());
+                        }
                     }
+                });
+            }
+        }, new CredentialManager.Callback<AliyunMps.MpsBean>() {
+            @Override
+            public void onSuccess(AliyunMps.MpsBean value) {
+                if(listener != null){
+                    listener.onGetMpsSuccess(value);
+                }
+            }
+
+            @Override
+            public void onError(String msg) {
+                if(listener != null){
+                    listener.onGetMpsError(msg);
                 }
             }
         });
     }
 
-    /**
-     * 获取PlayAuth监听
-     */
-    /****
-     * Get PlayAuth listener
-     */
-    public interface OnGetPlayAuthInfoListener{
+    private void getPlayAuthInfo(final String url, final HashMap<String, String> params, final OnGetPlayAuthInfoListener listener) {
+        CredentialManager.getInstance().acquire(scopeOf(SCOPE_PLAY_AUTH, url, params), new CredentialManager.Fetcher<AliyunPlayAuth.PlayAuthBean>() {
+            @Override
+            public void fetch(final CredentialManager.FetchCallback<AliyunPlayAuth.PlayAuthBean> callback) {
+                AlivcOkHttpClient.getInstance().get(url, params, new AlivcOkHttpClient.HttpCallBack() {
+                    @Override
+                    public void onError(Request request, IOException e) {
+                        callback.onError(e.getMessage());
+                    }
 
-        void onGetPlayAuthError(String msg);
+                    @Override
+                    public void onSuccess(Request request, String result) {
+                        AliyunPlayAuth aliyunPlayAuth = sGson.fromJson(result, AliyunPlayAuth.class);
+                        if(aliyunPlayAuth != null && aliyunPlayAuth.getCode() == ServiceCommon.RESPONSE_SUCCESS && aliyunPlayAuth.getData() != null){
+                            //PlayAuth响应中没有过期时间,按点播默认有效期缓存
+                            //A PlayAuth response has no expiry, it is cached for the VOD default lifetime
+                            callback.onSuccess(aliyunPlayAuth.getData(), System.currentTimeMillis() + CredentialManager.DEFAULT_PLAY_AUTH_TTL_MS);
+                        } else {
+                            callback.onError(aliyunPlayAuth == null ? result : aliyunPlayAuth.getMessage());
+                        }
+                    }
+                });
+            }
+        }, new CredentialManager.Callback<AliyunPlayAuth.PlayAuthBean>() {
+            @Override
+            public void onSuccess(AliyunPlayAuth.PlayAuthBean value) {
+                if(listener != null){
+                    listener.onGetPlayAuthSuccess(value);
+                }
+            }
 
-        void onGetPlayAuthSuccess(AliyunPlayAuth.PlayAuthBean dataBean);
+            @Override
+            public void onError(String msg) {
+                if(listener != null){
+                    listener.onGetPlayAuthError(msg);
+                }
+            }
+        });
     }
 }
@@ -2,418 +2,69 @@ package com.aliyun.auiplayerserver;
 
 import android.util.Log;
 
+import com.aliyun.auiplayerserver.okhttp.AlivcHttpStack;
+
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLConnection;
-
-import javax.net.ssl.HttpsURLConnection;
 
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 同步请求工具,请求走共享的AlivcHttpStack,需在子线程调用
+ */
+/****
+ * Synchronous request util, requests go through the shared AlivcHttpStack. Must be called on a sub thread
+ */
 public class HttpClientUtil {
-    private static final int CONNECTION_TIMEOUT = 10000;
+
+    //与HttpURLConnection的默认POST类型一致
+    //Same as the default POST type of HttpURLConnection
+    private static final MediaType FORM_TYPE = MediaType.parse("application/x-www-form-urlencoded");
 
     public static String doGet(String serverUrl) {
-        if (serverUrl.startsWith("https://")) {
-            return doHttpsGet(serverUrl);
-        } else if (serverUrl.startsWith("http://")) {
-            return doHttpGet(serverUrl);
-        } else {
+        if (!isHttpUrl(serverUrl)) {
             return null;
         }
+        return execute(new Request.Builder().url(serverUrl).build());
     }
 
     public static String doPost(String serverUrl , String data){
-        if (serverUrl.startsWith("https://")) {
-            return doHttpsPost(serverUrl , data);
-        } else if (serverUrl.startsWith("http://")) {
-            return doHttpPost(serverUrl , data);
-        } else {
+        if (!isHttpUrl(serverUrl)) {
             return null;
         }
+        RequestBody body = RequestBody.create(data.getBytes(), FORM_TYPE);
+        return execute(new Request.Builder().url(serverUrl).post(body).build());
     }
 
-
-    private static String doHttpGet(String serverURL) {
-        HttpURLConnection connection = null;
-        InputStream in = null;
-        InputStreamReader inputStreamReader = null;
-        BufferedReader bufr = null;
-        try {
-            URL url = new URL(serverURL);
-            URLConnection urlConnection = url.openConnection();
-            if (!(urlConnection instanceof HttpURLConnection)) {
-                return null;
-            }
-
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(CONNECTION_TIMEOUT);
-            connection.connect();
-
-
-            StringBuilder response = null;
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                in = connection.getInputStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-
-                return response.toString();
-            } else {
-                in = connection.getErrorStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("StatusCode", responseCode);
-                jsonObject.put("ResponseStr", response.toString());
-
-                return jsonObject.toString();
-
-            }
-        } catch (Exception e) {
-            Log.d("HttpClientUtil", e.getMessage());
-        } finally {
-
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (inputStreamReader != null) {
-                try {
-                    inputStreamReader.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (bufr != null) {
-                try {
-                    bufr.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-        return null;
+    private static boolean isHttpUrl(String serverUrl) {
+        return serverUrl.startsWith("https://") || serverUrl.startsWith("http://");
     }
 
-    private static String doHttpsGet(String serverURL) {
-        HttpsURLConnection connection = null;
-        InputStream in = null;
-        InputStreamReader inputStreamReader = null;
-        BufferedReader bufr = null;
-        try {
-            URL url = new URL(serverURL);
-            URLConnection urlConnection = url.openConnection();
-            if (!(urlConnection instanceof HttpsURLConnection)) {
-                return null;
-            }
-
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(CONNECTION_TIMEOUT);
-            connection.connect();
-
-
-            StringBuilder response = null;
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpsURLConnection.HTTP_OK) {
-                in = connection.getInputStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-
-                return response.toString();
-            } else {
-                in = connection.getErrorStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("StatusCode", responseCode);
-                jsonObject.put("ResponseStr", response.toString());
-
-                return jsonObject.toString();
-
-            }
+    /**
+     * 成功时返回响应体,否则返回包含状态码和响应体的JSON
+     */
+    /****
+     * Returns the body on success, otherwise a JSON with the status code and the body
+     */
+    private static String execute(Request request) {
+        try (Response response = AlivcHttpStack.getInstance().execute(request)) {
+            ResponseBody responseBody = response.body();
+            String body = responseBody == null ? "" : responseBody.string();
+            if (response.code() == HttpURLConnection.HTTP_OK) {
+                return body;
+            }
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("StatusCode", response.code());
+            jsonObject.put("ResponseStr", body);
+            return jsonObject.toString();
         } catch (Exception e) {
-            Log.d("HttpClientUtil", e.getMessage());
-        } finally {
-
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (inputStreamReader != null) {
-                try {
-                    inputStreamReader.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (bufr != null) {
-                try {
-                    bufr.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (connection != null) {
-                connection.disconnect();
-            }
+            Log.d("HttpClientUtil", String.valueOf(e.getMessage()));
         }
         return null;
     }
-
-
-
-    private static String doHttpPost(String serverURL, String data) {
-        HttpURLConnection connection = null;
-        InputStream in = null;
-        InputStreamReader inputStreamReader = null;
-        BufferedReader bufr = null;
-        try {
-            URL url = new URL(serverURL);
-            URLConnection urlConnection = url.openConnection();
-            if (!(urlConnection instanceof HttpURLConnection)) {
-                return null;
-            }
-
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(CONNECTION_TIMEOUT);
-
-            //设置输入流和输出流,都设置为true
-            //Set the input and output streams to true.
-            connection.setDoOutput(true);
-            connection.setDoInput(true);
-
-            //把提交的数据以输出流的形式提交到服务器
-            //Submit the submitted data to the server as an output stream
-            OutputStream os = connection.getOutputStream();
-            os.write(data.getBytes());
-
-            connection.connect();
-
-
-            StringBuilder response = null;
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpsURLConnection.HTTP_OK) {
-                in = connection.getInputStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-
-                return response.toString();
-            } else {
-                in = connection.getErrorStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("StatusCode", responseCode);
-                jsonObject.put("ResponseStr", response.toString());
-
-                return jsonObject.toString();
-
-            }
-        } catch (Exception e) {
-            Log.d("HttpClientUtil", e.getMessage());
-        } finally {
-
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (inputStreamReader != null) {
-                try {
-                    inputStreamReader.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (bufr != null) {
-                try {
-                    bufr.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-        return null;
-    }
-
-
-    private static String doHttpsPost(String serverURL, String data) {
-        HttpsURLConnection connection = null;
-        InputStream in = null;
-        InputStreamReader inputStreamReader = null;
-        BufferedReader bufr = null;
-        try {
-            URL url = new URL(serverURL);
-            URLConnection urlConnection = url.openConnection();
-            if (!(urlConnection instanceof HttpsURLConnection)) {
-                return null;
-            }
-
-            connection = (HttpsURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(CONNECTION_TIMEOUT);
-
-            //设置输入流和输出流,都设置为true
-            //Set the input and output streams to true.
-            connection.setDoOutput(true);
-            connection.setDoInput(true);
-
-            //把提交的数据以输出流的形式提交到服务器
-            //Submit the submitted data to the server as an output stream
-            OutputStream os = connection.getOutputStream();
-            os.write(data.getBytes());
-
-            connection.connect();
-
-
-            StringBuilder response = null;
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == HttpsURLConnection.HTTP_OK) {
-                in = connection.getInputStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-
-                return response.toString();
-            } else {
-                in = connection.getErrorStream();
-                //下面对获取到的输入流进行读取
-                //The input stream obtained is read below
-                inputStreamReader = new InputStreamReader(in);
-                bufr = new BufferedReader(inputStreamReader);
-                response = new StringBuilder();
-                String line = null;
-                while ((line = bufr.readLine()) != null) {
-                    response.append(line);
-                }
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("StatusCode", responseCode);
-                jsonObject.put("ResponseStr", response.toString());
-
-                return jsonObject.toString();
-
-            }
-        } catch (Exception e) {
-            Log.d("HttpClientUtil", e.getMessage());
-        } finally {
-
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (inputStreamReader != null) {
-                try {
-                    inputStreamReader.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (bufr != null) {
-                try {
-                    bufr.close();
-                } catch (IOException e) {
-
-                }
-            }
-
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-        return null;
-    }
-
 }
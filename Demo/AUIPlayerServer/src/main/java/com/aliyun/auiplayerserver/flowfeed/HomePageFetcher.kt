@@ -1,33 +1,73 @@
 package com.aliyun.auiplayerserver.flowfeed
 
-import com.aliyun.auiplayerserver.bean.AliyunVideoInfoList
+import com.aliyun.auiplayerserver.CredentialManager
 import com.aliyun.auiplayerserver.bean.VideoInfo
+import com.aliyun.auiplayerserver.flowfeed.http.VideoListJsonParser
 import com.aliyun.auiplayerserver.okhttp.AlivcOkHttpClient
-import com.google.gson.Gson
+import com.google.gson.JsonParseException
 import okhttp3.Request
+import org.json.JSONException
 import org.json.JSONObject
 import java.io.IOException
 
 class HomePageFetcher{
 
+    companion object {
+        /**
+         * 列表播放STS在CredentialManager中的scope
+         */
+        /****
+         * Scope of the list playback STS in CredentialManager
+         */
+        const val STS_SCOPE = "sts:feed"
+
+        private fun parseStsExpiration(result: String): Long {
+            val expiration = try {
+                JSONObject(result).optString("expiration")
+            } catch (e: JSONException) {
+                null
+            }
+            return CredentialManager.parseExpiration(expiration, CredentialManager.DEFAULT_STS_TTL_MS)
+        }
+    }
+
     private val STS_SERVER_URL = "https://vpdemo-proxy.aliyuncs.com/api/getSts"
     private val GET_VIDEO_LIST_URL = "https://vpdemo-proxy.aliyuncs.com/api/vod/getVodRecommendVideoList"
 
+    /**
+     * 获取列表播放的STS,经CredentialManager缓存并在过期前后台刷新,刷新结果通过STS_SCOPE的OnRefreshListener通知
+     */
+    /****
+     * Get the STS of list playback. It is cached by CredentialManager and refreshed in the background before it
+     * expires, refreshed ones are delivered to the OnRefreshListener of STS_SCOPE
+     */
     fun requestVideoStsInfo(callback: VideoStsInfoCallback) {
-        AlivcOkHttpClient.getInstance().get2(STS_SERVER_URL, object :
-            AlivcOkHttpClient.HttpCallBack {
-            override fun onError(
-                request: Request,
-                e: IOException
-            ) {
-                callback.onError(e.message)
+        CredentialManager.getInstance().acquire(STS_SCOPE, object : CredentialManager.Fetcher<String> {
+            override fun fetch(fetchCallback: CredentialManager.FetchCallback<String>) {
+                AlivcOkHttpClient.getInstance().get2(STS_SERVER_URL, object :
+                    AlivcOkHttpClient.HttpCallBack {
+                    override fun onError(
+                        request: Request,
+                        e: IOException
+                    ) {
+                        fetchCallback.onError(e.message)
+                    }
+
+                    override fun onSuccess(
+                        request: Request,
+                        result: String
+                    ) {
+                        fetchCallback.onSuccess(result, parseStsExpiration(result))
+                    }
+                })
+            }
+        }, object : CredentialManager.Callback<String> {
+            override fun onSuccess(value: String) {
+                callback.onResult(value)
             }
 
-            override fun onSuccess(
-                request: Request,
-                result: String
-            ) {
-                callback.onResult(result)
+            override fun onError(msg: String?) {
+                callback.onError(msg)
             }
         })
     }
@@ -45,26 +85,44 @@ class HomePageFetcher{
             mParameterMap["cursor"] = null
         }
         mParameterMap["size"] = 10
-        AlivcOkHttpClient.getInstance().get(GET_VIDEO_LIST_URL,mParameterMap,object: AlivcOkHttpClient.HttpCallBack{
+        val httpCallBack = object : AlivcOkHttpClient.HttpCallBack {
             override fun onError(request: Request?, e: IOException?) {
                 callback.onError(e?.message)
             }
 
             override fun onSuccess(request: Request?, result: String?) {
                 result?.let {
-                    val jsonObject = JSONObject(result)
-                    val dataJson = jsonObject.getString("data")
-                    val gson = Gson()
-                    val videoInfoList =
-                        gson.fromJson(dataJson, AliyunVideoInfoList::class.java)
-                    val list: MutableList<VideoInfo> = mutableListOf()
-                    if (videoInfoList.videoList.isNotEmpty()) {
-                        list.addAll(videoInfoList.videoList)
+                    val list = try {
+                        VideoListJsonParser.parseVideoList(it)
+                    } catch (e: JsonParseException) {
+                        callback.onError(e.message)
+                        return
                     }
                     callback.onResult(list)
                 }
             }
-        })
+        }
+        if (isLoadMore) {
+            AlivcOkHttpClient.getInstance().get(GET_VIDEO_LIST_URL, mParameterMap, httpCallBack)
+        } else {
+            //首页先返回缓存,后台刷新
+            //The first page is served from cache first, then revalidated in the background
+            AlivcOkHttpClient.getInstance().getStaleWhileRevalidate(GET_VIDEO_LIST_URL, mParameterMap, httpCallBack,
+                object : AlivcOkHttpClient.HttpCallBack {
+                    override fun onError(request: Request?, e: IOException?) {}
+
+                    override fun onSuccess(request: Request?, result: String?) {
+                        result?.let {
+                            try {
+                                callback.onRevalidated(VideoListJsonParser.parseVideoList(it))
+                            } catch (e: JsonParseException) {
+                                //刷新失败时保留已返回的缓存数据
+                                //Keep the cached page already returned when the refresh is malformed
+                            }
+                        }
+                    }
+                })
+        }
     }
 
     interface VideoListDataBack {
@@ -73,6 +131,14 @@ class HomePageFetcher{
         )
 
         fun onError(msg: String?)
+
+        /**
+         * 先返回的是缓存时,后台刷新的首页数据有变化时回调
+         */
+        /****
+         * Called with the revalidated first page when a cached one was returned first and it changed
+         */
+        fun onRevalidated(list: MutableList<VideoInfo>) {}
     }
 
     interface VideoStsInfoCallback {
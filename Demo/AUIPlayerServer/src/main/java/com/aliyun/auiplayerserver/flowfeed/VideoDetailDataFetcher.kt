@@ -1,7 +1,11 @@
 package com.aliyun.auiplayerserver.flowfeed
 
+import com.aliyun.auiplayerserver.flowfeed.http.VideoListJsonParser
+import com.aliyun.auiplayerserver.okhttp.AlivcHttpStack
 import github.leavesc.reactivehttp.datasource.RemoteExtendDataSource
 import github.leavesc.reactivehttp.viewmodel.IUIActionEvent
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
 
 class VideoDetailDataFetcher(iActionEvent: IUIActionEvent?) :
     RemoteExtendDataSource<VideoDetailApiService>(iActionEvent, VideoDetailApiService::class.java) {
@@ -11,4 +15,12 @@ class VideoDetailDataFetcher(iActionEvent: IUIActionEvent?) :
 
     override fun showToast(msg: String) {
     }
+
+    override fun createRetrofit(baseUrl: String): Retrofit {
+        return Retrofit.Builder()
+            .client(AlivcHttpStack.getInstance().client)
+            .baseUrl(baseUrl)
+            .addConverterFactory(GsonConverterFactory.create(VideoListJsonParser.GSON))
+            .build()
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.aliyun.auiplayerserver.flowfeed.http;
+
+import com.aliyun.auiplayerserver.bean.AliyunVideoInfoList;
+import com.aliyun.auiplayerserver.bean.VideoInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 视频列表接口响应的流式解析
+ * <p>
+ * 1.用JsonReader单次遍历响应,直接把data解析为对象,不再先构建JSONObject再把data转回字符串
+ * 2.共用一个Gson实例,TypeAdapter只创建一次
+ */
+/****
+ * Streaming parser of video list responses
+ * <p>
+ * 1. The response is walked once with a JsonReader and data is read straight into objects, instead of building a
+ * JSONObject and turning data back into a String first
+ * 2. One Gson instance is shared, so type adapters are only created once
+ */
+public class VideoListJsonParser {
+
+    private static final String KEY_DATA = "data";
+
+    /**
+     * 共用的Gson实例,Retrofit的GsonConverterFactory也应使用它以复用TypeAdapter
+     */
+    /****
+     * The shared Gson instance, Retrofit's GsonConverterFactory should use it as well to reuse the type adapters
+     */
+    public static final Gson GSON = new Gson();
+
+    private static final TypeAdapter<AliyunVideoInfoList> sVideoInfoListAdapter = GSON.getAdapter(AliyunVideoInfoList.class);
+
+    private VideoListJsonParser() {
+    }
+
+    /**
+     * 解析推荐视频列表接口{"data":{"videoList":[...]}}的响应,读取结束后不关闭reader
+     */
+    /****
+     * Parse a recommend video list response {"data":{"videoList":[...]}}. The reader is not closed
+     */
+    public static List<VideoInfo> parseVideoList(Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        List<VideoInfo> list = new ArrayList<>();
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (KEY_DATA.equals(jsonReader.nextName())) {
+                    AliyunVideoInfoList videoInfoList = sVideoInfoListAdapter.read(jsonReader);
+                    //Gson不经过Kotlin的构造函数,缺少字段时videoList为null
+                    //Gson bypasses the Kotlin constructor, so videoList is null when the field is missing
+                    if (videoInfoList != null && videoInfoList.getVideoList() != null) {
+                        list.addAll(videoInfoList.getVideoList());
+                    }
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+        return list;
+    }
+
+    public static List<VideoInfo> parseVideoList(String json) {
+        try {
+            return parseVideoList(new StringReader(json));
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+    }
+}
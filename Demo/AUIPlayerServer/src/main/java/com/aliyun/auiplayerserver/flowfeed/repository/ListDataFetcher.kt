@@ -1,5 +1,6 @@
 package com.aliyun.auiplayerserver.flowfeed.repository
 
+import com.aliyun.auiplayerserver.okhttp.AlivcHttpStack
 import github.leavesc.reactivehttp.datasource.RemoteExtendDataSource
 import github.leavesc.reactivehttp.viewmodel.IUIActionEvent
 import okhttp3.Interceptor
@@ -19,8 +20,10 @@ class ListDataFetcher<Api : Any>(
             createHttpClient()
         }
 
+        //派生自共享的client,共用连接池和调度器
+        //Derived from the shared client, sharing its connection pool and dispatcher
         private fun createHttpClient(): OkHttpClient {
-            val builder = OkHttpClient.Builder()
+            val builder = AlivcHttpStack.getInstance().newBuilder()
                 .readTimeout(1000L, TimeUnit.MILLISECONDS)
                 .writeTimeout(1000L, TimeUnit.MILLISECONDS)
                 .connectTimeout(1000L, TimeUnit.MILLISECONDS)
@@ -0,0 +1,512 @@
+package com.aliyun.auiplayerserver.okhttp;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 共享的网络请求层
+ * <p>
+ * 1.所有请求共用一个OkHttpClient,即一个连接池和一个调度器,支持HTTP/2
+ * 2.调用init后启用磁盘缓存,按服务端的缓存头缓存响应
+ * 3.相同的GET请求进行中时只发起一次,结果分发给所有调用方
+ * 4.按接口统计请求耗时
+ * 5.列表接口可按stale-while-revalidate方式先返回磁盘缓存,再后台刷新
+ * <p>
+ * 需要不同超时或拦截器时,通过newBuilder派生,派生的client仍共用连接池和调度器
+ */
+/****
+ * Shared HTTP stack
+ * <p>
+ * 1. All requests share one OkHttpClient, that is one connection pool and one dispatcher, with HTTP/2
+ * 2. After init, responses are cached on disk as allowed by the server's cache headers
+ * 3. An identical GET request in flight is sent once, its result is delivered to every caller
+ * 4. Latency is counted per endpoint
+ * 5. List endpoints can be requested stale-while-revalidate: the disk cached response first, then revalidated in the
+ * background
+ * <p>
+ * Callers that need other timeouts or interceptors derive a client with newBuilder, which still shares the
+ * connection pool and the dispatcher.
+ */
+public class AlivcHttpStack {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final int MAX_REQUESTS_PER_HOST = 8;
+
+    private static final String CACHE_DIR = "alivc_http_cache";
+
+    /**
+     * 磁盘缓存大小
+     */
+    /****
+     * Disk cache size. Unit: bytes
+     */
+    private static final long CACHE_SIZE = 20 * 1024 * 1024;
+
+    /**
+     * stale-while-revalidate的默认新鲜期和最大过期时长
+     */
+    /****
+     * Default fresh TTL and max stale TTL of stale-while-revalidate requests. Unit: seconds
+     */
+    private static final int DEFAULT_FRESH_SECONDS = 5 * 60;
+    private static final int DEFAULT_MAX_STALE_SECONDS = 7 * 24 * 3600;
+
+    private static volatile AlivcHttpStack sInstance;
+
+    private volatile OkHttpClient mClient;
+    private Cache mCache;
+
+    // Dedup key -> callers waiting for the GET request in flight
+    private final Map<String, List<StringCallback>> mInFlight = new HashMap<>();
+    private long mDedupedCount = 0;
+
+    // Endpoint -> counters, guarded by itself
+    private final Map<String, EndpointStats> mStats = new HashMap<>();
+
+    // Also tags stale-while-revalidate requests
+    private final StaleWhileRevalidateInterceptor mSwrInterceptor = new StaleWhileRevalidateInterceptor();
+    private volatile int mFreshSeconds = DEFAULT_FRESH_SECONDS;
+    private volatile int mMaxStaleSeconds = DEFAULT_MAX_STALE_SECONDS;
+    // Stale-while-revalidate counters, guarded by mSwrLock
+    private final Object mSwrLock = new Object();
+    private long mSwrHitCount = 0;
+    private long mSwrStaleCount = 0;
+    private long mSwrMissCount = 0;
+
+    private AlivcHttpStack() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        mClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .addInterceptor(new MetricsInterceptor())
+                .addNetworkInterceptor(mSwrInterceptor)
+                .addNetworkInterceptor(new LoggingIntcepetor())
+                .build();
+    }
+
+    public static AlivcHttpStack getInstance() {
+        if (sInstance == null) {
+            synchronized (AlivcHttpStack.class) {
+                if (sInstance == null) {
+                    sInstance = new AlivcHttpStack();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * 启用磁盘缓存,在Application.onCreate中调用,之前派生的client不带缓存
+     */
+    /****
+     * Enable the disk cache, call it in Application.onCreate. Clients derived before the call have no cache.
+     */
+    public static void init(Context context) {
+        AlivcHttpStack stack = getInstance();
+        synchronized (stack) {
+            if (stack.mCache != null) {
+                return;
+            }
+            stack.mCache = new Cache(new File(context.getApplicationContext().getCacheDir(), CACHE_DIR), CACHE_SIZE);
+            stack.mClient = stack.mClient.newBuilder().cache(stack.mCache).build();
+        }
+    }
+
+    public OkHttpClient getClient() {
+        return mClient;
+    }
+
+    /**
+     * 派生client,共用连接池、调度器、缓存和统计
+     */
+    /****
+     * Derive a client sharing the connection pool, dispatcher, cache and metrics
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return mClient.newBuilder();
+    }
+
+    /**
+     * 同步请求,调用方需关闭Response
+     */
+    /****
+     * Synchronous request, the caller must close the response
+     */
+    public Response execute(Request request) throws IOException {
+        return mClient.newCall(request).execute();
+    }
+
+    /**
+     * 异步请求,响应体读取为字符串后在子线程回调。相同的GET请求进行中时不再重复发起
+     */
+    /****
+     * Asynchronous request, the callback is called on a worker thread with the body read as a string.
+     * An identical GET request already in flight is not sent again.
+     */
+    public void enqueue(Request request, final StringCallback callback) {
+        final String key = dedupKeyOf(request);
+        if (key != null) {
+            synchronized (mInFlight) {
+                List<StringCallback> waiting = mInFlight.get(key);
+                if (waiting != null) {
+                    waiting.add(callback);
+                    mDedupedCount++;
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(callback);
+                mInFlight.put(key, waiting);
+            }
+        }
+        mClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                for (StringCallback waiting : takeCallbacks(key, callback)) {
+                    waiting.onFailure(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                int code = response.code();
+                String body;
+                try {
+                    ResponseBody responseBody = response.body();
+                    body = responseBody == null ? "" : responseBody.string();
+                } catch (IOException e) {
+                    onFailure(call, e);
+                    return;
+                } finally {
+                    response.close();
+                }
+                for (StringCallback waiting : takeCallbacks(key, callback)) {
+                    waiting.onResponse(code, body);
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置stale-while-revalidate的新鲜期和最大过期时长
+     */
+    /****
+     * Set the fresh TTL and the max stale TTL of stale-while-revalidate requests. Unit: seconds
+     */
+    public void setStaleWhileRevalidateTtl(int freshSeconds, int maxStaleSeconds) {
+        mFreshSeconds = Math.max(0, freshSeconds);
+        mMaxStaleSeconds = Math.max(mFreshSeconds, maxStaleSeconds);
+    }
+
+    /**
+     * stale-while-revalidate请求: 磁盘缓存未超过最大过期时长时先回调缓存,新鲜期内不再请求网络;
+     * 过期或无缓存时请求网络并更新缓存,有缓存且内容变化时回调onRevalidated。需先调用init启用磁盘缓存
+     *
+     * @param callback      只回调一次:有缓存时回调缓存,否则回调网络结果
+     * @param onRevalidated 后台刷新的结果与缓存不同时回调,可为null
+     */
+    /****
+     * Stale-while-revalidate request: a disk cached response within the max stale TTL is delivered first, and the
+     * network is skipped while it is fresh; when stale or missing the network is requested and the cache updated,
+     * and onRevalidated is called when a cached response was delivered and the body changed. Requires init.
+     *
+     * @param callback      called once: with the cached response when there is one, otherwise with the network result
+     * @param onRevalidated called when the revalidated body differs from the cached one, may be null
+     */
+    public void enqueueStaleWhileRevalidate(Request request, final StringCallback callback,
+                                            final StringCallback onRevalidated) {
+        final Request swrRequest = request.newBuilder()
+                .tag(StaleWhileRevalidateInterceptor.class, mSwrInterceptor)
+                .build();
+        Request cacheRequest = swrRequest.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(mMaxStaleSeconds, TimeUnit.SECONDS)
+                        .build())
+                .build();
+        mClient.newCall(cacheRequest).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                countStaleWhileRevalidate(null);
+                revalidate(swrRequest, null, callback, onRevalidated);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                String body = null;
+                boolean fresh = false;
+                try {
+                    ResponseBody responseBody = response.body();
+                    //无可用缓存时返回504
+                    //504 when there is no usable cached response
+                    if (response.isSuccessful() && responseBody != null) {
+                        body = responseBody.string();
+                        long ageMs = System.currentTimeMillis() - response.receivedResponseAtMillis();
+                        fresh = ageMs <= mFreshSeconds * 1000L;
+                    }
+                } catch (IOException e) {
+                    body = null;
+                } finally {
+                    response.close();
+                }
+                countStaleWhileRevalidate(body == null ? null : fresh);
+                if (body != null) {
+                    callback.onResponse(response.code(), body);
+                    if (fresh) {
+                        return;
+                    }
+                }
+                revalidate(swrRequest, body, callback, onRevalidated);
+            }
+        });
+    }
+
+    private void revalidate(Request request, final String cachedBody, final StringCallback callback,
+                            final StringCallback onRevalidated) {
+        enqueue(request.newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build(), new StringCallback() {
+            @Override
+            public void onFailure(IOException e) {
+                if (cachedBody == null) {
+                    callback.onFailure(e);
+                }
+            }
+
+            @Override
+            public void onResponse(int code, String body) {
+                if (cachedBody == null) {
+                    callback.onResponse(code, body);
+                } else if (onRevalidated != null && code == 200 && !cachedBody.equals(body)) {
+                    onRevalidated.onResponse(code, body);
+                }
+            }
+        });
+    }
+
+    /**
+     * @param fresh null on a miss
+     */
+    private void countStaleWhileRevalidate(Boolean fresh) {
+        synchronized (mSwrLock) {
+            if (fresh == null) {
+                mSwrMissCount++;
+            } else if (fresh) {
+                mSwrHitCount++;
+            } else {
+                mSwrStaleCount++;
+            }
+        }
+    }
+
+    public String getStaleWhileRevalidateStats() {
+        synchronized (mSwrLock) {
+            return String.format(Locale.US, "hit=%d stale=%d miss=%d", mSwrHitCount, mSwrStaleCount, mSwrMissCount);
+        }
+    }
+
+    public long getDedupedCount() {
+        synchronized (mInFlight) {
+            return mDedupedCount;
+        }
+    }
+
+    /**
+     * @return copy of the counters, keyed by host and path
+     */
+    public Map<String, EndpointStats> getStats() {
+        Map<String, EndpointStats> stats = new HashMap<>();
+        synchronized (mStats) {
+            for (Map.Entry<String, EndpointStats> entry : mStats.entrySet()) {
+                stats.put(entry.getKey(), new EndpointStats(entry.getValue()));
+            }
+        }
+        return stats;
+    }
+
+    private List<StringCallback> takeCallbacks(String key, StringCallback callback) {
+        if (key == null) {
+            return Collections.singletonList(callback);
+        }
+        synchronized (mInFlight) {
+            List<StringCallback> waiting = mInFlight.remove(key);
+            return waiting == null ? Collections.singletonList(callback) : waiting;
+        }
+    }
+
+    /**
+     * 只合并GET请求,请求头不同的不合并
+     */
+    /****
+     * Only GET requests are merged, and only with the same headers
+     */
+    private static String dedupKeyOf(Request request) {
+        if (!"GET".equals(request.method())) {
+            return null;
+        }
+        return request.url() + "\n" + request.headers();
+    }
+
+    private void record(String endpoint, long costMs, boolean cacheHit, boolean error) {
+        synchronized (mStats) {
+            EndpointStats stats = mStats.get(endpoint);
+            if (stats == null) {
+                stats = new EndpointStats();
+                mStats.put(endpoint, stats);
+            }
+            stats.mRequestCount++;
+            stats.mTotalMs += costMs;
+            stats.mMaxMs = Math.max(stats.mMaxMs, costMs);
+            if (cacheHit) {
+                stats.mCacheHitCount++;
+            }
+            if (error) {
+                stats.mErrorCount++;
+            }
+        }
+    }
+
+    /**
+     * 统计到收到响应头的耗时,包括缓存命中
+     */
+    /****
+     * Counts the time to the response headers, cache hits included
+     */
+    private class MetricsInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            String endpoint = request.url().host() + request.url().encodedPath();
+            long start = SystemClock.elapsedRealtime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                record(endpoint, SystemClock.elapsedRealtime() - start, false, true);
+                throw e;
+            }
+            boolean cacheHit = response.networkResponse() == null && response.cacheResponse() != null;
+            record(endpoint, SystemClock.elapsedRealtime() - start, cacheHit, !response.isSuccessful());
+            return response;
+        }
+    }
+
+    /**
+     * 把stale-while-revalidate请求的成功响应改写为可缓存,新鲜期由客户端决定
+     */
+    /****
+     * Rewrites good responses of stale-while-revalidate requests as cacheable, with the fresh TTL set by the client
+     */
+    private class StaleWhileRevalidateInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (request.tag(StaleWhileRevalidateInterceptor.class) == null || !response.isSuccessful()) {
+                return response;
+            }
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "max-age=" + mFreshSeconds)
+                    .build();
+        }
+    }
+
+    public interface StringCallback {
+        /**
+         * 网络错误回调
+         */
+        /****
+         * Network error callback
+         */
+        void onFailure(IOException e);
+
+        /**
+         * 响应回调,包括非200的响应
+         */
+        /****
+         * Response callback, non-200 responses included
+         */
+        void onResponse(int code, String body);
+    }
+
+    /**
+     * 单个接口的请求统计
+     */
+    /****
+     * Request counters of one endpoint
+     */
+    public static class EndpointStats {
+        private long mRequestCount;
+        private long mErrorCount;
+        private long mCacheHitCount;
+        private long mTotalMs;
+        private long mMaxMs;
+
+        private EndpointStats() {
+        }
+
+        private EndpointStats(EndpointStats other) {
+            mRequestCount = other.mRequestCount;
+            mErrorCount = other.mErrorCount;
+            mCacheHitCount = other.mCacheHitCount;
+            mTotalMs = other.mTotalMs;
+            mMaxMs = other.mMaxMs;
+        }
+
+        public long getRequestCount() {
+            return mRequestCount;
+        }
+
+        public long getErrorCount() {
+            return mErrorCount;
+        }
+
+        public long getCacheHitCount() {
+            return mCacheHitCount;
+        }
+
+        public long getAverageMs() {
+            return mRequestCount == 0 ? 0 : mTotalMs / mRequestCount;
+        }
+
+        public long getMaxMs() {
+            return mMaxMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "requests=%d errors=%d cacheHits=%d latency(avg/max)=%d/%dms",
+                    mRequestCount, mErrorCount, mCacheHitCount, getAverageMs(), mMaxMs);
+        }
+    }
+}
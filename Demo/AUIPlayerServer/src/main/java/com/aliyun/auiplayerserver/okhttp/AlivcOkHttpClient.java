@@ -11,27 +11,22 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
-import okhttp3.Call;
-import okhttp3.Callback;
 import okhttp3.FormBody;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 
 /**
- * okhttp简易封装
- * okhttp simple package
+ * okhttp简易封装,请求走共享的AlivcHttpStack
+ * okhttp simple package, requests go through the shared AlivcHttpStack
  */
 public class AlivcOkHttpClient {
     private static AlivcOkHttpClient alivcOkHttpClient;
-    private OkHttpClient okHttpClient;
-    private final OkHttpClient.Builder okHttpBuilder = new OkHttpClient.Builder().addNetworkInterceptor(new LoggingIntcepetor());
+    private final AlivcHttpStack httpStack;
     private Handler handler;
 
     private AlivcOkHttpClient() {
         handler = new Handler(Looper.getMainLooper());
-        build();
+        httpStack = AlivcHttpStack.getInstance();
     }
 
     public static AlivcOkHttpClient getInstance() {
@@ -46,15 +41,7 @@ public class AlivcOkHttpClient {
         return alivcOkHttpClient;
     }
 
-    private void build() {
-        okHttpBuilder.connectTimeout(10, TimeUnit.SECONDS);
-        okHttpBuilder.writeTimeout(10, TimeUnit.SECONDS);
-        okHttpBuilder.readTimeout(10, TimeUnit.SECONDS);
-        okHttpClient = okHttpBuilder.build();
-
-    }
-
-    class StringCallBack implements Callback {
+    class StringCallBack implements AlivcHttpStack.StringCallback {
         private HttpCallBack httpCallBack;
         private Request request;
 
@@ -64,63 +51,34 @@ public class AlivcOkHttpClient {
         }
 
         @Override
-        public void onFailure(Call call, IOException e) {
-            final IOException fe = e;
-            if (httpCallBack != null) {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        httpCallBack.onError(request, fe);
-                    }
-                });
-            }
+        public void onFailure(IOException e) {
+            postError(request, httpCallBack, e);
         }
 
+        /**
+         * 任何解析失败都回调onError,调用方(如凭证缓存)依赖请求一定有结果
+         */
+        /****
+         * Any parse failure is delivered to onError, callers (e.g. the credential cache) rely on every request ending
+         */
         @Override
-        public void onResponse(final Call call, okhttp3.Response response) throws IOException {
-            final String result = response.body().string();
-
-            try {
-                final JSONObject jsonObject = new JSONObject(result);
-                if ("200".equals(jsonObject.getString("code")) || "20000".equals(jsonObject.getString("code"))) {
-                    if (httpCallBack != null) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                httpCallBack.onSuccess(request, result);
-                            }
-                        });
-                    } else {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                httpCallBack.onError(request, new IOException("json error"));
-                            }
-                        });
-                    }
-                } else {
-                    if (httpCallBack != null) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                try {
-                                    httpCallBack.onError(request, new IOException(jsonObject.getString("message")));
-                                } catch (JSONException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        });
-                    }
-                }
-            } catch (JSONException e) {
-                e.printStackTrace();
+        public void onResponse(int code, final String result) {
+            JSONObject jsonObject = parseJson(result);
+            if (jsonObject == null) {
+                postError(request, httpCallBack, new IOException("json error"));
+                return;
+            }
+            String responseCode = jsonObject.optString("code");
+            if ("200".equals(responseCode) || "20000".equals(responseCode)) {
+                postSuccess(request, httpCallBack, result);
+            } else {
+                postError(request, httpCallBack, new IOException(getErrorMessage(jsonObject)));
             }
-
         }
     }
 
 
-    class StringCallBack2 implements Callback {
+    class StringCallBack2 implements AlivcHttpStack.StringCallback {
         private final HttpCallBack httpCallBack;
         private final Request request;
 
@@ -130,60 +88,67 @@ public class AlivcOkHttpClient {
         }
 
         @Override
-        public void onFailure(Call call, IOException e) {
-            final IOException fe = e;
-            if (httpCallBack != null) {
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        httpCallBack.onError(request, fe);
-                    }
-                });
-            }
+        public void onFailure(IOException e) {
+            postError(request, httpCallBack, e);
         }
 
         @Override
-        public void onResponse(final Call call, okhttp3.Response response) throws IOException {
-            final String result = response.body().string();
-            try {
-                final JSONObject jsonObject = new JSONObject(result);
-                final String data = jsonObject.getString("data");
-                if (!TextUtils.isEmpty(data)) {
-                    if (httpCallBack != null) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                httpCallBack.onSuccess(request, data);
-                            }
-                        });
-                    } else {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                httpCallBack.onError(request, new IOException("json error"));
-                            }
-                        });
-                    }
-                } else {
-                    if (httpCallBack != null) {
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                try {
-                                    httpCallBack.onError(request, new IOException(jsonObject.getString("message")));
-                                } catch (JSONException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        });
-                    }
-                }
-            } catch (JSONException e) {
-                e.printStackTrace();
+        public void onResponse(int code, final String result) {
+            JSONObject jsonObject = parseJson(result);
+            if (jsonObject == null) {
+                postError(request, httpCallBack, new IOException("json error"));
+                return;
+            }
+            String data = jsonObject.optString("data");
+            if (!TextUtils.isEmpty(data)) {
+                postSuccess(request, httpCallBack, data);
+            } else {
+                postError(request, httpCallBack, new IOException(getErrorMessage(jsonObject)));
             }
         }
     }
 
+    private static JSONObject parseJson(String result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(result);
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static String getErrorMessage(JSONObject jsonObject) {
+        String message = jsonObject.optString("message");
+        return TextUtils.isEmpty(message) ? "json error" : message;
+    }
+
+    private void postSuccess(final Request request, final HttpCallBack httpCallBack, final String result) {
+        if (httpCallBack == null) {
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                httpCallBack.onSuccess(request, result);
+            }
+        });
+    }
+
+    private void postError(final Request request, final HttpCallBack httpCallBack, final IOException e) {
+        if (httpCallBack == null) {
+            return;
+        }
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                httpCallBack.onError(request, e);
+            }
+        });
+    }
+
     /**
      * 构建POS请求的参数体。
      *
@@ -244,12 +209,12 @@ public class AlivcOkHttpClient {
 
     public void get(String url, HttpCallBack httpCallBack) {
         Request request = new Request.Builder().url(url).build();
-        okHttpClient.newCall(request).enqueue(new StringCallBack(request, httpCallBack));
+        httpStack.enqueue(request, new StringCallBack(request, httpCallBack));
     }
 
     public void get2(String url, HttpCallBack httpCallBack) {
         Request request = new Request.Builder().url(url).build();
-        okHttpClient.newCall(request).enqueue(new StringCallBack2(request, httpCallBack));
+        httpStack.enqueue(request, new StringCallBack2(request, httpCallBack));
     }
 
     /**
@@ -261,7 +226,21 @@ public class AlivcOkHttpClient {
     public void get(String url, HashMap<String, ? extends Object> params, HttpCallBack httpCallBack) {
 
         Request request = new Request.Builder().url(urlWithParam(url, params)).build();
-        okHttpClient.newCall(request).enqueue(new StringCallBack(request, httpCallBack));
+        httpStack.enqueue(request, new StringCallBack(request, httpCallBack));
+    }
+
+    /**
+     * 带参数的get请求,先返回缓存再后台刷新,刷新结果变化时回调onRevalidated
+     */
+    /****
+     * Get request with parameters, the cached response first, then revalidated in the background. onRevalidated is
+     * called when the revalidated response changed
+     */
+    public void getStaleWhileRevalidate(String url, HashMap<String, ? extends Object> params, HttpCallBack httpCallBack,
+                                        HttpCallBack onRevalidated) {
+        Request request = new Request.Builder().url(urlWithParam(url, params)).build();
+        httpStack.enqueueStaleWhileRevalidate(request, new StringCallBack(request, httpCallBack),
+                onRevalidated == null ? null : new StringCallBack(request, onRevalidated));
     }
 
     /**
@@ -272,7 +251,7 @@ public class AlivcOkHttpClient {
      */
     public void post(String url, Map<String, String> params, HttpCallBack httpCallBack) {
         Request request = new Request.Builder().url(url).post(formBody(params)).build();
-        okHttpClient.newCall(request).enqueue(new StringCallBack(request, httpCallBack));
+        httpStack.enqueue(request, new StringCallBack(request, httpCallBack));
     }
 
     public interface HttpCallBack {
@@ -0,0 +1,106 @@
+package com.aliyun.auiplayerserver.flowfeed.http;
+
+import com.aliyun.auiplayerserver.bean.AliyunVideoInfoList;
+import com.aliyun.auiplayerserver.bean.VideoInfo;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the streaming parser against the old path, which built a JSON tree of the whole response, turned data
+ * back into a String and parsed it again with Gson, and compares the time both take on a large page.
+ */
+public class VideoListJsonParserTest {
+
+    private static final int BENCHMARK_VIDEOS = 500;
+    private static final int BENCHMARK_ROUNDS = 200;
+
+    private static String response(int videos) {
+        StringBuilder json = new StringBuilder("{\"code\":200,\"requestId\":\"request\",\"data\":{\"total\":")
+                .append(videos).append(",\"videoList\":[");
+        for (int i = 0; i < videos; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"cateId\":").append(i % 7)
+                    .append(",\"cateName\":\"cate-").append(i % 7)
+                    .append("\",\"coverUrl\":\"https://example.com/cover/").append(i)
+                    .append(".jpg\",\"description\":\"description ").append(i)
+                    .append("\",\"duration\":").append(15.5 + i)
+                    .append(",\"fileUrl\":\"https://example.com/video/").append(i)
+                    .append(".mp4\",\"height\":1920,\"width\":1080,\"likeCount\":").append(i * 3)
+                    .append(",\"publishTime\":").append(1700000000000L + i)
+                    .append(",\"size\":").append(1048576.0 + i)
+                    .append(",\"title\":\"title ").append(i)
+                    .append("\",\"type\":\"video\",\"user\":{\"userId\":\"user-").append(i)
+                    .append("\",\"userName\":\"name-").append(i)
+                    .append("\",\"avatarUrl\":null},\"videoId\":\"video-").append(i)
+                    .append("\",\"viewCount\":").append(i * 10)
+                    .append(",\"vodId\":").append(i)
+                    .append(",\"weight\":").append(i)
+                    .append(",\"tags\":[\"a\",\"b\"]}");
+        }
+        return json.append("]},\"message\":\"ok\"}").toString();
+    }
+
+    /**
+     * The parse path before the streaming parser
+     */
+    private static List<VideoInfo> parseWithTree(String json) {
+        String dataJson = new JsonParser().parse(json).getAsJsonObject().get("data").toString();
+        AliyunVideoInfoList videoInfoList = VideoListJsonParser.GSON.fromJson(dataJson, AliyunVideoInfoList.class);
+        List<VideoInfo> list = new ArrayList<>();
+        if (videoInfoList != null && videoInfoList.getVideoList() != null) {
+            list.addAll(videoInfoList.getVideoList());
+        }
+        return list;
+    }
+
+    @Test
+    public void streamingParseMatchesTreeParse() {
+        String json = response(20);
+        List<VideoInfo> streamed = VideoListJsonParser.parseVideoList(json);
+        assertEquals(20, streamed.size());
+        assertEquals(parseWithTree(json), streamed);
+        assertEquals("video-7", streamed.get(7).getVideoId());
+        assertEquals("user-7", streamed.get(7).getUser().getUserId());
+    }
+
+    @Test
+    public void missingVideoListGivesAnEmptyList() {
+        assertTrue(VideoListJsonParser.parseVideoList("{\"code\":200,\"data\":{}}").isEmpty());
+        assertTrue(VideoListJsonParser.parseVideoList("{\"code\":200}").isEmpty());
+    }
+
+    @Test
+    public void benchmarkStreamingAgainstTreeParse() {
+        String json = response(BENCHMARK_VIDEOS);
+        int count = 0;
+        for (int i = 0; i < BENCHMARK_ROUNDS / 4; i++) {
+            count += parseWithTree(json).size();
+            count += VideoListJsonParser.parseVideoList(json).size();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+            count += parseWithTree(json).size();
+        }
+        long treeNs = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < BENCHMARK_ROUNDS; i++) {
+            count += VideoListJsonParser.parseVideoList(json).size();
+        }
+        long streamingNs = System.nanoTime() - start;
+
+        assertEquals(BENCHMARK_VIDEOS * (BENCHMARK_ROUNDS / 2 + BENCHMARK_ROUNDS * 2), count);
+        System.out.println(String.format("video list %d videos x %d rounds: tree %d ms, streaming %d ms",
+                BENCHMARK_VIDEOS, BENCHMARK_ROUNDS, treeNs / 1_000_000, streamingNs / 1_000_000));
+    }
+}
@@ -5,35 +5,75 @@ import com.aliyun.player.alivcplayerexpand.bean.AccountInfo
 import com.aliyun.video.database.AppDataBase
 import com.aliyun.video.database.DataBase
 import com.aliyun.video.database.entity.VideoPlayRecordInfo
+import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
-
+import java.util.concurrent.Executors
+
+/**
+ * 播放记录管理
+ * 播放记录缓存在有界的LRU内存中,读取优先走内存;
+ * 更新只写内存并标记为脏数据,定时或页面暂停时在专用线程上批量写入数据库
+ */
+/****
+ * Play record manager
+ * Play records are cached in a bounded LRU, reads are served from memory;
+ * updates only touch memory and are marked dirty, then flushed as one batch on a dedicated thread,
+ * on a timer or when the page pauses
+ */
 class ContrastPlayManager(context: Context) {
     private val mDataBase: AppDataBase = DataBase.getDb(context)
-    private val mPlayRecordList = mutableMapOf<String, VideoPlayRecordInfo?>()
+
+    private val mLock = Any()
+
+    //访问顺序的LRU缓存,只由mLock保护访问
+    //Access ordered LRU cache, only accessed under mLock
+    private val mPlayRecordList =
+        object : LinkedHashMap<String, VideoPlayRecordInfo?>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, VideoPlayRecordInfo?>?): Boolean {
+                return size > MAX_CACHE_SIZE
+            }
+        }
+
+    //未写入数据库的记录,不受LRU淘汰影响
+    //Records not written to the database yet, not subject to LRU eviction
+    private val mDirtyRecords = LinkedHashMap<String, VideoPlayRecordInfo>()
+    private var mFlushScheduled = false
+
+    //数据库读写串行在一个线程上
+    //Database reads and writes are serialized on one thread
+    private val mScope = CoroutineScope(SupervisorJob() + Executors.newSingleThreadExecutor { runnable ->
+        Thread(runnable, "ContrastPlayManager-db")
+    }.asCoroutineDispatcher())
+
     private var mMaxExpiredSeconds = 30 * 24 * 3600
 
 
     fun setPlayList(vidList: List<String>) {
-        GlobalScope.launch {
+        mScope.launch {
             val playRecordDao = mDataBase.playRecordDao()
             val playRecordList = playRecordDao.findList(AccountInfo.uid, vidList)
-            //初始化一遍
-            //Init
-            for (vid in vidList) {
-                if (!mPlayRecordList.containsKey(vid)) {
-                    mPlayRecordList[vid] =
-                        VideoPlayRecordInfo(AccountInfo.uid, vid, 0, System.currentTimeMillis())
+            synchronized(mLock) {
+                //初始化一遍
+                //Init
+                for (vid in vidList) {
+                    if (!mPlayRecordList.containsKey(vid)) {
+                        mPlayRecordList[vid] =
+                            VideoPlayRecordInfo(AccountInfo.uid, vid, 0, System.currentTimeMillis())
+                    }
                 }
-            }
-            for (record in playRecordList) {
-                if (record != null) {
-                    mPlayRecordList[record.vid] = record
+                for (record in playRecordList) {
+                    //未写入的本地记录比数据库新
+                    //Local records not written yet are newer than the database
+                    if (record != null && !mDirtyRecords.containsKey(record.vid)) {
+                        mPlayRecordList[record.vid] = record
+                    }
                 }
             }
-
         }
     }
 
@@ -42,58 +82,88 @@ class ContrastPlayManager(context: Context) {
     }
 
     fun deleteAll() {
-        GlobalScope.launch {
+        mScope.launch {
             val playRecordDao = mDataBase.playRecordDao()
 //            playRecordDao.delete()
         }
     }
 
     private fun savePlayRecordInfo(vid: String, playDuration: Int) {
-        //先更新本地数据
-        //Update local data first
-        if (mPlayRecordList[vid] != null) {
-            mPlayRecordList[vid]?.apply {
-                this.playDuration = playDuration
-                this.lastPlayTimeMillis = System.currentTimeMillis()
+        //只更新本地数据,稍后批量写入
+        //Only update local data, written later in batch
+        val playRecordInfo =
+            VideoPlayRecordInfo(AccountInfo.uid, vid, playDuration, System.currentTimeMillis())
+        synchronized(mLock) {
+            mPlayRecordList[vid] = playRecordInfo
+            mDirtyRecords[vid] = playRecordInfo
+            if (mFlushScheduled) {
+                return
             }
+            mFlushScheduled = true
         }
-        GlobalScope.launch {
-            val playRecordDao = mDataBase.playRecordDao()
-            var playRecordInfo: VideoPlayRecordInfo? =
-                playRecordDao.findByID(AccountInfo.uid, vid)
-//            val playList = playRecordDao.getAll(AccountInfo.uid)
-            val endPlayMillis = System.currentTimeMillis()
-            if (playRecordInfo == null) {
-                playRecordInfo =
-                    VideoPlayRecordInfo(
-                        AccountInfo.uid,
-                        vid,
-                        playDuration,
-                        endPlayMillis
-                    )
-                playRecordDao.insert(playRecordInfo)
-            } else {
-                playRecordInfo.apply {
-                    this.playDuration = playDuration
-                    this.lastPlayTimeMillis = endPlayMillis
-                }
+        mScope.launch {
+            delay(FLUSH_INTERVAL_MS)
+            flushDirtyRecords()
+        }
+    }
+
+    /**
+     * 立即写入未保存的播放记录,页面暂停时调用
+     */
+    /****
+     * Write the unsaved play records now, called when the page pauses
+     */
+    fun flush() {
+        mScope.launch {
+            flushDirtyRecords()
+        }
+    }
 
-                playRecordDao.updateInfo(playRecordInfo)
+    private fun flushDirtyRecords() {
+        val records: List<VideoPlayRecordInfo>
+        synchronized(mLock) {
+            mFlushScheduled = false
+            if (mDirtyRecords.isEmpty()) {
+                return
+            }
+            records = ArrayList(mDirtyRecords.values)
+        }
+        mDataBase.playRecordDao().insertAll(records)
+        //写入成功后只移除已写入的记录,写入期间更新的记录仍为脏数据;写入失败时全部保留,下次写入重试
+        //Only the written records are removed once the write succeeds, records updated meanwhile stay dirty;
+        //on failure all of them are kept and retried by the next flush
+        synchronized(mLock) {
+            for (record in records) {
+                if (mDirtyRecords[record.vid] === record) {
+                    mDirtyRecords.remove(record.vid)
+                }
             }
         }
     }
 
     fun getPlayRecord(vid: String, callback: OnGetPlayRecordInfoBack) {
-        if (mPlayRecordList[vid] != null) {
-            val recordPlayDuration = mPlayRecordList[vid].getRecordPlayDuration(mMaxExpiredSeconds)
+        val cachedRecord = synchronized(mLock) {
+            mDirtyRecords[vid] ?: mPlayRecordList[vid]
+        }
+        if (cachedRecord != null) {
+            val recordPlayDuration = cachedRecord.getRecordPlayDuration(mMaxExpiredSeconds)
             callback.onGetInfo(recordPlayDuration)
         } else {
-            GlobalScope.launch {
+            mScope.launch {
                 val playRecordDao = mDataBase.playRecordDao()
                 val playRecordInfo: VideoPlayRecordInfo? =
                     playRecordDao.findByID(AccountInfo.uid, vid)
+                val record = synchronized(mLock) {
+                    //查询期间可能已有更新的本地记录
+                    //A newer local record may have been saved during the query
+                    val localRecord = mPlayRecordList[vid]
+                    if (localRecord == null && playRecordInfo != null) {
+                        mPlayRecordList[vid] = playRecordInfo
+                    }
+                    localRecord ?: playRecordInfo
+                }
                 withContext(Dispatchers.Main) {
-                    callback.onGetInfo(playRecordInfo.getRecordPlayDuration(mMaxExpiredSeconds))
+                    callback.onGetInfo(record.getRecordPlayDuration(mMaxExpiredSeconds))
                 }
             }
         }
@@ -117,6 +187,22 @@ class ContrastPlayManager(context: Context) {
     }
 
     companion object {
+        /**
+         * 内存中最多缓存的播放记录数
+         */
+        /****
+         * Max number of play records cached in memory
+         */
+        private const val MAX_CACHE_SIZE = 500
+
+        /**
+         * 脏数据写入间隔
+         */
+        /****
+         * Interval to flush dirty records. Unit: ms
+         */
+        private const val FLUSH_INTERVAL_MS = 5000L
+
         private var mInstance: ContrastPlayManager? = null
 
         fun getInstance(context: Context): ContrastPlayManager {
@@ -11,6 +11,8 @@ import android.widget.FrameLayout
 import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.LifecycleEventObserver
 import androidx.lifecycle.LifecycleOwner
+import com.aliyun.auiplayerserver.CredentialManager
+import com.aliyun.auiplayerserver.flowfeed.HomePageFetcher
 import com.aliyun.player.*
 import com.aliyun.player.alivcplayerexpand.R
 import com.aliyun.player.alivcplayerexpand.common.ContrastPlayManager
@@ -26,6 +28,8 @@ import com.aliyun.player.nativeclass.TrackInfo
 import com.aliyun.player.source.*
 import com.aliyun.thumbnail.ThumbnailBitmapInfo
 import com.cicada.player.utils.Logger
+import org.json.JSONException
+import org.json.JSONObject
 import java.util.*
 import kotlin.collections.LinkedHashMap
 import kotlin.collections.set
@@ -72,6 +76,7 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
     private var mSeriesPosition = -1
     private var mCurrentVid = ""
     private var mSeekDuration = 0L
+    private var mStsRefreshRetained = false
 
 
     private val mCompletionListener = object : IPlayer.OnCompletionListener {
@@ -301,6 +306,7 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
                         }
                     }
                     onRecordProgress(mCurrentPlayDuration)
+                    mContrastPlayManager.flush()
                 }
                 Lifecycle.Event.ON_STOP -> {
                 }
@@ -329,6 +335,10 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
         mContext = context
         mLifeCyclePause = false
         mListPlayer = AliPlayerFactory.createAliListPlayer(context)
+        if (!mStsRefreshRetained) {
+            mStsRefreshRetained = true
+            retainStsRefresh()
+        }
         mContrastPlayManager = ContrastPlayManager.getInstance(context)
         lifecycle?.addObserver(mLifecycleEventObserver)
         setUpListener()
@@ -542,6 +552,10 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
     override fun release() {
         mListPlayer.stop()
         mListPlayer.release()
+        if (mStsRefreshRetained) {
+            mStsRefreshRetained = false
+            releaseStsRefresh()
+        }
     }
 
     override fun recreateSurfaceView() {
@@ -656,6 +670,7 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
 
     override fun savePlayRecord() {
         onRecordProgress(mCurrentPlayDuration)
+        mContrastPlayManager.flush()
     }
 
     private fun getPlayRecordCache(list: MutableList<Pair<String, String>>) {
@@ -1098,6 +1113,46 @@ class ListPlayManager(var lifecycle: Lifecycle?) : IListPlayManager {
 
         var mStsInfo: StsInfo? = null
 
+        //列表播放STS在过期前后台刷新后,之后的moveTo使用新的STS,无需等到过期报错再请求
+        //Once the list playback STS is refreshed in the background before it expires, later moveTo calls use
+        //the new one instead of requesting it after an expiry error
+        private val mStsRefreshListener = CredentialManager.OnRefreshListener { _, value ->
+            (value as? String)?.let { onStsRefreshed(it) }
+        }
+
+        //有监听时STS会一直后台刷新,只在有未释放的ListPlayManager时监听
+        //STS keeps being refreshed while it has listeners, so only listen while a ListPlayManager is alive
+        private var mStsRefreshRetainCount = 0
+
+        private fun retainStsRefresh() {
+            if (mStsRefreshRetainCount++ == 0) {
+                CredentialManager.getInstance().addOnRefreshListener(HomePageFetcher.STS_SCOPE, mStsRefreshListener)
+            }
+        }
+
+        private fun releaseStsRefresh() {
+            if (mStsRefreshRetainCount > 0 && --mStsRefreshRetainCount == 0) {
+                CredentialManager.getInstance().removeOnRefreshListener(HomePageFetcher.STS_SCOPE, mStsRefreshListener)
+            }
+        }
+
+        private fun onStsRefreshed(result: String) {
+            val json = try {
+                JSONObject(result)
+            } catch (e: JSONException) {
+                return
+            }
+            val stsInfo = StsInfo()
+            stsInfo.accessKeyId = json.optString("accessKeyId")
+            stsInfo.accessKeySecret = json.optString("accessKeySecret")
+            stsInfo.securityToken = json.optString("securityToken")
+            stsInfo.region = mStsInfo?.region
+            mStsInfo = stsInfo
+            GlobalPlayerConfig.mStsAccessKeyId = stsInfo.accessKeyId
+            GlobalPlayerConfig.mStsAccessKeySecret = stsInfo.accessKeySecret
+            GlobalPlayerConfig.mStsSecurityToken = stsInfo.securityToken
+        }
+
         fun getListPlayManager(lifecycle: Lifecycle): ListPlayManager {
             if (mListPlayManagerList[lifecycle] == null) {
                 mListPlayManagerList[lifecycle] = ListPlayManager(lifecycle)
@@ -0,0 +1,367 @@
+package com.aliyun.player.alivcplayerexpand.util;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 下载信息日志文件
+ * <p>
+ * 1.每个下载目录只有一个日志文件,更新和删除以记录追加写入,不再重写整个文件
+ * 2.每条记录带长度和CRC32校验,写入中途崩溃产生的不完整记录在恢复时被截断
+ * 3.启动时顺序读取一次恢复索引,失效记录过多时重写为只含有效记录的新文件
+ * 4.读取失败时索引为空,不写入、不截断也不压缩文件,下次访问时重新读取
+ */
+/****
+ * Download info manifest
+ * <p>
+ * 1. There is one manifest per download directory, updates and deletes are appended as records, the file is never
+ * rewritten on update
+ * 2. Every record carries its length and a CRC32, a torn record left by a crash mid-write is truncated on recovery
+ * 3. The index is recovered with one sequential read, the file is compacted when most of its records are stale
+ * 4. If the read fails, the index is left empty and the file is never appended to, truncated nor compacted; the read is
+ * retried on the next access. Otherwise a partial index could overwrite the records it failed to read
+ * <p>
+ * Record layout: int length, int crc32 of the body, then the body: byte op, UTF key, and for a put the UTF-8 value.
+ * All methods are thread-safe.
+ */
+class DownloadManifest {
+
+    private static final String TAG = DownloadManifest.class.getSimpleName();
+
+    private static final String MANIFEST_NAME = ".download_manifest";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * 记录数超过有效记录数的倍数时压缩
+     */
+    /****
+     * Compact when the number of records is above this ratio of live records
+     */
+    private static final int COMPACT_RATIO = 4;
+
+    /**
+     * 压缩的最少记录数
+     */
+    /****
+     * Minimum number of records before compacting
+     */
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Map<String, DownloadManifest> sManifests = new HashMap<>();
+
+    private final File mFile;
+    private final Map<String, String> mIndex = new LinkedHashMap<>();
+    private int mRecordCount = 0;
+    // Length of the valid records, appends start there
+    private long mLength = 0;
+    // Set once the whole file was read
+    private boolean mLoaded = false;
+    // Set when the last read failed, writes are refused until a read succeeds
+    private boolean mLoadFailed = false;
+
+    /**
+     * 同一目录共用一个实例,保证索引与文件一致
+     */
+    /****
+     * One instance per directory, so that the index matches the file
+     */
+    static DownloadManifest of(String dir) {
+        String key = new File(dir).getAbsolutePath();
+        synchronized (sManifests) {
+            DownloadManifest manifest = sManifests.get(key);
+            if (manifest == null) {
+                manifest = new DownloadManifest(new File(dir, MANIFEST_NAME));
+                sManifests.put(key, manifest);
+            }
+            return manifest;
+        }
+    }
+
+    private DownloadManifest(File file) {
+        mFile = file;
+    }
+
+    synchronized String get(String key) {
+        load();
+        return mIndex.get(key);
+    }
+
+    /**
+     * @return all live values, in first insertion order
+     */
+    synchronized List<String> values() {
+        load();
+        return new ArrayList<>(mIndex.values());
+    }
+
+    synchronized void put(String key, String value) {
+        if (!load()) {
+            return;
+        }
+        if (value.equals(mIndex.get(key))) {
+            return;
+        }
+        if (append(OP_PUT, key, value)) {
+            mIndex.put(key, value);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * @return keys whose values are in the manifest afterwards, written now or already equal; the others failed
+     */
+    synchronized Set<String> putAll(Map<String, String> values) {
+        Set<String> written = new HashSet<>();
+        if (!load()) {
+            return written;
+        }
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getValue().equals(mIndex.get(entry.getKey()))) {
+                written.add(entry.getKey());
+            } else if (append(OP_PUT, entry.getKey(), entry.getValue())) {
+                mIndex.put(entry.getKey(), entry.getValue());
+                written.add(entry.getKey());
+            }
+        }
+        compactIfNeeded();
+        return written;
+    }
+
+    synchronized void remove(String key) {
+        if (!load()) {
+            return;
+        }
+        if (!mIndex.containsKey(key)) {
+            return;
+        }
+        if (append(OP_DELETE, key, null)) {
+            mIndex.remove(key);
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 顺序读取一次日志文件恢复索引,截断末尾不完整的记录
+     */
+    /****
+     * Recover the index with one sequential read of the manifest, truncating a torn tail
+     *
+     * @return false if the manifest could not be read, the index is empty then and must not be written
+     */
+    private boolean load() {
+        if (mLoaded) {
+            return true;
+        }
+        mIndex.clear();
+        mRecordCount = 0;
+        mLength = 0;
+        if (!mFile.exists()) {
+            mLoaded = true;
+            mLoadFailed = false;
+            return true;
+        }
+        DataInputStream in = null;
+        long fileLength = mFile.length();
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            long validLength = replay(in, fileLength);
+            mLength = validLength;
+            mLoaded = true;
+            mLoadFailed = false;
+            if (validLength < fileLength) {
+                Log.w(TAG, "truncate torn manifest tail: " + (fileLength - validLength) + " bytes");
+                truncate(validLength);
+            }
+            return true;
+        } catch (IOException e) {
+            //丢弃读取了一部分的索引,否则之后的写入和压缩会覆盖未读取的记录
+            //Drop the partial index, otherwise later writes and compaction would overwrite the records not read
+            mIndex.clear();
+            mRecordCount = 0;
+            mLength = 0;
+            if (!mLoadFailed) {
+                Log.e(TAG, "load manifest failed, writes are refused until it can be read", e);
+            }
+            mLoadFailed = true;
+            return false;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * 逐条读取记录,内存中只保留当前记录
+     */
+    /****
+     * Read the records one by one, only the current record is held in memory
+     *
+     * @return length of the valid records
+     */
+    private long replay(DataInputStream in, long fileLength) throws IOException {
+        long offset = 0;
+        byte[] body = new byte[256];
+        while (offset + HEADER_SIZE <= fileLength) {
+            int length = in.readInt();
+            int crc = in.readInt();
+            long bodyOffset = offset + HEADER_SIZE;
+            if (length <= 0 || length > fileLength - bodyOffset) {
+                break;
+            }
+            if (body.length < length) {
+                body = new byte[Math.max(length, body.length * 2)];
+            }
+            in.readFully(body, 0, length);
+            CRC32 crc32 = new CRC32();
+            crc32.update(body, 0, length);
+            if ((int) crc32.getValue() != crc) {
+                break;
+            }
+            DataInputStream bodyIn = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+            byte op = bodyIn.readByte();
+            String key = bodyIn.readUTF();
+            if (op == OP_PUT) {
+                int keyLength = length - bodyIn.available();
+                mIndex.put(key, new String(body, keyLength, length - keyLength, UTF_8));
+            } else if (op == OP_DELETE) {
+                mIndex.remove(key);
+            }
+            mRecordCount++;
+            offset = bodyOffset + length;
+        }
+        return offset;
+    }
+
+    private boolean append(byte op, String key, String value) {
+        if (!mLoaded) {
+            return false;
+        }
+        FileOutputStream out = null;
+        try {
+            byte[] record = encode(op, key, value);
+            out = new FileOutputStream(mFile, true);
+            //整条记录一次写入,落盘后才更新索引,之后才能删除依赖该记录的文件
+            //The whole record is written at once and synced before the index is updated, so that files depending on
+            //it may be deleted right after
+            out.write(record);
+            out.getFD().sync();
+            mRecordCount++;
+            mLength += record.length;
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "append manifest failed", e);
+            //截断写入失败的部分记录,否则其后追加的记录在恢复时会被丢弃
+            //Truncate a partly written record, otherwise the records appended after it would be lost on recovery
+            truncate(mLength);
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (!mLoaded) {
+            return;
+        }
+        if (mRecordCount < COMPACT_MIN_RECORDS || mRecordCount < mIndex.size() * COMPACT_RATIO) {
+            return;
+        }
+        File compactFile = new File(mFile.getPath() + COMPACT_SUFFIX);
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(compactFile);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (Map.Entry<String, String> entry : mIndex.entrySet()) {
+                buffer.write(encode(OP_PUT, entry.getKey(), entry.getValue()));
+            }
+            out.write(buffer.toByteArray());
+            out.getFD().sync();
+            out.close();
+            out = null;
+            //重命名是原子操作,崩溃时保留旧文件或新文件之一
+            //Rename is atomic, a crash leaves either the old or the new file
+            if (compactFile.renameTo(mFile)) {
+                mRecordCount = mIndex.size();
+                mLength = mFile.length();
+            } else {
+                compactFile.delete();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "compact manifest failed", e);
+            compactFile.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private void truncate(long length) {
+        if (!mLoaded) {
+            return;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mFile, "rw");
+            file.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "truncate manifest failed", e);
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    private static byte[] encode(byte op, String key, String value) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        bodyOut.writeByte(op);
+        bodyOut.writeUTF(key);
+        if (value != null) {
+            bodyOut.write(value.getBytes(UTF_8));
+        }
+        bodyOut.flush();
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(bodyBytes);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(HEADER_SIZE + bodyBytes.length);
+        DataOutputStream recordOut = new DataOutputStream(record);
+        recordOut.writeInt(bodyBytes.length);
+        recordOut.writeInt((int) crc32.getValue());
+        recordOut.write(bodyBytes);
+        recordOut.flush();
+        return record.toByteArray();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
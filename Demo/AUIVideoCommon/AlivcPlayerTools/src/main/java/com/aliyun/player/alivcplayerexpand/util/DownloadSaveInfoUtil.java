@@ -6,21 +6,33 @@ import com.aliyun.player.alivcplayerexpand.util.download.AliyunDownloadMediaInfo
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Mulberry create on 2018/4/18.
  */
-
+/****
+ * Download infos are kept in the {@link DownloadManifest} of the save dir, keyed by the name of the former
+ * per-download .info files, which are imported into the manifest and deleted on first use.
+ */
 public class DownloadSaveInfoUtil {
 
+    /**
+     * 已导入旧.info文件的目录
+     */
+    /****
+     * Dirs whose former .info files were imported
+     */
+    private static final Set<String> sImportedDirs = new HashSet<>();
+
     private String mSaveDir;
 
     public DownloadSaveInfoUtil(String saveDir) {
@@ -29,23 +41,12 @@ public class DownloadSaveInfoUtil {
 
     public void writeDownloadingInfo(AliyunDownloadMediaInfo downloadInfo) {
         String savePath = downloadInfo.getSavePath();
-        if (!TextUtils.isEmpty(savePath)) {
+        if (!TextUtils.isEmpty(savePath) && mSaveDir != null) {
             File saveFile = new File(downloadInfo.getSavePath());
-            File infoFile = new File(this.mSaveDir, getInfoFileName(saveFile.getName()));
-            if (!infoFile.exists() || infoFile.isDirectory()) {
-                try {
-                    infoFile.createNewFile();
-                } catch (IOException var7) {
-                }
-            }
-
             List<AliyunDownloadMediaInfo> infos = new ArrayList();
             infos.add(downloadInfo);
-            if (infoFile.exists()) {
-                String content = AliyunDownloadMediaInfo.getJsonFromInfos(infos);
-                this.writeStringToFile(infoFile, content);
-            }
-
+            String content = AliyunDownloadMediaInfo.getJsonFromInfos(infos);
+            getManifest(mSaveDir).put(getInfoFileName(saveFile.getName()), content);
         }
     }
 
@@ -56,36 +57,16 @@ public class DownloadSaveInfoUtil {
     public List<AliyunDownloadMediaInfo> getAlivcDownloadeds() {
         if (mSaveDir != null) {
 
-            File infoFile = new File(this.mSaveDir);
-            if (infoFile.exists() && infoFile.isDirectory()) {
-                File[] childs = infoFile.listFiles();
-                if (childs == null) {
-                    return null;
-                } else {
-                    List<AliyunDownloadMediaInfo> infos = new ArrayList();
-                    File[] var4 = childs;
-                    int var5 = childs.length;
-
-                    for (int var6 = 0; var6 < var5; ++var6) {
-                        File child = var4[var6];
-                        if (child.getAbsolutePath().endsWith(".info")) {
-                            String infoContent = this.readStringFromFile(child);
-                            List<AliyunDownloadMediaInfo> infosFromJson = AliyunDownloadMediaInfo.getInfosFromJson(
-                                infoContent);
-                            AliyunDownloadMediaInfo info;
-                            if (infosFromJson != null && !infosFromJson.isEmpty()) {
-                                for (Iterator var10 = infosFromJson.iterator(); var10.hasNext(); infos.add(info)) {
-                                    info = (AliyunDownloadMediaInfo)var10.next();
-                                    if (info.getStatus() == AliyunDownloadMediaInfo.Status.Complete) {
-                                        info.setStatus(AliyunDownloadMediaInfo.Status.Complete);
-                                    }
-                                }
-                            }
-                        }
+            File saveDir = new File(this.mSaveDir);
+            if (saveDir.exists() && saveDir.isDirectory()) {
+                List<AliyunDownloadMediaInfo> infos = new ArrayList();
+                for (String infoContent : getManifest(mSaveDir).values()) {
+                    List<AliyunDownloadMediaInfo> infosFromJson = AliyunDownloadMediaInfo.getInfosFromJson(infoContent);
+                    if (infosFromJson != null) {
+                        infos.addAll(infosFromJson);
                     }
-
-                    return infos;
                 }
+                return infos;
             } else {
                 return null;
             }
@@ -98,8 +79,7 @@ public class DownloadSaveInfoUtil {
         if (!TextUtils.isEmpty(savePath)) {
             File file = new File(savePath);
             String saveInfoName = getInfoFileName(file.getName());
-            File infoFile = new File(this.mSaveDir, saveInfoName);
-            String infoContent = this.readStringFromFile(infoFile);
+            String infoContent = mSaveDir == null ? null : getManifest(mSaveDir).get(saveInfoName);
             List<AliyunDownloadMediaInfo> infosFromJson = AliyunDownloadMediaInfo.getInfosFromJson(infoContent);
             if (infosFromJson != null && !infosFromJson.isEmpty()) {
                 Iterator var8 = infosFromJson.iterator();
@@ -137,32 +117,55 @@ public class DownloadSaveInfoUtil {
             if (!TextUtils.isEmpty(savePath)) {
                 File file = new File(savePath);
                 String saveInfoName = getInfoFileName(file.getName());
-                File infoFile = new File(saveDir, saveInfoName);
-                if (infoFile.exists() && !infoFile.isDirectory()) {
-                    infoFile.delete();
-                }
+                getManifest(saveDir).remove(saveInfoName);
             }
         }
     }
 
-    private void writeStringToFile(File file, String content) {
-        PrintStream ps = null;
-
-        try {
-            ps = new PrintStream(new FileOutputStream(file));
-            ps.println(content);
-            ps.flush();
-        } catch (FileNotFoundException var8) {
-        } finally {
-            if (ps != null) {
-                ps.close();
+    /**
+     * 获取目录的日志文件,首次使用时导入旧的.info文件,只删除已写入日志文件的旧文件
+     */
+    /****
+     * Get the manifest of the dir, the former .info files are imported on first use. A former file is only deleted
+     * once its record is in the manifest, the others are imported again on the next launch
+     */
+    private static DownloadManifest getManifest(String saveDir) {
+        DownloadManifest manifest = DownloadManifest.of(saveDir);
+        synchronized (sImportedDirs) {
+            if (!sImportedDirs.add(new File(saveDir).getAbsolutePath())) {
+                return manifest;
+            }
+            File[] childs = new File(saveDir).listFiles();
+            if (childs == null) {
+                return manifest;
+            }
+            Map<String, String> legacyInfos = new LinkedHashMap<>();
+            List<File> legacyFiles = new ArrayList<>();
+            for (File child : childs) {
+                if (child.isFile() && child.getName().endsWith(".info")) {
+                    String content = readStringFromFile(child);
+                    if (content != null) {
+                        legacyInfos.put(child.getName(), content);
+                        legacyFiles.add(child);
+                    }
+                }
+            }
+            if (!legacyFiles.isEmpty()) {
+                Set<String> written = manifest.putAll(legacyInfos);
+                for (File legacyFile : legacyFiles) {
+                    if (written.contains(legacyFile.getName())) {
+                        legacyFile.delete();
+                    }
+                }
             }
-
         }
-
+        return manifest;
     }
 
-    private String readStringFromFile(File file) {
+    /**
+     * @return null if the file can't be read completely
+     */
+    private static String readStringFromFile(File file) {
         BufferedReader reader = null;
         StringBuilder stringBuilder = new StringBuilder();
 
@@ -176,6 +179,7 @@ public class DownloadSaveInfoUtil {
 
             reader.close();
         } catch (IOException var13) {
+            return null;
         } finally {
             if (reader != null) {
                 try {
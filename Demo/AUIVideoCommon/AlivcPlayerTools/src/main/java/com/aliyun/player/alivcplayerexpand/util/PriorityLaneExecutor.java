@@ -0,0 +1,419 @@
+package com.aliyun.player.alivcplayerexpand.util;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带优先级的任务通道
+ * <p>
+ * 1.任务按优先级执行,优先级相同时按提交顺序执行;带相同key的任务按提交顺序依次执行,不会被更高优先级的同key任务插队
+ * 2.提交任务从不阻塞;排队任务超过容量时增加线程,直到最大线程数,仍然超出的任务继续排队并计入溢出次数,
+ * 队列清空后线程数恢复
+ * 3.排队任务有上限:达到上限时,与已排队任务相同的Runnable合并为一次执行,其余任务被拒绝;告警日志限频打印
+ * 4.统计队列深度,等待时长和执行时长
+ */
+/****
+ * Executor lane with priorities
+ * <p>
+ * 1. Tasks run by priority, then in submission order. Tasks with the same key run one after another in submission
+ * order, a later one never overtakes an earlier one of its key whatever its priority
+ * 2. Submitting never blocks. When more tasks than the capacity are queued, threads are added up to the maximum; tasks
+ * above that stay queued and are counted as overflow. The thread count is restored once the queue is empty
+ * 3. The queue is bounded: once full, a Runnable already queued is merged into that one run, other tasks are rejected.
+ * The warnings are rate-limited
+ * 4. Queue depth, wait time and run time are counted
+ */
+public class PriorityLaneExecutor {
+
+    private static final String TAG = PriorityLaneExecutor.class.getSimpleName();
+
+    // Minimum interval between two overflow or rejection warnings of a lane
+    private static final long WARN_INTERVAL_NS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String mName;
+    private final int mCoreThreads;
+    private final int mMaxThreads;
+    private final int mCapacity;
+    private final int mMaxQueued;
+    private final ThreadPoolExecutor mExecutor;
+    private final AtomicLong mSequence = new AtomicLong();
+    // Guards the core pool size of mExecutor
+    private final Object mPoolSizeLock = new Object();
+
+    // Guards mQueuedRunnables and mKeyChains
+    private final Object mQueueLock = new Object();
+    // Number of times each Runnable is queued, used to merge it on overflow
+    private final Map<Runnable, Integer> mQueuedRunnables = new IdentityHashMap<>();
+    // Tasks waiting for the running or queued task of their key, the entry exists while a task of the key is pending
+    private final Map<Object, ArrayDeque<LaneTask>> mKeyChains = new HashMap<>();
+
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mOverflowCount = new AtomicLong();
+    private final AtomicLong mMergedCount = new AtomicLong();
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private final AtomicLong mTotalWaitNs = new AtomicLong();
+    private final AtomicLong mMaxWaitNs = new AtomicLong();
+    private final AtomicLong mTotalRunNs = new AtomicLong();
+    private final AtomicLong mMaxRunNs = new AtomicLong();
+    private final AtomicLong mLastWarnNs = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NS);
+
+    /**
+     * @param name        lane name, used for thread names and logs
+     * @param coreThreads number of threads while the queue is below its capacity
+     * @param maxThreads  number of threads the lane grows to while the queue is above its capacity
+     * @param capacity    number of queued tasks above which threads are added
+     * @param maxQueued   number of queued tasks above which tasks are merged or rejected
+     */
+    public PriorityLaneExecutor(final String name, int coreThreads, int maxThreads, int capacity, int maxQueued) {
+        mName = name;
+        mCoreThreads = coreThreads;
+        mMaxThreads = Math.max(coreThreads, maxThreads);
+        mCapacity = capacity;
+        mMaxQueued = Math.max(capacity, maxQueued);
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "ThreadUtils-" + name + " #" + mCount.getAndIncrement());
+            }
+        };
+        // The queue is bounded by execute(); with an unbounded queue, the pool never grows above its core size by
+        // itself, see growPool()
+        mExecutor = new ThreadPoolExecutor(coreThreads, mMaxThreads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param runnable Runnable
+     * @param priority 优先级,越大越先执行
+     * @return 任务被拒绝时返回false
+     */
+    /****
+     * Submit a task
+     *
+     * @param runnable Runnable
+     * @param priority priority, the higher the sooner
+     * @return false if the task was rejected
+     */
+    public boolean execute(Runnable runnable, int priority) {
+        return execute(runnable, priority, null);
+    }
+
+    /**
+     * 提交任务,相同key的任务按提交顺序依次执行
+     *
+     * @param runnable Runnable
+     * @param priority 优先级,越大越先执行
+     * @param key      任务的key,例如写入的记录,为null时不限制顺序
+     * @return 任务被拒绝时返回false
+     */
+    /****
+     * Submit a task, the tasks with the same key run one after another in submission order
+     *
+     * @param runnable Runnable
+     * @param priority priority, the higher the sooner
+     * @param key      key of the task, e.g. the record it writes, or null for no ordering
+     * @return false if the task was rejected
+     */
+    public boolean execute(Runnable runnable, int priority, Object key) {
+        if (runnable == null) {
+            return false;
+        }
+        LaneTask task;
+        int depth;
+        boolean chained = false;
+        synchronized (mQueueLock) {
+            if (mQueueDepth.get() >= mMaxQueued) {
+                if (mQueuedRunnables.containsKey(runnable)) {
+                    //已排队的同一Runnable会完成同样的工作,合并为一次执行
+                    //The Runnable already queued does the same work, so both submissions are merged into that run
+                    long merged = mMergedCount.incrementAndGet();
+                    warn("lane is full, merged: " + merged);
+                    return true;
+                }
+                long rejected = mRejectedCount.incrementAndGet();
+                warn("lane is full, rejected: " + rejected);
+                return false;
+            }
+            task = new LaneTask(runnable, priority, mSequence.getAndIncrement(), key);
+            Integer queued = mQueuedRunnables.get(runnable);
+            mQueuedRunnables.put(runnable, queued == null ? 1 : queued + 1);
+            if (key != null) {
+                ArrayDeque<LaneTask> chain = mKeyChains.get(key);
+                if (chain == null) {
+                    mKeyChains.put(key, new ArrayDeque<LaneTask>());
+                } else {
+                    chain.addLast(task);
+                    chained = true;
+                }
+            }
+            depth = mQueueDepth.incrementAndGet();
+        }
+        updateMax(mMaxQueueDepth, depth);
+        mSubmittedCount.incrementAndGet();
+        if (!chained) {
+            mExecutor.execute(task);
+        }
+        if (depth > mCapacity && !growPool()) {
+            long overflow = mOverflowCount.incrementAndGet();
+            warn("lane is above capacity, queue depth: " + depth + ", overflow: " + overflow);
+        }
+        return true;
+    }
+
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    /**
+     * Logs at most one warning per WARN_INTERVAL_NS, the counters in the message cover the skipped ones
+     */
+    private void warn(String message) {
+        long nowNs = System.nanoTime();
+        long lastNs = mLastWarnNs.get();
+        if (nowNs - lastNs >= WARN_INTERVAL_NS && mLastWarnNs.compareAndSet(lastNs, nowNs)) {
+            Log.w(TAG, mName + " " + message);
+        }
+    }
+
+    /**
+     * Adds a thread while the queue is above its capacity, the task has to be queued before so that the new thread
+     * picks it up
+     *
+     * @return false if the lane already runs its maximum number of threads
+     */
+    private boolean growPool() {
+        synchronized (mPoolSizeLock) {
+            int coreSize = mExecutor.getCorePoolSize();
+            if (coreSize >= mMaxThreads) {
+                return false;
+            }
+            mExecutor.setCorePoolSize(coreSize + 1);
+            return true;
+        }
+    }
+
+    private void shrinkPool() {
+        synchronized (mPoolSizeLock) {
+            if (mExecutor.getCorePoolSize() > mCoreThreads && mQueueDepth.get() == 0) {
+                mExecutor.setCorePoolSize(mCoreThreads);
+            }
+        }
+    }
+
+    private void onTaskStarted(LaneTask task) {
+        synchronized (mQueueLock) {
+            Integer queued = mQueuedRunnables.remove(task.mRunnable);
+            if (queued != null && queued > 1) {
+                mQueuedRunnables.put(task.mRunnable, queued - 1);
+            }
+        }
+    }
+
+    /**
+     * Queues the next task of the key, or forgets the key if there is none
+     */
+    private void onTaskFinished(LaneTask task) {
+        if (task.mKey == null) {
+            return;
+        }
+        LaneTask next;
+        synchronized (mQueueLock) {
+            ArrayDeque<LaneTask> chain = mKeyChains.get(task.mKey);
+            next = chain == null ? null : chain.pollFirst();
+            if (next == null) {
+                mKeyChains.remove(task.mKey);
+            }
+        }
+        if (next != null) {
+            mExecutor.execute(next);
+        }
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    private class LaneTask implements Runnable, Comparable<LaneTask> {
+        private final Runnable mRunnable;
+        private final int mPriority;
+        private final long mSequence;
+        private final Object mKey;
+        private final long mSubmitNs = System.nanoTime();
+
+        LaneTask(Runnable runnable, int priority, long sequence, Object key) {
+            mRunnable = runnable;
+            mPriority = priority;
+            mSequence = sequence;
+            mKey = key;
+        }
+
+        @Override
+        public void run() {
+            long startNs = System.nanoTime();
+            onTaskStarted(this);
+            if (mQueueDepth.decrementAndGet() == 0 && mExecutor.getCorePoolSize() > mCoreThreads) {
+                shrinkPool();
+            }
+            long waitNs = startNs - mSubmitNs;
+            mTotalWaitNs.addAndGet(waitNs);
+            updateMax(mMaxWaitNs, waitNs);
+            try {
+                mRunnable.run();
+            } finally {
+                long runNs = System.nanoTime() - startNs;
+                mTotalRunNs.addAndGet(runNs);
+                updateMax(mMaxRunNs, runNs);
+                mCompletedCount.incrementAndGet();
+                onTaskFinished(this);
+            }
+        }
+
+        /**
+         * Higher priority first, then lower sequence number, i.e. submission order
+         */
+        @Override
+        public int compareTo(LaneTask other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * 任务通道统计
+     */
+    /****
+     * Lane counters
+     */
+    public static class Stats {
+        private final String mName;
+        private final int mCapacity;
+        private final int mMaxQueued;
+        private final int mPoolSize;
+        private final int mQueueDepth;
+        private final int mMaxQueueDepth;
+        private final long mSubmittedCount;
+        private final long mCompletedCount;
+        private final long mOverflowCount;
+        private final long mMergedCount;
+        private final long mRejectedCount;
+        private final long mAverageWaitMs;
+        private final long mMaxWaitMs;
+        private final long mAverageRunMs;
+        private final long mMaxRunMs;
+
+        private Stats(PriorityLaneExecutor lane) {
+            mName = lane.mName;
+            mCapacity = lane.mCapacity;
+            mMaxQueued = lane.mMaxQueued;
+            mPoolSize = lane.mExecutor.getPoolSize();
+            mQueueDepth = lane.mQueueDepth.get();
+            mMaxQueueDepth = lane.mMaxQueueDepth.get();
+            mSubmittedCount = lane.mSubmittedCount.get();
+            mCompletedCount = lane.mCompletedCount.get();
+            mOverflowCount = lane.mOverflowCount.get();
+            mMergedCount = lane.mMergedCount.get();
+            mRejectedCount = lane.mRejectedCount.get();
+            long started = mCompletedCount + lane.mExecutor.getActiveCount();
+            mAverageWaitMs = started == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(lane.mTotalWaitNs.get() / started);
+            mMaxWaitMs = TimeUnit.NANOSECONDS.toMillis(lane.mMaxWaitNs.get());
+            mAverageRunMs = mCompletedCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(lane.mTotalRunNs.get() / mCompletedCount);
+            mMaxRunMs = TimeUnit.NANOSECONDS.toMillis(lane.mMaxRunNs.get());
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getCapacity() {
+            return mCapacity;
+        }
+
+        public int getMaxQueued() {
+            return mMaxQueued;
+        }
+
+        public int getPoolSize() {
+            return mPoolSize;
+        }
+
+        public int getQueueDepth() {
+            return mQueueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return mMaxQueueDepth;
+        }
+
+        public long getSubmittedCount() {
+            return mSubmittedCount;
+        }
+
+        public long getCompletedCount() {
+            return mCompletedCount;
+        }
+
+        public long getOverflowCount() {
+            return mOverflowCount;
+        }
+
+        public long getMergedCount() {
+            return mMergedCount;
+        }
+
+        public long getRejectedCount() {
+            return mRejectedCount;
+        }
+
+        public long getAverageWaitMs() {
+            return mAverageWaitMs;
+        }
+
+        public long getMaxWaitMs() {
+            return mMaxWaitMs;
+        }
+
+        public long getAverageRunMs() {
+            return mAverageRunMs;
+        }
+
+        public long getMaxRunMs() {
+            return mMaxRunMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: threads=%d depth=%d/%d/%d max=%d submitted=%d completed=%d overflow=%d merged=%d rejected=%d wait(avg/max)=%d/%dms run(avg/max)=%d/%dms",
+                    mName, mPoolSize, mQueueDepth, mCapacity, mMaxQueued, mMaxQueueDepth, mSubmittedCount, mCompletedCount,
+                    mOverflowCount, mMergedCount, mRejectedCount, mAverageWaitMs, mMaxWaitMs, mAverageRunMs, mMaxRunMs);
+        }
+    }
+}
@@ -4,14 +4,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-
 /**
  * android 主线程、子线程切换、主线程延时任务工具类
  *
@@ -19,6 +11,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 2.线程池参数使用AsyncTask的配置，AsyncTask是android sdk 26的版本
  * 3.切换主线程任务，延时切换主线程
  * 4.使用线程池创建子线程，执行简单的异步任务
+ * 5.数据库读写、文件及网络IO、计算任务分别在独立的任务通道中按优先级执行，提交不阻塞，队列达到上限时合并或拒绝任务
  */
 /****
  * android main thread, sub-thread switching, main thread delay task tool class
@@ -27,6 +20,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 2. thread pool parameters using the configuration of AsyncTask, AsyncTask is android sdk 26 version
  * 3. Switch the main thread task, delay switch the main thread
  * 4. Using the thread pool to create sub-threads to perform simple asynchronous tasks
+ * 5. Database, file/network IO and CPU tasks run by priority in separate lanes, submitting never blocks, and tasks are
+ * merged or rejected once the queue of a lane is full
  */
 public class ThreadUtils {
 
@@ -45,28 +40,55 @@ public class ThreadUtils {
     // the CPU with background work
     private static final int CORE_POOL_SIZE = Math.max(2, Math.min(CPU_COUNT - 1, 4));
     private static final int MAXIMUM_POOL_SIZE = CPU_COUNT * 2 + 1;
-    private static final int KEEP_ALIVE_SECONDS = 30;
-    private static final BlockingQueue<Runnable> POOL_WORK_QUEUE =
-        new LinkedBlockingQueue<>(128);
-    private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
-        private final AtomicInteger mCount = new AtomicInteger(1);
-
-        @Override
-        public Thread newThread(Runnable r) {
-            return new Thread(r, "ThreadUtils #" + mCount.getAndIncrement());
-        }
-    };
+    private static final int LANE_CAPACITY = 128;
+    private static final int LANE_MAX_QUEUED = 1024;
+
     /**
-     * An {@link Executor} that can be used to execute tasks in parallel.
+     * 任务优先级
+     */
+    /****
+     * Task priorities
      */
-    private static final ThreadPoolExecutor THREAD_POOL_EXECUTOR;
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    /**
+     * 任务通道
+     */
+    /****
+     * Task lanes
+     */
+    public enum Lane {
+        /**
+         * 数据库IO,单线程,保证写入顺序
+         */
+        /****
+         * Database IO, single thread so that writes keep their order
+         */
+        DB,
+        /**
+         * 文件、网络IO及其它异步任务,与原线程池参数相同
+         */
+        /****
+         * File and network IO and other asynchronous tasks, sized like the former thread pool
+         */
+        IO,
+        /**
+         * 计算任务,例如图片编码,线程数不超过CPU核数
+         */
+        /****
+         * CPU bound tasks, e.g. image encoding, with no more threads than CPU cores
+         */
+        CPU
+    }
+
+    private static final PriorityLaneExecutor[] LANES = new PriorityLaneExecutor[Lane.values().length];
 
     static {
-        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
-            CORE_POOL_SIZE, MAXIMUM_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
-            POOL_WORK_QUEUE, THREAD_FACTORY);
-        threadPoolExecutor.allowCoreThreadTimeOut(true);
-        THREAD_POOL_EXECUTOR = threadPoolExecutor;
+        LANES[Lane.DB.ordinal()] = new PriorityLaneExecutor("db", 1, 1, LANE_CAPACITY, LANE_MAX_QUEUED);
+        LANES[Lane.IO.ordinal()] = new PriorityLaneExecutor("io", CORE_POOL_SIZE, MAXIMUM_POOL_SIZE, LANE_CAPACITY, LANE_MAX_QUEUED);
+        LANES[Lane.CPU.ordinal()] = new PriorityLaneExecutor("cpu", Math.max(1, CPU_COUNT - 1), Math.max(1, CPU_COUNT), LANE_CAPACITY, LANE_MAX_QUEUED);
     }
 
     /**
@@ -100,21 +122,74 @@ public class ThreadUtils {
     }
 
     /**
-     * 从线程池中创建子线程执行异步任务
-     * 在任务数超过128，或者线程池Shutdown时将跳过这条任务
+     * 在IO任务通道中执行异步任务
      * @param runnable Runnable
      */
     /****
-     * Create a sub-thread in the thread pool to execute asynchronous tasks
-     * Skip this task if the task number exceeds 128 or the thread pool is Shutdown
+     * Run an asynchronous task in the IO lane
      * @param runnable Runnable
      */
     public static void runOnSubThread(Runnable runnable) {
+        runOnSubThread(Lane.IO, PRIORITY_NORMAL, runnable);
+    }
 
-        if (THREAD_POOL_EXECUTOR.getQueue().size() == 128 || THREAD_POOL_EXECUTOR.isShutdown()) {
-            Log.e(TAG, "The thread pool is full. Check whether too many time-consuming threads are started.");
-            return;
+    /**
+     * 在指定任务通道中按优先级执行异步任务
+     * 调用不会阻塞;排队任务超过容量时先增加线程,达到最大线程数后任务继续排队并计入溢出次数;
+     * 排队任务达到上限时,已排队的同一Runnable合并执行,其余任务被拒绝并计数
+     * @param lane 任务通道
+     * @param priority 优先级,越大越先执行
+     * @param runnable Runnable
+     * @return 任务被拒绝时返回false
+     */
+    /****
+     * Run an asynchronous task in a lane, by priority
+     * Never blocks. Above the capacity, threads are added first; above the maximum number of threads the task stays
+     * queued and is counted as overflow. Once the queue is full, a Runnable already queued is merged into that run and
+     * other tasks are rejected and counted
+     * @param lane lane
+     * @param priority priority, the higher the sooner
+     * @param runnable Runnable
+     * @return false if the task was rejected
+     */
+    public static boolean runOnSubThread(Lane lane, int priority, Runnable runnable) {
+        return LANES[lane.ordinal()].execute(runnable, priority);
+    }
+
+    /**
+     * 在指定任务通道中按优先级执行异步任务,相同key的任务按提交顺序依次执行,例如同一条记录的写入
+     * @param key 任务的key
+     * @return 任务被拒绝时返回false
+     */
+    /****
+     * Run an asynchronous task in a lane, by priority; the tasks with the same key run one after another in submission
+     * order, e.g. the writes of one record
+     * @param key key of the task
+     * @return false if the task was rejected
+     */
+    public static boolean runOnSubThread(Lane lane, int priority, Object key, Runnable runnable) {
+        return LANES[lane.ordinal()].execute(runnable, priority, key);
+    }
+
+    /**
+     * 获取任务通道统计:队列深度,等待时长,执行时长
+     */
+    /****
+     * Get the counters of a lane: queue depth, wait time and run time
+     */
+    public static PriorityLaneExecutor.Stats getLaneStats(Lane lane) {
+        return LANES[lane.ordinal()].getStats();
+    }
+
+    /**
+     * 打印所有任务通道统计
+     */
+    /****
+     * Log the counters of all the lanes
+     */
+    public static void logLaneStats() {
+        for (Lane lane : Lane.values()) {
+            Log.i(TAG, getLaneStats(lane).toString());
         }
-        THREAD_POOL_EXECUTOR.execute(runnable);
     }
 }
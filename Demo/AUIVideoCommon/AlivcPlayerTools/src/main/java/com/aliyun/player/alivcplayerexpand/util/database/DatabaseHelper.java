@@ -20,11 +20,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     /**
      * 数据库版本
+     * 1: 初始版本
+     * 2: duration和size改为integer,增加vid/quality,status,tvid索引
      */
     /****
      * Database version
+     * 1: initial version
+     * 2: duration and size are integers, indexes on vid/quality, status and tvid
      */
-    private static int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 2;
 
 
     public DatabaseHelper(Context context, String name, int version) {
@@ -36,7 +40,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         if(mInstance == null){
             synchronized (DatabaseHelper.class){
                 if(mInstance == null){
-                    mInstance = new DatabaseHelper(context,DatabaseManager.DB_NAME,1);
+                    mInstance = new DatabaseHelper(context,DatabaseManager.DB_NAME,DATABASE_VERSION);
                 }
             }
         }
@@ -48,9 +52,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             synchronized (DatabaseHelper.class){
                 if(mInstance == null){
                     if(TextUtils.isEmpty(dbPath)){
-                        mInstance = new DatabaseHelper(context,dbPath ,1);
+                        mInstance = new DatabaseHelper(context,dbPath ,DATABASE_VERSION);
                     }else{
-                        mInstance = new DatabaseHelper(context,DB_PATH ,1);
+                        mInstance = new DatabaseHelper(context,DB_PATH ,DATABASE_VERSION);
                     }
 
                 }
@@ -59,15 +63,35 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return mInstance;
     }
 
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        //下载进度在子线程写入,WAL模式下读写互不阻塞
+        //Progress is written on a sub-thread, with WAL readers and the writer don't block each other
+        db.enableWriteAheadLogging();
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         String createTable = DatabaseManager.CREATE_TABLE_SQL;
         db.execSQL(createTable);
+        createIndexes(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            for (String sql : DatabaseManager.UPGRADE_V1_TO_V2_SQL) {
+                db.execSQL(sql);
+            }
+            createIndexes(db);
+        }
+    }
 
+    private static void createIndexes(SQLiteDatabase db) {
+        for (String sql : DatabaseManager.CREATE_INDEX_SQL) {
+            db.execSQL(sql);
+        }
     }
 
 }
@@ -1,16 +1,18 @@
 package com.aliyun.player.alivcplayerexpand.util.database;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
 
 import com.aliyun.player.alivcplayerexpand.util.download.AliyunDownloadMediaInfo;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 数据库管理类
@@ -117,7 +119,7 @@ public class DatabaseManager {
             " (" + DatabaseManager.ID + " integer primary key autoincrement," +
             DatabaseManager.VID + " text," + DatabaseManager.QUALITY + " text," +
             DatabaseManager.TITLE + " text," + DatabaseManager.COVERURL + " text," +
-            DatabaseManager.DURATION + " text," + DatabaseManager.SIZE + " text," +
+            DatabaseManager.DURATION + " integer," + DatabaseManager.SIZE + " integer," +
             DatabaseManager.PROGRESS + " integer," + DatabaseManager.STATUS + " integer," +
             DatabaseManager.PATH + " text," + DatabaseManager.TRACKINDEX + " integer," +
             DatabaseManager.TVID + " text," + DatabaseManager.TVNAME + " text," +
@@ -125,6 +127,80 @@ public class DatabaseManager {
             DatabaseManager.VIDTYPE + " integer," +
             DatabaseManager.FORMAT + " text)";
 
+    /**
+     * 建索引语句
+     */
+    /****
+     * Create index statements
+     */
+    public static final String[] CREATE_INDEX_SQL = {
+            "create index if not exists idx_download_vid_quality on " + DatabaseManager.TABLE_NAME +
+                    " (" + DatabaseManager.VID + ", " + DatabaseManager.QUALITY + ")",
+            "create index if not exists idx_download_status on " + DatabaseManager.TABLE_NAME + " (" + DatabaseManager.STATUS + ")",
+            "create index if not exists idx_download_tvid on " + DatabaseManager.TABLE_NAME + " (" + DatabaseManager.TVID + ")"
+    };
+
+    /**
+     * 所有列,不含id
+     */
+    /****
+     * All columns, except id
+     */
+    private static final String COLUMNS = DatabaseManager.VID + ", " + DatabaseManager.QUALITY + ", " + DatabaseManager.TITLE + ", " +
+            DatabaseManager.COVERURL + ", " + DatabaseManager.DURATION + ", " + DatabaseManager.SIZE + ", " +
+            DatabaseManager.PROGRESS + ", " + DatabaseManager.STATUS + ", " + DatabaseManager.PATH + ", " +
+            DatabaseManager.TRACKINDEX + ", " + DatabaseManager.TVID + ", " + DatabaseManager.TVNAME + ", " +
+            DatabaseManager.WATCHED + ", " + DatabaseManager.TVCOVERURL + ", " + DatabaseManager.VIDTYPE + ", " +
+            DatabaseManager.FORMAT;
+
+    /**
+     * 版本1升级到版本2:duration和size由text改为integer,并建索引
+     */
+    /****
+     * Upgrade from version 1 to version 2: duration and size change from text to integer, and indexes are created
+     */
+    public static final String[] UPGRADE_V1_TO_V2_SQL = {
+            "alter table " + DatabaseManager.TABLE_NAME + " rename to " + DatabaseManager.TABLE_NAME + "_v1",
+            CREATE_TABLE_SQL,
+            "insert into " + DatabaseManager.TABLE_NAME + " (" + DatabaseManager.ID + ", " + COLUMNS + ") select " +
+                    DatabaseManager.ID + ", " + COLUMNS
+                    .replace(DatabaseManager.DURATION + ",", "cast(" + DatabaseManager.DURATION + " as integer),")
+                    .replace(DatabaseManager.SIZE + ",", "cast(" + DatabaseManager.SIZE + " as integer),") +
+                    " from " + DatabaseManager.TABLE_NAME + "_v1",
+            "drop table " + DatabaseManager.TABLE_NAME + "_v1"
+    };
+
+    /**
+     * 插入语句
+     */
+    /****
+     * Insert statement
+     */
+    private static final String INSERT_SQL = "insert into " + DatabaseManager.TABLE_NAME + " (" + COLUMNS +
+            ") values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 根据vid和quality更新语句
+     */
+    /****
+     * Update by vid and quality statement
+     */
+    private static final String UPDATE_BY_VID_AND_QUALITY_SQL = "update " + DatabaseManager.TABLE_NAME + " set " +
+            DatabaseManager.PROGRESS + "=?, " + DatabaseManager.STATUS + "=?, " + DatabaseManager.PATH + "=?, " +
+            DatabaseManager.TRACKINDEX + "=?, " + DatabaseManager.FORMAT + "=?, " + DatabaseManager.TVNAME + "=?, " +
+            DatabaseManager.WATCHED + "=? where " + DatabaseManager.VID + "=? and " + DatabaseManager.QUALITY + "=?";
+
+    /**
+     * 根据vid更新语句
+     */
+    /****
+     * Update by vid statement
+     */
+    private static final String UPDATE_BY_VID_SQL = "update " + DatabaseManager.TABLE_NAME + " set " +
+            DatabaseManager.PROGRESS + "=?, " + DatabaseManager.STATUS + "=?, " + DatabaseManager.PATH + "=?, " +
+            DatabaseManager.TRACKINDEX + "=?, " + DatabaseManager.FORMAT + "=?, " + DatabaseManager.TVNAME + "=?, " +
+            DatabaseManager.WATCHED + "=?, " + DatabaseManager.QUALITY + "=? where " + DatabaseManager.VID + "=?";
+
     /**
      * 观看历史
      */
@@ -174,6 +250,14 @@ public class DatabaseManager {
      */
     private static final String SELECT_WATCHED_SQL = "select * from " + DatabaseManager.TABLE_NAME + " where watched=?";
 
+    /**
+     * 查询已观看的vid
+     */
+    /****
+     * Select watched vids
+     */
+    private static final String SELECT_WATCHED_VID_SQL = "select distinct " + DatabaseManager.VID + " from " + DatabaseManager.TABLE_NAME + " where watched=?";
+
     public static final String ID = "id";
     public static final String VID = "vid";
     public static final String QUALITY = "quality";
@@ -222,6 +306,17 @@ public class DatabaseManager {
      */
     private SQLiteDatabase mSqliteDatabase;
 
+    /**
+     * 预编译语句,与编译时的数据库绑定,数据库重新打开后重新编译
+     */
+    /****
+     * Compiled statements, bound to the database they were compiled with, recompiled when the database is reopened
+     */
+    private SQLiteDatabase mStatementDatabase;
+    private SQLiteStatement mInsertStatement;
+    private SQLiteStatement mUpdateByVidAndQualityStatement;
+    private SQLiteStatement mUpdateByVidStatement;
+
     private DatabaseManager() {
     }
 
@@ -285,26 +380,33 @@ public class DatabaseManager {
         return count;
     }
 
-    public long insert(AliyunDownloadMediaInfo mediaInfo) {
-
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(VID, mediaInfo.getVid());
-        contentValues.put(QUALITY, mediaInfo.getQuality());
-        contentValues.put(TITLE, mediaInfo.getTitle());
-        contentValues.put(FORMAT, mediaInfo.getFormat());
-        contentValues.put(COVERURL, mediaInfo.getCoverUrl());
-        contentValues.put(DURATION, mediaInfo.getDuration());
-        contentValues.put(SIZE, mediaInfo.getSize());
-        contentValues.put(PROGRESS, mediaInfo.getProgress());
-        contentValues.put(STATUS, mediaInfo.getStatus().ordinal());
-        contentValues.put(PATH, mediaInfo.getSavePath());
-        contentValues.put(TRACKINDEX, mediaInfo.getQualityIndex());
-        contentValues.put(TVID, mediaInfo.getTvId());
-        contentValues.put(TVNAME,mediaInfo.getTvName());
-        contentValues.put(TVCOVERURL,mediaInfo.getTvCoverUrl());
-        contentValues.put(WATCHED,mediaInfo.getWatched());
-        contentValues.put(VIDTYPE,mediaInfo.getVidType());
-        return mSqliteDatabase.insert(TABLE_NAME, null, contentValues);
+    public synchronized long insert(AliyunDownloadMediaInfo mediaInfo) {
+        SQLiteStatement statement = getInsertStatement();
+        bindInsert(statement, mediaInfo);
+        return statement.executeInsert();
+    }
+
+    /**
+     * 在一个事务中批量插入
+     */
+    /****
+     * Insert in batch, in a single transaction
+     */
+    public synchronized void insert(List<AliyunDownloadMediaInfo> mediaInfos) {
+        if (mediaInfos == null || mediaInfos.isEmpty()) {
+            return;
+        }
+        SQLiteStatement statement = getInsertStatement();
+        mSqliteDatabase.beginTransaction();
+        try {
+            for (AliyunDownloadMediaInfo mediaInfo : mediaInfos) {
+                bindInsert(statement, mediaInfo);
+                statement.executeInsert();
+            }
+            mSqliteDatabase.setTransactionSuccessful();
+        } finally {
+            mSqliteDatabase.endTransaction();
+        }
     }
 
     public int delete (AliyunDownloadMediaInfo mediaInfo) {
@@ -315,7 +417,7 @@ public class DatabaseManager {
                                       new String[] {mediaInfo.getVid(), mediaInfo.getQuality()});
     }
 
-    public int update(AliyunDownloadMediaInfo mediaInfo) {
+    public synchronized int update(AliyunDownloadMediaInfo mediaInfo) {
         //没有tvId那么是单集
         //It's a single episode if there's no tvId.
         if (TextUtils.isEmpty(mediaInfo.getTvId())) {
@@ -325,6 +427,28 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * 在一个事务中批量更新
+     */
+    /****
+     * Update in batch, in a single transaction
+     */
+    public synchronized void update(List<AliyunDownloadMediaInfo> mediaInfos) {
+        if (mediaInfos == null || mediaInfos.isEmpty()) {
+            return;
+        }
+        prepareStatements();
+        mSqliteDatabase.beginTransaction();
+        try {
+            for (AliyunDownloadMediaInfo mediaInfo : mediaInfos) {
+                update(mediaInfo);
+            }
+            mSqliteDatabase.setTransactionSuccessful();
+        } finally {
+            mSqliteDatabase.endTransaction();
+        }
+    }
+
     /**
      * 根据vid和quality更新清晰度
      */
@@ -332,18 +456,14 @@ public class DatabaseManager {
      * Update the clarity according to vid and quality
      */
     private int updateByVidAndQuality(AliyunDownloadMediaInfo mediaInfo) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(PROGRESS, mediaInfo.getProgress());
-        contentValues.put(STATUS, mediaInfo.getStatus().ordinal());
-        contentValues.put(PATH, mediaInfo.getSavePath());
-        contentValues.put(TRACKINDEX, mediaInfo.getQualityIndex());
-        contentValues.put(FORMAT, mediaInfo.getFormat());
-        contentValues.put(TVNAME,mediaInfo.getTvName());
-        contentValues.put(WATCHED,mediaInfo.getWatched());
+        prepareStatements();
+        SQLiteStatement statement = mUpdateByVidAndQualityStatement;
+        bindUpdate(statement, mediaInfo);
         /*更新清晰度*/
         /*Update clarity*/
-        return mSqliteDatabase.update(TABLE_NAME, contentValues, " vid=? and quality=?",
-                                      new String[] {mediaInfo.getVid(), mediaInfo.getQuality()});
+        bindString(statement, 8, mediaInfo.getVid());
+        bindString(statement, 9, mediaInfo.getQuality());
+        return statement.executeUpdateDelete();
     }
 
     /**
@@ -353,19 +473,96 @@ public class DatabaseManager {
      * Update the database according to vid
      */
     private int updateByVid(AliyunDownloadMediaInfo mediaInfo) {
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(PROGRESS, mediaInfo.getProgress());
-        contentValues.put(STATUS, mediaInfo.getStatus().ordinal());
-        contentValues.put(PATH, mediaInfo.getSavePath());
-        contentValues.put(TRACKINDEX, mediaInfo.getQualityIndex());
-        contentValues.put(FORMAT, mediaInfo.getFormat());
+        prepareStatements();
+        SQLiteStatement statement = mUpdateByVidStatement;
+        bindUpdate(statement, mediaInfo);
         /*更新清晰度*/
         /*Update clarity*/
-        contentValues.put(QUALITY, mediaInfo.getQuality());
-        contentValues.put(TVNAME,mediaInfo.getTvName());
-        contentValues.put(WATCHED,mediaInfo.getWatched());
-        return mSqliteDatabase.update(TABLE_NAME, contentValues, " vid=?",
-                                      new String[] {mediaInfo.getVid()});
+        bindString(statement, 8, mediaInfo.getQuality());
+        bindString(statement, 9, mediaInfo.getVid());
+        return statement.executeUpdateDelete();
+    }
+
+    private SQLiteStatement getInsertStatement() {
+        prepareStatements();
+        return mInsertStatement;
+    }
+
+    /**
+     * 编译语句,数据库重新打开后重新编译
+     */
+    /****
+     * Compile the statements, again when the database was reopened
+     */
+    private void prepareStatements() {
+        if (mSqliteDatabase == null || !mSqliteDatabase.isOpen()) {
+            mSqliteDatabase = databaseHelper.getWritableDatabase();
+        }
+        if (mStatementDatabase == mSqliteDatabase && mInsertStatement != null) {
+            return;
+        }
+        closeStatements();
+        mInsertStatement = mSqliteDatabase.compileStatement(INSERT_SQL);
+        mUpdateByVidAndQualityStatement = mSqliteDatabase.compileStatement(UPDATE_BY_VID_AND_QUALITY_SQL);
+        mUpdateByVidStatement = mSqliteDatabase.compileStatement(UPDATE_BY_VID_SQL);
+        mStatementDatabase = mSqliteDatabase;
+    }
+
+    private void closeStatements() {
+        if (mInsertStatement != null) {
+            mInsertStatement.close();
+            mUpdateByVidAndQualityStatement.close();
+            mUpdateByVidStatement.close();
+        }
+        mInsertStatement = null;
+        mUpdateByVidAndQualityStatement = null;
+        mUpdateByVidStatement = null;
+        mStatementDatabase = null;
+    }
+
+    private static void bindInsert(SQLiteStatement statement, AliyunDownloadMediaInfo mediaInfo) {
+        statement.clearBindings();
+        bindString(statement, 1, mediaInfo.getVid());
+        bindString(statement, 2, mediaInfo.getQuality());
+        bindString(statement, 3, mediaInfo.getTitle());
+        bindString(statement, 4, mediaInfo.getCoverUrl());
+        statement.bindLong(5, mediaInfo.getDuration());
+        statement.bindLong(6, mediaInfo.getSize());
+        statement.bindLong(7, mediaInfo.getProgress());
+        statement.bindLong(8, mediaInfo.getStatus().ordinal());
+        bindString(statement, 9, mediaInfo.getSavePath());
+        statement.bindLong(10, mediaInfo.getQualityIndex());
+        bindString(statement, 11, mediaInfo.getTvId());
+        bindString(statement, 12, mediaInfo.getTvName());
+        statement.bindLong(13, mediaInfo.getWatched());
+        bindString(statement, 14, mediaInfo.getTvCoverUrl());
+        statement.bindLong(15, mediaInfo.getVidType());
+        bindString(statement, 16, mediaInfo.getFormat());
+    }
+
+    /**
+     * 绑定两条更新语句共有的前7个参数
+     */
+    /****
+     * Bind the first 7 arguments, common to both update statements
+     */
+    private static void bindUpdate(SQLiteStatement statement, AliyunDownloadMediaInfo mediaInfo) {
+        statement.clearBindings();
+        statement.bindLong(1, mediaInfo.getProgress());
+        statement.bindLong(2, mediaInfo.getStatus().ordinal());
+        bindString(statement, 3, mediaInfo.getSavePath());
+        statement.bindLong(4, mediaInfo.getQualityIndex());
+        bindString(statement, 5, mediaInfo.getFormat());
+        bindString(statement, 6, mediaInfo.getTvName());
+        statement.bindLong(7, mediaInfo.getWatched());
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
 
     /**
@@ -414,6 +611,28 @@ public class DatabaseManager {
         return queryLists;
     }
 
+    /**
+     * 查询已观看的vid
+     */
+    /****
+     * Query the vids that have been watched
+     */
+    public Set<String> selectWatchedVids() {
+        Set<String> vids = new HashSet<>();
+        if (databaseHelper == null) {
+            return vids;
+        }
+        if (mSqliteDatabase == null || !mSqliteDatabase.isOpen()) {
+            mSqliteDatabase = databaseHelper.getWritableDatabase();
+        }
+        Cursor cursor = mSqliteDatabase.rawQuery(SELECT_WATCHED_VID_SQL, new String[] {HAS_WATCHED + ""});
+        while (cursor.moveToNext()) {
+            vids.add(cursor.getString(0));
+        }
+        cursor.close();
+        return vids;
+    }
+
     /**
      * 查询所有下载中状态的数据
      */
@@ -551,26 +770,40 @@ public class DatabaseManager {
             }
             return queryLists;
         }
+        int vidIndex = cursor.getColumnIndex(VID);
+        int qualityIndex = cursor.getColumnIndex(QUALITY);
+        int titleIndex = cursor.getColumnIndex(TITLE);
+        int coverUrlIndex = cursor.getColumnIndex(COVERURL);
+        int durationIndex = cursor.getColumnIndex(DURATION);
+        int sizeIndex = cursor.getColumnIndex(SIZE);
+        int progressIndex = cursor.getColumnIndex(PROGRESS);
+        int pathIndex = cursor.getColumnIndex(PATH);
+        int statusIndex = cursor.getColumnIndex(STATUS);
+        int formatIndex = cursor.getColumnIndex(FORMAT);
+        int trackIndexIndex = cursor.getColumnIndex(TRACKINDEX);
+        int tvIdIndex = cursor.getColumnIndex(TVID);
+        int tvNameIndex = cursor.getColumnIndex(TVNAME);
+        int tvCoverUrlIndex = cursor.getColumnIndex(TVCOVERURL);
+        int watchedIndex = cursor.getColumnIndex(WATCHED);
+        int vidTypeIndex = cursor.getColumnIndex(VIDTYPE);
         while (cursor.moveToNext()) {
             AliyunDownloadMediaInfo mediaInfo = new AliyunDownloadMediaInfo();
-            mediaInfo.setVid(cursor.getString(cursor.getColumnIndex(VID)));
-            mediaInfo.setQuality(cursor.getString(cursor.getColumnIndex(QUALITY)));
-            mediaInfo.setTitle(cursor.getString(cursor.getColumnIndex(TITLE)));
-            mediaInfo.setCoverUrl(cursor.getString(cursor.getColumnIndex(COVERURL)));
-            String duration = cursor.getString(cursor.getColumnIndex(DURATION));
-            mediaInfo.setDuration(Long.valueOf(duration));
-            String size = cursor.getString(cursor.getColumnIndex(SIZE));
-            mediaInfo.setSize(Long.valueOf(size));
-            mediaInfo.setProgress(cursor.getInt(cursor.getColumnIndex(PROGRESS)));
-            mediaInfo.setSavePath(cursor.getString(cursor.getColumnIndex(PATH)));
-            int status = cursor.getInt(cursor.getColumnIndex(STATUS));
-            mediaInfo.setFormat(cursor.getString(cursor.getColumnIndex(FORMAT)));
-            mediaInfo.setQualityIndex(cursor.getInt(cursor.getColumnIndex(TRACKINDEX)));
-            mediaInfo.setTvId(cursor.getString(cursor.getColumnIndex(TVID)));
-            mediaInfo.setTvName(cursor.getString(cursor.getColumnIndex(TVNAME)));
-            mediaInfo.setTvCoverUrl(cursor.getString(cursor.getColumnIndex(TVCOVERURL)));
-            mediaInfo.setWatched(cursor.getInt(cursor.getColumnIndex(WATCHED)));
-            mediaInfo.setVidType(cursor.getInt(cursor.getColumnIndex(VIDTYPE)));
+            mediaInfo.setVid(cursor.getString(vidIndex));
+            mediaInfo.setQuality(cursor.getString(qualityIndex));
+            mediaInfo.setTitle(cursor.getString(titleIndex));
+            mediaInfo.setCoverUrl(cursor.getString(coverUrlIndex));
+            mediaInfo.setDuration(cursor.getLong(durationIndex));
+            mediaInfo.setSize(cursor.getLong(sizeIndex));
+            mediaInfo.setProgress(cursor.getInt(progressIndex));
+            mediaInfo.setSavePath(cursor.getString(pathIndex));
+            int status = cursor.getInt(statusIndex);
+            mediaInfo.setFormat(cursor.getString(formatIndex));
+            mediaInfo.setQualityIndex(cursor.getInt(trackIndexIndex));
+            mediaInfo.setTvId(cursor.getString(tvIdIndex));
+            mediaInfo.setTvName(cursor.getString(tvNameIndex));
+            mediaInfo.setTvCoverUrl(cursor.getString(tvCoverUrlIndex));
+            mediaInfo.setWatched(cursor.getInt(watchedIndex));
+            mediaInfo.setVidType(cursor.getInt(vidTypeIndex));
             switch (status) {
             case 0:
                 //Idle
@@ -609,7 +842,8 @@ public class DatabaseManager {
         return queryLists;
     }
 
-    public void close() {
+    public synchronized void close() {
+        closeStatements();
         if (mSqliteDatabase != null) {
             mSqliteDatabase.close();
         }
@@ -1,6 +1,7 @@
 package com.aliyun.player.alivcplayerexpand.util.download;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 import android.widget.Toast;
@@ -14,6 +15,7 @@ import com.aliyun.player.alivcplayerexpand.R;
 import com.aliyun.player.alivcplayerexpand.bean.LongVideoBean;
 import com.aliyun.player.alivcplayerexpand.constants.GlobalPlayerConfig;
 import com.aliyun.player.alivcplayerexpand.listener.RefreshStsCallback;
+import com.aliyun.player.alivcplayerexpand.util.NetWatchdog;
 import com.aliyun.player.alivcplayerexpand.util.ThreadUtils;
 import com.aliyun.player.alivcplayerexpand.util.database.DatabaseManager;
 import com.aliyun.player.alivcplayerexpand.util.database.LoadDbDatasListener;
@@ -28,12 +30,14 @@ import com.aliyun.player.source.VidSts;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -96,76 +100,112 @@ public class AliyunDownloadManager {
     private LinkedHashMap<AliyunDownloadMediaInfo, AliMediaDownloader> downloadInfos = new LinkedHashMap<>();
 
     /**
-     * 用于保存处于准备状态的数据
+     * 所有下载任务及其所在队列(准备,等待,下载中,停止,完成)
      */
     /****
-     * Save data in preparation state
+     * All download tasks and their queues (prepared, waiting, downloading, stopped, completed)
      */
-    private ConcurrentLinkedQueue<AliyunDownloadMediaInfo> preparedList = new ConcurrentLinkedQueue<>();
+    private final DownloadTaskTable mTaskTable = new DownloadTaskTable();
 
     /**
-     * 用于保存处于下载中的状态的数据
+     * 对外接口回调
      */
     /****
-     * Save data in downloading state
+     * External interface callback
      */
-    private ConcurrentLinkedQueue<AliyunDownloadMediaInfo> downloadingList = new ConcurrentLinkedQueue<>();
+    private List<AliyunDownloadInfoListener> outListenerList = new ArrayList<>();
 
     /**
-     * 用于保存下载完成状态的数据
+     * 数据库管理类
      */
     /****
-     * Save data in completed state
+     * Database management class
      */
-    private ConcurrentLinkedQueue<AliyunDownloadMediaInfo> completedList = new ConcurrentLinkedQueue<>();
+    private DatabaseManager mDatabaseManager;
 
+    private LongVideoDatabaseManager mLongVideoDatabaseManager;
     /**
-     * 用于保存暂停状态的数据
+     * 下载进度合并,按帧分发,定时批量写入数据库
      */
     /****
-     * Save data in paused state
+     * Download progress aggregator, dispatches once per frame and persists in batch on a fixed cadence
      */
-    private ConcurrentLinkedQueue<AliyunDownloadMediaInfo> waitedList = new ConcurrentLinkedQueue<>();
+    private final DownloadProgressAggregator mProgressAggregator = new DownloadProgressAggregator(new DownloadProgressAggregator.Callback() {
+        @Override
+        public void onDispatchProgress(AliyunDownloadMediaInfo info, int percent) {
+            for (AliyunDownloadInfoListener aliyunDownloadInfoListener : outListenerList) {
+                info.setStatus(AliyunDownloadMediaInfo.Status.Start);
+                aliyunDownloadInfoListener.onProgress(info, percent);
+            }
+        }
 
+        @Override
+        public void onFlush(List<AliyunDownloadMediaInfo> infos) {
+            mDatabaseManager.update(infos);
+
+            //检查剩余空间
+            //Check the remaining storage
+            if (DownloadUtils.isStorageAlarm(mContext)) {
+                final AliyunDownloadMediaInfo info = infos.get(infos.size() - 1);
+                ThreadUtils.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        stopTasks(mTaskTable.list(DownloadTaskTable.State.DOWNLOADING));
+                        stopTasks(mTaskTable.list(DownloadTaskTable.State.WAITING));
+                        for (AliyunDownloadInfoListener aliyunDownloadInfoListener : outListenerList) {
+                            aliyunDownloadInfoListener.onError(info, ErrorCode.ERROR_UNKNOWN_ERROR, MEMORY_LESS_MSG, null);
+                        }
+                    }
+                });
+            }
+        }
+    });
     /**
-     * 用于保存停止状态的数据
+     * 保存Downloader防止循环创建时,导致内存不足被回收,无法回调的问题
      */
     /****
-     * Save data in stopped state
+     * Save Downloader to prevent circular creation when memory is insufficient, and the callback cannot be called
      */
-    private ConcurrentLinkedQueue<AliyunDownloadMediaInfo> stopedList = new ConcurrentLinkedQueue<>();
+    private List<AliMediaDownloader> mJniDownloadLists = new ArrayList<>();
 
     /**
-     * 对外接口回调
+     * 下载调度,按优先级和剧集公平选择任务,并根据吞吐量调整并行下载数量
      */
     /****
-     * External interface callback
+     * Download scheduler, picks tasks by priority and fairly across series, and adapts the number of parallel downloads to throughput
      */
-    private List<AliyunDownloadInfoListener> outListenerList = new ArrayList<>();
+    private final DownloadScheduler mScheduler = new DownloadScheduler(mMaxNum);
 
     /**
-     * 数据库管理类
+     * 网络监听,用于切换到移动网络或断网时自动暂停下载,切换回wifi后自动恢复
      */
     /****
-     * Database management class
+     * Network watchdog, to pause downloads on mobile network or when disconnected, and resume them on wifi
      */
-    private DatabaseManager mDatabaseManager;
+    private NetWatchdog mNetWatchdog;
 
-    private LongVideoDatabaseManager mLongVideoDatabaseManager;
     /**
-     * 剩余内存
+     * 切换到移动网络时是否暂停下载,默认暂停
      */
     /****
-     * Remaining memory
+     * Whether to pause downloads on mobile network, true by default
      */
-    private long freshStorageSizeTime = 0;
+    private boolean mPauseOnMobileNetwork = true;
+
     /**
-     * 保存Downloader防止循环创建时,导致内存不足被回收,无法回调的问题
+     * 因网络变化自动暂停的任务
      */
     /****
-     * Save Downloader to prevent circular creation when memory is insufficient, and the callback cannot be called
+     * Tasks paused automatically because of a network change
      */
-    private List<AliMediaDownloader> mJniDownloadLists = new ArrayList<>();
+    private final List<AliyunDownloadMediaInfo> mAutoPausedInfos = new ArrayList<>();
+
+    private final Runnable mAutoDownloadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            autoDownload();
+        }
+    };
 
     private Context mContext;
 
@@ -216,7 +256,7 @@ public class AliyunDownloadManager {
 
         @Override
         public void onAdd(final AliyunDownloadMediaInfo info) {
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_NORMAL, DownloadTaskTable.TaskKey.of(info), new Runnable() {
                 @Override
                 public void run() {
                     prepareMediaInfo(info);
@@ -245,7 +285,7 @@ public class AliyunDownloadManager {
             startMediaInfo(info);
             //在子线程中更新数据库
             // Update the database in a sub-thread
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_NORMAL, DownloadTaskTable.TaskKey.of(info), new Runnable() {
                 @Override
                 public void run() {
                     List<AliyunDownloadMediaInfo> downloadMediaInfos = mDatabaseManager.selectAll();
@@ -286,42 +326,14 @@ public class AliyunDownloadManager {
 
         @Override
         public void onProgress(final AliyunDownloadMediaInfo info, final int percent) {
-            //在子线程中更新数据库
-            // Update the database in a sub-thread
-            ThreadUtils.runOnSubThread(new Runnable() {
-                @Override
-                public void run() {
-                    if (freshStorageSizeTime == 0 || ((new Date()).getTime() - freshStorageSizeTime) > 2 * 1000) {
-
-                        int update = mDatabaseManager.update(info);
-
-                        if (DownloadUtils.isStorageAlarm(mContext)) {
-                            ThreadUtils.runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    stopDownloads(downloadingList);
-                                    stopDownloads(waitedList);
-                                    for (AliyunDownloadInfoListener aliyunDownloadInfoListener : outListenerList) {
-                                        aliyunDownloadInfoListener.onError(info, ErrorCode.ERROR_UNKNOWN_ERROR, MEMORY_LESS_MSG, null);
-                                    }
-                                }
-                            });
-                        }
-                        freshStorageSizeTime = (new Date()).getTime();
-                    }
-                }
-            });
-
-            ThreadUtils.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    for (AliyunDownloadInfoListener aliyunDownloadInfoListener : outListenerList) {
-                        info.setStatus(AliyunDownloadMediaInfo.Status.Start);
-                        aliyunDownloadInfoListener.onProgress(info, percent);
-                    }
-                }
-            });
-
+            //按任务合并进度,界面每帧最多刷新一次,数据库定时批量写入
+            //Coalesce the progress per task, listeners are notified at most once per frame and the database is updated in batch
+            mProgressAggregator.onProgress(info, percent);
+            //吞吐量提升时,并行下载数量增加,开始更多的等待任务
+            //When throughput grows, concurrency is raised and more waiting tasks can be started
+            if (mScheduler.onProgress(info, percent, mTaskTable.size(DownloadTaskTable.State.DOWNLOADING), SystemClock.elapsedRealtime())) {
+                ThreadUtils.runOnUiThread(mAutoDownloadRunnable);
+            }
         }
 
         @Override
@@ -340,6 +352,8 @@ public class AliyunDownloadManager {
 
         @Override
         public void onDelete(final AliyunDownloadMediaInfo info) {
+            mProgressAggregator.remove(info);
+            mScheduler.remove(info);
             deleteMediaInfo(info);
             mDatabaseManager.delete(info);
             ThreadUtils.runOnUiThread(new Runnable() {
@@ -355,6 +369,8 @@ public class AliyunDownloadManager {
 
         @Override
         public void onDeleteAll() {
+            mProgressAggregator.clear();
+            mScheduler.clear();
             deleteAllMediaInfo();
             mDatabaseManager.deleteAll();
             ThreadUtils.runOnUiThread(new Runnable() {
@@ -383,8 +399,10 @@ public class AliyunDownloadManager {
 
         @Override
         public void onStop(final AliyunDownloadMediaInfo info) {
+            mProgressAggregator.remove(info);
+            mScheduler.remove(info);
             stopMediaInfo(info);
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_NORMAL, DownloadTaskTable.TaskKey.of(info), new Runnable() {
                 @Override
                 public void run() {
                     int update = mDatabaseManager.update(info);
@@ -404,6 +422,8 @@ public class AliyunDownloadManager {
 
         @Override
         public void onCompletion(final AliyunDownloadMediaInfo info) {
+            mProgressAggregator.remove(info);
+            mScheduler.remove(info);
             completedMediaInfo(info);
             AliMediaDownloader jniDownloader = downloadInfos.get(info);
             if (jniDownloader == null) {
@@ -420,6 +440,8 @@ public class AliyunDownloadManager {
 
         @Override
         public void onError(final AliyunDownloadMediaInfo info, final ErrorCode code, final String msg, final String requestId) {
+            mProgressAggregator.remove(info);
+            mScheduler.remove(info);
             errorMediaInfo(info, code, msg);
             ThreadUtils.runOnUiThread(new Runnable() {
                 @Override
@@ -443,6 +465,93 @@ public class AliyunDownloadManager {
                 file.mkdirs();
             }
         }
+        initNetWatchdog();
+    }
+
+    private void initNetWatchdog() {
+        mNetWatchdog = new NetWatchdog(mContext);
+        mNetWatchdog.setNetChangeListener(new NetWatchdog.NetChangeListener() {
+            @Override
+            public void onWifiTo4G() {
+                if (mPauseOnMobileNetwork) {
+                    autoPauseDownloads();
+                }
+            }
+
+            @Override
+            public void on4GToWifi() {
+                autoResumeDownloads();
+            }
+
+            @Override
+            public void onNetDisconnected() {
+                autoPauseDownloads();
+            }
+        });
+        mNetWatchdog.setNetConnectedListener(new NetWatchdog.NetConnectedListener() {
+            @Override
+            public void onReNetConnected(boolean isReconnect) {
+                if (!mPauseOnMobileNetwork || !NetWatchdog.is4GConnected(mContext)) {
+                    autoResumeDownloads();
+                }
+            }
+
+            @Override
+            public void onNetUnConnected() {
+            }
+        });
+        mNetWatchdog.startWatch();
+    }
+
+    /**
+     * 网络变化时暂停所有下载中的任务,并停止调度
+     */
+    /****
+     * Pause all the running downloads and scheduling, on a network change.
+     */
+    private void autoPauseDownloads() {
+        if (mScheduler.isPaused()) {
+            return;
+        }
+        mScheduler.setPaused(true);
+        for (AliyunDownloadMediaInfo info : mTaskTable.list(DownloadTaskTable.State.DOWNLOADING)) {
+            mAutoPausedInfos.add(info);
+            pauseDownload(info);
+        }
+    }
+
+    /**
+     * 网络恢复时恢复自动暂停的任务,并恢复调度
+     */
+    /****
+     * Resume the downloads paused automatically and scheduling, when the network is back.
+     */
+    private void autoResumeDownloads() {
+        if (!mScheduler.isPaused()) {
+            return;
+        }
+        mScheduler.setPaused(false);
+        List<AliyunDownloadMediaInfo> pausedInfos = new ArrayList<>(mAutoPausedInfos);
+        mAutoPausedInfos.clear();
+        for (AliyunDownloadMediaInfo info : pausedInfos) {
+            if (info.getStatus() == AliyunDownloadMediaInfo.Status.Stop) {
+                startDownload(info);
+            }
+        }
+        autoDownload();
+    }
+
+    /**
+     * 设置切换到移动网络时是否自动暂停下载
+     */
+    /****
+     * Set whether to pause downloads automatically on mobile network.
+     */
+    public void setPauseOnMobileNetwork(boolean pauseOnMobileNetwork) {
+        this.mPauseOnMobileNetwork = pauseOnMobileNetwork;
+        if (!pauseOnMobileNetwork && NetWatchdog.hasNet(mContext)) {
+            autoResumeDownloads();
+        }
     }
 
     public static AliyunDownloadManager getInstance(Context context) {
@@ -551,6 +660,7 @@ public class AliyunDownloadManager {
             mMaxNum = MAX_NUM;
         }
         this.mMaxNum = mMaxNum;
+        mScheduler.setMaxConcurrency(mMaxNum);
     }
 
     public String getDownloadDir() {
@@ -628,9 +738,7 @@ public class AliyunDownloadManager {
         if (vidSts == null || aliyunDownloadMediaInfo == null) {
             return;
         }
-        if (preparedList.contains(aliyunDownloadMediaInfo) || stopedList.contains(aliyunDownloadMediaInfo)
-                || waitedList.contains(aliyunDownloadMediaInfo) || downloadingList.contains(aliyunDownloadMediaInfo)
-                || completedList.contains(aliyunDownloadMediaInfo)) {
+        if (mTaskTable.contains(aliyunDownloadMediaInfo)) {
             return;
         }
         vidSts.setVid(aliyunDownloadMediaInfo.getVid());
@@ -917,7 +1025,7 @@ public class AliyunDownloadManager {
 
                         jniDownloader.selectItem(trackInfo.getIndex());
                         if (intentState == INTENT_STATE_START) {
-                            if (downloadingList.size() <= mMaxNum) {
+                            if (mScheduler.canStart(mTaskTable.size(DownloadTaskTable.State.DOWNLOADING))) {
                                 //开始下载
                                 //Start downloading
                                 setListener(downloadMediaInfo, jniDownloader);
@@ -984,7 +1092,7 @@ public class AliyunDownloadManager {
         }
         AliyunDownloadMediaInfo.Status status = downloadMediaInfo.getStatus();
         if (status == AliyunDownloadMediaInfo.Status.Start
-                || downloadingList.contains(downloadMediaInfo)) {
+                || mTaskTable.contains(downloadMediaInfo, DownloadTaskTable.State.DOWNLOADING)) {
             return;
         }
         if (downloadMediaInfo.getStatus() == AliyunDownloadMediaInfo.Status.Complete) {
@@ -1004,7 +1112,7 @@ public class AliyunDownloadManager {
             //判断要下载的mediaInfo的当前状态
             //Check the current status of the mediaInfo to be downloaded
 
-            if (downloadingList.size() < mMaxNum) {
+            if (mScheduler.canStart(mTaskTable.size(DownloadTaskTable.State.DOWNLOADING))) {
                 AliMediaDownloader jniDownloader = downloadInfos.get(downloadMediaInfo);
                 if (jniDownloader == null) {
                     jniDownloader = AliDownloaderFactory.create(mContext);
@@ -1038,7 +1146,7 @@ public class AliyunDownloadManager {
             } else {
 //                    防止重复添加
                 //Prevent repeated addition
-                if (!waitedList.contains(downloadMediaInfo) && innerDownloadInfoListener != null) {
+                if (!mTaskTable.contains(downloadMediaInfo, DownloadTaskTable.State.WAITING) && innerDownloadInfoListener != null) {
                     innerDownloadInfoListener.onWait(downloadMediaInfo);
                 }
             }
@@ -1112,6 +1220,10 @@ public class AliyunDownloadManager {
      * Stop multiple downloads.
      */
     public void stopDownloads(ConcurrentLinkedQueue<AliyunDownloadMediaInfo> downloadMediaInfos) {
+        stopTasks(downloadMediaInfos);
+    }
+
+    private void stopTasks(Collection<AliyunDownloadMediaInfo> downloadMediaInfos) {
         if (downloadMediaInfos == null || downloadMediaInfos.size() == 0 || downloadInfos == null) {
             return;
         }
@@ -1199,10 +1311,11 @@ public class AliyunDownloadManager {
 
 
     /**
-     * 获取sts信息
+     * 获取sts信息,有效期内的STS由GetAuthInformation缓存返回,不再每次下载都请求
      */
     /****
-     * Get sts information.
+     * Get sts information. A valid STS is served from the GetAuthInformation cache instead of being requested for
+     * every download.
      */
     private void getVidSts(final AliyunDownloadMediaInfo downloadMediaInfo, final int intentState) {
         GetAuthInformation getAuthInformation = new GetAuthInformation();
@@ -1242,24 +1355,10 @@ public class AliyunDownloadManager {
      * Delete all files.
      */
     public void deleteAllFile() {
-        for (AliyunDownloadMediaInfo mediaInfo : preparedList) {
-            deleteFile(mediaInfo);
-        }
-
-        for (AliyunDownloadMediaInfo mediaInfo : downloadingList) {
-            deleteFile(mediaInfo);
-        }
-
-        for (AliyunDownloadMediaInfo mediaInfo : completedList) {
-            deleteFile(mediaInfo);
-        }
-
-        for (AliyunDownloadMediaInfo mediaInfo : waitedList) {
-            deleteFile(mediaInfo);
-        }
-
-        for (AliyunDownloadMediaInfo mediaInfo : stopedList) {
-            deleteFile(mediaInfo);
+        for (DownloadTaskTable.State state : DownloadTaskTable.State.values()) {
+            for (AliyunDownloadMediaInfo mediaInfo : mTaskTable.list(state)) {
+                deleteFile(mediaInfo);
+            }
         }
     }
 
@@ -1310,10 +1409,7 @@ public class AliyunDownloadManager {
      * Initialize the cache of the currently downloading.
      */
     public void initDownloading(LinkedList<AliyunDownloadMediaInfo> list) {
-        if (downloadingList.size() != 0) {
-            downloadingList.clear();
-        }
-        downloadingList.addAll(list);
+        mTaskTable.replace(DownloadTaskTable.State.DOWNLOADING, list);
     }
 
     /**
@@ -1323,10 +1419,7 @@ public class AliyunDownloadManager {
      * Initialize the cache of the downloaded completed.
      */
     public void initCompleted(LinkedList<AliyunDownloadMediaInfo> list) {
-        if (completedList.size() != 0) {
-            completedList.clear();
-        }
-        completedList.addAll(list);
+        mTaskTable.replace(DownloadTaskTable.State.COMPLETED, list);
     }
 
     /**
@@ -1336,107 +1429,56 @@ public class AliyunDownloadManager {
      * Automatically start the download task in the waiting queue.
      */
     private void autoDownload() {
-        //当前下载数小于设置的最大值,并且还有在等待中的下载任务
-        //If the current number of downloads is less than the maximum value and there are download tasks in the waiting queue
-        if (downloadingList.size() < mMaxNum && waitedList.size() > 0) {
-            AliyunDownloadMediaInfo aliyunDownloadMediaInfo = waitedList.peek();
-            if (aliyunDownloadMediaInfo.getStatus() == AliyunDownloadMediaInfo.Status.Wait) {
-                startDownload(aliyunDownloadMediaInfo);
+        //当前下载数小于调度允许的并行数量,并且还有在等待中的下载任务
+        //If the current number of downloads is less than the concurrency allowed by the scheduler and there are download tasks in the waiting queue
+        int attempts = mTaskTable.size(DownloadTaskTable.State.WAITING);
+        while (attempts-- > 0) {
+            AliyunDownloadMediaInfo aliyunDownloadMediaInfo = mScheduler.next(mTaskTable.list(DownloadTaskTable.State.WAITING),
+                    mTaskTable.list(DownloadTaskTable.State.DOWNLOADING));
+            if (aliyunDownloadMediaInfo == null) {
+                return;
+            }
+            startDownload(aliyunDownloadMediaInfo);
+            if (mTaskTable.contains(aliyunDownloadMediaInfo, DownloadTaskTable.State.WAITING)) {
+                //未能开始,避免重复选择同一任务
+                //Not started, avoid picking the same task again
+                return;
             }
         }
     }
 
     private void deleteAllMediaInfo() {
-        preparedList.clear();
-        waitedList.clear();
-        downloadingList.clear();
-        stopedList.clear();
-        completedList.clear();
+        mTaskTable.clear();
         downloadInfos.clear();
     }
 
     private void deleteMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-        Iterator<AliyunDownloadMediaInfo> preparedIterator = preparedList.iterator();
-        while (preparedIterator.hasNext()) {
-            if (preparedIterator.next().equals(downloadMediaInfo)) {
-                preparedIterator.remove();
-            }
-        }
-
-        Iterator<AliyunDownloadMediaInfo> waitedIterator = waitedList.iterator();
-        while (waitedIterator.hasNext()) {
-            if (waitedIterator.next().equals(downloadMediaInfo)) {
-                waitedIterator.remove();
-            }
-        }
-
-        Iterator<AliyunDownloadMediaInfo> downloadingIterator = downloadingList.iterator();
-        while (downloadingIterator.hasNext()) {
-            if (downloadingIterator.next().equals(downloadMediaInfo)) {
-                downloadingIterator.remove();
-            }
-        }
-
-        Iterator<AliyunDownloadMediaInfo> stopedIterator = stopedList.iterator();
-        while (stopedIterator.hasNext()) {
-            if (stopedIterator.next().equals(downloadMediaInfo)) {
-                stopedIterator.remove();
-            }
-        }
-
-        Iterator<AliyunDownloadMediaInfo> completedIterator = completedList.iterator();
-        while (completedIterator.hasNext()) {
-            if (completedIterator.next().equals(downloadMediaInfo)) {
-                completedIterator.remove();
-            }
-        }
+        mTaskTable.remove(downloadMediaInfo);
         downloadInfos.remove(downloadMediaInfo);
     }
 
     private void waitMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-        if (!waitedList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            waitedList.add(downloadMediaInfo);
-        }
-        preparedList.remove(downloadMediaInfo);
-        downloadingList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.WAITING);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Wait);
     }
 
     private void stopMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-        if (!stopedList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            stopedList.add(downloadMediaInfo);
-        }
-        downloadingList.remove(downloadMediaInfo);
-        preparedList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.STOPPED);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Stop);
     }
 
     private void prepareMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-        if (!preparedList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            preparedList.add(downloadMediaInfo);
-        }
-        downloadingList.remove(downloadMediaInfo);
-        completedList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.PREPARED);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Prepare);
     }
 
     private void startMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-
-        if (!downloadingList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            downloadingList.add(downloadMediaInfo);
-        }
-        preparedList.remove(downloadMediaInfo);
-        stopedList.remove(downloadMediaInfo);
-        completedList.remove(downloadMediaInfo);
-        waitedList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.DOWNLOADING);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Start);
     }
 
     private void completedMediaInfo(AliyunDownloadMediaInfo downloadMediaInfo) {
-        if (!completedList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            completedList.add(downloadMediaInfo);
-        }
-        downloadingList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.COMPLETED);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Complete);
         autoDownload();
     }
@@ -1447,13 +1489,7 @@ public class AliyunDownloadManager {
         if (downloadMediaInfo == null) {
             return;
         }
-        if (!stopedList.contains(downloadMediaInfo) && downloadMediaInfo != null) {
-            stopedList.add(downloadMediaInfo);
-        }
-        preparedList.remove(downloadMediaInfo);
-        downloadingList.remove(downloadMediaInfo);
-        completedList.remove(downloadMediaInfo);
-        waitedList.remove(downloadMediaInfo);
+        mTaskTable.moveTo(downloadMediaInfo, DownloadTaskTable.State.STOPPED);
         downloadMediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Error);
         downloadMediaInfo.setErrorCode(code);
         downloadMediaInfo.setErrorMsg(msg);
@@ -1474,7 +1510,7 @@ public class AliyunDownloadManager {
      */
     public void findDatasByDb(final VidSts vidSts, final LoadDbDatasListener listener) {
         if (mDatabaseManager != null) {
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_HIGH, new Runnable() {
                 @Override
                 public void run() {
                     //查询所有准备完成状态的数据,用于展示
@@ -1500,14 +1536,10 @@ public class AliyunDownloadManager {
                         mediaInfo.setStatus(AliyunDownloadMediaInfo.Status.Stop);
                     }
                     dataList.addAll(selectDownloadingList);
-                    if (stopedList != null) {
-                        stopedList.addAll(selectDownloadingList);
-                        stopedList.addAll(selectStopedList);
-                        stopedList.addAll(selectPreparedList);
-                    }
-                    if (completedList != null) {
-                        completedList.addAll(selectCompletedList);
-                    }
+                    mTaskTable.moveAllTo(selectDownloadingList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectStopedList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectPreparedList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectCompletedList, DownloadTaskTable.State.COMPLETED);
                     /*
                      * 这里不需要将从数据库查询的下载中状态的数据进行内存缓存,在prepareDownload这些数据的时候,
                      * 会全部置为等待状态,需要手动点击开始下载
@@ -1539,7 +1571,7 @@ public class AliyunDownloadManager {
      */
     public void findDatasByDb(final LoadDbDatasListener listener) {
         if (mDatabaseManager != null) {
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_HIGH, new Runnable() {
                 @Override
                 public void run() {
                     //查询所有准备完成状态的数据,用于展示
@@ -1582,22 +1614,10 @@ public class AliyunDownloadManager {
                         dataList.addAll(selectWaitList);
                     }
 
-                    if (stopedList != null) {
-                        if (selectDownloadingList != null) {
-                            stopedList.addAll(selectDownloadingList);
-                        }
-                        if (selectStopedList != null) {
-                            stopedList.addAll(selectStopedList);
-                        }
-                        if (selectPreparedList != null) {
-                            stopedList.addAll(selectPreparedList);
-                        }
-                    }
-                    if (completedList != null) {
-                        if (selectCompletedList != null) {
-                            completedList.addAll(selectCompletedList);
-                        }
-                    }
+                    mTaskTable.moveAllTo(selectDownloadingList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectStopedList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectPreparedList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectCompletedList, DownloadTaskTable.State.COMPLETED);
                     /*
                      * 这里不需要将从数据库查询的下载中状态的数据进行内存缓存,在prepareDownload这些数据的时候,
                      * 会全部置为等待状态,需要手动点击开始下载
@@ -1628,7 +1648,7 @@ public class AliyunDownloadManager {
      */
     public void findDatasByDbTv(final LoadDbDatasListener listener) {
         if (mDatabaseManager != null) {
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_HIGH, new Runnable() {
                 @Override
                 public void run() {
                     //查询所有准备完成状态的数据,用于展示
@@ -1648,7 +1668,7 @@ public class AliyunDownloadManager {
                     final List<AliyunDownloadMediaInfo> selectWaitList = mDatabaseManager.selectWaitList();
                     //观看历史
                     //watch history
-                    List<AliyunDownloadMediaInfo> selectWatchedList = mDatabaseManager.selectWatchedList();
+                    Set<String> watchedVids = mDatabaseManager.selectWatchedVids();
 
                     final List<AliyunDownloadMediaInfo> dataList = new ArrayList<>();
                     if (selectCompletedList != null) {
@@ -1668,15 +1688,8 @@ public class AliyunDownloadManager {
                         dataList.addAll(selectWaitList);
                     }
 
-                    if (stopedList != null) {
-                        if (selectStopedList != null) {
-                            stopedList.addAll(selectStopedList);
-                        }
-                    }
-                    if (completedList != null) {
-                        completedList.addAll(selectCompletedList);
-
-                    }
+                    mTaskTable.moveAllTo(selectStopedList, DownloadTaskTable.State.STOPPED);
+                    mTaskTable.moveAllTo(selectCompletedList, DownloadTaskTable.State.COMPLETED);
                     /*
                      * 这里不需要将从数据库查询的下载中状态的数据进行内存缓存,在prepareDownload这些数据的时候,
                      * 会全部置为等待状态,需要手动点击开始下载
@@ -1686,7 +1699,7 @@ public class AliyunDownloadManager {
                      * when prepareDownload these data, they all will be set to the waiting status,
                      * you need to manually click to start download
                      */
-                    final List<AliyunDownloadMediaInfo> aliyunDownloadMediaInfos = removeDuplicate(selectWatchedList, dataList);
+                    final List<AliyunDownloadMediaInfo> aliyunDownloadMediaInfos = removeDuplicate(watchedVids, dataList);
 
                     ThreadUtils.runOnUiThread(new Runnable() {
                         @Override
@@ -1704,55 +1717,42 @@ public class AliyunDownloadManager {
     /**
      * 从数据库查询出来处理
      * 只保留一个tvTd，计算列表包含的元素个数
+     * 按tvId一次遍历汇总,保留每个tvId第一次出现的位置
      */
     /****
      * Query out of the database for processing
      * Keep only one tvTd and count the number of elements the list contains
+     * Series are rolled up by tvId in a single pass, each one at the position of its first episode
      */
-    private List<AliyunDownloadMediaInfo> removeDuplicate(List<AliyunDownloadMediaInfo> selectWatchedList, List<AliyunDownloadMediaInfo> dataList) {
-        //设置观看数量
-        //Set the number of views
+    private List<AliyunDownloadMediaInfo> removeDuplicate(Set<String> watchedVids, List<AliyunDownloadMediaInfo> dataList) {
+        List<AliyunDownloadMediaInfo> result = new ArrayList<>();
+        //每个tvId的第一集,用于记录汇总的大小,观看数量和视频个数
+        //First episode of every tvId, holding the total size, number of views and number of videos
+        Map<String, AliyunDownloadMediaInfo> seriesMap = new HashMap<>();
         for (AliyunDownloadMediaInfo mediaInfo : dataList) {
-            for (AliyunDownloadMediaInfo watchedMediaInfo : selectWatchedList) {
-                if (watchedMediaInfo.getVid().equals(mediaInfo.getVid())) {
-                    mediaInfo.setWatchNumber(1);
-                }
+            //设置观看数量
+            //Set the number of views
+            if (watchedVids.contains(mediaInfo.getVid())) {
+                mediaInfo.setWatchNumber(1);
             }
-        }
-        //设置大小
-        //Set the size
-        long size = 0;
-        //设置观看数量
-        //Set the number of views
-        int watchNum = 0;
-        //设置视频个数
-        //Set the number of videos
-        int num = 0;
-        for (int i = 0; i < dataList.size(); i++) {
-            size = dataList.get(i).getSize();
-            watchNum = dataList.get(i).getWatchNumber();
-            num = dataList.get(i).getNumber();
-            for (int j = dataList.size() - 1; j > i; j--) {
-                if (!TextUtils.isEmpty(dataList.get(j).getTvId()) && !TextUtils.isEmpty(dataList.get(i).getTvId())) {
-                    if (dataList.get(j).getTvId().equals(dataList.get(i).getTvId())) {
-                        size += dataList.get(j).getSize();
-                        watchNum += dataList.get(j).getWatchNumber();
-                        num += dataList.get(j).getNumber();
-                        dataList.remove(j);
-
-                    }
-                }
+            String tvId = mediaInfo.getTvId();
+            if (TextUtils.isEmpty(tvId)) {
+                result.add(mediaInfo);
+                continue;
             }
-            //设置封面size大小
-            //Set the cover size
-            dataList.get(i).setSize(size);
-            dataList.get(i).setWatchNumber(watchNum);
-            //更新数量
-            //Update the number
-            dataList.get(i).setNumber(num);
+            AliyunDownloadMediaInfo seriesInfo = seriesMap.get(tvId);
+            if (seriesInfo == null) {
+                seriesMap.put(tvId, mediaInfo);
+                result.add(mediaInfo);
+                continue;
+            }
+            //设置封面size大小,观看数量,更新数量
+            //Set the cover size, the number of views and update the number
+            seriesInfo.setSize(seriesInfo.getSize() + mediaInfo.getSize());
+            seriesInfo.setWatchNumber(seriesInfo.getWatchNumber() + mediaInfo.getWatchNumber());
+            seriesInfo.setNumber(seriesInfo.getNumber() + mediaInfo.getNumber());
         }
-
-        return dataList;
+        return result;
     }
 
 
@@ -1768,7 +1768,7 @@ public class AliyunDownloadManager {
 
         if (mDatabaseManager != null) {
 
-            ThreadUtils.runOnSubThread(new Runnable() {
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_HIGH, new Runnable() {
                 @Override
                 public void run() {
 
@@ -1810,7 +1810,7 @@ public class AliyunDownloadManager {
      * Get the ready data.
      */
     public ConcurrentLinkedQueue<AliyunDownloadMediaInfo> getPreparedList() {
-        return preparedList;
+        return new ConcurrentLinkedQueue<>(mTaskTable.list(DownloadTaskTable.State.PREPARED));
     }
 
     /**
@@ -1820,7 +1820,7 @@ public class AliyunDownloadManager {
      * Get the downloaded data.
      */
     public ConcurrentLinkedQueue<AliyunDownloadMediaInfo> getCompletedList() {
-        return completedList;
+        return new ConcurrentLinkedQueue<>(mTaskTable.list(DownloadTaskTable.State.COMPLETED));
     }
 
     /**
@@ -1830,7 +1830,7 @@ public class AliyunDownloadManager {
      * Get the downloading data.
      */
     public ConcurrentLinkedQueue<AliyunDownloadMediaInfo> getDownloadingList() {
-        return downloadingList;
+        return new ConcurrentLinkedQueue<>(mTaskTable.list(DownloadTaskTable.State.DOWNLOADING));
     }
 
     /**
@@ -1840,7 +1840,7 @@ public class AliyunDownloadManager {
      * Get the waiting data.
      */
     public ConcurrentLinkedQueue<AliyunDownloadMediaInfo> getWaitedList() {
-        return waitedList;
+        return new ConcurrentLinkedQueue<>(mTaskTable.list(DownloadTaskTable.State.WAITING));
     }
 
     /**
@@ -1850,25 +1850,17 @@ public class AliyunDownloadManager {
      * Get the stopped data.
      */
     public ConcurrentLinkedQueue<AliyunDownloadMediaInfo> getStopedList() {
-        return stopedList;
+        return new ConcurrentLinkedQueue<>(mTaskTable.list(DownloadTaskTable.State.STOPPED));
     }
 
     public void release() {
+        if (mNetWatchdog != null) {
+            mNetWatchdog.stopWatch();
+        }
         if (mDatabaseManager != null) {
             mDatabaseManager.close();
         }
-        if (preparedList != null) {
-            preparedList.clear();
-        }
-        if (downloadingList != null) {
-            downloadingList.clear();
-        }
-        if (completedList != null) {
-            completedList.clear();
-        }
-        if (waitedList != null) {
-            waitedList.clear();
-        }
+        mTaskTable.clear();
         if (outListenerList != null) {
             outListenerList.clear();
         }
@@ -1878,9 +1870,7 @@ public class AliyunDownloadManager {
     }
 
     public void clearList() {
-        if (preparedList != null) {
-            preparedList.clear();
-        }
+        mTaskTable.clear();
         if (!downloadInfos.isEmpty()) {
             Iterator<Map.Entry<AliyunDownloadMediaInfo, AliMediaDownloader>> iterator = downloadInfos.entrySet().iterator();
             while (iterator.hasNext()) {
@@ -1889,21 +1879,9 @@ public class AliyunDownloadManager {
             }
             downloadInfos.clear();
         }
-        if (downloadingList != null) {
-            downloadingList.clear();
-        }
-        if (completedList != null) {
-            completedList.clear();
-        }
-        if (waitedList != null) {
-            waitedList.clear();
-        }
         if (outListenerList != null) {
             outListenerList.clear();
         }
-        if (stopedList != null) {
-            stopedList.clear();
-        }
     }
 
 
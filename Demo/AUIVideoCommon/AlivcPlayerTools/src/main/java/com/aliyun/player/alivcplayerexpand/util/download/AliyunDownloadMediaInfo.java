@@ -59,6 +59,13 @@ public class AliyunDownloadMediaInfo {
     private int mWatched;
     private VidAuth vidAuth;
     private int vidType;
+    /**
+     * 下载优先级,越大越先下载,例如下一集
+     */
+    /****
+     * Download priority, the higher the sooner, e.g. for the next episode
+     */
+    private int mPriority = 0;
 
     public VidAuth getVidAuth() {
         return vidAuth;
@@ -108,6 +115,14 @@ public class AliyunDownloadMediaInfo {
         this.number = number;
     }
 
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public void setPriority(int priority) {
+        this.mPriority = priority;
+    }
+
     protected AliyunDownloadMediaInfo(Parcel in) {
         mVid = in.readString();
         mQuality = in.readString();
@@ -0,0 +1,202 @@
+package com.aliyun.player.alivcplayerexpand.util.download;
+
+import com.aliyun.player.alivcplayerexpand.util.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下载进度合并
+ */
+/****
+ * Download progress aggregator
+ * <p>
+ * Progress ticks are coalesced per task: listeners get at most one progress per task and per frame, with the latest
+ * percent, on the main thread; tasks with a new progress are persisted together on a fixed cadence, on a sub-thread.
+ * Tasks are keyed by {@link DownloadTaskTable.TaskKey}, as AliyunDownloadMediaInfo.equals() only compares the vid of
+ * episodes, so the qualities of an episode are kept apart.
+ * All methods are thread-safe.
+ */
+class DownloadProgressAggregator {
+
+    /**
+     * 界面刷新间隔,一帧
+     */
+    /****
+     * Dispatch interval, one frame. Unit: ms
+     */
+    private static final long DISPATCH_INTERVAL_MS = 16;
+
+    /**
+     * 数据库写入间隔
+     */
+    /****
+     * Flush interval. Unit: ms
+     */
+    private static final long FLUSH_INTERVAL_MS = 2 * 1000;
+
+    interface Callback {
+        /**
+         * 分发进度,主线程
+         */
+        /****
+         * Dispatch the latest progress of a task, on the main thread.
+         */
+        void onDispatchProgress(AliyunDownloadMediaInfo info, int percent);
+
+        /**
+         * 持久化进度,子线程
+         */
+        /****
+         * Persist the tasks whose progress changed since the last flush, on a sub-thread.
+         */
+        void onFlush(List<AliyunDownloadMediaInfo> infos);
+    }
+
+    /**
+     * 任务调度,测试时替换
+     */
+    /****
+     * Posts the dispatch and flush tasks, replaced in tests.
+     */
+    interface Scheduler {
+        void runOnUiThread(Runnable runnable, long delayMs);
+
+        void runOnDbThread(Runnable runnable);
+    }
+
+    private static final Scheduler THREAD_UTILS_SCHEDULER = new Scheduler() {
+        @Override
+        public void runOnUiThread(Runnable runnable, long delayMs) {
+            ThreadUtils.runOnUiThread(runnable, delayMs);
+        }
+
+        @Override
+        public void runOnDbThread(Runnable runnable) {
+            //进度写入优先级低于其它数据库操作
+            //Progress writes have a lower priority than the other database operations
+            ThreadUtils.runOnSubThread(ThreadUtils.Lane.DB, ThreadUtils.PRIORITY_LOW, runnable);
+        }
+    };
+
+    private final Callback mCallback;
+    private final Scheduler mScheduler;
+
+    // Latest info instance and percent of each task, not dispatched yet
+    private final Map<DownloadTaskTable.TaskKey, PendingProgress> mPendingProgress = new LinkedHashMap<>();
+    // Latest info instance of each task, not persisted yet
+    private final Map<DownloadTaskTable.TaskKey, AliyunDownloadMediaInfo> mDirtyInfos = new LinkedHashMap<>();
+    private boolean mDispatchScheduled = false;
+    private boolean mFlushScheduled = false;
+
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mScheduleFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (DownloadProgressAggregator.this) {
+                mFlushScheduled = false;
+            }
+            mScheduler.runOnDbThread(mFlushRunnable);
+        }
+    };
+
+    DownloadProgressAggregator(Callback callback) {
+        this(callback, THREAD_UTILS_SCHEDULER);
+    }
+
+    DownloadProgressAggregator(Callback callback, Scheduler scheduler) {
+        mCallback = callback;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * 记录进度,任意线程
+     */
+    /****
+     * Record a progress tick, called by any thread.
+     */
+    synchronized void onProgress(AliyunDownloadMediaInfo info, int percent) {
+        if (info == null) {
+            return;
+        }
+        DownloadTaskTable.TaskKey key = DownloadTaskTable.TaskKey.of(info);
+        mPendingProgress.put(key, new PendingProgress(info, percent));
+        mDirtyInfos.put(key, info);
+        if (!mDispatchScheduled) {
+            mDispatchScheduled = true;
+            mScheduler.runOnUiThread(mDispatchRunnable, DISPATCH_INTERVAL_MS);
+        }
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mScheduler.runOnUiThread(mScheduleFlushRunnable, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * 丢弃任务未分发和未持久化的进度,用于任务停止,完成或删除后
+     */
+    /****
+     * Drop the progress not dispatched nor persisted yet of a task, when it is stopped, completed or deleted.
+     */
+    synchronized void remove(AliyunDownloadMediaInfo info) {
+        if (info == null) {
+            return;
+        }
+        DownloadTaskTable.TaskKey key = DownloadTaskTable.TaskKey.of(info);
+        mPendingProgress.remove(key);
+        mDirtyInfos.remove(key);
+    }
+
+    synchronized void clear() {
+        mPendingProgress.clear();
+        mDirtyInfos.clear();
+    }
+
+    private void dispatch() {
+        List<PendingProgress> pending;
+        synchronized (this) {
+            mDispatchScheduled = false;
+            pending = new ArrayList<>(mPendingProgress.values());
+            mPendingProgress.clear();
+        }
+        for (PendingProgress progress : pending) {
+            mCallback.onDispatchProgress(progress.info, progress.percent);
+        }
+    }
+
+    private void flush() {
+        List<AliyunDownloadMediaInfo> dirty;
+        synchronized (this) {
+            dirty = new ArrayList<>(mDirtyInfos.values());
+            mDirtyInfos.clear();
+        }
+        if (!dirty.isEmpty()) {
+            mCallback.onFlush(dirty);
+        }
+    }
+
+    private static final class PendingProgress {
+        final AliyunDownloadMediaInfo info;
+        final int percent;
+
+        PendingProgress(AliyunDownloadMediaInfo info, int percent) {
+            this.info = info;
+            this.percent = percent;
+        }
+    }
+}
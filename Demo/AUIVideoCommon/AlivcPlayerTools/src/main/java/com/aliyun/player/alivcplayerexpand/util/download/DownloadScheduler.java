@@ -0,0 +1,244 @@
+package com.aliyun.player.alivcplayerexpand.util.download;
+
+import android.text.TextUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下载调度
+ */
+/****
+ * Download scheduler
+ * <p>
+ * Picks the next waiting task to start: highest priority first (e.g. the next episode), then the task whose series
+ * ({@link AliyunDownloadMediaInfo#getTvId()}) has the fewest running tasks, so that a large season can't starve the
+ * other downloads, then the task which has waited the longest.
+ * <p>
+ * The number of parallel downloads adapts to the measured aggregate throughput, between 1 and the max number set by
+ * the user: while the downloads are saturated, concurrency is raised by one and kept only if throughput grows
+ * by at least 10%, otherwise it is reverted and probed again later.
+ * All methods are thread-safe.
+ */
+class DownloadScheduler {
+
+    /**
+     * 初始并行下载数量
+     */
+    /****
+     * Initial number of parallel downloads
+     */
+    private static final int INITIAL_CONCURRENCY = 2;
+
+    /**
+     * 吞吐量测量窗口
+     */
+    /****
+     * Throughput measurement window. Unit: ms
+     */
+    private static final long MEASURE_WINDOW_MS = 5 * 1000;
+
+    /**
+     * 每个测量窗口至少需要的进度变化次数,进度以百分比为单位,变化次数过少时吞吐量误差过大
+     */
+    /****
+     * Minimum number of progress steps in a measurement window. Progress is reported in percent, so fewer steps
+     * would make the measured throughput too coarse
+     */
+    private static final int MIN_WINDOW_STEPS = 10;
+
+    /**
+     * 增加并行数量后,吞吐量至少需要提升的比例
+     */
+    /****
+     * Minimum throughput gain to keep a raised concurrency
+     */
+    private static final float MIN_THROUGHPUT_GAIN = 1.1f;
+
+    /**
+     * 增加并行数量失败后,再次尝试前等待的窗口数
+     */
+    /****
+     * Number of windows to wait before probing again, after a raised concurrency was reverted
+     */
+    private static final int PROBE_BACKOFF_WINDOWS = 6;
+
+    private int mMaxConcurrency;
+    private int mConcurrency;
+    private boolean mPaused = false;
+
+    // Downloaded bytes of every running task, at its last progress. Keyed by TaskKey, as
+    // AliyunDownloadMediaInfo.equals() only compares the vid of episodes
+    private final Map<DownloadTaskTable.TaskKey, Long> mDownloadedBytes = new HashMap<>();
+    private long mWindowStartMs = -1;
+    private long mWindowBytes = 0;
+    private int mWindowSteps = 0;
+    private boolean mWindowSaturated = true;
+
+    // Throughput at the previous concurrency, before it was raised. Unit: bytes/s
+    private float mBaseThroughput = 0;
+    private int mBaseConcurrency = 0;
+    private int mBackoffWindows = 0;
+
+    DownloadScheduler(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    synchronized void setMaxConcurrency(int maxConcurrency) {
+        mMaxConcurrency = Math.max(1, maxConcurrency);
+        mConcurrency = Math.min(INITIAL_CONCURRENCY, mMaxConcurrency);
+        mBaseConcurrency = 0;
+        mBackoffWindows = 0;
+    }
+
+    synchronized int getConcurrency() {
+        return mConcurrency;
+    }
+
+    /**
+     * 暂停调度,不再开始新的下载
+     */
+    /****
+     * Pause scheduling, no new download is started.
+     */
+    synchronized void setPaused(boolean paused) {
+        mPaused = paused;
+    }
+
+    synchronized boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * @param running number of running downloads
+     * @return true if a new download can be started
+     */
+    synchronized boolean canStart(int running) {
+        return !mPaused && running < mConcurrency;
+    }
+
+    /**
+     * 选择下一个要开始的任务
+     */
+    /****
+     * Pick the next task to start.
+     *
+     * @param waiting waiting tasks, in waiting order
+     * @param running running tasks
+     * @return the task to start, or null if none can be started
+     */
+    synchronized AliyunDownloadMediaInfo next(List<AliyunDownloadMediaInfo> waiting, List<AliyunDownloadMediaInfo> running) {
+        if (!canStart(running.size()) || waiting.isEmpty()) {
+            return null;
+        }
+        Map<String, Integer> runningBySeries = new HashMap<>();
+        for (AliyunDownloadMediaInfo info : running) {
+            String series = seriesOf(info);
+            Integer count = runningBySeries.get(series);
+            runningBySeries.put(series, count == null ? 1 : count + 1);
+        }
+        AliyunDownloadMediaInfo best = null;
+        int bestRunning = 0;
+        for (AliyunDownloadMediaInfo info : waiting) {
+            if (info.getStatus() != AliyunDownloadMediaInfo.Status.Wait) {
+                continue;
+            }
+            Integer count = runningBySeries.get(seriesOf(info));
+            int seriesRunning = count == null ? 0 : count;
+            // Waiting tasks are in waiting order, so the first one wins ties
+            if (best == null || info.getPriority() > best.getPriority()
+                    || (info.getPriority() == best.getPriority() && seriesRunning < bestRunning)) {
+                best = info;
+                bestRunning = seriesRunning;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 记录任务进度,用于计算吞吐量
+     */
+    /****
+     * Record the progress of a running task, to measure throughput.
+     *
+     * @param running number of running downloads
+     * @return true if concurrency was raised, so that more downloads can be started
+     */
+    synchronized boolean onProgress(AliyunDownloadMediaInfo info, int percent, int running, long nowMs) {
+        long bytes = info.getSize() * percent / 100;
+        Long previous = mDownloadedBytes.put(DownloadTaskTable.TaskKey.of(info), bytes);
+        if (previous != null && bytes > previous) {
+            mWindowBytes += bytes - previous;
+            mWindowSteps++;
+        }
+        // Throughput is only meaningful to tune concurrency when all the slots are in use
+        mWindowSaturated &= running >= mConcurrency;
+        if (mWindowStartMs < 0) {
+            mWindowStartMs = nowMs;
+            return false;
+        }
+        long elapsedMs = nowMs - mWindowStartMs;
+        if (elapsedMs < MEASURE_WINDOW_MS || mWindowSteps < MIN_WINDOW_STEPS) {
+            return false;
+        }
+        float throughput = mWindowBytes * 1000f / elapsedMs;
+        boolean saturated = mWindowSaturated;
+        mWindowStartMs = nowMs;
+        mWindowBytes = 0;
+        mWindowSteps = 0;
+        mWindowSaturated = true;
+        return saturated && evaluate(throughput);
+    }
+
+    /**
+     * 任务不再下载时移除
+     */
+    /****
+     * Remove a task which is no longer running.
+     */
+    synchronized void remove(AliyunDownloadMediaInfo info) {
+        mDownloadedBytes.remove(DownloadTaskTable.TaskKey.of(info));
+    }
+
+    synchronized void clear() {
+        mDownloadedBytes.clear();
+        mWindowStartMs = -1;
+        mWindowBytes = 0;
+        mWindowSteps = 0;
+        mWindowSaturated = true;
+    }
+
+    private boolean evaluate(float throughput) {
+        if (mBaseConcurrency > 0 && mConcurrency > mBaseConcurrency) {
+            // Probing a raised concurrency
+            if (throughput >= mBaseThroughput * MIN_THROUGHPUT_GAIN) {
+                return probe(throughput);
+            }
+            mConcurrency = mBaseConcurrency;
+            mBaseConcurrency = 0;
+            mBackoffWindows = PROBE_BACKOFF_WINDOWS;
+            return false;
+        }
+        if (mBackoffWindows > 0) {
+            mBackoffWindows--;
+            return false;
+        }
+        return probe(throughput);
+    }
+
+    private boolean probe(float throughput) {
+        if (mConcurrency >= mMaxConcurrency) {
+            mBaseConcurrency = 0;
+            return false;
+        }
+        mBaseThroughput = throughput;
+        mBaseConcurrency = mConcurrency;
+        mConcurrency++;
+        return true;
+    }
+
+    private static String seriesOf(AliyunDownloadMediaInfo info) {
+        return TextUtils.isEmpty(info.getTvId()) ? "vid:" + info.getVid() : "tv:" + info.getTvId();
+    }
+}
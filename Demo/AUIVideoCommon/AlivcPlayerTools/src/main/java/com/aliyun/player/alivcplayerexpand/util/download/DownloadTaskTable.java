@@ -0,0 +1,207 @@
+package com.aliyun.player.alivcplayerexpand.util.download;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下载任务表
+ */
+/****
+ * Download task table
+ * <p>
+ * Every task is indexed by its {@link TaskKey}, (vid, quality, format), and is in exactly one state, every state keeps
+ * its tasks in insertion order. {@link AliyunDownloadMediaInfo#equals(Object)} is not used, it disagrees with
+ * {@link AliyunDownloadMediaInfo#hashCode()} for episodes. Lookups and transitions are O(1).
+ * All methods are thread-safe, lists returned are snapshots.
+ */
+class DownloadTaskTable {
+
+    /**
+     * 任务所在队列
+     */
+    /****
+     * Queue of a task
+     */
+    enum State {
+        PREPARED,
+        WAITING,
+        DOWNLOADING,
+        STOPPED,
+        COMPLETED
+    }
+
+    /**
+     * 任务标识
+     */
+    /****
+     * Identity of a task: vid, quality and format. Values are copied when the key is created.
+     */
+    static final class TaskKey {
+        final String vid;
+        final String quality;
+        final String format;
+
+        TaskKey(String vid, String quality, String format) {
+            this.vid = vid;
+            this.quality = quality;
+            this.format = format;
+        }
+
+        static TaskKey of(AliyunDownloadMediaInfo info) {
+            return new TaskKey(info.getVid(), info.getQuality(), info.getFormat());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TaskKey)) {
+                return false;
+            }
+            TaskKey that = (TaskKey) o;
+            return equals(vid, that.vid) && equals(quality, that.quality) && equals(format, that.format);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = vid == null ? 0 : vid.hashCode();
+            result = 31 * result + (quality == null ? 0 : quality.hashCode());
+            return 31 * result + (format == null ? 0 : format.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return vid + "/" + quality + "/" + format;
+        }
+
+        private static boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private final Map<TaskKey, State> mStates = new HashMap<>();
+
+    // The latest instance moved into a state is the one returned
+    private final EnumMap<State, LinkedHashMap<TaskKey, AliyunDownloadMediaInfo>> mTasks = new EnumMap<>(State.class);
+
+    DownloadTaskTable() {
+        for (State state : State.values()) {
+            mTasks.put(state, new LinkedHashMap<TaskKey, AliyunDownloadMediaInfo>());
+        }
+    }
+
+    /**
+     * @return state of the task, or null if it is not in the table
+     */
+    synchronized State getState(AliyunDownloadMediaInfo info) {
+        return info == null ? null : mStates.get(TaskKey.of(info));
+    }
+
+    synchronized boolean contains(AliyunDownloadMediaInfo info) {
+        return info != null && mStates.containsKey(TaskKey.of(info));
+    }
+
+    synchronized boolean contains(AliyunDownloadMediaInfo info, State state) {
+        return info != null && mStates.get(TaskKey.of(info)) == state;
+    }
+
+    /**
+     * 移动任务到指定队列，已在该队列中的任务保持原有顺序
+     */
+    /****
+     * Move a task to the state, a task already in the state keeps its position.
+     *
+     * @return previous state of the task, or null if it was not in the table
+     */
+    synchronized State moveTo(AliyunDownloadMediaInfo info, State state) {
+        if (info == null) {
+            return null;
+        }
+        TaskKey key = TaskKey.of(info);
+        State previous = mStates.get(key);
+        if (previous == state) {
+            // Keeps the position, the entry now refers to this instance
+            mTasks.get(state).put(key, info);
+            return previous;
+        }
+        if (previous != null) {
+            mTasks.get(previous).remove(key);
+        }
+        mStates.put(key, state);
+        mTasks.get(state).put(key, info);
+        return previous;
+    }
+
+    synchronized void moveAllTo(Collection<AliyunDownloadMediaInfo> infos, State state) {
+        if (infos == null) {
+            return;
+        }
+        for (AliyunDownloadMediaInfo info : infos) {
+            moveTo(info, state);
+        }
+    }
+
+    /**
+     * @return previous state of the task, or null if it was not in the table
+     */
+    synchronized State remove(AliyunDownloadMediaInfo info) {
+        if (info == null) {
+            return null;
+        }
+        TaskKey key = TaskKey.of(info);
+        State previous = mStates.remove(key);
+        if (previous != null) {
+            mTasks.get(previous).remove(key);
+        }
+        return previous;
+    }
+
+    synchronized int size(State state) {
+        return mTasks.get(state).size();
+    }
+
+    /**
+     * @return first task of the state, or null if there is none
+     */
+    synchronized AliyunDownloadMediaInfo peek(State state) {
+        Iterator<AliyunDownloadMediaInfo> iterator = mTasks.get(state).values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    synchronized List<AliyunDownloadMediaInfo> list(State state) {
+        return new ArrayList<>(mTasks.get(state).values());
+    }
+
+    /**
+     * 用指定任务替换队列中的所有任务
+     */
+    /****
+     * Replace all the tasks of the state.
+     */
+    synchronized void replace(State state, Collection<AliyunDownloadMediaInfo> infos) {
+        clear(state);
+        moveAllTo(infos, state);
+    }
+
+    synchronized void clear(State state) {
+        LinkedHashMap<TaskKey, AliyunDownloadMediaInfo> tasks = mTasks.get(state);
+        for (TaskKey key : tasks.keySet()) {
+            mStates.remove(key);
+        }
+        tasks.clear();
+    }
+
+    synchronized void clear() {
+        mStates.clear();
+        for (LinkedHashMap<TaskKey, AliyunDownloadMediaInfo> tasks : mTasks.values()) {
+            tasks.clear();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.aliyun.player.alivcplayerexpand.view.function;
+
+import android.text.TextUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * 按时间排序的弹幕索引
+ * <p>
+ * 时间和内容分别存放在数组中,时间为基本类型,按时间二分查找
+ */
+/****
+ * Time sorted danmaku index
+ * <p>
+ * Times and texts are kept in parallel arrays, times are primitives and looked up by binary search.
+ * Not thread-safe: build it on any thread, then only use it on one.
+ */
+public class DanmakuTimeline {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * 批量加载时,排序键的低位存放原始下标,保证同一时间的弹幕保持原有顺序
+     */
+    /****
+     * On bulk load, the low bits of the sort key hold the original index, so that danmakus at the same time keep
+     * their order
+     */
+    private static final int INDEX_BITS = 20;
+    private static final int MAX_BULK_SIZE = 1 << INDEX_BITS;
+
+    private long[] mTimes = new long[INITIAL_CAPACITY];
+    private String[] mTexts = new String[INITIAL_CAPACITY];
+    private int mSize = 0;
+
+    /**
+     * 从流中批量加载弹幕,每行一条: 时间(毫秒)\t内容,无法解析的行会被跳过
+     * <p>
+     * 先顺序读入全部弹幕,最后只排序一次,而不是逐条有序插入
+     */
+    /****
+     * Bulk load danmakus from a stream, one per line: time (ms) \t text. Lines that can't be parsed are skipped.
+     * The stream is read to the end but not closed.
+     * <p>
+     * All danmakus are appended first and sorted once at the end, instead of an ordered insert per line
+     */
+    public static DanmakuTimeline load(InputStream in) throws IOException {
+        DanmakuTimeline timeline = new DanmakuTimeline();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0 || tab == line.length() - 1) {
+                continue;
+            }
+            long time;
+            try {
+                time = Long.parseLong(line.substring(0, tab).trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (time >= 0 && timeline.mSize < MAX_BULK_SIZE) {
+                timeline.append(time, line.substring(tab + 1));
+            }
+        }
+        timeline.sort();
+        return timeline;
+    }
+
+    /**
+     * 插入一条弹幕,保持时间顺序
+     *
+     * @return 插入的下标
+     */
+    /****
+     * Insert a danmaku, keeping time order
+     *
+     * @return index of the danmaku
+     */
+    public int add(long timeMs, String text) {
+        if (TextUtils.isEmpty(text)) {
+            return -1;
+        }
+        //同一时间的弹幕插在最后
+        //Danmakus at the same time are inserted last
+        int index = ceilingIndex(timeMs + 1);
+        ensureCapacity(mSize + 1);
+        System.arraycopy(mTimes, index, mTimes, index + 1, mSize - index);
+        System.arraycopy(mTexts, index, mTexts, index + 1, mSize - index);
+        mTimes[index] = timeMs;
+        mTexts[index] = text;
+        mSize++;
+        return index;
+    }
+
+    /**
+     * @return index of the first danmaku at or after the time, or size() if there is none
+     */
+    public int ceilingIndex(long timeMs) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTimes[mid] < timeMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public long timeAt(int index) {
+        return mTimes[index];
+    }
+
+    public String textAt(int index) {
+        return mTexts[index];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mTexts, 0, mSize, null);
+        mSize = 0;
+    }
+
+    private void append(long timeMs, String text) {
+        ensureCapacity(mSize + 1);
+        mTimes[mSize] = timeMs;
+        mTexts[mSize] = text;
+        mSize++;
+    }
+
+    /**
+     * 批量加载后排序,已有序时直接返回
+     */
+    /****
+     * Sort after a bulk load, returns at once if already sorted
+     */
+    private void sort() {
+        boolean sorted = true;
+        for (int i = 1; i < mSize && sorted; i++) {
+            sorted = mTimes[i - 1] <= mTimes[i];
+        }
+        if (sorted) {
+            return;
+        }
+        long[] keys = new long[mSize];
+        for (int i = 0; i < mSize; i++) {
+            keys[i] = (mTimes[i] << INDEX_BITS) | i;
+        }
+        Arrays.sort(keys);
+        long[] times = new long[mTimes.length];
+        String[] texts = new String[mTexts.length];
+        for (int i = 0; i < mSize; i++) {
+            int index = (int) (keys[i] & (MAX_BULK_SIZE - 1));
+            times[i] = mTimes[index];
+            texts[i] = mTexts[index];
+        }
+        mTimes = times;
+        mTexts = texts;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mTimes.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mTimes.length * 2);
+        mTimes = Arrays.copyOf(mTimes, newCapacity);
+        mTexts = Arrays.copyOf(mTexts, newCapacity);
+    }
+}
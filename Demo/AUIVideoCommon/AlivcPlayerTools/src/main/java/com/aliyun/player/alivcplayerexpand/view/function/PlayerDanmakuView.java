@@ -4,12 +4,18 @@ import android.content.Context;
 import android.graphics.Color;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.Log;
 
 
 import com.aliyun.player.alivcplayerexpand.util.AliyunScreenMode;
+import com.aliyun.player.alivcplayerexpand.util.ThreadUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import master.flame.danmaku.controller.DrawHandler;
@@ -34,6 +40,43 @@ import master.flame.danmaku.ui.widget.DanmakuView;
  */
 public class PlayerDanmakuView extends DanmakuView {
 
+    private static final String TAG = PlayerDanmakuView.class.getSimpleName();
+
+    /**
+     * 提前送入弹幕的时长
+     */
+    /****
+     * How far ahead of the playhead danmakus are fed. Unit: ms
+     */
+    private static final long FEED_AHEAD_MS = 3000;
+
+    /**
+     * 播放位置向前超出已送入范围、或向后回退超过该值时视为拖动
+     */
+    /****
+     * A position jump forward beyond the fed range, or backward, by more than this is handled as a seek. Unit: ms
+     */
+    private static final long SEEK_THRESHOLD_MS = 2000;
+
+    /**
+     * 每秒最多送入的弹幕数,根据帧耗时在上下限之间调整
+     */
+    /****
+     * Max number of danmakus fed per second, adapted to the frame time between the bounds
+     */
+    private static final int MIN_DENSITY_PER_SECOND = 2;
+    private static final int MAX_DENSITY_PER_SECOND = 15;
+    private static final int INITIAL_DENSITY_PER_SECOND = 8;
+
+    /**
+     * 帧耗时超过该值时降低密度,低于FAST_FRAME_MS时逐步恢复
+     */
+    /****
+     * Density is lowered when the average frame time is above SLOW_FRAME_MS, and raised back below FAST_FRAME_MS
+     */
+    private static final float SLOW_FRAME_MS = 24;
+    private static final float FAST_FRAME_MS = 18;
+
     //弹幕最大显示行数
     //Maximum number of lines to be displayed for danmaku
     private HashMap<Integer, Integer> mMaxLinesPair;
@@ -54,7 +97,17 @@ public class PlayerDanmakuView extends DanmakuView {
     private int mDanmaType = BaseDanmaku.TYPE_SCROLL_RL;
     //保存弹幕
     //Save danmaku
-    private Map<Integer, ArrayList<String>> mDanmakuList = new HashMap<>();
+    private DanmakuTimeline mDanmakuTimeline = new DanmakuTimeline();
+    //下一条待送入的弹幕下标,及已送入的时间范围
+    //Index of the next danmaku to feed, and the end of the time range already fed
+    private int mFeedIndex = 0;
+    private long mFedUntilMs = -1;
+    private long mLastPositionMs = -1;
+    private int mDensityPerSecond = INITIAL_DENSITY_PER_SECOND;
+    //绘制线程统计的平均帧耗时
+    //Average frame time, measured on the drawing thread
+    private volatile float mFrameTimeMs = 16;
+    private long mLastFrameNs = 0;
 
     private DanmakuContext mDanmakuContext;
     //当前屏幕模式
@@ -160,6 +213,16 @@ public class PlayerDanmakuView extends DanmakuView {
 
             @Override
             public void updateTimer(DanmakuTimer timer) {
+                long now = System.nanoTime();
+                if (mLastFrameNs > 0) {
+                    float frameMs = (now - mLastFrameNs) / 1000000f;
+                    //暂停后的间隔不计入
+                    //Gaps after a pause are ignored
+                    if (frameMs < 250) {
+                        mFrameTimeMs = mFrameTimeMs * 0.9f + frameMs * 0.1f;
+                    }
+                }
+                mLastFrameNs = now;
             }
 
             @Override
@@ -238,12 +301,60 @@ public class PlayerDanmakuView extends DanmakuView {
     }
 
     public void addTestDanmku() {
-        long time = getCurrentTime();
+        long positionMs = Math.max(0, mLastPositionMs);
         for (int i = 0; i < danmkuArray.length; i++) {
-            addTestDataDanmaku(danmkuArray[i], time + (i % 5) * 1000);
+            addTestDataDanmaku(danmkuArray[i], positionMs + (i % 5) * 1000);
         }
     }
 
+    /**
+     * 从流中加载弹幕,在子线程解析,完成后替换当前弹幕
+     *
+     * @param in 每行一条: 时间(毫秒)\t内容
+     */
+    /****
+     * Load danmakus from a stream, parsed on a sub-thread, then replacing the current ones
+     *
+     * @param in one danmaku per line: time (ms) \t text
+     */
+    public void loadDanmaku(final InputStream in) {
+        ThreadUtils.runOnSubThread(new Runnable() {
+            @Override
+            public void run() {
+                final DanmakuTimeline timeline;
+                try {
+                    timeline = DanmakuTimeline.load(in);
+                } catch (IOException e) {
+                    Log.e(TAG, "load danmaku failed", e);
+                    return;
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                    }
+                }
+                ThreadUtils.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        setDanmakuTimeline(timeline);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 替换当前弹幕,下一次播放位置回调时从该位置开始送入
+     */
+    /****
+     * Replace the current danmakus, fed from the position of the next playback callback
+     */
+    public void setDanmakuTimeline(DanmakuTimeline timeline) {
+        mDanmakuTimeline = timeline == null ? new DanmakuTimeline() : timeline;
+        mFeedIndex = 0;
+        mFedUntilMs = -1;
+    }
+
     /**
      * 添加一条弹幕
      *
@@ -267,15 +378,19 @@ public class PlayerDanmakuView extends DanmakuView {
         baseDanmaku.borderColor = Color.WHITE;
         baseDanmaku.textColor = mTextColor;
         addDanmaku(baseDanmaku);
-        int key = (int) (time / 1000);
-        ArrayList<String> stringsList = mDanmakuList.get(key);
-        if (stringsList == null) {
-            stringsList = new ArrayList<>();
-        }
-        stringsList.add(content);
-        mDanmakuList.put(key, stringsList);
+        recordDanmaku(content, time);
     }
 
+    /**
+     * 添加一条测试弹幕
+     *
+     * @param time 弹幕对应的播放位置(毫秒)
+     */
+    /****
+     * Add a test danmaku
+     *
+     * @param time playback position of the danmaku. Unit: ms
+     */
     public void addTestDataDanmaku(String content, long time) {
         if (TextUtils.isEmpty(content) || mDanmakuContext == null || !isPrepared()) {
             return;
@@ -285,16 +400,25 @@ public class PlayerDanmakuView extends DanmakuView {
             return;
         baseDanmaku.text = content;
         baseDanmaku.textSize = mTextSize;
-        baseDanmaku.setTime(time);
+        //显示时间以弹幕计时器为准,记录的是播放位置
+        //Shown on the danmaku timer, recorded at the playback position
+        baseDanmaku.setTime(getCurrentTime() + Math.max(0, time - Math.max(0, mLastPositionMs)));
         baseDanmaku.textColor = mTextColor;
         addDanmaku(baseDanmaku);
-        int key = (int) (time / 1000);
-        ArrayList<String> stringsList = mDanmakuList.get(key);
-        if (stringsList == null) {
-            stringsList = new ArrayList<>();
+        recordDanmaku(content, time);
+    }
+
+    /**
+     * 记录已显示的弹幕,已送入的时间范围内的弹幕不会再次显示
+     */
+    /****
+     * Record a danmaku already shown, it is not shown again if it falls in the time range already fed
+     */
+    private void recordDanmaku(String content, long time) {
+        int index = mDanmakuTimeline.add(time, content);
+        if (index >= 0 && time < mFedUntilMs) {
+            mFeedIndex++;
         }
-        stringsList.add(content);
-        mDanmakuList.put(key, stringsList);
     }
 
     /**
@@ -360,41 +484,111 @@ public class PlayerDanmakuView extends DanmakuView {
      * Player's currentPosition
      */
     public void setCurrentPosition(int mCurrentPosition) {
-//        if (mScreenMode == AliyunScreenMode.Small || !isShown()) {
-//            return;
-//        }
-//        int time = mCurrentPosition / 1000;
-//        if (time == 2) {
-//            addDanmaku(getResources().getString(R.string.alivc_danmaku_text_1));
-//            addTestDanmku();
-//        }
-//        if (time == 3) {
-//            addDanmaku(getResources().getString(R.string.alivc_danmaku_text_2));
-//            addTestDanmku();
-//        }
-//        if ((time == 5)) {
-//            addDanmaku(getResources().getString(R.string.alivc_danmaku_text_3));
-//            addTestDanmku();
-//        }
-
-        /**
-         * TODO 要和IOS统一，输入过的弹幕只展示一次
-         */
-        /****
-         * TODO To be unified with IOS, only the danmaku display once
-         */
-//        ArrayList<String> stringsList = mDanmakuList.get(time);
-//        if (stringsList == null || stringsList.size() == 0) {
-//            return;
-//        }
-//        for (String str : stringsList) {
-//            addDanmaku(str);
-//        }
+        if (mDanmakuContext == null || !isPrepared()) {
+            return;
+        }
+        //弹幕为空时也要更新送入位置,否则之后发送的弹幕会在下一次回调中被当作拖动清除
+        //The feed cursor is tracked even without danmakus, otherwise one sent later is cleared as a seek on the next call
+        if (mFedUntilMs < 0) {
+            //第一次回调只确定送入起点,不清除屏幕上的弹幕
+            //The first call only sets where feeding starts, without clearing the screen
+            mFeedIndex = mDanmakuTimeline.ceilingIndex(mCurrentPosition);
+            mFedUntilMs = mCurrentPosition;
+        } else if (mLastPositionMs - mCurrentPosition > SEEK_THRESHOLD_MS
+                || mCurrentPosition > mFedUntilMs + SEEK_THRESHOLD_MS) {
+            //拖动后从新位置开始送入,清除屏幕上的旧弹幕
+            //After a seek, feed from the new position and clear the danmakus on screen
+            removeAllDanmakus(true);
+            mFeedIndex = mDanmakuTimeline.ceilingIndex(mCurrentPosition);
+            mFedUntilMs = mCurrentPosition;
+        }
+        mLastPositionMs = mCurrentPosition;
+        adjustDensity();
+        //按整秒送入,保证同一秒的弹幕一起计算密度
+        //Feed whole seconds, so that the density of a second is computed at once
+        long feedUntilMs = (mCurrentPosition + FEED_AHEAD_MS) / 1000 * 1000;
+        int end = mDanmakuTimeline.ceilingIndex(feedUntilMs);
+        int start = mFeedIndex;
+        while (start < end) {
+            long second = mDanmakuTimeline.timeAt(start) / 1000;
+            int secondEnd = start + 1;
+            while (secondEnd < end && mDanmakuTimeline.timeAt(secondEnd) / 1000 == second) {
+                secondEnd++;
+            }
+            feedSecond(start, secondEnd, mCurrentPosition);
+            start = secondEnd;
+        }
+        mFeedIndex = Math.max(mFeedIndex, end);
+        mFedUntilMs = Math.max(mFedUntilMs, feedUntilMs);
     }
 
-    public void clearDanmaList() {
-        if (mDanmakuList != null && mDanmakuList.size() > 0) {
-            mDanmakuList.clear();
+    /**
+     * 根据帧耗时调整每秒弹幕数
+     */
+    /****
+     * Adapt the number of danmakus per second to the frame time
+     */
+    private void adjustDensity() {
+        float frameTimeMs = mFrameTimeMs;
+        if (frameTimeMs > SLOW_FRAME_MS) {
+            mDensityPerSecond = Math.max(MIN_DENSITY_PER_SECOND, mDensityPerSecond * 3 / 4);
+        } else if (frameTimeMs < FAST_FRAME_MS) {
+            mDensityPerSecond = Math.min(MAX_DENSITY_PER_SECOND, mDensityPerSecond + 1);
+        }
+    }
+
+    /**
+     * 送入同一秒的弹幕,超过密度时先合并重复内容,仍超过时均匀抽样丢弃
+     */
+    /****
+     * Feed the danmakus of one second. Above the density, duplicates are merged first, then the rest is evenly
+     * sampled
+     */
+    private void feedSecond(int start, int end, long positionMs) {
+        if (end - start <= mDensityPerSecond) {
+            for (int i = start; i < end; i++) {
+                feedDanmaku(mDanmakuTimeline.textAt(i), mDanmakuTimeline.timeAt(i), positionMs);
+            }
+            return;
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        Map<String, Long> times = new HashMap<>();
+        for (int i = start; i < end; i++) {
+            String text = mDanmakuTimeline.textAt(i);
+            Integer count = counts.get(text);
+            counts.put(text, count == null ? 1 : count + 1);
+            if (count == null) {
+                times.put(text, mDanmakuTimeline.timeAt(i));
+            }
+        }
+        List<String> texts = new ArrayList<>(counts.keySet());
+        int size = texts.size();
+        int keep = Math.min(size, mDensityPerSecond);
+        for (int k = 0; k < keep; k++) {
+            String text = texts.get(k * size / keep);
+            int count = counts.get(text);
+            feedDanmaku(count > 1 ? text + " ×" + count : text, times.get(text), positionMs);
+        }
+    }
+
+    private void feedDanmaku(String content, long timeMs, long positionMs) {
+        BaseDanmaku baseDanmaku = mDanmakuContext.mDanmakuFactory.createDanmaku(mDanmaType);
+        if (baseDanmaku == null) {
+            return;
         }
+        baseDanmaku.text = content;
+        baseDanmaku.textSize = mTextSize;
+        baseDanmaku.textColor = mTextColor;
+        //弹幕时间以弹幕计时器为准,按与播放位置的差值换算
+        //Danmaku times follow the danmaku timer, converted from the offset to the playback position
+        baseDanmaku.setTime(getCurrentTime() + Math.max(0, timeMs - positionMs));
+        addDanmaku(baseDanmaku);
+    }
+
+    public void clearDanmaList() {
+        mDanmakuTimeline.clear();
+        mFeedIndex = 0;
+        mFedUntilMs = -1;
+        mLastPositionMs = -1;
     }
 }
@@ -53,6 +53,7 @@ import com.aliyun.player.alivcplayerexpand.util.NetWatchdog;
 import com.aliyun.player.alivcplayerexpand.util.OrientationWatchDog;
 import com.aliyun.player.alivcplayerexpand.util.ScreenUtils;
 import com.aliyun.player.alivcplayerexpand.util.ThreadUtils;
+import com.aliyun.player.alivcplayerexpand.util.ThumbnailCache;
 import com.aliyun.player.alivcplayerexpand.util.TimeFormater;
 import com.aliyun.player.alivcplayerexpand.view.control.ControlView;
 import com.aliyun.player.alivcplayerexpand.view.dlna.callback.DLNAOptionListener;
@@ -90,7 +91,6 @@ import com.aliyun.player.source.VidMps;
 import com.aliyun.player.source.VidSts;
 import com.aliyun.subtitle.LocationStyle;
 import com.aliyun.subtitle.SubtitleView;
-import com.aliyun.thumbnail.ThumbnailBitmapInfo;
 import com.aliyun.thumbnail.ThumbnailHelper;
 import com.cicada.player.utils.Logger;
 
@@ -251,7 +251,7 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
     /****
      * thumbnail helper
      */
-    private ThumbnailHelper mThumbnailHelper;
+    private ThumbnailCache mThumbnailCache;
     //获取缩略图是否成功
     //get thumbnail is success or not
     private boolean mThumbnailPrepareSuccess = false;
@@ -2308,8 +2308,8 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
      * Request thumbnail by position
      */
     private void requestBitmapByPosition(int targetPosition) {
-        if (mThumbnailHelper != null && mThumbnailPrepareSuccess) {
-            mThumbnailHelper.requestBitmapAtPosition(targetPosition);
+        if (mThumbnailCache != null && mThumbnailPrepareSuccess) {
+            mThumbnailCache.requestBitmapAtPosition(targetPosition);
         }
     }
 
@@ -4219,6 +4219,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
         //需要将mThumbnailPrepareSuccess重置,否则会出现缩略图错乱的问题
         //You need to reset mThumbnailPrepareSuccess, otherwise the thumbnails will be messed up.
         mThumbnailPrepareSuccess = false;
+        if (mThumbnailCache != null) {
+            mThumbnailCache.clear();
+        }
         if (mThumbnailView != null) {
             mThumbnailView.setThumbnailPicture(null);
         }
@@ -4233,9 +4236,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
         List<Thumbnail> thumbnailList = mAliyunMediaInfo.getThumbnailList();
         if (thumbnailList != null && thumbnailList.size() > 0) {
 
-            mThumbnailHelper = new ThumbnailHelper(thumbnailList.get(0).mURL);
+            mThumbnailCache = new ThumbnailCache(thumbnailList.get(0).mURL);
 
-            mThumbnailHelper.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
+            mThumbnailCache.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
                 @Override
                 public void onPrepareSuccess() {
                     mThumbnailPrepareSuccess = true;
@@ -4247,13 +4250,12 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
                 }
             });
 
-            mThumbnailHelper.prepare();
+            mThumbnailCache.prepare();
 
-            mThumbnailHelper.setOnThumbnailGetListener(new ThumbnailHelper.OnThumbnailGetListener() {
+            mThumbnailCache.setOnThumbnailListener(new ThumbnailCache.OnThumbnailListener() {
                 @Override
-                public void onThumbnailGetSuccess(long l, ThumbnailBitmapInfo thumbnailBitmapInfo) {
-                    if (thumbnailBitmapInfo != null && thumbnailBitmapInfo.getThumbnailBitmap() != null) {
-                        Bitmap thumbnailBitmap = thumbnailBitmapInfo.getThumbnailBitmap();
+                public void onThumbnailGetSuccess(long l, Bitmap thumbnailBitmap) {
+                    if (thumbnailBitmap != null) {
                         mThumbnailView.setTime(TimeFormater.formatMs(l), "/" + TimeFormater.formatMs(getDuration()));
                         mThumbnailView.setThumbnailPicture(thumbnailBitmap);
                     }
@@ -5321,7 +5323,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
      * source video snapShotComplete
      */
     private void sourceVideoSnapShot(final Bitmap bitmap, int width, int height) {
-        ThreadUtils.runOnSubThread(new Runnable() {
+        // 截图主要耗时在PNG编码,在计算任务通道中执行
+        // PNG encoding of the snapshot dominates, so it runs in the CPU lane
+        ThreadUtils.runOnSubThread(ThreadUtils.Lane.CPU, ThreadUtils.PRIORITY_NORMAL, new Runnable() {
             @Override
             public void run() {
                 String videoPath = FileUtils.getDir(getContext()) + GlobalPlayerConfig.SNAP_SHOT_PATH;
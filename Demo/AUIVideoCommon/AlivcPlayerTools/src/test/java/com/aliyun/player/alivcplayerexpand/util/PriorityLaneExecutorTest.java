@@ -0,0 +1,93 @@
+package com.aliyun.player.alivcplayerexpand.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityLaneExecutorTest {
+
+    private static Runnable record(final List<String> order, final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+    /**
+     * Blocks the single thread of the lane, so that the tasks submitted afterwards are all queued
+     */
+    private static CountDownLatch block(PriorityLaneExecutor lane) throws InterruptedException {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        lane.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, ThreadUtils.PRIORITY_NORMAL);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        return gate;
+    }
+
+    @Test
+    public void tasksRunByPriorityThenSubmissionOrder() throws InterruptedException {
+        PriorityLaneExecutor lane = new PriorityLaneExecutor("test", 1, 1, 16, 16);
+        CountDownLatch gate = block(lane);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(5);
+        lane.execute(record(order, "normal-1", done), ThreadUtils.PRIORITY_NORMAL);
+        lane.execute(record(order, "low", done), ThreadUtils.PRIORITY_LOW);
+        lane.execute(record(order, "high", done), ThreadUtils.PRIORITY_HIGH);
+        lane.execute(record(order, "normal-2", done), ThreadUtils.PRIORITY_NORMAL);
+        lane.execute(record(order, "normal-3", done), ThreadUtils.PRIORITY_NORMAL);
+        gate.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("high", "normal-1", "normal-2", "normal-3", "low"), order);
+    }
+
+    @Test
+    public void tasksWithTheSameKeyKeepSubmissionOrder() throws InterruptedException {
+        PriorityLaneExecutor lane = new PriorityLaneExecutor("test", 1, 1, 16, 16);
+        CountDownLatch gate = block(lane);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(4);
+        lane.execute(record(order, "a-insert", done), ThreadUtils.PRIORITY_LOW, "a");
+        lane.execute(record(order, "b-insert", done), ThreadUtils.PRIORITY_NORMAL, "b");
+        lane.execute(record(order, "a-update", done), ThreadUtils.PRIORITY_HIGH, "a");
+        lane.execute(record(order, "query", done), ThreadUtils.PRIORITY_HIGH);
+        gate.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("query", "b-insert", "a-insert", "a-update"), order);
+    }
+
+    @Test
+    public void statsCountTheTasks() throws InterruptedException {
+        PriorityLaneExecutor lane = new PriorityLaneExecutor("test", 1, 1, 16, 16);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(lane.execute(record(order, "task-" + i, done), ThreadUtils.PRIORITY_NORMAL, "key"));
+        }
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        PriorityLaneExecutor.Stats stats = lane.getStats();
+        assertEquals(3, stats.getSubmittedCount());
+        assertEquals(0, stats.getRejectedCount());
+        assertEquals(Arrays.asList("task-0", "task-1", "task-2"), order);
+    }
+}
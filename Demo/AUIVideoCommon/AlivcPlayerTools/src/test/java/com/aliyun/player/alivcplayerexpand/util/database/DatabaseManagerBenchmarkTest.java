@@ -0,0 +1,188 @@
+package com.aliyun.player.alivcplayerexpand.util.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.aliyun.player.alivcplayerexpand.util.download.AliyunDownloadMediaInfo;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the download table before and after the version 2 schema: 10k rows inserted, updated row by row
+ * through (vid, quality) and queried by status. Timings are printed, only the row counts are asserted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class DatabaseManagerBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int UPDATES = 2_000;
+    private static final String TABLE_NAME = "player_download_info";
+
+    // version 1 table: duration and size stored as text, no index
+    private static final String CREATE_TABLE_V1_SQL = DatabaseManager.CREATE_TABLE_SQL
+            .replace(DatabaseManager.DURATION + " integer", DatabaseManager.DURATION + " text")
+            .replace(DatabaseManager.SIZE + " integer", DatabaseManager.SIZE + " text");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        DatabaseManager.getInstance().close();
+    }
+
+    private static List<AliyunDownloadMediaInfo> mediaInfos() {
+        List<AliyunDownloadMediaInfo> infos = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            AliyunDownloadMediaInfo info = new AliyunDownloadMediaInfo();
+            info.setVid("vid-" + (i / 2));
+            info.setQuality(i % 2 == 0 ? "HD" : "SD");
+            info.setTitle("title-" + i);
+            info.setFormat("mp4");
+            info.setDuration(60_000L + i);
+            info.setSize(1_048_576L + i);
+            info.setProgress(i % 100);
+            info.setStatus(i % 4 == 0 ? AliyunDownloadMediaInfo.Status.Start : AliyunDownloadMediaInfo.Status.Complete);
+            infos.add(info);
+        }
+        return infos;
+    }
+
+    // a fixed-seed batch of rows switched to the stopped state
+    private static List<AliyunDownloadMediaInfo> stoppedInfos(List<AliyunDownloadMediaInfo> infos) {
+        Random random = new Random(42);
+        List<AliyunDownloadMediaInfo> stopped = new ArrayList<>(UPDATES);
+        for (int i = 0; i < UPDATES; i++) {
+            AliyunDownloadMediaInfo info = infos.get(random.nextInt(ROWS));
+            info.setStatus(AliyunDownloadMediaInfo.Status.Stop);
+            stopped.add(info);
+        }
+        return stopped;
+    }
+
+    private static int countStatus(List<AliyunDownloadMediaInfo> infos, AliyunDownloadMediaInfo.Status status) {
+        int count = 0;
+        for (AliyunDownloadMediaInfo info : infos) {
+            if (info.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void benchmarkTenThousandRows() {
+        long[] before = runV1(mediaInfos());
+        long[] after = runV2(mediaInfos());
+        System.out.println(String.format("download db %d rows, %d updates: insert %d -> %d ms, update %d -> %d ms, query %d -> %d ms",
+                ROWS, UPDATES, before[0], after[0], before[1], after[1], before[2], after[2]));
+    }
+
+    // version 1: one ContentValues insert/update per row, status queries scan the whole table
+    private long[] runV1(List<AliyunDownloadMediaInfo> infos) {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(new File(mFolder.getRoot(), "v1.db"), null);
+        try {
+            db.execSQL(CREATE_TABLE_V1_SQL);
+
+            long start = System.nanoTime();
+            for (AliyunDownloadMediaInfo info : infos) {
+                ContentValues values = new ContentValues();
+                values.put(DatabaseManager.VID, info.getVid());
+                values.put(DatabaseManager.QUALITY, info.getQuality());
+                values.put(DatabaseManager.TITLE, info.getTitle());
+                values.put(DatabaseManager.FORMAT, info.getFormat());
+                values.put(DatabaseManager.DURATION, info.getDuration());
+                values.put(DatabaseManager.SIZE, info.getSize());
+                values.put(DatabaseManager.PROGRESS, info.getProgress());
+                values.put(DatabaseManager.STATUS, info.getStatus().ordinal());
+                db.insert(TABLE_NAME, null, values);
+            }
+            long insertMs = elapsedMs(start);
+
+            List<AliyunDownloadMediaInfo> stopped = stoppedInfos(infos);
+            start = System.nanoTime();
+            for (AliyunDownloadMediaInfo info : stopped) {
+                ContentValues values = new ContentValues();
+                values.put(DatabaseManager.PROGRESS, info.getProgress());
+                values.put(DatabaseManager.STATUS, info.getStatus().ordinal());
+                db.update(TABLE_NAME, values, " vid=? and quality=?",
+                        new String[] {info.getVid(), info.getQuality()});
+            }
+            long updateMs = elapsedMs(start);
+
+            start = System.nanoTime();
+            int downloading = countRows(db, AliyunDownloadMediaInfo.Status.Start);
+            int stoppedRows = countRows(db, AliyunDownloadMediaInfo.Status.Stop);
+            long queryMs = elapsedMs(start);
+
+            assertEquals(countStatus(infos, AliyunDownloadMediaInfo.Status.Start), downloading);
+            assertEquals(countStatus(infos, AliyunDownloadMediaInfo.Status.Stop), stoppedRows);
+            return new long[] {insertMs, updateMs, queryMs};
+        } finally {
+            db.close();
+        }
+    }
+
+    // version 2: DatabaseManager batch insert, compiled update statements, indexed status queries
+    private long[] runV2(List<AliyunDownloadMediaInfo> infos) {
+        DatabaseManager manager = DatabaseManager.getInstance();
+        manager.createDataBase(RuntimeEnvironment.getApplication());
+        manager.deleteAll();
+
+        long start = System.nanoTime();
+        manager.insert(infos);
+        long insertMs = elapsedMs(start);
+
+        List<AliyunDownloadMediaInfo> stopped = stoppedInfos(infos);
+        start = System.nanoTime();
+        for (AliyunDownloadMediaInfo info : stopped) {
+            manager.update(info);
+        }
+        long updateMs = elapsedMs(start);
+
+        start = System.nanoTime();
+        int downloading = manager.selectDownloadingList().size();
+        int stoppedRows = manager.selectStopedList().size();
+        long queryMs = elapsedMs(start);
+
+        assertEquals(countStatus(infos, AliyunDownloadMediaInfo.Status.Start), downloading);
+        assertEquals(countStatus(infos, AliyunDownloadMediaInfo.Status.Stop), stoppedRows);
+        assertEquals(ROWS, manager.selectAll().size());
+        return new long[] {insertMs, updateMs, queryMs};
+    }
+
+    private static int countRows(SQLiteDatabase db, AliyunDownloadMediaInfo.Status status) {
+        Cursor cursor = db.rawQuery("select * from " + TABLE_NAME + " where status=?",
+                new String[] {String.valueOf(status.ordinal())});
+        try {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                cursor.getString(cursor.getColumnIndex(DatabaseManager.VID));
+                count++;
+            }
+            return count;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,135 @@
+package com.aliyun.player.alivcplayerexpand.util.download;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadProgressAggregatorTest {
+
+    private final List<Runnable> mUiTasks = new ArrayList<>();
+    private final List<Runnable> mDbTasks = new ArrayList<>();
+    private final List<AliyunDownloadMediaInfo> mDispatchedInfos = new ArrayList<>();
+    private final List<Integer> mDispatchedPercents = new ArrayList<>();
+    private final List<AliyunDownloadMediaInfo> mFlushed = new ArrayList<>();
+
+    private DownloadProgressAggregator mAggregator;
+
+    private static AliyunDownloadMediaInfo episode(String vid, String quality) {
+        AliyunDownloadMediaInfo info = new AliyunDownloadMediaInfo();
+        info.setVid(vid);
+        info.setQuality(quality);
+        info.setFormat("mp4");
+        // AliyunDownloadMediaInfo.equals() only compares the vid of episodes, hashCode() also the quality
+        info.setTvId("tv");
+        return info;
+    }
+
+    @Before
+    public void setUp() {
+        mAggregator = new DownloadProgressAggregator(new DownloadProgressAggregator.Callback() {
+            @Override
+            public void onDispatchProgress(AliyunDownloadMediaInfo info, int percent) {
+                mDispatchedInfos.add(info);
+                mDispatchedPercents.add(percent);
+            }
+
+            @Override
+            public void onFlush(List<AliyunDownloadMediaInfo> infos) {
+                mFlushed.addAll(infos);
+            }
+        }, new DownloadProgressAggregator.Scheduler() {
+            @Override
+            public void runOnUiThread(Runnable runnable, long delayMs) {
+                mUiTasks.add(runnable);
+            }
+
+            @Override
+            public void runOnDbThread(Runnable runnable) {
+                mDbTasks.add(runnable);
+            }
+        });
+    }
+
+    private void runUiTasks() {
+        List<Runnable> tasks = new ArrayList<>(mUiTasks);
+        mUiTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private void runDbTasks() {
+        List<Runnable> tasks = new ArrayList<>(mDbTasks);
+        mDbTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void qualitiesOfOneEpisodeAreKeptApart() {
+        AliyunDownloadMediaInfo hd = episode("vid", "HD");
+        AliyunDownloadMediaInfo sd = episode("vid", "SD");
+
+        mAggregator.onProgress(hd, 10);
+        mAggregator.onProgress(sd, 20);
+        mAggregator.onProgress(hd, 30);
+        runUiTasks();
+
+        assertEquals(2, mDispatchedInfos.size());
+        assertSame(hd, mDispatchedInfos.get(0));
+        assertEquals(30, (int) mDispatchedPercents.get(0));
+        assertSame(sd, mDispatchedInfos.get(1));
+        assertEquals(20, (int) mDispatchedPercents.get(1));
+
+        runDbTasks();
+        assertEquals(2, mFlushed.size());
+        assertSame(hd, mFlushed.get(0));
+        assertSame(sd, mFlushed.get(1));
+    }
+
+    @Test
+    public void removeOnlyDropsTheRemovedQuality() {
+        AliyunDownloadMediaInfo hd = episode("vid", "HD");
+        AliyunDownloadMediaInfo sd = episode("vid", "SD");
+
+        mAggregator.onProgress(hd, 10);
+        mAggregator.onProgress(sd, 20);
+        // Another instance of the same task, as the download callbacks pass
+        mAggregator.remove(episode("vid", "HD"));
+        runUiTasks();
+        runDbTasks();
+
+        assertEquals(1, mDispatchedInfos.size());
+        assertSame(sd, mDispatchedInfos.get(0));
+        assertEquals(1, mFlushed.size());
+        assertSame(sd, mFlushed.get(0));
+    }
+
+    @Test
+    public void latestInstanceIsDispatchedAndNothingIsLeftAfterFlush() {
+        AliyunDownloadMediaInfo first = episode("vid", "HD");
+        AliyunDownloadMediaInfo second = episode("vid", "HD");
+
+        mAggregator.onProgress(first, 10);
+        mAggregator.onProgress(second, 11);
+        runUiTasks();
+        runDbTasks();
+        assertEquals(1, mDispatchedInfos.size());
+        assertSame(second, mDispatchedInfos.get(0));
+        assertEquals(1, mFlushed.size());
+
+        mDispatchedInfos.clear();
+        mFlushed.clear();
+        runUiTasks();
+        runDbTasks();
+        assertTrue(mDispatchedInfos.isEmpty());
+        assertTrue(mFlushed.isEmpty());
+    }
+}
@@ -0,0 +1,152 @@
+package com.aliyun.player.alivcplayerexpand.util.download;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DownloadTaskTableTest {
+
+    private static AliyunDownloadMediaInfo info(String vid, String quality, String format) {
+        AliyunDownloadMediaInfo info = new AliyunDownloadMediaInfo();
+        info.setVid(vid);
+        info.setQuality(quality);
+        info.setFormat(format);
+        return info;
+    }
+
+    @Test
+    public void tasksAreKeyedByVidQualityAndFormat() {
+        DownloadTaskTable table = new DownloadTaskTable();
+        AliyunDownloadMediaInfo hd = info("vid", "HD", "mp4");
+        AliyunDownloadMediaInfo sd = info("vid", "SD", "mp4");
+        // AliyunDownloadMediaInfo.equals() only compares the vid of episodes
+        hd.setTvId("tv");
+        sd.setTvId("tv");
+        AliyunDownloadMediaInfo m3u8 = info("vid", "HD", "m3u8");
+
+        table.moveTo(hd, DownloadTaskTable.State.WAITING);
+        table.moveTo(sd, DownloadTaskTable.State.DOWNLOADING);
+        table.moveTo(m3u8, DownloadTaskTable.State.STOPPED);
+
+        assertEquals(DownloadTaskTable.State.WAITING, table.getState(hd));
+        assertEquals(DownloadTaskTable.State.DOWNLOADING, table.getState(sd));
+        assertEquals(DownloadTaskTable.State.STOPPED, table.getState(m3u8));
+        assertEquals(DownloadTaskTable.State.WAITING, table.getState(info("vid", "HD", "mp4")));
+        assertNull(table.getState(info("vid", "LD", "mp4")));
+    }
+
+    @Test
+    public void moveKeepsOrderAndLatestInstance() {
+        DownloadTaskTable table = new DownloadTaskTable();
+        AliyunDownloadMediaInfo a = info("a", "HD", "mp4");
+        AliyunDownloadMediaInfo b = info("b", "HD", "mp4");
+        table.moveAllTo(Arrays.asList(a, b), DownloadTaskTable.State.WAITING);
+
+        AliyunDownloadMediaInfo a2 = info("a", "HD", "mp4");
+        assertEquals(DownloadTaskTable.State.WAITING, table.moveTo(a2, DownloadTaskTable.State.WAITING));
+        assertSame(a2, table.peek(DownloadTaskTable.State.WAITING));
+
+        assertEquals(DownloadTaskTable.State.WAITING, table.moveTo(a, DownloadTaskTable.State.DOWNLOADING));
+        assertSame(b, table.peek(DownloadTaskTable.State.WAITING));
+        assertEquals(1, table.size(DownloadTaskTable.State.WAITING));
+        assertTrue(table.contains(a2, DownloadTaskTable.State.DOWNLOADING));
+
+        assertEquals(DownloadTaskTable.State.DOWNLOADING, table.remove(a2));
+        assertFalse(table.contains(a));
+        assertEquals(0, table.size(DownloadTaskTable.State.DOWNLOADING));
+    }
+
+    @Test
+    public void replaceAndClear() {
+        DownloadTaskTable table = new DownloadTaskTable();
+        AliyunDownloadMediaInfo a = info("a", "HD", "mp4");
+        AliyunDownloadMediaInfo b = info("b", "HD", "mp4");
+        table.moveTo(a, DownloadTaskTable.State.COMPLETED);
+        table.replace(DownloadTaskTable.State.COMPLETED, Arrays.asList(b));
+        assertFalse(table.contains(a));
+        assertEquals(Arrays.asList(b), table.list(DownloadTaskTable.State.COMPLETED));
+        table.clear();
+        assertFalse(table.contains(b));
+        assertEquals(0, table.size(DownloadTaskTable.State.COMPLETED));
+    }
+
+    @Test
+    public void concurrentTransitionsKeepEveryTaskInOneState() throws Exception {
+        final DownloadTaskTable table = new DownloadTaskTable();
+        final int threads = 8;
+        final int tasksPerThread = 50;
+        final int iterations = 20_000;
+        final DownloadTaskTable.State[] states = DownloadTaskTable.State.values();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<DownloadTaskTable.State[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            futures.add(executor.submit(new Callable<DownloadTaskTable.State[]>() {
+                @Override
+                public DownloadTaskTable.State[] call() throws Exception {
+                    // Each thread owns its tasks and remembers their last state, tasks are shared through new instances
+                    Random random = new Random(thread);
+                    DownloadTaskTable.State[] expected = new DownloadTaskTable.State[tasksPerThread];
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        int task = random.nextInt(tasksPerThread);
+                        AliyunDownloadMediaInfo info = info("vid" + thread + "-" + task, task % 2 == 0 ? "HD" : "SD", "mp4");
+                        info.setTvId("tv");
+                        if (random.nextInt(10) == 0) {
+                            table.remove(info);
+                            expected[task] = null;
+                        } else {
+                            DownloadTaskTable.State state = states[random.nextInt(states.length)];
+                            table.moveTo(info, state);
+                            expected[task] = state;
+                        }
+                        // Readers running concurrently
+                        table.list(states[random.nextInt(states.length)]);
+                        table.peek(states[random.nextInt(states.length)]);
+                    }
+                    return expected;
+                }
+            }));
+        }
+        start.countDown();
+        int expectedTotal = 0;
+        for (int t = 0; t < threads; t++) {
+            DownloadTaskTable.State[] expected = futures.get(t).get(60, TimeUnit.SECONDS);
+            for (int task = 0; task < tasksPerThread; task++) {
+                AliyunDownloadMediaInfo info = info("vid" + t + "-" + task, task % 2 == 0 ? "HD" : "SD", "mp4");
+                assertEquals("vid" + t + "-" + task, expected[task], table.getState(info));
+                if (expected[task] != null) {
+                    expectedTotal++;
+                }
+            }
+        }
+        executor.shutdown();
+
+        int total = 0;
+        for (DownloadTaskTable.State state : states) {
+            List<AliyunDownloadMediaInfo> infos = table.list(state);
+            assertEquals(infos.size(), table.size(state));
+            for (AliyunDownloadMediaInfo info : infos) {
+                assertEquals(state, table.getState(info));
+            }
+            total += infos.size();
+        }
+        assertEquals(expectedTotal, total);
+    }
+}
@@ -0,0 +1,54 @@
+package com.aliyun.player.alivcplayerexpand.view.function;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DanmakuTimelineTest {
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void loadSortsByTimeAndKeepsTheOrderOfEqualTimes() throws IOException {
+        DanmakuTimeline timeline = DanmakuTimeline.load(stream("3000\tc\n1000\ta1\n2000\tb\n1000\ta2\n"));
+        assertEquals(4, timeline.size());
+        String[] texts = {"a1", "a2", "b", "c"};
+        long[] times = {1000, 1000, 2000, 3000};
+        for (int i = 0; i < texts.length; i++) {
+            assertEquals(texts[i], timeline.textAt(i));
+            assertEquals(times[i], timeline.timeAt(i));
+        }
+        assertEquals(2, timeline.ceilingIndex(1500));
+    }
+
+    @Test
+    public void loadSkipsLinesThatCannotBeParsed() throws IOException {
+        DanmakuTimeline timeline = DanmakuTimeline.load(stream("x\tbad\n\tno time\n500\t\n-1\tnegative\n700\t弹幕\n"));
+        assertEquals(1, timeline.size());
+        assertEquals(700, timeline.timeAt(0));
+        assertEquals("弹幕", timeline.textAt(0));
+    }
+
+    @Test
+    public void loadHandlesManyUnsortedLines() throws IOException {
+        int count = 100000;
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append((count - i) * 10L).append('\t').append("d").append(i).append('\n');
+        }
+        DanmakuTimeline timeline = DanmakuTimeline.load(stream(content.toString()));
+        assertEquals(count, timeline.size());
+        for (int i = 1; i < count; i++) {
+            assertTrue(timeline.timeAt(i - 1) <= timeline.timeAt(i));
+        }
+        assertEquals("d" + (count - 1), timeline.textAt(0));
+    }
+}
@@ -21,6 +21,15 @@ interface VideoPlayRecordDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     fun insert(info: VideoPlayRecordInfo)
 
+    /**
+     * 批量写入,主键(uid, video_id)冲突时替换,Room在一个事务中执行
+     */
+    /****
+     * Batch upsert, replacing on (uid, video_id) conflict, run by Room in a single transaction
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    fun insertAll(infos: List<VideoPlayRecordInfo>)
+
     @Delete
     fun delete(uid: VideoPlayRecordInfo)
 
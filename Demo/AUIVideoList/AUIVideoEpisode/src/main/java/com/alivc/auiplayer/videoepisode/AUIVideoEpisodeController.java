@@ -3,10 +3,10 @@ package com.alivc.auiplayer.videoepisode;
 
 import android.content.Context;
 import android.util.Log;
-import android.util.SparseArray;
 import android.view.Surface;
 
 import com.alivc.auiplayer.videoepisode.data.AUIEpisodeVideoInfo;
+import com.alivc.player.videolist.auivideolistcommon.AUIVideoListSourceRegistry;
 import com.alivc.player.videolist.auivideolistcommon.listener.PlayerListener;
 import com.aliyun.player.AliListPlayer;
 import com.aliyun.player.AliPlayerFactory;
@@ -18,18 +18,19 @@ import com.aliyun.player.nativeclass.PlayerConfig;
 
 import java.io.File;
 import java.util.List;
-import java.util.UUID;
 
 public class AUIVideoEpisodeController {
 
     private final AliListPlayer aliListPlayer;
     private IPlayer preRenderPlayer;
 
-    private int mOldPosition = 0;
+    // 当前播放的uuid,记uuid而不是位置,插入删除后不会错位
+    // The uuid being played, kept instead of the position so inserts and removals do not shift it
+    private String mCurrentUUID;
 
     private int mCurrentPlayerState;
     private int mCurrentPlayerStateCallBack;
-    private final SparseArray<String> mIndexWithUUID = new SparseArray<>();
+    private final AUIVideoListSourceRegistry mSources;
     private PlayerListener mPlayerListener;
 
     // 通过接口设置，可以达到全屏效果，默认是 IPlayer.ScaleMode.SCALE_ASPECT_FIT
@@ -56,6 +57,7 @@ public class AUIVideoEpisodeController {
 
         aliListPlayer = AliPlayerFactory.createAliListPlayer(context);
         aliListPlayer.setScaleMode(DEFAULT_VIDEO_SCALE_MODE);
+        mSources = new AUIVideoListSourceRegistry(aliListPlayer);
 
         preRenderPlayer = aliListPlayer.getPreRenderPlayer();
 
@@ -118,21 +120,42 @@ public class AUIVideoEpisodeController {
     }
 
     public void loadSource(List<AUIEpisodeVideoInfo> listVideo) {
-        aliListPlayer.clear();
-        mIndexWithUUID.clear();
-        for (int i = 0; i < listVideo.size(); i++) {
-            String randomUUID = UUID.randomUUID().toString();
-            mIndexWithUUID.put(i, randomUUID);
-            aliListPlayer.addUrl(listVideo.get(i).getUrl(), randomUUID);
-        }
+        mSources.load(listVideo);
+        mCurrentUUID = null;
     }
 
     public void addSource(List<AUIEpisodeVideoInfo> videoBeanList) {
-        for (int i = 0; i < videoBeanList.size(); i++) {
-            String randomUUID = UUID.randomUUID().toString();
-            mIndexWithUUID.put(i, randomUUID);
-            aliListPlayer.addUrl(videoBeanList.get(i).getUrl(), randomUUID);
-        }
+        mSources.append(videoBeanList);
+    }
+
+    /**
+     * 在指定位置插入剧集,只添加新的播放源
+     */
+    /****
+     * Insert episodes at a position, only the new sources are added
+     */
+    public void insertSource(int position, List<AUIEpisodeVideoInfo> videoBeanList) {
+        mSources.insert(position, videoBeanList);
+    }
+
+    /**
+     * 删除剧集,只移除被删除的播放源
+     */
+    /****
+     * Remove episodes, only their sources are removed
+     */
+    public void removeSource(int position, int count) {
+        mSources.remove(position, count);
+    }
+
+    /**
+     * 移动剧集,不需要重新添加播放源
+     */
+    /****
+     * Move an episode without adding any source again
+     */
+    public void moveSource(int fromPosition, int toPosition) {
+        mSources.move(fromPosition, toPosition);
     }
 
     public void openLoopPlay(boolean openLoopPlay) {
@@ -153,7 +176,6 @@ public class AUIVideoEpisodeController {
     public void onPageSelected(int position) {
         Log.i("CheckFunc", "onPageSelected (int) position " + position);
         moveToPosition(position, null);
-        this.mOldPosition = position;
     }
 
     // 用于短视频的上下滑动
@@ -161,7 +183,6 @@ public class AUIVideoEpisodeController {
     public void onPageSelected(int position, Surface surface) {
         Log.i("CheckFunc", "onPageSelected (int, surface)" + " position " + position);
         moveToPosition(position, surface);
-        this.mOldPosition = position;
     }
 
     // 移动到指定位置的共用方法
@@ -169,16 +190,24 @@ public class AUIVideoEpisodeController {
     private void moveToPosition(int position, Surface surface) {
         setSurface(surface);
 
-        // 如果是第一个位置或者跳跃式改变位置
-        // If it's the first position or a jump to change positions
-        if (position == 0 || Math.abs(position - mOldPosition) != 1) {
-            aliListPlayer.moveTo(mIndexWithUUID.get(position));
+        String uuid = mSources.getUUID(position);
+        if (uuid == null) {
+            return;
+        }
+        boolean isNext = mSources.isPlayerNext(mCurrentUUID, uuid);
+        boolean isPrev = mSources.isPlayerPrev(mCurrentUUID, uuid);
+        mCurrentUUID = uuid;
+
+        // 如果是第一个位置、跳跃式改变位置,或者插入移动后目标不是播放器内相邻的播放源
+        // If it's the first position, a jump to change positions, or the target isn't next to the current source inside the player after an insert or a move
+        if (position == 0 || (!isNext && !isPrev)) {
+            aliListPlayer.moveTo(uuid);
             return;
         }
 
         // 如果是相邻位置的平滑过渡
         // If it's a smooth transition between neighboring positions
-        if (mOldPosition < position) {
+        if (isNext) {
             handleNextWithPreRender(surface);
         } else { // 向前滑动 slide forward
             aliListPlayer.moveToPrev();
@@ -232,7 +261,7 @@ public class AUIVideoEpisodeController {
      * @note In the current version, PreRender Player only supports pre-rendering the screen of the next video in the list; specifying pre-rendering the screen of the previous video is to be supported in subsequent versions.
      */
     public void setSurfaceToPreRenderPlayer(Surface surface) {
-        Log.i("CheckFunc", "setSurfaceToPreRenderPlayer " + "mOldPosition " + mOldPosition);
+        Log.i("CheckFunc", "setSurfaceToPreRenderPlayer " + "currentPosition " + mSources.indexOf(mCurrentUUID));
         preRenderPlayer = aliListPlayer.getPreRenderPlayer();
         if (preRenderPlayer != null && surface != null) {
             preRenderPlayer.setScaleMode(DEFAULT_VIDEO_SCALE_MODE);
@@ -254,7 +283,7 @@ public class AUIVideoEpisodeController {
     }
 
     public void onPlayStateChange() {
-        Log.i("CheckFunc", "onPlayStateChange" + " mCurrentPlayerState " + mCurrentPlayerState + " moldPosition " + mOldPosition + " mCurrentPlayerStateCallBack " + mCurrentPlayerStateCallBack);
+        Log.i("CheckFunc", "onPlayStateChange" + " mCurrentPlayerState " + mCurrentPlayerState + " currentPosition " + mSources.indexOf(mCurrentUUID) + " mCurrentPlayerStateCallBack " + mCurrentPlayerStateCallBack);
         if (mCurrentPlayerStateCallBack < IPlayer.prepared) {
             return;
         }
@@ -0,0 +1,244 @@
+package com.alivc.player.videolist.auivideolistcommon;
+
+import com.alivc.player.videolist.auivideolistcommon.bean.VideoInfo;
+import com.aliyun.player.AliListPlayer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 列表播放器的播放源管理
+ * <p>
+ * 1.维护位置和uuid的双向索引,两个方向的查找都是O(1)
+ * 2.追加、插入、删除、移动只对列表播放器调用必要的addUrl/removeSource,无需clear后全部重新添加
+ * 3.列表播放器只能在末尾添加播放源,插入或移动后播放器内的顺序和列表可能不一致;另外记录每个播放源在播放器内的前后播放源,
+ * 目标正好是播放器内的下一个或上一个时才能用moveToNext/moveToPrev
+ */
+/****
+ * Source registry of a list player
+ * <p>
+ * 1. Keeps a bidirectional position/uuid index, both lookups are O(1)
+ * 2. Append, insert, remove and move only issue the addUrl/removeSource calls they need, instead of clearing and
+ * adding every source again
+ * 3. The list player can only add sources at its end, so after an insert or a move its order may differ from the
+ * list. The previous and next source of every uuid inside the player are tracked as well, moveToNext/moveToPrev may
+ * only be used when the target is the player's next or previous source
+ */
+public class AUIVideoListSourceRegistry {
+
+    private final AliListPlayer mListPlayer;
+
+    // 位置 -> uuid
+    // Position -> uuid
+    private final List<String> mUUIDs = new ArrayList<>();
+    // uuid -> 位置
+    // Uuid -> position
+    private final Map<String, Integer> mPositions = new HashMap<>();
+
+    // 播放器内的顺序:uuid -> 下一个/上一个播放源的uuid
+    // Order inside the player: uuid -> uuid of the next/previous source
+    private final Map<String, String> mPlayerNext = new HashMap<>();
+    private final Map<String, String> mPlayerPrev = new HashMap<>();
+    private String mPlayerTail;
+
+    public AUIVideoListSourceRegistry(AliListPlayer listPlayer) {
+        mListPlayer = listPlayer;
+    }
+
+    /**
+     * 清空后重新加载全部播放源
+     */
+    /****
+     * Clear and load all sources again
+     */
+    public void load(List<? extends VideoInfo> videoInfoList) {
+        clear();
+        append(videoInfoList);
+    }
+
+    public void clear() {
+        mListPlayer.clear();
+        mUUIDs.clear();
+        mPositions.clear();
+        mPlayerNext.clear();
+        mPlayerPrev.clear();
+        mPlayerTail = null;
+    }
+
+    /**
+     * 在末尾追加播放源
+     */
+    /****
+     * Append sources to the end
+     */
+    public void append(List<? extends VideoInfo> videoInfoList) {
+        for (VideoInfo videoInfo : videoInfoList) {
+            String uuid = UUID.randomUUID().toString();
+            mPositions.put(uuid, mUUIDs.size());
+            mUUIDs.add(uuid);
+            addToPlayer(videoInfo, uuid);
+        }
+    }
+
+    /**
+     * 在指定位置插入播放源,位置为size时等同于append
+     */
+    /****
+     * Insert sources at a position, the same as append when the position is the size
+     */
+    public void insert(int position, List<? extends VideoInfo> videoInfoList) {
+        checkPosition(position, mUUIDs.size());
+        if (position == mUUIDs.size()) {
+            append(videoInfoList);
+            return;
+        }
+        if (videoInfoList.isEmpty()) {
+            return;
+        }
+        List<String> uuids = new ArrayList<>(videoInfoList.size());
+        for (VideoInfo videoInfo : videoInfoList) {
+            String uuid = UUID.randomUUID().toString();
+            uuids.add(uuid);
+            addToPlayer(videoInfo, uuid);
+        }
+        mUUIDs.addAll(position, uuids);
+        reindex(position, mUUIDs.size());
+    }
+
+    /**
+     * 删除从position开始的count个播放源,超出末尾的部分忽略,列表为空时不做任何操作
+     */
+    /****
+     * Remove count sources starting at position, the part beyond the end is ignored, nothing is done on an empty list
+     */
+    public void remove(int position, int count) {
+        if (count <= 0 || position >= mUUIDs.size()) {
+            return;
+        }
+        checkPosition(position, mUUIDs.size() - 1);
+        int end = Math.min(position + count, mUUIDs.size());
+        List<String> removed = mUUIDs.subList(position, end);
+        for (String uuid : removed) {
+            mListPlayer.removeSource(uuid);
+            mPositions.remove(uuid);
+            unlinkFromPlayer(uuid);
+        }
+        removed.clear();
+        reindex(position, mUUIDs.size());
+    }
+
+    /**
+     * 移动播放源,播放器不需要任何调用
+     */
+    /****
+     * Move a source, nothing needs to be called on the player
+     */
+    public void move(int fromPosition, int toPosition) {
+        checkPosition(fromPosition, mUUIDs.size() - 1);
+        checkPosition(toPosition, mUUIDs.size() - 1);
+        if (fromPosition == toPosition) {
+            return;
+        }
+        mUUIDs.add(toPosition, mUUIDs.remove(fromPosition));
+        reindex(Math.min(fromPosition, toPosition), Math.max(fromPosition, toPosition) + 1);
+    }
+
+    /**
+     * 获取位置对应的uuid,越界时返回null
+     */
+    /****
+     * Get the uuid of a position, null when out of range
+     */
+    public String getUUID(int position) {
+        if (position < 0 || position >= mUUIDs.size()) {
+            return null;
+        }
+        return mUUIDs.get(position);
+    }
+
+    /**
+     * 获取uuid当前的位置,不存在时返回-1
+     */
+    /****
+     * Get the current position of a uuid, -1 when it is not registered
+     */
+    public int indexOf(String uuid) {
+        if (uuid == null) {
+            return -1;
+        }
+        Integer position = mPositions.get(uuid);
+        return position == null ? -1 : position;
+    }
+
+    public int size() {
+        return mUUIDs.size();
+    }
+
+    /**
+     * 播放器内uuid的下一个播放源是否为nextUUID,是则可以用moveToNext从uuid切换到nextUUID
+     */
+    /****
+     * Whether nextUUID is the source after uuid inside the player, if so moveToNext switches from uuid to nextUUID
+     */
+    public boolean isPlayerNext(String uuid, String nextUUID) {
+        return uuid != null && nextUUID != null && nextUUID.equals(mPlayerNext.get(uuid));
+    }
+
+    /**
+     * 播放器内uuid的上一个播放源是否为prevUUID,是则可以用moveToPrev从uuid切换到prevUUID
+     */
+    /****
+     * Whether prevUUID is the source before uuid inside the player, if so moveToPrev switches from uuid to prevUUID
+     */
+    public boolean isPlayerPrev(String uuid, String prevUUID) {
+        return uuid != null && prevUUID != null && prevUUID.equals(mPlayerPrev.get(uuid));
+    }
+
+    // 列表播放器只能添加到末尾
+    // The list player only adds to its end
+    private void addToPlayer(VideoInfo videoInfo, String uuid) {
+        mListPlayer.addUrl(videoInfo.getUrl(), uuid);
+        if (mPlayerTail != null) {
+            mPlayerNext.put(mPlayerTail, uuid);
+            mPlayerPrev.put(uuid, mPlayerTail);
+        }
+        mPlayerTail = uuid;
+    }
+
+    private void unlinkFromPlayer(String uuid) {
+        String prev = mPlayerPrev.remove(uuid);
+        String next = mPlayerNext.remove(uuid);
+        if (prev != null) {
+            if (next != null) {
+                mPlayerNext.put(prev, next);
+            } else {
+                mPlayerNext.remove(prev);
+            }
+        }
+        if (next != null) {
+            if (prev != null) {
+                mPlayerPrev.put(next, prev);
+            } else {
+                mPlayerPrev.remove(next);
+            }
+        }
+        if (uuid.equals(mPlayerTail)) {
+            mPlayerTail = prev;
+        }
+    }
+
+    private void reindex(int from, int to) {
+        for (int i = from; i < to; i++) {
+            mPositions.put(mUUIDs.get(i), i);
+        }
+    }
+
+    private static void checkPosition(int position, int max) {
+        if (position < 0 || position > max) {
+            throw new IndexOutOfBoundsException("position: " + position + ", max: " + max);
+        }
+    }
+}
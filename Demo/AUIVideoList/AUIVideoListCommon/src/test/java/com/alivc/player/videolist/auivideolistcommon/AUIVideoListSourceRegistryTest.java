@@ -0,0 +1,188 @@
+package com.alivc.player.videolist.auivideolistcommon;
+
+import com.alivc.player.videolist.auivideolistcommon.bean.VideoInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AUIVideoListSourceRegistryTest {
+
+    private FakeListPlayer mPlayer;
+    private AUIVideoListSourceRegistry mRegistry;
+    // 列表中每个位置期望的url
+    private List<String> mUrls;
+    private int mNextId;
+
+    @Before
+    public void setUp() {
+        mPlayer = new FakeListPlayer();
+        mRegistry = new AUIVideoListSourceRegistry(mPlayer.player);
+        mUrls = new ArrayList<>();
+        mNextId = 0;
+    }
+
+    private List<VideoInfo> videos(int count) {
+        List<VideoInfo> videos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            VideoInfo videoInfo = new VideoInfo();
+            videoInfo.setId(mNextId);
+            videoInfo.setUrl("url" + mNextId++);
+            videos.add(videoInfo);
+        }
+        return videos;
+    }
+
+    private static List<String> urls(List<VideoInfo> videos) {
+        List<String> urls = new ArrayList<>();
+        for (VideoInfo videoInfo : videos) {
+            urls.add(videoInfo.getUrl());
+        }
+        return urls;
+    }
+
+    /**
+     * 校验位置索引、播放器内的播放源以及播放器内的前后关系
+     */
+    private void assertConsistent() {
+        assertEquals(mUrls.size(), mRegistry.size());
+        assertEquals(mUrls.size(), mPlayer.uids.size());
+        assertEquals(new HashSet<>(mUrls), new HashSet<>(mPlayer.urls));
+        for (int i = 0; i < mUrls.size(); i++) {
+            String uuid = mRegistry.getUUID(i);
+            assertEquals(i, mRegistry.indexOf(uuid));
+            assertEquals("position " + i, mUrls.get(i), mPlayer.urls.get(mPlayer.uids.indexOf(uuid)));
+        }
+        for (int i = 0; i < mPlayer.uids.size(); i++) {
+            String uuid = mPlayer.uids.get(i);
+            String next = i + 1 < mPlayer.uids.size() ? mPlayer.uids.get(i + 1) : null;
+            String prev = i > 0 ? mPlayer.uids.get(i - 1) : null;
+            for (String other : mPlayer.uids) {
+                assertEquals(other.equals(next), mRegistry.isPlayerNext(uuid, other));
+                assertEquals(other.equals(prev), mRegistry.isPlayerPrev(uuid, other));
+            }
+        }
+    }
+
+    private void append(int count) {
+        List<VideoInfo> videos = videos(count);
+        mRegistry.append(videos);
+        mUrls.addAll(urls(videos));
+    }
+
+    @Test
+    public void removeOnEmptyRegistryIsNoOp() {
+        mRegistry.remove(0, 3);
+        assertEquals(0, mRegistry.size());
+        append(2);
+        mRegistry.remove(2, 1);
+        assertConsistent();
+    }
+
+    @Test
+    public void removeClampsCountToTheEnd() {
+        append(5);
+        mRegistry.remove(3, 10);
+        mUrls.subList(3, 5).clear();
+        assertConsistent();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void removeRejectsNegativePosition() {
+        append(2);
+        mRegistry.remove(-1, 1);
+    }
+
+    @Test
+    public void appendKeepsPlayerOrder() {
+        append(4);
+        assertConsistent();
+        for (int i = 0; i + 1 < mUrls.size(); i++) {
+            assertTrue(mRegistry.isPlayerNext(mRegistry.getUUID(i), mRegistry.getUUID(i + 1)));
+            assertTrue(mRegistry.isPlayerPrev(mRegistry.getUUID(i + 1), mRegistry.getUUID(i)));
+        }
+        assertFalse(mRegistry.isPlayerNext(null, mRegistry.getUUID(0)));
+        assertNull(mRegistry.getUUID(4));
+    }
+
+    @Test
+    public void insertIsAddedToTheEndOfThePlayer() {
+        append(3);
+        List<VideoInfo> inserted = videos(1);
+        mRegistry.insert(1, inserted);
+        mUrls.addAll(1, urls(inserted));
+        assertConsistent();
+        // 播放器内0号之后仍是原来的1号,不是插入的播放源
+        assertFalse(mRegistry.isPlayerNext(mRegistry.getUUID(0), mRegistry.getUUID(1)));
+        assertTrue(mRegistry.isPlayerNext(mRegistry.getUUID(0), mRegistry.getUUID(2)));
+    }
+
+    @Test
+    public void moveBackRestoresAdjacentSwitches() {
+        append(4);
+        mRegistry.move(0, 3);
+        mUrls.add(3, mUrls.remove(0));
+        assertConsistent();
+        // 列表为1,2,3,0,播放器内3之后没有播放源
+        assertFalse(mRegistry.isPlayerNext(mRegistry.getUUID(2), mRegistry.getUUID(3)));
+
+        mRegistry.move(3, 0);
+        mUrls.add(0, mUrls.remove(3));
+        assertConsistent();
+        for (int i = 0; i + 1 < mUrls.size(); i++) {
+            assertTrue(mRegistry.isPlayerNext(mRegistry.getUUID(i), mRegistry.getUUID(i + 1)));
+        }
+    }
+
+    @Test
+    public void removingTheOutOfOrderSourceRestoresAdjacentSwitches() {
+        append(3);
+        mRegistry.insert(1, videos(1));
+        mRegistry.remove(1, 1);
+        for (int i = 0; i + 1 < mRegistry.size(); i++) {
+            assertTrue(mRegistry.isPlayerNext(mRegistry.getUUID(i), mRegistry.getUUID(i + 1)));
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchThePlayer() {
+        Random random = new Random(7);
+        append(10);
+        for (int i = 0; i < 2_000; i++) {
+            int action = random.nextInt(5);
+            int size = mUrls.size();
+            if (action == 0) {
+                append(random.nextInt(3));
+            } else if (action == 1 && size < 40) {
+                int at = random.nextInt(size + 1);
+                List<VideoInfo> inserted = videos(1 + random.nextInt(3));
+                mRegistry.insert(at, inserted);
+                mUrls.addAll(at, urls(inserted));
+            } else if (action == 2 && size > 0) {
+                int at = random.nextInt(size);
+                int count = 1 + random.nextInt(3);
+                mRegistry.remove(at, count);
+                mUrls.subList(at, Math.min(at + count, size)).clear();
+            } else if (action == 3 && size > 0) {
+                int from = random.nextInt(size);
+                int to = random.nextInt(size);
+                mRegistry.move(from, to);
+                mUrls.add(to, mUrls.remove(from));
+            } else if (action == 4 && random.nextInt(20) == 0) {
+                List<VideoInfo> videos = videos(random.nextInt(8));
+                mRegistry.load(videos);
+                mUrls = urls(videos);
+            }
+            assertConsistent();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.alivc.player.videolist.auivideolistcommon;
+
+import com.aliyun.player.AliListPlayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录播放源的列表播放器,addUrl只能添加到末尾,与真实播放器一致
+ */
+class FakeListPlayer implements InvocationHandler {
+
+    // 播放器内的播放源uuid,按添加顺序
+    final List<String> uids = new ArrayList<>();
+    final List<String> urls = new ArrayList<>();
+
+    final AliListPlayer player = (AliListPlayer) Proxy.newProxyInstance(AliListPlayer.class.getClassLoader(),
+            new Class<?>[]{AliListPlayer.class}, this);
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "addUrl":
+                urls.add((String) args[0]);
+                uids.add((String) args[1]);
+                return null;
+            case "removeSource":
+                int index = uids.indexOf((String) args[0]);
+                if (index < 0) {
+                    throw new IllegalStateException("unknown source: " + args[0]);
+                }
+                uids.remove(index);
+                urls.remove(index);
+                return null;
+            case "clear":
+                uids.clear();
+                urls.clear();
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "FakeListPlayer";
+            default:
+                throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
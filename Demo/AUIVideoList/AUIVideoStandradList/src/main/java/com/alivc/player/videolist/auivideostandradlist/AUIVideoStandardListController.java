@@ -1,10 +1,10 @@
 package com.alivc.player.videolist.auivideostandradlist;
 
 import android.content.Context;
-import android.util.SparseArray;
 import android.view.Surface;
 
 
+import com.alivc.player.videolist.auivideolistcommon.AUIVideoListSourceRegistry;
 import com.alivc.player.videolist.auivideolistcommon.bean.VideoInfo;
 import com.alivc.player.videolist.auivideolistcommon.listener.PlayerListener;
 import com.aliyun.player.AliListPlayer;
@@ -14,14 +14,14 @@ import com.aliyun.player.IPlayer;
 import com.aliyun.player.nativeclass.PlayerConfig;
 
 import java.util.List;
-import java.util.UUID;
 
 public class AUIVideoStandardListController {
 
     private final AliListPlayer aliListPlayer;
-    private int mOldPosition = 0;
+    // 当前播放的uuid,null表示还没有播放过。记uuid而不是位置,插入删除后不会错位
+    private String mCurrentUUID;
     private int mCurrentPlayerState;
-    private final SparseArray<String> mIndexWithUUID = new SparseArray<>();
+    private final AUIVideoListSourceRegistry mSources;
     private PlayerListener mPlayerListener;
 
     // 通过接口设置，可以达到全屏效果，默认是 IPlayer.ScaleMode.SCALE_ASPECT_FIT
@@ -35,9 +35,15 @@ public class AUIVideoStandardListController {
     private static final IPlayer.SeekMode DEFAULT_SEEK_MODE = IPlayer.SeekMode.Accurate;
 
     public AUIVideoStandardListController(Context context) {
-        aliListPlayer = AliPlayerFactory.createAliListPlayer(context);
+        this(AliPlayerFactory.createAliListPlayer(context));
+    }
+
+    // 单元测试可以传入记录调用的列表播放器
+    AUIVideoStandardListController(AliListPlayer listPlayer) {
+        aliListPlayer = listPlayer;
         aliListPlayer.setLoop(true);
         aliListPlayer.setScaleMode(DEFAULT_VIDEO_SCALE_MODE);
+        mSources = new AUIVideoListSourceRegistry(aliListPlayer);
 
         aliListPlayer.setOnPreparedListener(() -> {
             mPlayerListener.onPrepared(-1);
@@ -64,21 +70,30 @@ public class AUIVideoStandardListController {
     }
 
     public void loadSource(List<VideoInfo> listVideo) {
-        aliListPlayer.clear();
-        mIndexWithUUID.clear();
-        for (int i = 0; i < listVideo.size(); i++) {
-            String randomUUID = UUID.randomUUID().toString();
-            mIndexWithUUID.put(i, randomUUID);
-            aliListPlayer.addUrl(listVideo.get(i).getUrl(), randomUUID);
-        }
+        mSources.load(listVideo);
+        mCurrentUUID = null;
     }
 
     public void addSource(List<VideoInfo> videoBeanList) {
-        for (int i = 0; i < videoBeanList.size(); i++) {
-            String randomUUID = UUID.randomUUID().toString();
-            mIndexWithUUID.put(i + mIndexWithUUID.size(), randomUUID);
-            aliListPlayer.addUrl(videoBeanList.get(i).getUrl(), randomUUID);
-        }
+        mSources.append(videoBeanList);
+    }
+
+    /**
+     * 在指定位置插入播放源,只添加新的播放源
+     */
+    public void insertSource(int position, List<VideoInfo> videoBeanList) {
+        mSources.insert(position, videoBeanList);
+    }
+
+    /**
+     * 删除播放源,只移除被删除的播放源
+     */
+    public void removeSource(int position, int count) {
+        mSources.remove(position, count);
+    }
+
+    public void moveSource(int fromPosition, int toPosition) {
+        mSources.move(fromPosition, toPosition);
     }
 
     public void openLoopPlay(boolean openLoopPlay) {
@@ -89,18 +104,23 @@ public class AUIVideoStandardListController {
         this.mPlayerListener = listener;
     }
 
+    /**
+     * 目标是播放器内的下一个或上一个播放源时用开销更小的moveToNext/moveToPrev,首次播放、跳转、快速滑过多页、恢复状态、
+     * 插入或移动后播放器顺序和列表不一致等情况直接moveTo目标uuid
+     */
     public void onPageSelected(int position) {
-        if (position == 0) {
-            aliListPlayer.moveTo(mIndexWithUUID.get(position));
+        String uuid = mSources.getUUID(position);
+        if (uuid == null || uuid.equals(mCurrentUUID)) {
+            return;
+        }
+        if (mSources.isPlayerNext(mCurrentUUID, uuid)) {
+            aliListPlayer.moveToNext();
+        } else if (mSources.isPlayerPrev(mCurrentUUID, uuid)) {
+            aliListPlayer.moveToPrev();
         } else {
-            if (mOldPosition < position) {
-                aliListPlayer.moveToNext();
-            } else {
-                aliListPlayer.moveToPrev();
-            }
+            aliListPlayer.moveTo(uuid);
         }
-        this.mOldPosition = position;
-
+        this.mCurrentUUID = uuid;
     }
 
     public void setSurface(Surface surface) {
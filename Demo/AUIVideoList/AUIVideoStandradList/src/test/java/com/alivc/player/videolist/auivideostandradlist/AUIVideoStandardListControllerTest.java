@@ -0,0 +1,152 @@
+package com.alivc.player.videolist.auivideostandradlist;
+
+import com.alivc.player.videolist.auivideolistcommon.bean.VideoInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AUIVideoStandardListControllerTest {
+
+    private FakeListPlayer mPlayer;
+    private AUIVideoStandardListController mController;
+    // 列表中每个位置对应的url,用于校验播放器切到了正确的播放源
+    private List<String> mUrls;
+    private List<String> mPlayerUrls;
+    private int mNextId;
+
+    @Before
+    public void setUp() {
+        mPlayer = new FakeListPlayer();
+        mController = new AUIVideoStandardListController(mPlayer.player);
+        mUrls = new ArrayList<>();
+        mPlayerUrls = new ArrayList<>();
+        mNextId = 0;
+    }
+
+    private List<VideoInfo> videos(int count) {
+        List<VideoInfo> videos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            VideoInfo videoInfo = new VideoInfo();
+            videoInfo.setId(mNextId);
+            videoInfo.setUrl("https://example.com/" + mNextId++ + ".mp4");
+            videos.add(videoInfo);
+        }
+        return videos;
+    }
+
+    private static List<String> urls(List<VideoInfo> videos) {
+        List<String> urls = new ArrayList<>();
+        for (VideoInfo videoInfo : videos) {
+            urls.add(videoInfo.getUrl());
+        }
+        return urls;
+    }
+
+    private void select(int position) {
+        mController.onPageSelected(position);
+        // 播放器当前播放源的url必须是列表该位置的url
+        int sourceIndex = mPlayer.sources.indexOf(mPlayer.currentUid);
+        assertTrue("player has no current source after selecting " + position, sourceIndex >= 0);
+        assertEquals(mUrls.get(position), mPlayerUrls.get(sourceIndex));
+    }
+
+    private void load(int count) {
+        List<VideoInfo> videos = videos(count);
+        mController.loadSource(videos);
+        mUrls = urls(videos);
+        mPlayerUrls = urls(videos);
+    }
+
+    @Test
+    public void adjacentPagesUseMoveToNextAndPrev() {
+        load(5);
+        select(0);
+        assertEquals("moveTo", mPlayer.lastCall());
+        select(1);
+        assertEquals("moveToNext", mPlayer.lastCall());
+        select(2);
+        assertEquals("moveToNext", mPlayer.lastCall());
+        select(1);
+        assertEquals("moveToPrev", mPlayer.lastCall());
+    }
+
+    @Test
+    public void nonAdjacentPagesUseMoveTo() {
+        load(10);
+        select(0);
+        select(7);
+        assertEquals("moveTo", mPlayer.lastCall());
+        select(2);
+        assertEquals("moveTo", mPlayer.lastCall());
+        int calls = mPlayer.calls.size();
+        select(2);
+        assertEquals("selecting the current page does nothing", calls, mPlayer.calls.size());
+    }
+
+    @Test
+    public void insertBreaksPlayerOrder() {
+        load(3);
+        select(0);
+        List<VideoInfo> inserted = videos(1);
+        mController.insertSource(1, inserted);
+        mUrls.addAll(1, urls(inserted));
+        mPlayerUrls.addAll(urls(inserted));
+        // 播放器内的下一个播放源是原来的第1个,不是插入的那个
+        select(1);
+        assertEquals("moveTo", mPlayer.lastCall());
+    }
+
+    @Test
+    public void randomJumpsAlwaysLandOnTheSelectedPage() {
+        Random random = new Random(42);
+        load(20);
+        int position = 0;
+        select(position);
+        for (int i = 0; i < 5_000; i++) {
+            int action = random.nextInt(20);
+            if (action == 0 && mUrls.size() < 60) {
+                int at = random.nextInt(mUrls.size() + 1);
+                List<VideoInfo> inserted = videos(1 + random.nextInt(3));
+                mController.insertSource(at, inserted);
+                mUrls.addAll(at, urls(inserted));
+                mPlayerUrls.addAll(urls(inserted));
+            } else if (action == 1 && mUrls.size() > 5) {
+                int at = random.nextInt(mUrls.size());
+                int count = 1 + random.nextInt(2);
+                mController.removeSource(at, count);
+                List<String> removed = mUrls.subList(at, Math.min(at + count, mUrls.size()));
+                mPlayerUrls.removeAll(removed);
+                removed.clear();
+            } else if (action == 2) {
+                int from = random.nextInt(mUrls.size());
+                int to = random.nextInt(mUrls.size());
+                mController.moveSource(from, to);
+                mUrls.add(to, mUrls.remove(from));
+            } else if (action == 3) {
+                load(5 + random.nextInt(20));
+            }
+            position = Math.min(position, mUrls.size() - 1);
+            int next;
+            if (random.nextBoolean()) {
+                // 相邻滑动
+                next = position + (random.nextBoolean() ? 1 : -1);
+                next = Math.max(0, Math.min(mUrls.size() - 1, next));
+            } else {
+                next = random.nextInt(mUrls.size());
+            }
+            // 删除后当前页可能已经不在,相同位置的页面仍需要切换
+            select(next);
+            position = next;
+        }
+        assertTrue(Collections.frequency(mPlayer.calls, "moveToNext") > 0);
+        assertTrue(Collections.frequency(mPlayer.calls, "moveToPrev") > 0);
+    }
+}
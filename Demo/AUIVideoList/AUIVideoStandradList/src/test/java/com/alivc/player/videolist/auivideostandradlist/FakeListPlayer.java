@@ -0,0 +1,98 @@
+package com.alivc.player.videolist.auivideostandradlist;
+
+import com.aliyun.player.AliListPlayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录调用的列表播放器
+ * 按播放器自己的添加顺序维护播放源,moveToNext/moveToPrev按该顺序切换,与真实播放器一致
+ */
+class FakeListPlayer implements InvocationHandler {
+
+    final List<String> calls = new ArrayList<>();
+    // 播放器内的播放源顺序,即addUrl的调用顺序
+    final List<String> sources = new ArrayList<>();
+    String currentUid;
+
+    final AliListPlayer player = (AliListPlayer) Proxy.newProxyInstance(AliListPlayer.class.getClassLoader(),
+            new Class<?>[]{AliListPlayer.class}, this);
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "addUrl":
+                sources.add((String) args[1]);
+                break;
+            case "removeSource":
+                sources.remove((String) args[0]);
+                break;
+            case "clear":
+                sources.clear();
+                currentUid = null;
+                break;
+            case "moveTo":
+                calls.add("moveTo");
+                currentUid = (String) args[0];
+                return true;
+            case "moveToNext":
+                calls.add("moveToNext");
+                currentUid = step(1);
+                return true;
+            case "moveToPrev":
+                calls.add("moveToPrev");
+                currentUid = step(-1);
+                return true;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "FakeListPlayer";
+            default:
+                break;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    String lastCall() {
+        return calls.isEmpty() ? null : calls.get(calls.size() - 1);
+    }
+
+    private String step(int offset) {
+        int index = sources.indexOf(currentUid) + offset;
+        return index >= 0 && index < sources.size() ? sources.get(index) : null;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -35,6 +35,7 @@ import com.aliyun.player.alivcplayerexpand.util.ImageLoader;
 import com.aliyun.player.alivcplayerexpand.util.ScreenUtils;
 import com.aliyun.player.alivcplayerexpand.util.DensityUtil;
 import com.aliyun.player.alivcplayerexpand.util.ThreadUtils;
+import com.aliyun.player.alivcplayerexpand.util.ThumbnailCache;
 import com.aliyun.player.alivcplayerexpand.util.FileUtils;
 import com.aliyun.player.alivcplayerexpand.bean.DotBean;
 import com.aliyun.player.alivcplayerexpand.constants.GlobalPlayerConfig;
@@ -82,7 +83,6 @@ import com.aliyun.player.source.VidMps;
 import com.aliyun.player.source.VidSts;
 import com.aliyun.subtitle.LocationStyle;
 import com.aliyun.subtitle.SubtitleView;
-import com.aliyun.thumbnail.ThumbnailBitmapInfo;
 import com.aliyun.thumbnail.ThumbnailHelper;
 import com.cicada.player.utils.Logger;
 import com.cicada.player.utils.ass.AssHeader;
@@ -201,7 +201,7 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
     /**
      * 缩略图帮助类
      */
-    private ThumbnailHelper mThumbnailHelper;
+    private ThumbnailCache mThumbnailCache;
     //获取缩略图是否成功
     private boolean mThumbnailPrepareSuccess = false;
 
@@ -1691,8 +1691,8 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
      * 根据位置请求缩略图
      */
     private void requestBitmapByPosition(int targetPosition) {
-        if (mThumbnailHelper != null && mThumbnailPrepareSuccess) {
-            mThumbnailHelper.requestBitmapAtPosition(targetPosition);
+        if (mThumbnailCache != null && mThumbnailPrepareSuccess) {
+            mThumbnailCache.requestBitmapAtPosition(targetPosition);
         }
     }
 
@@ -3430,6 +3430,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
     private void sourceVideoPlayerPrepared() {
         //需要将mThumbnailPrepareSuccess重置,否则会出现缩略图错乱的问题
         mThumbnailPrepareSuccess = false;
+        if (mThumbnailCache != null) {
+            mThumbnailCache.clear();
+        }
         if(mThumbnailView != null){
             mThumbnailView.setThumbnailPicture(null);
         }
@@ -3444,9 +3447,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
         List<Thumbnail> thumbnailList = mAliyunMediaInfo.getThumbnailList();
         if (thumbnailList != null && thumbnailList.size() > 0) {
 
-            mThumbnailHelper = new ThumbnailHelper(thumbnailList.get(0).mURL);
+            mThumbnailCache = new ThumbnailCache(thumbnailList.get(0).mURL);
 
-            mThumbnailHelper.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
+            mThumbnailCache.setOnPrepareListener(new ThumbnailHelper.OnPrepareListener() {
                 @Override
                 public void onPrepareSuccess() {
                     mThumbnailPrepareSuccess = true;
@@ -3458,13 +3461,12 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
                 }
             });
 
-            mThumbnailHelper.prepare();
+            mThumbnailCache.prepare();
 
-            mThumbnailHelper.setOnThumbnailGetListener(new ThumbnailHelper.OnThumbnailGetListener() {
+            mThumbnailCache.setOnThumbnailListener(new ThumbnailCache.OnThumbnailListener() {
                 @Override
-                public void onThumbnailGetSuccess(long l, ThumbnailBitmapInfo thumbnailBitmapInfo) {
-                    if (thumbnailBitmapInfo != null && thumbnailBitmapInfo.getThumbnailBitmap() != null) {
-                        Bitmap thumbnailBitmap = thumbnailBitmapInfo.getThumbnailBitmap();
+                public void onThumbnailGetSuccess(long l, Bitmap thumbnailBitmap) {
+                    if (thumbnailBitmap != null) {
 //                        mThumbnailView.setTime(TimeFormater.formatMs(l));
                         mThumbnailView.setThumbnailPicture(thumbnailBitmap);
                     }
@@ -4406,7 +4408,9 @@ public class AliyunVodPlayerView extends RelativeLayout implements ITheme {
      * 原视频截图完成
      */
     private void sourceVideoSnapShot(final Bitmap bitmap, int width, int height){
-        ThreadUtils.runOnSubThread(new Runnable() {
+        // 截图主要耗时在PNG编码,在计算任务通道中执行
+        // PNG encoding of the snapshot dominates, so it runs in the CPU lane
+        ThreadUtils.runOnSubThread(ThreadUtils.Lane.CPU, ThreadUtils.PRIORITY_NORMAL, new Runnable() {
             @Override
             public void run() {
                 String videoPath = FileUtils.getDir(getContext()) + GlobalPlayerConfig.SNAP_SHOT_PATH;